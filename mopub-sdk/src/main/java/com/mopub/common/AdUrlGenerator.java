@@ -2,11 +2,15 @@ package com.mopub.common;
 
 import android.content.Context;
 import android.location.Location;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.util.DateAndTime;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.mopub.common.ClientMetadata.MoPubNetworkType;
 
 public abstract class AdUrlGenerator extends BaseUrlGenerator {
@@ -101,6 +105,37 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
      */
     private static final String BUNDLE_ID_KEY = "bundle";
 
+    /**
+     * Encoded params that only depend on values ClientMetadata reads once, like the device, the
+     * app and the carrier, so they are the same for every request. They are kept per generator
+     * class, since subclasses may name params differently, and rebuilt whenever the ClientMetadata
+     * instance or the screen density changes. Params that can change during a session, like the
+     * orientation and the network type, are still added for every request.
+     */
+    private static class StaticParams {
+        @NonNull final ClientMetadata mClientMetadata;
+        final float mDensity;
+        // nv, dn and bundle
+        @NonNull final String mDeviceParams;
+        // sc_a, mcc, mnc, iso and cn
+        @NonNull final String mDisplayAndCarrierParams;
+        // av and the advertising info templates
+        @NonNull final String mAppParams;
+
+        StaticParams(@NonNull final ClientMetadata clientMetadata, final float density,
+                @NonNull final String deviceParams, @NonNull final String displayAndCarrierParams,
+                @NonNull final String appParams) {
+            mClientMetadata = clientMetadata;
+            mDensity = density;
+            mDeviceParams = deviceParams;
+            mDisplayAndCarrierParams = displayAndCarrierParams;
+            mAppParams = appParams;
+        }
+    }
+
+    @NonNull private static final Map<Class<? extends AdUrlGenerator>, StaticParams> sStaticParams =
+            new HashMap<Class<? extends AdUrlGenerator>, StaticParams>();
+
     protected Context mContext;
     protected String mAdUnitId;
     protected String mKeywords;
@@ -207,13 +242,11 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
     }
 
     protected void addBaseParams(final ClientMetadata clientMetadata) {
+        final StaticParams staticParams = getStaticParams(clientMetadata);
+
         setAdUnitId(mAdUnitId);
 
-        setSdkVersion(clientMetadata.getSdkVersion());
-        setDeviceInfo(clientMetadata.getDeviceManufacturer(),
-                clientMetadata.getDeviceModel(),
-                clientMetadata.getDeviceProduct());
-        setBundleId(clientMetadata.getAppPackageName());
+        addParamSegment(staticParams.mDeviceParams);
 
         setKeywords(mKeywords);
 
@@ -223,20 +256,61 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
 
         setOrientation(clientMetadata.getOrientationString());
         setDeviceDimensions(clientMetadata.getDeviceDimensions());
-        setDensity(clientMetadata.getDensity());
 
+        addParamSegment(staticParams.mDisplayAndCarrierParams);
+
+        setNetworkType(clientMetadata.getActiveNetworkType());
+
+        addParamSegment(staticParams.mAppParams);
+    }
+
+    @NonNull
+    private StaticParams getStaticParams(@NonNull final ClientMetadata clientMetadata) {
+        final float density = clientMetadata.getDensity();
+        synchronized (sStaticParams) {
+            final StaticParams cachedStaticParams = sStaticParams.get(getClass());
+            if (cachedStaticParams != null
+                    && cachedStaticParams.mClientMetadata == clientMetadata
+                    && cachedStaticParams.mDensity == density) {
+                return cachedStaticParams;
+            }
+        }
+
+        startParamSegment();
+        setSdkVersion(clientMetadata.getSdkVersion());
+        setDeviceInfo(clientMetadata.getDeviceManufacturer(),
+                clientMetadata.getDeviceModel(),
+                clientMetadata.getDeviceProduct());
+        setBundleId(clientMetadata.getAppPackageName());
+        final String deviceParams = finishParamSegment();
+
+        startParamSegment();
+        setDensity(density);
         final String networkOperator = clientMetadata.getNetworkOperatorForUrl();
         setMccCode(networkOperator);
         setMncCode(networkOperator);
-
         setIsoCountryCode(clientMetadata.getIsoCountryCode());
         setCarrierName(clientMetadata.getNetworkOperatorName());
+        final String displayAndCarrierParams = finishParamSegment();
 
-        setNetworkType(clientMetadata.getActiveNetworkType());
-
+        startParamSegment();
         setAppVersion(clientMetadata.getAppVersion());
-
         appendAdvertisingInfoTemplates();
+        final String appParams = finishParamSegment();
+
+        final StaticParams staticParams = new StaticParams(clientMetadata, density, deviceParams,
+                displayAndCarrierParams, appParams);
+        synchronized (sStaticParams) {
+            sStaticParams.put(getClass(), staticParams);
+        }
+        return staticParams;
+    }
+
+    @VisibleForTesting
+    public static void clearStaticParamsForTesting() {
+        synchronized (sStaticParams) {
+            sStaticParams.clear();
+        }
     }
 
     private void addParam(String key, MoPubNetworkType value) {
@@ -16,6 +16,10 @@ public abstract class BaseUrlGenerator {
     private StringBuilder mStringBuilder;
     private boolean mFirstParam;
 
+    // The url being built while params are recorded into a segment instead.
+    private StringBuilder mUrlStringBuilder;
+    private boolean mUrlFirstParam;
+
     public abstract String generateUrlString(String serverHostname);
 
     protected void initUrlString(String serverHostname, String handlerType) {
@@ -39,6 +43,50 @@ public abstract class BaseUrlGenerator {
         mStringBuilder.append(Uri.encode(value));
     }
 
+    /**
+     * Appends params that were recorded with {@link #startParamSegment()} and
+     * {@link #finishParamSegment()}, which are already encoded.
+     */
+    protected void addParamSegment(@NonNull final String paramSegment) {
+        if (TextUtils.isEmpty(paramSegment)) {
+            return;
+        }
+
+        mStringBuilder.append(getParamDelimiter());
+        mStringBuilder.append(paramSegment);
+    }
+
+    /**
+     * Records the params added from now on into a separate segment instead of the url, until
+     * {@link #finishParamSegment()}. This lets params that don't change be encoded only once.
+     */
+    protected void startParamSegment() {
+        Preconditions.checkState(mUrlStringBuilder == null, "Param segment already started.");
+
+        mUrlStringBuilder = mStringBuilder;
+        mUrlFirstParam = mFirstParam;
+        mStringBuilder = new StringBuilder();
+        mFirstParam = true;
+    }
+
+    /**
+     * Returns the params added since {@link #startParamSegment()}, without a leading delimiter,
+     * and goes back to adding params to the url.
+     */
+    @NonNull
+    protected String finishParamSegment() {
+        Preconditions.checkState(mUrlStringBuilder != null, "Param segment not started.");
+
+        // Drop the leading "?" of the first param.
+        final String paramSegment = mStringBuilder.length() == 0
+                ? ""
+                : mStringBuilder.substring(1);
+        mStringBuilder = mUrlStringBuilder;
+        mFirstParam = mUrlFirstParam;
+        mUrlStringBuilder = null;
+        return paramSegment;
+    }
+
     private String getParamDelimiter() {
         if (mFirstParam) {
             mFirstParam = false;
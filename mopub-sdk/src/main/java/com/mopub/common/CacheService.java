@@ -2,11 +2,16 @@ package com.mopub.common;
 
 import android.content.Context;
 import android.os.AsyncTask;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
 
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
 import com.mopub.common.util.DeviceUtils;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.common.util.Streams;
 import com.mopub.common.util.Utils;
 
@@ -17,28 +22,73 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static com.mopub.common.DiskLruCache.open;
 
+/**
+ * A disk cache shared by the SDK. Opening the cache reads its whole journal from disk, so it is
+ * opened lazily on the first background thread that uses it, or ahead of time with {@link
+ * #initializeDiskCacheAsync}. Nothing that reads or writes the disk may be called from the UI
+ * thread; use the async methods instead. {@link #containsKeyDiskCache} and {@link
+ * #getFilePathDiskCache} only look at memory and are safe to call from any thread.
+ *
+ * Async reads and writes run in parallel on the disk lane, except that work for a key with an
+ * async write in flight waits until that write is done. An async read therefore never sees a value
+ * older than the async writes queued before it, and async writes to a key land in order.
+ */
 public class CacheService {
     public interface DiskLruCacheGetListener {
         void onComplete(final String key, final byte[] content);
     }
 
+    public interface DiskCacheInitializedListener {
+        void onDiskCacheInitialized(final boolean success);
+    }
+
     static final String UNIQUE_CACHE_NAME = "mopub-cache";
+    static final String PARTIAL_DOWNLOAD_DIRECTORY_NAME = "mopub-partial-downloads";
     private static final int APP_VERSION = 1;
     // The number of values per cache entry. Must be positive.
     private static final int VALUE_COUNT = 1;
     private static final int DISK_CACHE_INDEX = 0;
-
-    private static DiskLruCache sDiskLruCache;
-
-    public static boolean initializeDiskCache(final Context context) {
+    // Video playback derives the same few keys on every seek and block read, so the most recently
+    // hashed keys are kept rather than hashed again.
+    private static final int MAX_DISK_CACHE_KEYS = 64;
+
+    @Nullable private static volatile DiskLruCache sDiskLruCache;
+    // Used to open the disk cache the first time it is needed.
+    @Nullable private static volatile Context sApplicationContext;
+    // Only accessed from the UI thread.
+    @NonNull private static final List<DiskCacheInitializedListener> sInitializedListeners =
+            new ArrayList<DiskCacheInitializedListener>();
+    private static boolean sIsOpening;
+    // Keys with an async put in flight, each with the async gets and puts queued behind it. Only
+    // accessed from the UI thread.
+    @NonNull private static final Map<String, Deque<AsyncTask<Void, ?, ?>>> sQueuedDiskCacheTasks =
+            new HashMap<String, Deque<AsyncTask<Void, ?, ?>>>();
+    @NonNull private static final LruCache<String, String> sDiskCacheKeys =
+            new LruCache<String, String>(MAX_DISK_CACHE_KEYS);
+
+    /**
+     * Opens the disk cache if it isn't open yet. This reads from disk, so must not be called from
+     * the UI thread. Use {@link #initializeDiskCacheAsync} there instead.
+     *
+     * @return true if the disk cache is open.
+     */
+    public static synchronized boolean initializeDiskCache(final Context context) {
         if (context == null) {
             return false;
         }
+        initialize(context);
 
         if (sDiskLruCache == null) {
+            checkNotUiThread();
             final File cacheDirectory = getDiskCacheDirectory(context);
             if (cacheDirectory == null) {
                 return false;
@@ -60,12 +110,67 @@ public class CacheService {
         return true;
     }
 
+    /**
+     * Lets the disk cache be opened the first time it is used. This doesn't touch the disk, so it
+     * is safe to call from the UI thread.
+     */
     public static void initialize(final Context context) {
-        initializeDiskCache(context);
+        if (context != null && sApplicationContext == null) {
+            final Context applicationContext = context.getApplicationContext();
+            sApplicationContext = applicationContext != null ? applicationContext : context;
+        }
+    }
+
+    /**
+     * Opens the disk cache on a background thread, if it isn't open yet. The listener is called on
+     * the UI thread once the cache is open or has failed to open, or right away if it is already
+     * open. Must be called from the UI thread.
+     */
+    public static void initializeDiskCacheAsync(@Nullable final Context context,
+            @Nullable final DiskCacheInitializedListener listener) {
+        if (context == null) {
+            if (listener != null) {
+                listener.onDiskCacheInitialized(false);
+            }
+            return;
+        }
+        initialize(context);
+
+        if (sDiskLruCache != null) {
+            if (listener != null) {
+                listener.onDiskCacheInitialized(true);
+            }
+            return;
+        }
+
+        if (listener != null) {
+            sInitializedListeners.add(listener);
+        }
+        if (sIsOpening) {
+            return;
+        }
+
+        sIsOpening = true;
+        try {
+            AsyncTasks.safeExecuteOnExecutor(Lane.DISK, Priority.USER_FACING,
+                    new DiskLruCacheOpenTask(context));
+        } catch (Exception e) {
+            MoPubLog.d("Unable to open DiskLruCache", e);
+            onDiskCacheInitialized(false);
+        }
     }
 
     public static String createValidDiskCacheKey(final String key) {
-        return Utils.sha1(key);
+        if (key == null) {
+            return "";
+        }
+
+        String diskCacheKey = sDiskCacheKeys.get(key);
+        if (diskCacheKey == null) {
+            diskCacheKey = Utils.sha1(key);
+            sDiskCacheKeys.put(key, diskCacheKey);
+        }
+        return diskCacheKey;
     }
 
     @Nullable
@@ -79,28 +184,53 @@ public class CacheService {
         return new File(cachePath + File.separator + UNIQUE_CACHE_NAME);
     }
 
+    /**
+     * Returns the directory for downloads that haven't finished yet, or null if the cache hasn't
+     * been initialized. These are kept out of the disk cache, which only holds complete files.
+     */
+    @Nullable
+    public static File getPartialDownloadDirectory() {
+        final Context context = sApplicationContext;
+        if (context == null) {
+            return null;
+        }
+
+        final File cacheDir = context.getCacheDir();
+        if (cacheDir == null) {
+            return null;
+        }
+
+        final String cachePath = cacheDir.getPath();
+        return new File(cachePath + File.separator + PARTIAL_DOWNLOAD_DIRECTORY_NAME);
+    }
+
+    /**
+     * Returns true if the disk cache has a value for the key. This only looks at the cache's
+     * in-memory index, so it doesn't touch the disk, and returns false until the cache is open.
+     */
     public static boolean containsKeyDiskCache(final String key) {
-        if (sDiskLruCache == null) {
+        final DiskLruCache diskLruCache = sDiskLruCache;
+        if (diskLruCache == null) {
             return false;
         }
 
         try {
-            final DiskLruCache.Snapshot snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
-            return snapshot != null;
+            return diskLruCache.containsKey(createValidDiskCacheKey(key));
         } catch (Exception e) {
             return false;
         }
     }
 
     public static String getFilePathDiskCache(final String key) {
-        if (sDiskLruCache == null) {
+        final DiskLruCache diskLruCache = sDiskLruCache;
+        if (diskLruCache == null) {
             return null;
         }
 
         // This violates encapsulation but there is no convenience method to get a filename from
         // DiskLruCache. Filename was derived from private class method Entry#getCleanFile
         // in DiskLruCache.java
-        return sDiskLruCache.getDirectory()
+        return diskLruCache.getDirectory()
                 + File.separator
                 + createValidDiskCacheKey(key)
                 + "."
@@ -108,14 +238,16 @@ public class CacheService {
     }
 
     public static byte[] getFromDiskCache(final String key) {
-        if (sDiskLruCache == null) {
+        checkNotUiThread();
+        final DiskLruCache diskLruCache = getOrOpenDiskLruCache();
+        if (diskLruCache == null) {
             return null;
         }
 
         byte[] bytes = null;
         DiskLruCache.Snapshot snapshot = null;
         try {
-            snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
+            snapshot = diskLruCache.get(createValidDiskCacheKey(key));
             if (snapshot == null) {
                 return null;
             }
@@ -142,7 +274,13 @@ public class CacheService {
     }
 
     public static void getFromDiskCacheAsync(final String key, final DiskLruCacheGetListener diskLruCacheGetListener) {
-        new DiskLruCacheGetTask(key, diskLruCacheGetListener).execute();
+        final DiskLruCacheGetTask getTask = new DiskLruCacheGetTask(key, diskLruCacheGetListener);
+        final Deque<AsyncTask<Void, ?, ?>> queuedTasks = sQueuedDiskCacheTasks.get(key);
+        if (queuedTasks != null) {
+            queuedTasks.add(getTask);
+            return;
+        }
+        AsyncTasks.safeExecuteOnExecutor(Lane.DISK, Priority.DEFAULT, getTask);
     }
 
     public static boolean putToDiskCache(final String key, final byte[] content) {
@@ -150,13 +288,15 @@ public class CacheService {
     }
 
     public static boolean putToDiskCache(final String key, final InputStream content) {
-        if (sDiskLruCache == null) {
+        checkNotUiThread();
+        final DiskLruCache diskLruCache = getOrOpenDiskLruCache();
+        if (diskLruCache == null) {
             return false;
         }
 
         DiskLruCache.Editor editor = null;
         try {
-            editor = sDiskLruCache.edit(createValidDiskCacheKey(key));
+            editor = diskLruCache.edit(createValidDiskCacheKey(key));
 
             if (editor == null) {
                 // another edit is in progress
@@ -169,7 +309,7 @@ public class CacheService {
             outputStream.flush();
             outputStream.close();
 
-            sDiskLruCache.flush();
+            diskLruCache.flush();
             editor.commit();
         } catch (Exception e) {
             MoPubLog.d("Unable to put to DiskLruCache", e);
@@ -185,8 +325,141 @@ public class CacheService {
         return true;
     }
 
+    /**
+     * Moves the file into the disk cache instead of copying it. The file must be in the app's
+     * cache directory.
+     *
+     * @return true if the file is now in the disk cache. Otherwise it is left where it was.
+     */
+    public static boolean moveToDiskCache(final String key, @NonNull final File file) {
+        checkNotUiThread();
+        final DiskLruCache diskLruCache = getOrOpenDiskLruCache();
+        if (diskLruCache == null) {
+            return false;
+        }
+
+        DiskLruCache.Editor editor = null;
+        try {
+            editor = diskLruCache.edit(createValidDiskCacheKey(key));
+
+            if (editor == null) {
+                // another edit is in progress
+                return false;
+            }
+
+            if (!editor.moveFrom(DISK_CACHE_INDEX, file)) {
+                editor.abort();
+                return false;
+            }
+
+            diskLruCache.flush();
+            editor.commit();
+        } catch (Exception e) {
+            MoPubLog.d("Unable to move to DiskLruCache", e);
+            try {
+                if (editor != null) {
+                    editor.abort();
+                }
+            } catch (IOException ignore) {
+                // ignore
+            }
+            return false;
+        }
+        return true;
+    }
+
     public static void putToDiskCacheAsync(final String key, final byte[] content) {
-        new DiskLruCachePutTask(key, content).execute();
+        final DiskLruCachePutTask putTask = new DiskLruCachePutTask(key, content);
+        final Deque<AsyncTask<Void, ?, ?>> queuedTasks = sQueuedDiskCacheTasks.get(key);
+        if (queuedTasks != null) {
+            queuedTasks.add(putTask);
+            return;
+        }
+        sQueuedDiskCacheTasks.put(key, new ArrayDeque<AsyncTask<Void, ?, ?>>());
+        AsyncTasks.safeExecuteOnExecutor(Lane.DISK, Priority.DEFAULT, putTask);
+    }
+
+    /**
+     * Starts the work queued behind an async put that has finished: the gets up to the next put,
+     * then that put, which holds back the rest.
+     */
+    private static void onDiskCachePutComplete(final String key) {
+        final Deque<AsyncTask<Void, ?, ?>> queuedTasks = sQueuedDiskCacheTasks.get(key);
+        if (queuedTasks == null) {
+            return;
+        }
+
+        AsyncTask<Void, ?, ?> task;
+        while ((task = queuedTasks.poll()) != null) {
+            AsyncTasks.safeExecuteOnExecutor(Lane.DISK, Priority.DEFAULT, task);
+            if (task instanceof DiskLruCachePutTask) {
+                return;
+            }
+        }
+        sQueuedDiskCacheTasks.remove(key);
+    }
+
+    @VisibleForTesting
+    static boolean hasAsyncPutInFlight(final String key) {
+        return sQueuedDiskCacheTasks.containsKey(key);
+    }
+
+    /**
+     * Returns the disk cache, opening it first if it has been initialized but isn't open yet.
+     */
+    @Nullable
+    private static DiskLruCache getOrOpenDiskLruCache() {
+        final DiskLruCache diskLruCache = sDiskLruCache;
+        if (diskLruCache != null) {
+            return diskLruCache;
+        }
+
+        final Context context = sApplicationContext;
+        if (context == null) {
+            return null;
+        }
+        initializeDiskCache(context);
+        return sDiskLruCache;
+    }
+
+    private static void checkNotUiThread() {
+        Preconditions.NoThrow.checkState(Looper.myLooper() != Looper.getMainLooper(),
+                "The disk cache must not be opened, read or written on the UI thread.");
+    }
+
+    private static void onDiskCacheInitialized(final boolean success) {
+        sIsOpening = false;
+        final List<DiskCacheInitializedListener> listeners =
+                new ArrayList<DiskCacheInitializedListener>(sInitializedListeners);
+        sInitializedListeners.clear();
+        for (final DiskCacheInitializedListener listener : listeners) {
+            listener.onDiskCacheInitialized(success);
+        }
+    }
+
+    private static class DiskLruCacheOpenTask extends AsyncTask<Void, Void, Boolean> {
+        @NonNull private final Context mContext;
+
+        DiskLruCacheOpenTask(@NonNull final Context context) {
+            mContext = context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context;
+        }
+
+        @Override
+        protected Boolean doInBackground(Void... voids) {
+            return initializeDiskCache(mContext);
+        }
+
+        @Override
+        protected void onPostExecute(final Boolean success) {
+            onDiskCacheInitialized(success != null && success);
+        }
+
+        @Override
+        protected void onCancelled() {
+            onDiskCacheInitialized(sDiskLruCache != null);
+        }
     }
 
     private static class DiskLruCacheGetTask extends AsyncTask<Void, Void, byte[]> {
@@ -237,12 +510,31 @@ public class CacheService {
             CacheService.putToDiskCache(mKey, mContent);
             return null;
         }
+
+        @Override
+        protected void onPostExecute(final Void result) {
+            onDiskCachePutComplete(mKey);
+        }
+
+        @Override
+        protected void onCancelled() {
+            onDiskCachePutComplete(mKey);
+        }
+    }
+
+    @VisibleForTesting
+    static void clearDiskCacheKeys() {
+        sDiskCacheKeys.evictAll();
     }
 
     // Testing
     @Deprecated
     @VisibleForTesting
     public static void clearAndNullCaches() {
+        sApplicationContext = null;
+        sInitializedListeners.clear();
+        sQueuedDiskCacheTasks.clear();
+        sIsOpening = false;
         if (sDiskLruCache != null) {
             try {
                 sDiskLruCache.delete();
@@ -257,6 +549,6 @@ public class CacheService {
     @Deprecated
     @VisibleForTesting
     public static DiskLruCache getDiskLruCache() {
-        return sDiskLruCache;
+        return getOrOpenDiskLruCache();
     }
 }
@@ -0,0 +1,187 @@
+package com.mopub.common;
+
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates custom events from their class names. Looking up a class and its empty constructor by
+ * reflection is slow, so this is done once per class name and the constructor is cached for every
+ * ad load after that. Adapters can also register a {@link Factory} so that no reflection is used
+ * to create them at all.
+ *
+ * Class names can be warmed up on a background thread with {@link #warmUp(String...)}, so the
+ * first ad load on the UI thread doesn't have to load the adapter class either.
+ */
+public class CustomEventRegistry {
+    public interface Factory<T> {
+        @NonNull
+        T create();
+    }
+
+    private static final Map<String, Class<?>> sClasses =
+            new ConcurrentHashMap<String, Class<?>>();
+    private static final Map<String, Constructor<?>> sConstructors =
+            new ConcurrentHashMap<String, Constructor<?>>();
+    private static final Map<String, Factory<?>> sFactories =
+            new ConcurrentHashMap<String, Factory<?>>();
+    private static final Set<String> sMissingClassNames =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates instances of customEventClass with the given factory instead of by reflection.
+     */
+    public static <T> void register(@NonNull final Class<T> customEventClass,
+            @NonNull final Factory<? extends T> factory) {
+        Preconditions.checkNotNull(customEventClass);
+        Preconditions.checkNotNull(factory);
+
+        sClasses.put(customEventClass.getName(), customEventClass);
+        sFactories.put(customEventClass.getName(), factory);
+    }
+
+    public static void unregister(@NonNull final Class<?> customEventClass) {
+        Preconditions.checkNotNull(customEventClass);
+
+        sFactories.remove(customEventClass.getName());
+    }
+
+    /**
+     * Creates a new custom event of the given class, which must be a subclass of superclass.
+     *
+     * @throws ClassNotFoundException if there is no class with that name.
+     * @throws ClassCastException if the class is not a subclass of superclass.
+     * @throws Exception if the class can't be created with an empty constructor.
+     */
+    @NonNull
+    public static <T> T create(@NonNull final String className,
+            @NonNull final Class<T> superclass) throws Exception {
+        Preconditions.checkNotNull(className);
+        Preconditions.checkNotNull(superclass);
+
+        final Factory<?> factory = sFactories.get(className);
+        if (factory != null) {
+            return superclass.cast(factory.create());
+        }
+
+        final Constructor<?> constructor = getConstructor(className);
+        constructor.getDeclaringClass().asSubclass(superclass);
+        return superclass.cast(constructor.newInstance());
+    }
+
+    /**
+     * Returns the class with the given name, which must be a subclass of superclass.
+     */
+    @NonNull
+    public static <T> Class<? extends T> getCustomEventClass(@NonNull final String className,
+            @NonNull final Class<T> superclass) throws ClassNotFoundException {
+        Preconditions.checkNotNull(className);
+        Preconditions.checkNotNull(superclass);
+
+        return getClass(className).asSubclass(superclass);
+    }
+
+    /**
+     * Loads the given custom event classes and their constructors on a background thread. Class
+     * names that have already been loaded, or that aren't in the app, are skipped. Must be called
+     * from the UI thread.
+     */
+    public static void warmUp(@NonNull final String... classNames) {
+        Preconditions.checkNotNull(classNames);
+
+        final List<String> coldClassNames = new ArrayList<String>();
+        for (final String className : classNames) {
+            if (className != null
+                    && !sConstructors.containsKey(className)
+                    && !sFactories.containsKey(className)
+                    && !sMissingClassNames.contains(className)) {
+                coldClassNames.add(className);
+            }
+        }
+        if (coldClassNames.isEmpty()) {
+            return;
+        }
+
+        try {
+            AsyncTasks.safeExecuteOnExecutor(Lane.CPU, Priority.PREFETCH, new WarmUpTask(),
+                    coldClassNames.toArray(new String[coldClassNames.size()]));
+        } catch (Exception e) {
+            MoPubLog.d("Unable to warm up custom events", e);
+        }
+    }
+
+    @VisibleForTesting
+    static boolean isWarm(@NonNull final String className) {
+        return sConstructors.containsKey(className);
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        sClasses.clear();
+        sConstructors.clear();
+        sFactories.clear();
+        sMissingClassNames.clear();
+    }
+
+    @NonNull
+    private static Class<?> getClass(@NonNull final String className)
+            throws ClassNotFoundException {
+        Class<?> clazz = sClasses.get(className);
+        if (clazz != null) {
+            return clazz;
+        }
+
+        // Classes don't show up in an app later on, so remember the ones that aren't there.
+        if (sMissingClassNames.contains(className)) {
+            throw new ClassNotFoundException(className);
+        }
+        try {
+            clazz = Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            sMissingClassNames.add(className);
+            throw e;
+        }
+        sClasses.put(className, clazz);
+        return clazz;
+    }
+
+    @NonNull
+    private static Constructor<?> getConstructor(@NonNull final String className)
+            throws ClassNotFoundException, NoSuchMethodException {
+        Constructor<?> constructor = sConstructors.get(className);
+        if (constructor != null) {
+            return constructor;
+        }
+
+        constructor = getClass(className).getDeclaredConstructor((Class[]) null);
+        constructor.setAccessible(true);
+        sConstructors.put(className, constructor);
+        return constructor;
+    }
+
+    private static class WarmUpTask extends AsyncTask<String, Void, Void> {
+        @Override
+        protected Void doInBackground(final String... classNames) {
+            for (final String className : classNames) {
+                try {
+                    getConstructor(className);
+                } catch (Exception e) {
+                    MoPubLog.d("Custom event " + className + " is not available.");
+                }
+            }
+            return null;
+        }
+    }
+}
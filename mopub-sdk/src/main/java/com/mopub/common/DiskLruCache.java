@@ -398,6 +398,18 @@ public final class DiskLruCache implements Closeable {
     }
   }
 
+  /**
+   * Returns true if there is a readable entry named {@code key}. Unlike
+   * {@link #get}, this only looks at the in-memory index and doesn't touch the
+   * disk or the LRU order.
+   */
+  public synchronized boolean containsKey(String key) {
+    checkNotClosed();
+    validateKey(key);
+    Entry entry = lruEntries.get(key);
+    return entry != null && entry.readable;
+  }
+
   /**
    * Returns a snapshot of the entry named {@code key}, or null if it doesn't
    * exist is not currently readable. If a value is returned, it is moved to
@@ -793,6 +805,33 @@ public final class DiskLruCache implements Closeable {
       }
     }
 
+    /**
+     * Moves {@code file} in as the value at {@code index}, instead of
+     * copying it. The file must be on the same filesystem as the cache.
+     *
+     * @return false if the file couldn't be moved, in which case it is left
+     *     where it was.
+     */
+    public boolean moveFrom(int index, File file) throws IOException {
+      synchronized (DiskLruCache.this) {
+        if (entry.currentEditor != this) {
+          throw new IllegalStateException();
+        }
+        File dirtyFile = entry.getDirtyFile(index);
+        if (!file.renameTo(dirtyFile)) {
+          // Attempt to recreate the cache directory.
+          directory.mkdirs();
+          if (!file.renameTo(dirtyFile)) {
+            return false;
+          }
+        }
+        if (!entry.readable) {
+          written[index] = true;
+        }
+        return true;
+      }
+    }
+
     /** Sets the value at {@code index} to {@code value}. */
     public void set(int index, String value) throws IOException {
       Writer writer = null;
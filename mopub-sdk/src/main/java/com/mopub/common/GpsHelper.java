@@ -7,6 +7,8 @@ import android.support.annotation.Nullable;
 import com.mopub.common.factories.MethodBuilderFactory;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 
 import java.lang.ref.WeakReference;
 
@@ -112,7 +114,8 @@ public class GpsHelper {
         }
 
         try {
-            AsyncTasks.safeExecuteOnExecutor(new FetchAdvertisingInfoTask(context, gpsHelperListener));
+            AsyncTasks.safeExecuteOnExecutor(Lane.NETWORK, Priority.DEFAULT,
+                    new FetchAdvertisingInfoTask(context, gpsHelperListener));
         } catch (Exception exception) {
             MoPubLog.d("Error executing FetchAdvertisingInfoTask", exception);
 
@@ -0,0 +1,96 @@
+package com.mopub.common;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Counts latencies in a fixed set of buckets, so that the distribution of many samples can be kept
+ * in a few ints. Samples that failed are counted separately.
+ *
+ * This class is thread safe.
+ */
+public class LatencyHistogram {
+    // Upper bounds, in milliseconds, of all buckets but the last, which has no upper bound.
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS =
+            new long[] {50, 100, 250, 500, 1000, 2500, 5000};
+
+    @NonNull private final int[] mBucketCounts;
+    private int mFailureCount;
+    private long mTotalMillis;
+
+    public LatencyHistogram() {
+        mBucketCounts = new int[BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+    }
+
+    public synchronized void record(final long latencyMillis) {
+        mBucketCounts[getBucket(latencyMillis)]++;
+        mTotalMillis += Math.max(latencyMillis, 0);
+    }
+
+    public synchronized void recordFailure() {
+        mFailureCount++;
+    }
+
+    /**
+     * The number of successful samples.
+     */
+    public synchronized int getCount() {
+        int count = 0;
+        for (final int bucketCount : mBucketCounts) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    public synchronized int getFailureCount() {
+        return mFailureCount;
+    }
+
+    public synchronized long getAverageMillis() {
+        final int count = getCount();
+        return count == 0 ? 0 : mTotalMillis / count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket that holds the given percentile of samples, or
+     * {@link Long#MAX_VALUE} if it is in the last bucket. Returns 0 if there are no samples.
+     *
+     * @param percentile Between 0 and 100.
+     */
+    public synchronized long getPercentileUpperBoundMillis(final int percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 100);
+
+        final int count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        final int rank = Math.max((int) Math.ceil(count * percentile / 100.0), 1);
+        int seen = 0;
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            seen += mBucketCounts[i];
+            if (seen >= rank) {
+                return BUCKET_UPPER_BOUNDS_MILLIS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "LatencyHistogram{bounds=" + Arrays.toString(BUCKET_UPPER_BOUNDS_MILLIS)
+                + ", counts=" + Arrays.toString(mBucketCounts)
+                + ", failures=" + mFailureCount + "}";
+    }
+
+    private static int getBucket(final long latencyMillis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            if (latencyMillis <= BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_MILLIS.length;
+    }
+}
@@ -0,0 +1,265 @@
+package com.mopub.common;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.annotation.NonNull;
+
+import com.mopub.common.logging.MoPubLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Coordinates the memory held by the SDK's caches and pools.
+ *
+ * Components register as {@link MemoryConsumer}s along with how costly their memory is to get
+ * back. When the system reports memory pressure through {@link ComponentCallbacks2}, or the SDK
+ * goes over the budget set with {@link MoPub#setMemoryBudgetBytes(long)}, consumers are trimmed
+ * cheapest first, and only until enough memory has been freed. Once the app is in the background,
+ * or under critical pressure, every consumer is trimmed completely. When the app's UI is hidden,
+ * only pools are emptied, so that cached ads are still there if the user comes back.
+ *
+ * Consumers are held weakly, so they don't need to unregister. All methods must be called on the
+ * main thread.
+ */
+public class MemoryGovernor implements ComponentCallbacks2 {
+    /**
+     * How much memory a consumer should give up.
+     */
+    public enum TrimLevel {
+        /**
+         * Drop about half of what can be got back, least recently used first.
+         */
+        MODERATE,
+        /**
+         * Drop everything that can be got back.
+         */
+        COMPLETE
+    }
+
+    /**
+     * What it costs to get a consumer's memory back once it has been trimmed, from cheapest to
+     * most expensive. Cheaper consumers are trimmed first.
+     */
+    public enum RestoreCost {
+        /**
+         * Idle objects kept for reuse. Nothing is lost.
+         */
+        POOL,
+        /**
+         * Data that can be reloaded from disk.
+         */
+        CACHE,
+        /**
+         * Content that needs a network request or a replay to get back.
+         */
+        CONTENT
+    }
+
+    public interface MemoryConsumer {
+        /**
+         * The bytes held that trimming could free. Consumers whose memory can't be measured return
+         * 0 and are only trimmed under memory pressure, never to meet the budget.
+         */
+        long getFootprintBytes();
+
+        void trimMemory(@NonNull TrimLevel level);
+    }
+
+    public static final long NO_BUDGET = 0;
+
+    @NonNull private static final MemoryGovernor sInstance = new MemoryGovernor();
+
+    private static class Registration {
+        @NonNull final WeakReference<MemoryConsumer> mConsumerRef;
+        @NonNull final RestoreCost mRestoreCost;
+
+        Registration(@NonNull final MemoryConsumer consumer,
+                @NonNull final RestoreCost restoreCost) {
+            mConsumerRef = new WeakReference<MemoryConsumer>(consumer);
+            mRestoreCost = restoreCost;
+        }
+    }
+
+    // Sorted by restore cost, then by registration order.
+    @NonNull private final List<Registration> mRegistrations = new ArrayList<Registration>();
+    private long mBudgetBytes = NO_BUDGET;
+    private boolean mIsRegisteredForCallbacks;
+
+    @NonNull
+    public static MemoryGovernor getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        sInstance.mRegistrations.clear();
+        sInstance.mBudgetBytes = NO_BUDGET;
+        sInstance.mIsRegisteredForCallbacks = false;
+    }
+
+    @VisibleForTesting
+    MemoryGovernor() {
+    }
+
+    /**
+     * Registers a consumer to be trimmed under memory pressure. Registering a consumer again has
+     * no effect.
+     *
+     * @param context Used to listen for memory pressure from the system.
+     */
+    public void register(@NonNull final Context context, @NonNull final MemoryConsumer consumer,
+            @NonNull final RestoreCost restoreCost) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(consumer);
+        Preconditions.checkNotNull(restoreCost);
+
+        if (!mIsRegisteredForCallbacks) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+            mIsRegisteredForCallbacks = true;
+        }
+
+        int index = 0;
+        final Iterator<Registration> iterator = mRegistrations.iterator();
+        while (iterator.hasNext()) {
+            final Registration registration = iterator.next();
+            final MemoryConsumer registeredConsumer = registration.mConsumerRef.get();
+            if (registeredConsumer == null) {
+                iterator.remove();
+                continue;
+            }
+            if (registeredConsumer == consumer) {
+                return;
+            }
+            if (registration.mRestoreCost.compareTo(restoreCost) <= 0) {
+                index++;
+            }
+        }
+        mRegistrations.add(index, new Registration(consumer, restoreCost));
+    }
+
+    /**
+     * @see MoPub#setMemoryBudgetBytes(long)
+     */
+    public void setBudgetBytes(final long budgetBytes) {
+        Preconditions.checkArgument(budgetBytes >= 0);
+
+        mBudgetBytes = budgetBytes;
+        enforceBudget();
+    }
+
+    public long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    /**
+     * The total bytes held by all registered consumers.
+     */
+    public long getFootprintBytes() {
+        long footprintBytes = 0;
+        for (final MemoryConsumer consumer : getConsumers()) {
+            footprintBytes += consumer.getFootprintBytes();
+        }
+        return footprintBytes;
+    }
+
+    /**
+     * Trims consumers if the SDK is over its memory budget. Consumers should call this after
+     * they grow.
+     */
+    public void enforceBudget() {
+        if (mBudgetBytes == NO_BUDGET) {
+            return;
+        }
+
+        shedTo(mBudgetBytes);
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        MoPubLog.d("Trimming SDK memory for level {}.", level);
+
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimAll(RestoreCost.CONTENT);
+        } else if (level == TRIM_MEMORY_UI_HIDDEN) {
+            trimAll(RestoreCost.POOL);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            shedTo(getFootprintBytes() / 2);
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            shedTo(getFootprintBytes() * 3 / 4);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        MoPubLog.d("Trimming all SDK memory.");
+        trimAll(RestoreCost.CONTENT);
+    }
+
+    @Override
+    public void onConfigurationChanged(final Configuration newConfig) {
+    }
+
+    /**
+     * Trims consumers, cheapest first and moderately before completely, until the total
+     * footprint is at most the target.
+     */
+    private void shedTo(final long targetBytes) {
+        final List<MemoryConsumer> consumers = getConsumers();
+        long footprintBytes = getFootprintBytes();
+        for (final TrimLevel level : TrimLevel.values()) {
+            for (final MemoryConsumer consumer : consumers) {
+                if (footprintBytes <= targetBytes) {
+                    return;
+                }
+
+                final long consumerBytes = consumer.getFootprintBytes();
+                if (consumerBytes == 0) {
+                    continue;
+                }
+                consumer.trimMemory(level);
+                footprintBytes -= consumerBytes - consumer.getFootprintBytes();
+            }
+        }
+    }
+
+    /**
+     * Trims every consumer that costs at most the given cost to restore completely.
+     */
+    private void trimAll(@NonNull final RestoreCost maxRestoreCost) {
+        final List<MemoryConsumer> consumers = new ArrayList<MemoryConsumer>();
+        for (final Registration registration : mRegistrations) {
+            final MemoryConsumer consumer = registration.mConsumerRef.get();
+            if (consumer != null && registration.mRestoreCost.compareTo(maxRestoreCost) <= 0) {
+                consumers.add(consumer);
+            }
+        }
+
+        for (final MemoryConsumer consumer : consumers) {
+            consumer.trimMemory(TrimLevel.COMPLETE);
+        }
+    }
+
+    /**
+     * The live consumers, cheapest first. Copied so that consumers can register others while
+     * being trimmed.
+     */
+    @NonNull
+    private List<MemoryConsumer> getConsumers() {
+        final List<MemoryConsumer> consumers = new ArrayList<MemoryConsumer>(
+                mRegistrations.size());
+        final Iterator<Registration> iterator = mRegistrations.iterator();
+        while (iterator.hasNext()) {
+            final MemoryConsumer consumer = iterator.next().mConsumerRef.get();
+            if (consumer == null) {
+                iterator.remove();
+            } else {
+                consumers.add(consumer);
+            }
+        }
+        return consumers;
+    }
+}
@@ -37,6 +37,19 @@ public class MoPub {
         sLocationPrecision = Math.min(Math.max(0, precision), DEFAULT_LOCATION_PRECISION);
     }
 
+    public static long getMemoryBudgetBytes() {
+        return MemoryGovernor.getInstance().getBudgetBytes();
+    }
+
+    /**
+     * Caps the memory the SDK keeps in its image cache and video buffers. Once over the budget,
+     * the SDK frees what is cheapest to get back first. A budget of 0, the default, means the SDK
+     * only frees memory when the system is running low. Must be called on the main thread.
+     */
+    public static void setMemoryBudgetBytes(long budgetBytes) {
+        MemoryGovernor.getInstance().setBudgetBytes(Math.max(0, budgetBytes));
+    }
+
 
     //////// MoPub LifecycleListener messages ////////
 
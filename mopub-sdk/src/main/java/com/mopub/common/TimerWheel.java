@@ -0,0 +1,378 @@
+package com.mopub.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Runs timers on the main thread while keeping at most one delayed message in the main
+ * MessageQueue, instead of one per timer. Timers are kept in a hierarchical timing wheel with
+ * millisecond ticks: each level has 64 slots, and each level's slots are 64 times wider than the
+ * level below. A timer is put in the lowest level that can hold its deadline and moves down a level
+ * each time the wheel reaches its slot, so scheduling and cancelling timers don't depend on how
+ * many timers are pending.
+ *
+ * The single message wakes the wheel up at the earliest deadline, so timers fire at the same time
+ * they would if they were posted to a Handler.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+public class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS_PER_LEVEL = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+    private static final int LEVELS = 5;
+    // Timers further out than this (about 12 days) are parked in the last slot of the top level
+    // until the wheel gets there.
+    private static final long MAX_RANGE_MILLIS = 1L << (SLOT_BITS * LEVELS);
+    private static final int FIRING = -1;
+    private static final long NO_WAKE_UP = Long.MAX_VALUE;
+
+    @Nullable private static TimerWheel sInstance;
+
+    /**
+     * A timer scheduled with {@link #schedule(Runnable, long)}.
+     */
+    public static final class Timer {
+        @NonNull private final Runnable mRunnable;
+        private final long mDeadlineMillis;
+        // The wheel that holds this timer, or null once it has fired or was cancelled.
+        @Nullable private TimerWheel mTimerWheel;
+        @Nullable private Timer mPrevious;
+        @Nullable private Timer mNext;
+        private int mLevel;
+        private int mSlot;
+
+        private Timer(@NonNull final TimerWheel timerWheel, @NonNull final Runnable runnable,
+                final long deadlineMillis) {
+            mTimerWheel = timerWheel;
+            mRunnable = runnable;
+            mDeadlineMillis = deadlineMillis;
+        }
+
+        public boolean isPending() {
+            return mTimerWheel != null;
+        }
+
+        /**
+         * Keeps the timer from firing. Does nothing if it already fired or was cancelled.
+         */
+        public void cancel() {
+            if (mTimerWheel != null) {
+                mTimerWheel.cancel(this);
+            }
+        }
+    }
+
+    @NonNull private final Handler mHandler;
+    @NonNull private final Timer[][] mSlotHeads;
+    @NonNull private final Timer[][] mSlotTails;
+    // One bit per slot that holds timers, for each level.
+    @NonNull private final long[] mOccupiedSlots;
+    @NonNull private final Runnable mWakeUpRunnable;
+
+    // Timers that are being fired, in the order they were scheduled.
+    @Nullable private Timer mFiringHead;
+    // Every timer with a deadline up to this time has fired.
+    private long mCurrentMillis;
+    private long mWakeUpMillis;
+    // Whether timers are being expired, during which the wheel's position must not move back.
+    private boolean mIsExpiring;
+    private int mPendingCount;
+    private long mExpiredCount;
+
+    /**
+     * The wheel for the main thread, shared by all ads.
+     */
+    @NonNull
+    public static TimerWheel getInstance() {
+        if (sInstance == null) {
+            sInstance = new TimerWheel(new Handler(Looper.getMainLooper()));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TimerWheel(@NonNull final Handler handler) {
+        Preconditions.checkNotNull(handler);
+
+        mHandler = handler;
+        mSlotHeads = new Timer[LEVELS][SLOTS_PER_LEVEL];
+        mSlotTails = new Timer[LEVELS][SLOTS_PER_LEVEL];
+        mOccupiedSlots = new long[LEVELS];
+        mWakeUpRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mWakeUpMillis = NO_WAKE_UP;
+                expireTimers(SystemClock.uptimeMillis());
+                scheduleWakeUp();
+            }
+        };
+        mCurrentMillis = SystemClock.uptimeMillis() - 1;
+        mWakeUpMillis = NO_WAKE_UP;
+    }
+
+    /**
+     * Runs the runnable on the main thread after delayMillis. A timer without a delay that is
+     * scheduled in the same millisecond that other timers fired runs a millisecond later.
+     *
+     * @return The timer, to cancel it.
+     */
+    @NonNull
+    public Timer schedule(@NonNull final Runnable runnable, final long delayMillis) {
+        Preconditions.checkNotNull(runnable);
+
+        final long nowMillis = SystemClock.uptimeMillis();
+        if (mPendingCount == 0 && !mIsExpiring) {
+            // Nothing depends on the old position of an empty wheel. While timers are firing, it
+            // stays put, so that a timer that schedules itself without a delay runs a
+            // millisecond later instead of right away, forever.
+            mCurrentMillis = nowMillis - 1;
+        }
+
+        final long deadlineMillis = Math.max(nowMillis + Math.max(0, delayMillis),
+                mCurrentMillis + 1);
+        final Timer timer = new Timer(this, runnable, deadlineMillis);
+        add(timer);
+        mPendingCount++;
+
+        if (deadlineMillis < mWakeUpMillis) {
+            mHandler.removeCallbacks(mWakeUpRunnable);
+            mWakeUpMillis = deadlineMillis;
+            mHandler.postDelayed(mWakeUpRunnable, Math.max(0, deadlineMillis - nowMillis));
+        }
+        return timer;
+    }
+
+    /**
+     * The number of timers that haven't fired and weren't cancelled.
+     */
+    public int getPendingTimerCount() {
+        return mPendingCount;
+    }
+
+    /**
+     * The number of timers that have fired.
+     */
+    public long getExpiredTimerCount() {
+        return mExpiredCount;
+    }
+
+    private void cancel(@NonNull final Timer timer) {
+        if (timer.mLevel == FIRING) {
+            unlinkFiring(timer);
+        } else {
+            remove(timer);
+        }
+        timer.mTimerWheel = null;
+        mPendingCount--;
+
+        if (mPendingCount == 0) {
+            mHandler.removeCallbacks(mWakeUpRunnable);
+            mWakeUpMillis = NO_WAKE_UP;
+        }
+    }
+
+    private void add(@NonNull final Timer timer) {
+        final long deltaMillis = timer.mDeadlineMillis - mCurrentMillis;
+        int level = 0;
+        while (level < LEVELS - 1 && deltaMillis >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        final long slotMillis = deltaMillis < MAX_RANGE_MILLIS
+                ? timer.mDeadlineMillis
+                : mCurrentMillis + MAX_RANGE_MILLIS - 1;
+        final int slot = getSlot(slotMillis, level);
+
+        timer.mLevel = level;
+        timer.mSlot = slot;
+        timer.mNext = null;
+        timer.mPrevious = mSlotTails[level][slot];
+        if (timer.mPrevious == null) {
+            mSlotHeads[level][slot] = timer;
+            mOccupiedSlots[level] |= 1L << slot;
+        } else {
+            timer.mPrevious.mNext = timer;
+        }
+        mSlotTails[level][slot] = timer;
+    }
+
+    private void remove(@NonNull final Timer timer) {
+        final int level = timer.mLevel;
+        final int slot = timer.mSlot;
+        if (timer.mPrevious == null) {
+            mSlotHeads[level][slot] = timer.mNext;
+        } else {
+            timer.mPrevious.mNext = timer.mNext;
+        }
+        if (timer.mNext == null) {
+            mSlotTails[level][slot] = timer.mPrevious;
+        } else {
+            timer.mNext.mPrevious = timer.mPrevious;
+        }
+        if (mSlotHeads[level][slot] == null) {
+            mOccupiedSlots[level] &= ~(1L << slot);
+        }
+        timer.mPrevious = null;
+        timer.mNext = null;
+    }
+
+    private void unlinkFiring(@NonNull final Timer timer) {
+        if (timer.mPrevious == null) {
+            mFiringHead = timer.mNext;
+        } else {
+            timer.mPrevious.mNext = timer.mNext;
+        }
+        if (timer.mNext != null) {
+            timer.mNext.mPrevious = timer.mPrevious;
+        }
+        timer.mPrevious = null;
+        timer.mNext = null;
+    }
+
+    /**
+     * Fires every timer with a deadline up to nowMillis, moving timers down a level whenever the
+     * wheel reaches their slot on the way.
+     */
+    private void expireTimers(final long nowMillis) {
+        mIsExpiring = true;
+        try {
+            expireTimersUntil(nowMillis);
+        } finally {
+            mIsExpiring = false;
+        }
+    }
+
+    private void expireTimersUntil(final long nowMillis) {
+        while (mPendingCount > 0) {
+            final long eventMillis = getNextEventMillis();
+            if (eventMillis > nowMillis) {
+                break;
+            }
+
+            mCurrentMillis = eventMillis;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((eventMillis & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, getSlot(eventMillis, level));
+                }
+            }
+            fire(getSlot(eventMillis, 0));
+        }
+
+        if (mCurrentMillis < nowMillis) {
+            // No timer is due before nowMillis, so the wheel can skip ahead.
+            mCurrentMillis = nowMillis;
+        }
+    }
+
+    private void cascade(final int level, final int slot) {
+        Timer timer = mSlotHeads[level][slot];
+        mSlotHeads[level][slot] = null;
+        mSlotTails[level][slot] = null;
+        mOccupiedSlots[level] &= ~(1L << slot);
+
+        while (timer != null) {
+            final Timer next = timer.mNext;
+            add(timer);
+            timer = next;
+        }
+    }
+
+    private void fire(final int slot) {
+        mFiringHead = mSlotHeads[0][slot];
+        mSlotHeads[0][slot] = null;
+        mSlotTails[0][slot] = null;
+        mOccupiedSlots[0] &= ~(1L << slot);
+        for (Timer timer = mFiringHead; timer != null; timer = timer.mNext) {
+            timer.mLevel = FIRING;
+        }
+
+        // Timers are taken off the list one at a time, so that a timer cancelled by one that
+        // fires before it doesn't run.
+        while (mFiringHead != null) {
+            final Timer timer = mFiringHead;
+            unlinkFiring(timer);
+            timer.mTimerWheel = null;
+            mPendingCount--;
+            mExpiredCount++;
+            timer.mRunnable.run();
+        }
+    }
+
+    /**
+     * The next time the wheel has to do something: fire the timers in a slot of the first level,
+     * or move the timers of a higher level slot down.
+     */
+    private long getNextEventMillis() {
+        long nextEventMillis = NO_WAKE_UP;
+        for (int level = 0; level < LEVELS; level++) {
+            final long occupiedSlots = mOccupiedSlots[level];
+            if (occupiedSlots == 0) {
+                continue;
+            }
+
+            final int shift = SLOT_BITS * level;
+            final long nextBlock = (mCurrentMillis >>> shift) + 1;
+            final int offset = Long.numberOfTrailingZeros(
+                    Long.rotateRight(occupiedSlots, (int) (nextBlock & SLOT_MASK)));
+            nextEventMillis = Math.min(nextEventMillis, (nextBlock + offset) << shift);
+        }
+        return nextEventMillis;
+    }
+
+    /**
+     * The earliest deadline of all pending timers. Below the top level, all timers in the first
+     * occupied slot of a level are due before the ones in its later slots, so only that slot is
+     * searched. The top level also holds parked timers, so all of its slots are searched.
+     */
+    private long getEarliestDeadlineMillis() {
+        long earliestDeadlineMillis = NO_WAKE_UP;
+        for (int level = 0; level < LEVELS; level++) {
+            long occupiedSlots = mOccupiedSlots[level];
+            if (occupiedSlots == 0) {
+                continue;
+            }
+
+            if (level < LEVELS - 1) {
+                final long nextBlock = (mCurrentMillis >>> (SLOT_BITS * level)) + 1;
+                final int offset = Long.numberOfTrailingZeros(
+                        Long.rotateRight(occupiedSlots, (int) (nextBlock & SLOT_MASK)));
+                occupiedSlots = 1L << ((nextBlock + offset) & SLOT_MASK);
+            }
+            while (occupiedSlots != 0) {
+                final int slot = Long.numberOfTrailingZeros(occupiedSlots);
+                occupiedSlots &= occupiedSlots - 1;
+                for (Timer timer = mSlotHeads[level][slot]; timer != null; timer = timer.mNext) {
+                    earliestDeadlineMillis =
+                            Math.min(earliestDeadlineMillis, timer.mDeadlineMillis);
+                }
+            }
+        }
+        return earliestDeadlineMillis;
+    }
+
+    private void scheduleWakeUp() {
+        final long wakeUpMillis = mPendingCount == 0 ? NO_WAKE_UP : getEarliestDeadlineMillis();
+        if (wakeUpMillis == mWakeUpMillis) {
+            return;
+        }
+
+        mHandler.removeCallbacks(mWakeUpRunnable);
+        mWakeUpMillis = wakeUpMillis;
+        if (wakeUpMillis != NO_WAKE_UP) {
+            mHandler.postDelayed(mWakeUpRunnable,
+                    Math.max(0, wakeUpMillis - SystemClock.uptimeMillis()));
+        }
+    }
+
+    private static int getSlot(final long millis, final int level) {
+        return (int) ((millis >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        sInstance = null;
+    }
+}
@@ -0,0 +1,261 @@
+package com.mopub.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Registry of views tracked by a {@link VisibilityTracker}, stored in parallel arrays indexed by
+ * slot. A view keeps the same slot for as long as it is tracked, and freed slots are reused.
+ *
+ * Views are only referenced weakly. When a view is garbage collected its reference is enqueued on
+ * a {@link ReferenceQueue}, and the slot is freed the next time {@link #expungeStaleViews()} runs.
+ * Iterating the registry and expunging stale views do not allocate, so the visibility loop can
+ * walk the slots without creating garbage on every pass.
+ */
+class TrackedViewRegistry {
+    static final int NO_SLOT = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Weak reference to a tracked view that remembers the slot it occupies.
+     */
+    private static class SlotReference extends WeakReference<View> {
+        final int mSlot;
+
+        SlotReference(@NonNull final View view, final int slot,
+                @NonNull final ReferenceQueue<View> referenceQueue) {
+            super(view, referenceQueue);
+            mSlot = slot;
+        }
+    }
+
+    @NonNull private final ReferenceQueue<View> mReferenceQueue;
+
+    // Slot lookup for add and remove. Never touched by the visibility loop.
+    @NonNull private final Map<View, Integer> mSlotsByView;
+
+    @NonNull private SlotReference[] mViews;
+    @NonNull private WeakReference<View>[] mRootViews;
+    @NonNull private int[] mMinViewablePercents;
+    @NonNull private int[] mMaxInvisiblePercents;
+    @NonNull private long[] mAccessOrders;
+
+    // Stack of free slots below mSlotCount.
+    @NonNull private int[] mFreeSlots;
+    private int mFreeSlotCount;
+
+    // One past the highest slot ever used. Slots at or above this index are unused.
+    private int mSlotCount;
+    private int mSize;
+
+    TrackedViewRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    TrackedViewRegistry(final int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity > 0);
+
+        mReferenceQueue = new ReferenceQueue<View>();
+        mSlotsByView = new WeakHashMap<View, Integer>(initialCapacity);
+        mViews = new SlotReference[initialCapacity];
+        mRootViews = new WeakReference[initialCapacity];
+        mMinViewablePercents = new int[initialCapacity];
+        mMaxInvisiblePercents = new int[initialCapacity];
+        mAccessOrders = new long[initialCapacity];
+        mFreeSlots = new int[initialCapacity];
+    }
+
+    /**
+     * Starts tracking the view, or updates its tracking parameters if it is already tracked.
+     *
+     * @return the slot of the view.
+     */
+    int put(@NonNull final View rootView, @NonNull final View view,
+            final int minViewablePercent, final int maxInvisiblePercent, final long accessOrder) {
+        Preconditions.checkNotNull(rootView);
+        Preconditions.checkNotNull(view);
+
+        int slot = getSlot(view);
+        if (slot == NO_SLOT) {
+            slot = allocateSlot();
+            mViews[slot] = new SlotReference(view, slot, mReferenceQueue);
+            mSlotsByView.put(view, slot);
+            mSize++;
+        }
+
+        if (mRootViews[slot] == null || mRootViews[slot].get() != rootView) {
+            mRootViews[slot] = new WeakReference<View>(rootView);
+        }
+        mMinViewablePercents[slot] = minViewablePercent;
+        mMaxInvisiblePercents[slot] = maxInvisiblePercent;
+        mAccessOrders[slot] = accessOrder;
+        return slot;
+    }
+
+    /**
+     * Stops tracking the view.
+     *
+     * @return true if the view was being tracked.
+     */
+    boolean remove(@Nullable final View view) {
+        if (view == null) {
+            return false;
+        }
+
+        final Integer slot = mSlotsByView.remove(view);
+        if (slot == null) {
+            return false;
+        }
+        freeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Stops tracking the view in the given slot.
+     */
+    void removeSlot(final int slot) {
+        final SlotReference reference = mViews[slot];
+        if (reference == null) {
+            return;
+        }
+
+        final View view = reference.get();
+        if (view != null) {
+            mSlotsByView.remove(view);
+        }
+        freeSlot(slot);
+    }
+
+    void clear() {
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            if (mViews[slot] != null) {
+                mViews[slot].clear();
+            }
+        }
+        Arrays.fill(mViews, 0, mSlotCount, null);
+        Arrays.fill(mRootViews, 0, mSlotCount, null);
+        mSlotsByView.clear();
+        mFreeSlotCount = 0;
+        mSlotCount = 0;
+        mSize = 0;
+
+        // Cleared references are never enqueued, but drain anything collected before the clear.
+        while (mReferenceQueue.poll() != null) {
+            // Nothing to free, all slots are already empty.
+        }
+    }
+
+    /**
+     * Frees the slots of views that have been garbage collected. Does not allocate.
+     */
+    void expungeStaleViews() {
+        Reference<? extends View> reference;
+        while ((reference = mReferenceQueue.poll()) != null) {
+            final int slot = ((SlotReference) reference).mSlot;
+            // The slot may already have been freed and reused by another view.
+            if (mViews[slot] == reference) {
+                freeSlot(slot);
+            }
+        }
+    }
+
+    int getSlot(@NonNull final View view) {
+        final Integer slot = mSlotsByView.get(view);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    /**
+     * Returns one past the highest slot in use. Callers iterate slots in [0, getSlotCount()) and
+     * skip slots whose view is null.
+     */
+    int getSlotCount() {
+        return mSlotCount;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    @Nullable
+    View getView(final int slot) {
+        final SlotReference reference = mViews[slot];
+        return reference == null ? null : reference.get();
+    }
+
+    @Nullable
+    View getRootView(final int slot) {
+        final WeakReference<View> reference = mRootViews[slot];
+        return reference == null ? null : reference.get();
+    }
+
+    int getMinViewablePercent(final int slot) {
+        return mMinViewablePercents[slot];
+    }
+
+    int getMaxInvisiblePercent(final int slot) {
+        return mMaxInvisiblePercents[slot];
+    }
+
+    long getAccessOrder(final int slot) {
+        return mAccessOrders[slot];
+    }
+
+    @VisibleForTesting
+    int getCapacity() {
+        return mViews.length;
+    }
+
+    private int allocateSlot() {
+        if (mFreeSlotCount > 0) {
+            mFreeSlotCount--;
+            return mFreeSlots[mFreeSlotCount];
+        }
+
+        if (mSlotCount == mViews.length) {
+            grow();
+        }
+        return mSlotCount++;
+    }
+
+    private void freeSlot(final int slot) {
+        if (mViews[slot] == null) {
+            return;
+        }
+
+        mViews[slot].clear();
+        mViews[slot] = null;
+        mRootViews[slot] = null;
+        mSize--;
+
+        if (slot == mSlotCount - 1) {
+            mSlotCount--;
+        } else {
+            mFreeSlots[mFreeSlotCount++] = slot;
+        }
+    }
+
+    private void grow() {
+        final int newCapacity = mViews.length * 2;
+        mViews = Arrays.copyOf(mViews, newCapacity);
+        mRootViews = Arrays.copyOf(mRootViews, newCapacity);
+        mMinViewablePercents = Arrays.copyOf(mMinViewablePercents, newCapacity);
+        mMaxInvisiblePercents = Arrays.copyOf(mMaxInvisiblePercents, newCapacity);
+        mAccessOrders = Arrays.copyOf(mAccessOrders, newCapacity);
+        mFreeSlots = Arrays.copyOf(mFreeSlots, newCapacity);
+    }
+}
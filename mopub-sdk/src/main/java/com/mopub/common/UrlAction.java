@@ -319,7 +319,7 @@ public enum UrlAction {
             final boolean fromUserInteraction,
             @Nullable String creativeId)
             throws IntentNotResolvableException {
-        MoPubLog.d("Ad event URL: " + destinationUri);
+        MoPubLog.d("Ad event URL: {}", destinationUri);
         if (mRequiresUserInteraction && !fromUserInteraction) {
             throw new IntentNotResolvableException("Attempted to handle action without user " +
                     "interaction.");
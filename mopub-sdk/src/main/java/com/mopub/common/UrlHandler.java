@@ -9,6 +9,7 @@ import android.text.TextUtils;
 import com.mopub.common.event.BaseEvent;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Intents;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.exceptions.IntentNotResolvableException;
 
 import java.util.EnumSet;
@@ -280,8 +281,10 @@ public class UrlHandler {
 
         };
 
-        UrlResolutionTask.getResolvedUrl(destinationUrl, urlResolutionListener);
+        // Set before resolving, since a url that fails to resolve calls back right away.
         mTaskPending = true;
+        UrlResolutionTask.getResolvedUrl(destinationUrl, Priority.USER_FACING,
+                urlResolutionListener);
     }
 
     /**
@@ -7,8 +7,12 @@ import android.support.annotation.Nullable;
 
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
+import com.mopub.common.util.Streams;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -17,6 +21,8 @@ import java.net.URL;
 @VisibleForTesting
 public class UrlResolutionTask extends AsyncTask<String, Void, String> {
     private static final int REDIRECT_LIMIT = 10;
+    // Redirect bodies larger than this aren't read, and their connections aren't reused.
+    private static final int MAX_DRAINED_BODY_BYTES = 8 * 1024;
 
     interface UrlResolutionListener {
         void onSuccess(@NonNull final String resolvedUrl);
@@ -25,15 +31,26 @@ public class UrlResolutionTask extends AsyncTask<String, Void, String> {
 
     @NonNull private final UrlResolutionListener mListener;
 
-    public static void getResolvedUrl(@NonNull final String urlString,
-            @NonNull final UrlResolutionListener listener) {
+    /**
+     * Resolves the url in the background.
+     *
+     * @param priority {@link Priority#USER_FACING} if the user is waiting on the url, e.g. after
+     * a click, or {@link Priority#PREFETCH} if it is resolved ahead of time.
+     * @return The task resolving the url, or null if it could not be started, in which case the
+     * listener has already been called.
+     */
+    @Nullable
+    public static UrlResolutionTask getResolvedUrl(@NonNull final String urlString,
+            @NonNull final Priority priority, @NonNull final UrlResolutionListener listener) {
         final UrlResolutionTask urlResolutionTask = new UrlResolutionTask(listener);
 
         try {
-            AsyncTasks.safeExecuteOnExecutor(urlResolutionTask, urlString);
+            AsyncTasks.safeExecuteOnExecutor(Lane.NETWORK, priority, urlResolutionTask, urlString);
         } catch (Exception e) {
             listener.onFailure("Failed to resolve url", e);
+            return null;
         }
+        return urlResolutionTask;
     }
 
     UrlResolutionTask(@NonNull UrlResolutionListener listener) {
@@ -86,11 +103,43 @@ public class UrlResolutionTask extends AsyncTask<String, Void, String> {
             return resolveRedirectLocation(urlString, httpUrlConnection);
         } finally {
             if (httpUrlConnection != null) {
-                httpUrlConnection.disconnect();
+                releaseConnection(httpUrlConnection);
             }
         }
     }
 
+    /**
+     * Reads and closes the response body instead of disconnecting, so that the connection goes
+     * back to the keep-alive pool and the next redirect to the same host skips the handshake.
+     */
+    @VisibleForTesting
+    static void releaseConnection(@NonNull final HttpURLConnection httpUrlConnection) {
+        InputStream inputStream = null;
+        try {
+            inputStream = httpUrlConnection.getResponseCode() >= 400
+                    ? httpUrlConnection.getErrorStream()
+                    : httpUrlConnection.getInputStream();
+            if (inputStream == null) {
+                return;
+            }
+
+            final byte[] buffer = new byte[1024];
+            int remainingBytes = MAX_DRAINED_BODY_BYTES;
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                remainingBytes -= bytesRead;
+                if (remainingBytes < 0) {
+                    httpUrlConnection.disconnect();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            httpUrlConnection.disconnect();
+        } finally {
+            Streams.closeStream(inputStream);
+        }
+    }
+
     @VisibleForTesting
     @Nullable
     static String resolveRedirectLocation(@NonNull final String baseUrl,
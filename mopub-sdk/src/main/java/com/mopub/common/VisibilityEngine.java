@@ -0,0 +1,264 @@
+package com.mopub.common;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.mopub.common.logging.MoPubLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import static android.view.ViewTreeObserver.OnPreDrawListener;
+import static com.mopub.common.VisibilityTracker.VisibilityChecker;
+
+/**
+ * Process-wide engine that drives visibility checks for every {@link VisibilityTracker}.
+ *
+ * Instead of each tracker registering its own pre-draw listener and posting its own delayed
+ * runnable, trackers subscribe here. The engine registers a single pre-draw listener per view
+ * tree, and when a draw happens it schedules one visibility pass on the next frame (throttled to
+ * {@link #VISIBILITY_THROTTLE_MILLIS}). During a pass the visible area of each view is computed
+ * at most once, no matter how many subscribers are tracking it.
+ *
+ * All methods must be called on the main thread.
+ */
+class VisibilityEngine {
+    // Minimum time between two visibility passes.
+    static final int VISIBILITY_THROTTLE_MILLIS = 100;
+
+    /**
+     * Receives a callback once per visibility pass. Subscribers are held weakly, so they must be
+     * strongly referenced by their owner for as long as they need callbacks.
+     */
+    interface Subscriber {
+        void onVisibilityPass(@NonNull VisibilityEngine visibilityEngine);
+    }
+
+    /**
+     * Posts frame callbacks. Wraps {@link Choreographer}, which is final and cannot be mocked.
+     */
+    static class FrameScheduler {
+        void postFrameCallbackDelayed(@NonNull final Choreographer.FrameCallback callback,
+                final long delayMillis) {
+            Choreographer.getInstance().postFrameCallbackDelayed(callback, delayMillis);
+        }
+
+        void removeFrameCallback(@NonNull final Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().removeFrameCallback(callback);
+        }
+    }
+
+    @Nullable private static VisibilityEngine sInstance;
+
+    @NonNull private final FrameScheduler mFrameScheduler;
+    @NonNull private final VisibilityChecker mVisibilityChecker;
+    @NonNull private final ArrayList<WeakReference<Subscriber>> mSubscribers;
+    // The subscribers called during the current pass, so that subscribing or unsubscribing from a
+    // callback doesn't skip anyone. Kept between passes so that passes don't allocate.
+    @NonNull private final ArrayList<Subscriber> mPassSubscribers;
+    @NonNull private final ArrayList<WeakReference<ViewTreeObserver>> mViewTreeObservers;
+    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
+    @NonNull private final Choreographer.FrameCallback mFrameCallback;
+
+    // Visible percentage of each view measured during the current pass. IdentityHashMap uses open
+    // addressing and the percentages are in the Integer cache, so steady-state passes don't
+    // allocate.
+    @NonNull private final IdentityHashMap<View, Integer> mMeasuredPercentages;
+
+    private boolean mIsPassScheduled;
+    private long mPassCount;
+    private long mMeasurementCount;
+
+    @NonNull
+    static VisibilityEngine getInstance() {
+        VisibilityEngine instance = sInstance;
+        if (instance == null) {
+            instance = new VisibilityEngine(new FrameScheduler(), new VisibilityChecker());
+            sInstance = instance;
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    VisibilityEngine(@NonNull final FrameScheduler frameScheduler,
+            @NonNull final VisibilityChecker visibilityChecker) {
+        Preconditions.checkNotNull(frameScheduler);
+        Preconditions.checkNotNull(visibilityChecker);
+
+        mFrameScheduler = frameScheduler;
+        mVisibilityChecker = visibilityChecker;
+        mSubscribers = new ArrayList<WeakReference<Subscriber>>();
+        mPassSubscribers = new ArrayList<Subscriber>();
+        mViewTreeObservers = new ArrayList<WeakReference<ViewTreeObserver>>();
+        mMeasuredPercentages = new IdentityHashMap<View, Integer>();
+
+        mOnPreDrawListener = new OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                schedulePass();
+                return true;
+            }
+        };
+
+        mFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(final long frameTimeNanos) {
+                runPass();
+            }
+        };
+    }
+
+    void subscribe(@NonNull final Subscriber subscriber) {
+        Preconditions.checkNotNull(subscriber);
+
+        for (int i = 0; i < mSubscribers.size(); i++) {
+            if (mSubscribers.get(i).get() == subscriber) {
+                return;
+            }
+        }
+        mSubscribers.add(new WeakReference<Subscriber>(subscriber));
+    }
+
+    void unsubscribe(@NonNull final Subscriber subscriber) {
+        for (int i = mSubscribers.size() - 1; i >= 0; i--) {
+            final Subscriber existing = mSubscribers.get(i).get();
+            if (existing == null || existing == subscriber) {
+                mSubscribers.remove(i);
+            }
+        }
+
+        if (mSubscribers.isEmpty() && mIsPassScheduled) {
+            mFrameScheduler.removeFrameCallback(mFrameCallback);
+            mIsPassScheduled = false;
+        }
+    }
+
+    /**
+     * Makes sure the view tree containing the given view (or the given Activity's window) runs a
+     * visibility pass whenever it draws.
+     *
+     * @return the observed view tree observer, or null if no live view tree could be found.
+     */
+    @Nullable
+    ViewTreeObserver observe(@Nullable final Context context, @Nullable final View view) {
+        final View rootView = VisibilityTracker.getBestRootView(context, view);
+        if (rootView == null) {
+            MoPubLog.d("Unable to set Visibility Tracker due to no available root view.");
+            return null;
+        }
+
+        final ViewTreeObserver viewTreeObserver = rootView.getViewTreeObserver();
+        if (!viewTreeObserver.isAlive()) {
+            MoPubLog.w("Visibility Tracker was unable to track views because the"
+                    + " root view tree observer was not alive");
+            return null;
+        }
+
+        for (int i = mViewTreeObservers.size() - 1; i >= 0; i--) {
+            final ViewTreeObserver observed = mViewTreeObservers.get(i).get();
+            if (observed == viewTreeObserver) {
+                return viewTreeObserver;
+            }
+            if (observed == null || !observed.isAlive()) {
+                mViewTreeObservers.remove(i);
+            }
+        }
+
+        viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
+        mViewTreeObservers.add(new WeakReference<ViewTreeObserver>(viewTreeObserver));
+        return viewTreeObserver;
+    }
+
+    /**
+     * Schedules a visibility pass on an upcoming frame unless one is already pending.
+     */
+    void schedulePass() {
+        if (mIsPassScheduled || mSubscribers.isEmpty()) {
+            return;
+        }
+
+        mIsPassScheduled = true;
+        mFrameScheduler.postFrameCallbackDelayed(mFrameCallback, VISIBILITY_THROTTLE_MILLIS);
+    }
+
+    @VisibleForTesting
+    void runPass() {
+        mIsPassScheduled = false;
+        mPassCount++;
+
+        // Garbage collected subscribers are pruned while taking the snapshot.
+        for (int i = 0; i < mSubscribers.size(); i++) {
+            final Subscriber subscriber = mSubscribers.get(i).get();
+            if (subscriber == null) {
+                mSubscribers.remove(i);
+                i--;
+                continue;
+            }
+            mPassSubscribers.add(subscriber);
+        }
+        for (int i = 0; i < mPassSubscribers.size(); i++) {
+            mPassSubscribers.get(i).onVisibilityPass(this);
+        }
+        mPassSubscribers.clear();
+
+        // Don't hold on to views between passes.
+        mMeasuredPercentages.clear();
+    }
+
+    /**
+     * Whether the view is at least the given percentage visible during the current pass. The
+     * visible area of each view is only measured once per pass.
+     */
+    boolean isVisible(@Nullable final View rootView, @Nullable final View view,
+            final int minPercentageViewed) {
+        // See VisibilityChecker#isVisible for why the root view's parent is checked.
+        if (view == null || rootView == null || rootView.getParent() == null) {
+            return false;
+        }
+
+        return getVisiblePercentage(view) >= minPercentageViewed;
+    }
+
+    private int getVisiblePercentage(@NonNull final View view) {
+        final Integer measured = mMeasuredPercentages.get(view);
+        if (measured != null) {
+            return measured;
+        }
+
+        mMeasurementCount++;
+        final int percentage = mVisibilityChecker.getVisiblePercentage(view);
+        mMeasuredPercentages.put(view, percentage);
+        return percentage;
+    }
+
+    @VisibleForTesting
+    boolean isPassScheduled() {
+        return mIsPassScheduled;
+    }
+
+    @VisibleForTesting
+    int getSubscriberCount() {
+        return mSubscribers.size();
+    }
+
+    @VisibleForTesting
+    long getPassCount() {
+        return mPassCount;
+    }
+
+    @VisibleForTesting
+    long getMeasurementCount() {
+        return mMeasurementCount;
+    }
+
+    @Deprecated
+    @VisibleForTesting
+    static void setInstance(@Nullable final VisibilityEngine visibilityEngine) {
+        sInstance = visibilityEngine;
+    }
+}
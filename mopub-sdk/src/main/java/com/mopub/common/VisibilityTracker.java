@@ -1,104 +1,70 @@
-package com.mopub.nativeads;
+package com.mopub.common;
 
 import android.app.Activity;
 import android.content.Context;
 import android.graphics.Rect;
-import android.os.Handler;
 import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.View;
 import android.view.ViewTreeObserver;
 
-import com.mopub.common.VisibleForTesting;
-import com.mopub.common.logging.MoPubLog;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
-
-import static android.view.ViewTreeObserver.OnPreDrawListener;
 
 /**
  * Tracks views to determine when they become visible or invisible, where visibility is defined as
- * having been at least X% on the screen.
+ * having been at least X% on the screen. Visibility checks are driven by the shared
+ * {@link VisibilityEngine}, so all trackers are checked together at most once per frame.
+ *
+ * Internal to the SDK: shared by native ad impression tracking and viewable banner refresh.
  */
-class VisibilityTracker {
-    // Time interval to use for throttling visibility checks.
-    private static final int VISIBILITY_THROTTLE_MILLIS = 100;
-
+public class VisibilityTracker {
     // Trim the tracked views after this many accesses. This protects us against tracking
     // too many views if the developer uses the adapter for multiple ListViews. It also
     // limits the memory leak if a developer forgets to call destroy().
     @VisibleForTesting static final int NUM_ACCESSES_BEFORE_TRIMMING = 50;
 
-    // Temporary array of trimmed views so that we don't allocate this on every trim.
-    @NonNull private final ArrayList<View> mTrimmedViews;
-
     // Incrementing access counter. Use a long to support very long-lived apps.
     private long mAccessCounter = 0;
 
     // Listener that passes all visible and invisible views when a visibility check occurs
-    interface VisibilityTrackerListener {
+    public interface VisibilityTrackerListener {
         void onVisibilityChanged(List<View> visibleViews, List<View> invisibleViews);
     }
 
-    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
+    // View tree that the shared engine observes on behalf of this tracker
     @NonNull @VisibleForTesting WeakReference<ViewTreeObserver> mWeakViewTreeObserver;
 
-    static class TrackingInfo {
-        int mMinViewablePercent;
-        // Must be less than mMinVisiblePercent
-        int mMaxInvisiblePercent;
-        long mAccessOrder;
-        View mRootView;
-    }
-
-    // Views that are being tracked, mapped to the min viewable percentage
-    @NonNull private final Map<View, TrackingInfo> mTrackedViews;
+    // Views that are being tracked, with their viewable percentages and access order
+    @NonNull private final TrackedViewRegistry mTrackedViews;
 
-    // Object to check actual visibility
-    @NonNull private final VisibilityChecker mVisibilityChecker;
+    // Shared engine that measures visibility and calls back on each visibility pass
+    @NonNull private final VisibilityEngine mVisibilityEngine;
 
     // Callback listener
     @Nullable private VisibilityTrackerListener mVisibilityTrackerListener;
 
-    // Runnable to run on each visibility loop
+    // Subscriber to run on each visibility pass. The engine only holds it weakly.
     @NonNull private final VisibilityRunnable mVisibilityRunnable;
 
-    // Handler for visibility
-    @NonNull private final Handler mVisibilityHandler;
-
-    // Whether the visibility runnable is scheduled
-    private boolean mIsVisibilityScheduled;
-
     public VisibilityTracker(@NonNull final Context context) {
         this(context,
-                new WeakHashMap<View, TrackingInfo>(10),
-                new VisibilityChecker(),
-                new Handler());
+                new TrackedViewRegistry(),
+                VisibilityEngine.getInstance());
     }
 
     @VisibleForTesting
     VisibilityTracker(@NonNull final Context context,
-            @NonNull final Map<View, TrackingInfo> trackedViews,
-            @NonNull final VisibilityChecker visibilityChecker,
-            @NonNull final Handler visibilityHandler) {
+            @NonNull final TrackedViewRegistry trackedViews,
+            @NonNull final VisibilityEngine visibilityEngine) {
         mTrackedViews = trackedViews;
-        mVisibilityChecker = visibilityChecker;
-        mVisibilityHandler = visibilityHandler;
+        mVisibilityEngine = visibilityEngine;
         mVisibilityRunnable = new VisibilityRunnable();
-        mTrimmedViews = new ArrayList<View>(NUM_ACCESSES_BEFORE_TRIMMING);
 
-        mOnPreDrawListener = new OnPreDrawListener() {
-            @Override
-            public boolean onPreDraw() {
-                scheduleVisibilityCheck();
-                return true;
-            }
-        };
+        mVisibilityEngine.subscribe(mVisibilityRunnable);
 
         mWeakViewTreeObserver = new WeakReference<ViewTreeObserver>(null);
         setViewTreeObserver(context, null);
@@ -110,21 +76,10 @@ class VisibilityTracker {
             return;
         }
 
-        final View rootView = getBestRootView(context, view);
-        if (rootView == null) {
-            MoPubLog.d("Unable to set Visibility Tracker due to no available root view.");
-            return;
+        final ViewTreeObserver viewTreeObserver = mVisibilityEngine.observe(context, view);
+        if (viewTreeObserver != null) {
+            mWeakViewTreeObserver = new WeakReference<ViewTreeObserver>(viewTreeObserver);
         }
-
-        final ViewTreeObserver viewTreeObserver = rootView.getViewTreeObserver();
-        if (!viewTreeObserver.isAlive()) {
-            MoPubLog.w("Visibility Tracker was unable to track views because the"
-                    + " root view tree observer was not alive");
-            return;
-        }
-
-        mWeakViewTreeObserver = new WeakReference<ViewTreeObserver>(viewTreeObserver);
-        viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
     }
 
     @VisibleForTesting
@@ -145,7 +100,7 @@ class VisibilityTracker {
         return null;
     }
 
-    void setVisibilityTrackerListener(
+    public void setVisibilityTrackerListener(
             @Nullable final VisibilityTrackerListener visibilityTrackerListener) {
         mVisibilityTrackerListener = visibilityTrackerListener;
     }
@@ -153,31 +108,28 @@ class VisibilityTracker {
     /**
      * Tracks the given view for visibility.
      */
-    void addView(@NonNull final View view, final int minPercentageViewed) {
+    public void addView(@NonNull final View view, final int minPercentageViewed) {
         addView(view, view, minPercentageViewed);
     }
 
-    void addView(@NonNull View rootView, @NonNull final View view, final int minPercentageViewed) {
+    public void addView(@NonNull View rootView, @NonNull final View view, final int minPercentageViewed) {
       addView(rootView, view, minPercentageViewed, minPercentageViewed);
     }
 
-    void addView(@NonNull View rootView, @NonNull final View view, final int minVisiblePercentageViewed, final int maxInvisiblePercentageViewed) {
+    public void addView(@NonNull View rootView, @NonNull final View view, final int minVisiblePercentageViewed, final int maxInvisiblePercentageViewed) {
         setViewTreeObserver(view.getContext(), view);
 
         // Find the view if already tracked
-        TrackingInfo trackingInfo = mTrackedViews.get(view);
-        if (trackingInfo == null) {
-            trackingInfo = new TrackingInfo();
-            mTrackedViews.put(view, trackingInfo);
-            scheduleVisibilityCheck();
-        }
+        final boolean isNewView = mTrackedViews.getSlot(view) == TrackedViewRegistry.NO_SLOT;
 
+        // Must be less than the min visible percent
         int maxInvisiblePercent = Math.min(maxInvisiblePercentageViewed, minVisiblePercentageViewed);
 
-        trackingInfo.mRootView = rootView;
-        trackingInfo.mMinViewablePercent = minVisiblePercentageViewed;
-        trackingInfo.mMaxInvisiblePercent = maxInvisiblePercent;
-        trackingInfo.mAccessOrder = mAccessCounter;
+        mTrackedViews.put(rootView, view, minVisiblePercentageViewed, maxInvisiblePercent,
+                mAccessCounter);
+        if (isNewView) {
+            scheduleVisibilityCheck();
+        }
 
         // Trim the number of tracked views to a reasonable number
         mAccessCounter++;
@@ -187,60 +139,46 @@ class VisibilityTracker {
     }
 
     private void trimTrackedViews(long minAccessOrder) {
-        // Clear anything that is below minAccessOrder.
-        for (final Map.Entry<View, TrackingInfo> entry : mTrackedViews.entrySet()) {
-            if (entry.getValue().mAccessOrder <  minAccessOrder) {
-                mTrimmedViews.add(entry.getKey());
+        // Clear anything that is below minAccessOrder. Slots are stable, so removing while
+        // iterating is safe.
+        final int slotCount = mTrackedViews.getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (mTrackedViews.getView(slot) != null
+                    && mTrackedViews.getAccessOrder(slot) < minAccessOrder) {
+                mTrackedViews.removeSlot(slot);
             }
         }
-
-        for (View view : mTrimmedViews) {
-            removeView(view);
-        }
-        mTrimmedViews.clear();
     }
 
     /**
      * Stops tracking a view, cleaning any pending tracking
      */
-    void removeView(@NonNull final View view) {
+    public void removeView(@NonNull final View view) {
         mTrackedViews.remove(view);
     }
 
     /**
      * Immediately clear all views. Useful for when we re-request ads for an ad placer
      */
-    void clear() {
+    public void clear() {
         mTrackedViews.clear();
-        mVisibilityHandler.removeMessages(0);
-        mIsVisibilityScheduled = false;
     }
 
     /**
      * Destroy the visibility tracker, preventing it from future use.
      */
-    void destroy() {
+    public void destroy() {
         clear();
-        final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
-        if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
-            viewTreeObserver.removeOnPreDrawListener(mOnPreDrawListener);
-        }
+        mVisibilityEngine.unsubscribe(mVisibilityRunnable);
         mWeakViewTreeObserver.clear();
         mVisibilityTrackerListener = null;
     }
 
     void scheduleVisibilityCheck() {
-        // Tracking this directly instead of calling hasMessages directly because we measured that
-        // this led to slightly better performance.
-        if (mIsVisibilityScheduled) {
-            return;
-        }
-
-        mIsVisibilityScheduled = true;
-        mVisibilityHandler.postDelayed(mVisibilityRunnable, VISIBILITY_THROTTLE_MILLIS);
+        mVisibilityEngine.schedulePass();
     }
 
-    class VisibilityRunnable implements Runnable {
+    class VisibilityRunnable implements VisibilityEngine.Subscriber {
         // Set of views that are visible or invisible. We create these once to avoid excessive
         // garbage collection observed when calculating these on each pass.
         @NonNull private final ArrayList<View> mVisibleViews;
@@ -251,18 +189,27 @@ class VisibilityTracker {
             mVisibleViews = new ArrayList<View>();
         }
 
+        // Does not allocate once the visible and invisible lists have grown to size.
         @Override
-        public void run() {
-            mIsVisibilityScheduled = false;
-            for (final Map.Entry<View, TrackingInfo> entry : mTrackedViews.entrySet()) {
-                final View view = entry.getKey();
-                final int minPercentageViewed = entry.getValue().mMinViewablePercent;
-                final int maxInvisiblePercent = entry.getValue().mMaxInvisiblePercent;
-                final View rootView = entry.getValue().mRootView;
-
-                if (mVisibilityChecker.isVisible(rootView, view, minPercentageViewed)) {
+        public void onVisibilityPass(@NonNull final VisibilityEngine visibilityEngine) {
+            mTrackedViews.expungeStaleViews();
+            if (mTrackedViews.isEmpty()) {
+                return;
+            }
+
+            final int slotCount = mTrackedViews.getSlotCount();
+            for (int slot = 0; slot < slotCount; slot++) {
+                final View view = mTrackedViews.getView(slot);
+                if (view == null) {
+                    continue;
+                }
+                final int minPercentageViewed = mTrackedViews.getMinViewablePercent(slot);
+                final int maxInvisiblePercent = mTrackedViews.getMaxInvisiblePercent(slot);
+                final View rootView = mTrackedViews.getRootView(slot);
+
+                if (visibilityEngine.isVisible(rootView, view, minPercentageViewed)) {
                     mVisibleViews.add(view);
-                } else if (!mVisibilityChecker.isVisible(rootView, view, maxInvisiblePercent)){
+                } else if (!visibilityEngine.isVisible(rootView, view, maxInvisiblePercent)){
                     mInvisibleViews.add(view);
                 }
             }
@@ -277,21 +224,21 @@ class VisibilityTracker {
         }
     }
 
-    static class VisibilityChecker {
+    public static class VisibilityChecker {
         // A rect to use for hit testing. Create this once to avoid excess garbage collection
         private final Rect mClipRect = new Rect();
 
         /**
          * Whether the visible time has elapsed from the start time. Easily mocked for testing.
          */
-        boolean hasRequiredTimeElapsed(final long startTimeMillis, final int minTimeViewed) {
+        public boolean hasRequiredTimeElapsed(final long startTimeMillis, final int minTimeViewed) {
             return SystemClock.uptimeMillis() - startTimeMillis >= minTimeViewed;
         }
 
         /**
          * Whether the view is at least certain % visible
          */
-        boolean isVisible(@Nullable final View rootView, @Nullable final View view, final int minPercentageViewed) {
+        public boolean isVisible(@Nullable final View rootView, @Nullable final View view, final int minPercentageViewed) {
             // ListView & GridView both call detachFromParent() for views that can be recycled for
             // new data. This is one of the rare instances where a view will have a null parent for
             // an extended period of time and will not be the main window.
@@ -302,20 +249,29 @@ class VisibilityTracker {
                 return false;
             }
 
-            if (!view.getGlobalVisibleRect(mClipRect)) {
+            return getVisiblePercentage(view) >= minPercentageViewed;
+        }
+
+        /**
+         * Returns the whole percentage of the view's area that is on screen, rounded down, or -1
+         * if the view is not visible at all. For an integer threshold X, the view is at least X%
+         * visible exactly when this returns a value >= X.
+         */
+        public int getVisiblePercentage(@NonNull final View view) {
+            if (view.getVisibility() != View.VISIBLE || !view.getGlobalVisibleRect(mClipRect)) {
                 // Not visible
-                return false;
+                return -1;
             }
 
-            // % visible check - the cast is to avoid int overflow for large views.
+            // The cast is to avoid int overflow for large views.
             final long visibleViewArea = (long) mClipRect.height() * mClipRect.width();
             final long totalViewArea = (long) view.getHeight() * view.getWidth();
 
             if (totalViewArea <= 0) {
-                return false;
+                return -1;
             }
 
-            return 100 * visibleViewArea >= minPercentageViewed * totalViewArea;
+            return (int) (100 * visibleViewArea / totalViewArea);
         }
     }
 }
@@ -0,0 +1,226 @@
+package com.mopub.common.logging;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.mopub.common.VisibleForTesting;
+
+import java.util.logging.Level;
+
+/**
+ * Writes {@link MoPubLog} messages to logcat on a background thread.
+ *
+ * Messages are queued in a fixed-size ring buffer and formatted by the background thread, so
+ * logging on the main thread only costs a lock and a few field writes. If messages come in faster
+ * than they can be written, the oldest are dropped, and the number dropped is logged in their
+ * place. Errors are written on the calling thread, after the messages queued before them, so that
+ * they aren't lost if the app is about to crash.
+ *
+ * This class is thread safe.
+ */
+class LogSink {
+    private static final String LOGTAG = "MoPub";
+    private static final String PLACEHOLDER = "{}";
+
+    private static class Entry {
+        @Nullable Level mLevel;
+        @Nullable String mFormat;
+        @Nullable Object mArg1;
+        @Nullable Object mArg2;
+        @Nullable Throwable mThrowable;
+    }
+
+    private final boolean mStartsThread;
+    // Reused, so that queueing a message doesn't allocate.
+    @NonNull private final Entry[] mEntries;
+    private int mHead;
+    private int mCount;
+    private int mDroppedCount;
+    private boolean mIsSynchronous;
+    private boolean mIsThreadStarted;
+
+    /**
+     * @param startsThread Whether to start the background thread. Without it, queued messages
+     *                     are only written by {@link #drain()}.
+     */
+    @VisibleForTesting
+    LogSink(final int capacity, final boolean startsThread) {
+        mStartsThread = startsThread;
+        mEntries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mEntries[i] = new Entry();
+        }
+    }
+
+    /**
+     * Writes messages on the calling thread instead of queueing them.
+     */
+    synchronized void setSynchronous(final boolean synchronous) {
+        mIsSynchronous = synchronous;
+    }
+
+    void log(@NonNull final Level level, @Nullable final String format,
+            @Nullable final Object arg1, @Nullable final Object arg2,
+            @Nullable final Throwable throwable) {
+        synchronized (this) {
+            if (!mIsSynchronous && level.intValue() < Level.SEVERE.intValue()) {
+                if (mCount == mEntries.length) {
+                    mHead = (mHead + 1) % mEntries.length;
+                    mCount--;
+                    mDroppedCount++;
+                }
+
+                final Entry entry = mEntries[(mHead + mCount) % mEntries.length];
+                entry.mLevel = level;
+                entry.mFormat = format;
+                entry.mArg1 = arg1;
+                entry.mArg2 = arg2;
+                entry.mThrowable = throwable;
+                mCount++;
+
+                if (!mIsThreadStarted && mStartsThread) {
+                    startThread();
+                }
+                notifyAll();
+                return;
+            }
+        }
+
+        drain();
+        write(level, format(format, arg1, arg2), throwable);
+    }
+
+    /**
+     * Writes every queued message on the calling thread.
+     */
+    @VisibleForTesting
+    void drain() {
+        while (writeNext(false)) {
+        }
+    }
+
+    /**
+     * Writes the oldest queued message, waiting for one if asked to.
+     *
+     * @return Whether a message was written.
+     */
+    private boolean writeNext(final boolean waits) {
+        final Level level;
+        final String format;
+        final Object arg1;
+        final Object arg2;
+        final Throwable throwable;
+        final int droppedCount;
+        synchronized (this) {
+            while (waits && mCount == 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            if (mCount == 0) {
+                return false;
+            }
+
+            final Entry entry = mEntries[mHead];
+            level = entry.mLevel;
+            format = entry.mFormat;
+            arg1 = entry.mArg1;
+            arg2 = entry.mArg2;
+            throwable = entry.mThrowable;
+            // So that logged objects can be collected.
+            entry.mFormat = null;
+            entry.mArg1 = null;
+            entry.mArg2 = null;
+            entry.mThrowable = null;
+            mHead = (mHead + 1) % mEntries.length;
+            mCount--;
+
+            droppedCount = mDroppedCount;
+            mDroppedCount = 0;
+        }
+
+        if (droppedCount > 0) {
+            write(Level.WARNING, "Dropped " + droppedCount + " log messages.", null);
+        }
+        write(level, format(format, arg1, arg2), throwable);
+        return true;
+    }
+
+    private void startThread() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (writeNext(true)) {
+                }
+            }
+        }, "MoPubLog");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        mIsThreadStarted = true;
+    }
+
+    @SuppressLint("LogTagMismatch")
+    private void write(@NonNull final Level level, @NonNull final String message,
+            @Nullable final Throwable throwable) {
+        String logMessage = message + "\n";
+        if (throwable != null) {
+            logMessage += Log.getStackTraceString(throwable);
+        }
+        Log.println(getPriority(level), LOGTAG, logMessage);
+    }
+
+    /**
+     * Replaces each {} in the format with the next argument.
+     */
+    @NonNull
+    @VisibleForTesting
+    static String format(@Nullable final String format, @Nullable final Object arg1,
+            @Nullable final Object arg2) {
+        final String message = String.valueOf(format);
+        final int firstIndex = message.indexOf(PLACEHOLDER);
+        if (firstIndex < 0) {
+            return message;
+        }
+
+        final StringBuilder builder = new StringBuilder(message.length() + 32);
+        builder.append(message, 0, firstIndex).append(arg1);
+        final int restIndex = firstIndex + PLACEHOLDER.length();
+        final int secondIndex = message.indexOf(PLACEHOLDER, restIndex);
+        if (secondIndex < 0) {
+            return builder.append(message, restIndex, message.length()).toString();
+        }
+        return builder.append(message, restIndex, secondIndex)
+                .append(arg2)
+                .append(message, secondIndex + PLACEHOLDER.length(), message.length())
+                .toString();
+    }
+
+    /*
+     * Mapping between Level.* and Log.*:
+     * Level.FINEST  => Log.v
+     * Level.FINER   => Log.v
+     * Level.FINE    => Log.v
+     * Level.CONFIG  => Log.d
+     * Level.INFO    => Log.i
+     * Level.WARNING => Log.w
+     * Level.SEVERE  => Log.e
+     */
+    private static int getPriority(@NonNull final Level level) {
+        final int value = level.intValue();
+        if (value >= Level.SEVERE.intValue()) {
+            return Log.ERROR;
+        } else if (value >= Level.WARNING.intValue()) {
+            return Log.WARN;
+        } else if (value >= Level.INFO.intValue()) {
+            return Log.INFO;
+        } else if (value >= Level.CONFIG.intValue()) {
+            return Log.DEBUG;
+        }
+        return Log.VERBOSE;
+    }
+}
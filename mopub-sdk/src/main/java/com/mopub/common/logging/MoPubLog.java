@@ -1,41 +1,58 @@
 package com.mopub.common.logging;
 
-import android.annotation.SuppressLint;
 import android.support.annotation.NonNull;
-import android.util.Log;
+import android.support.annotation.Nullable;
 
 import com.mopub.common.VisibleForTesting;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
-import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
+/**
+ * The SDK's log. Messages at or above the SDK log level are written to logcat on a background
+ * thread by a {@link LogSink}. Every message, whatever its level, is also passed to any
+ * {@link Handler}s added to the {@link Logger} named {@link #LOGGER_NAMESPACE}, on the thread
+ * that logged it.
+ *
+ * Unless the Logger has Handlers, messages below the level cost a single comparison. Messages
+ * built from values should use the overloads that take arguments, such as
+ * {@link #d(String, Object)}, so that the message is only built if it will be logged. The
+ * arguments are formatted later, on the background thread, so they should not be changed after
+ * they are logged.
+ */
 public class MoPubLog {
     public static final String LOGGER_NAMESPACE = "com.mopub";
 
-    private static final String LOGTAG = "MoPub";
+    @VisibleForTesting static final int RING_BUFFER_CAPACITY = 256;
+
     private static final Logger LOGGER = Logger.getLogger(LOGGER_NAMESPACE);
-    private static final MoPubLogHandler LOG_HANDLER = new MoPubLogHandler();
+    private static final LogSink LOG_SINK = new LogSink(RING_BUFFER_CAPACITY, true);
+
+    private static volatile int sLevelValue = Level.FINE.intValue();
 
     /**
-     * Sets up the {@link Logger}, {@link Handler}, and prevents any parent Handlers from being
-     * notified to avoid duplicated log messages.
+     * Sets up the {@link Logger} and prevents any parent Handlers from being notified to avoid
+     * duplicated log messages.
      */
     static {
         LOGGER.setUseParentHandlers(false);
         LOGGER.setLevel(Level.ALL);
-        LOG_HANDLER.setLevel(Level.FINE);
 
         LogManager.getLogManager().addLogger(LOGGER);
-        addHandler(LOGGER, LOG_HANDLER);
     }
 
     private MoPubLog() {}
 
+    /**
+     * Returns whether messages at the given level are logged. Call sites that need to do work to
+     * build a message should check this first.
+     */
+    public static boolean isLoggable(@NonNull final Level level) {
+        return level.intValue() >= sLevelValue;
+    }
+
     public static void c(final String message) {
         MoPubLog.c(message, null);
     }
@@ -61,95 +78,93 @@ public class MoPubLog {
     }
 
     public static void c(final String message, final Throwable throwable) {
-        LOGGER.log(Level.FINEST, message, throwable);
+        log(Level.FINEST, message, null, null, throwable);
     }
 
     public static void v(final String message, final Throwable throwable) {
-        LOGGER.log(Level.FINE, message, throwable);
+        log(Level.FINE, message, null, null, throwable);
     }
 
     public static void d(final String message, final Throwable throwable) {
-        LOGGER.log(Level.CONFIG, message, throwable);
+        log(Level.CONFIG, message, null, null, throwable);
     }
 
     public static void i(final String message, final Throwable throwable) {
-        LOGGER.log(Level.INFO, message, throwable);
+        log(Level.INFO, message, null, null, throwable);
     }
 
     public static void w(final String message, final Throwable throwable) {
-        LOGGER.log(Level.WARNING, message, throwable);
+        log(Level.WARNING, message, null, null, throwable);
     }
 
     public static void e(final String message, final Throwable throwable) {
-        LOGGER.log(Level.SEVERE, message, throwable);
+        log(Level.SEVERE, message, null, null, throwable);
+    }
+
+    /**
+     * Logs the format with its {} replaced by the argument.
+     */
+    public static void v(final String format, final Object arg) {
+        log(Level.FINE, format, arg, null, null);
+    }
+
+    /**
+     * Logs the format with its {}s replaced by the arguments, in order.
+     */
+    public static void v(final String format, final Object arg1, final Object arg2) {
+        log(Level.FINE, format, arg1, arg2, null);
+    }
+
+    /**
+     * @see #v(String, Object)
+     */
+    public static void d(final String format, final Object arg) {
+        log(Level.CONFIG, format, arg, null, null);
+    }
+
+    /**
+     * @see #v(String, Object, Object)
+     */
+    public static void d(final String format, final Object arg1, final Object arg2) {
+        log(Level.CONFIG, format, arg1, arg2, null);
+    }
+
+    /**
+     * @see #v(String, Object)
+     */
+    public static void w(final String format, final Object arg) {
+        log(Level.WARNING, format, arg, null, null);
+    }
+
+    /**
+     * @see #v(String, Object, Object)
+     */
+    public static void w(final String format, final Object arg1, final Object arg2) {
+        log(Level.WARNING, format, arg1, arg2, null);
     }
 
     @VisibleForTesting
     public static void setSdkHandlerLevel(@NonNull final Level level) {
-        LOG_HANDLER.setLevel(level);
+        sLevelValue = level.intValue();
     }
 
     /**
-     * Adds a {@link Handler} to a {@link Logger} if they are not already associated.
+     * Writes messages on the calling thread, so that tests can check them right after logging.
      */
-    private static void addHandler(@NonNull final Logger logger,
-            @NonNull final Handler handler) {
-        final Handler[] currentHandlers = logger.getHandlers();
-        for (final Handler currentHandler : currentHandlers) {
-            if (currentHandler.equals(handler)) {
-                return;
-            }
-        }
-        logger.addHandler(handler);
-    }
-
-    private static final class MoPubLogHandler extends Handler {
-        private static final Map<Level, Integer> LEVEL_TO_LOG = new HashMap<Level, Integer>(7);
-
-        /*
-         * Mapping between Level.* and Log.*:
-         * Level.FINEST  => Log.v
-         * Level.FINER   => Log.v
-         * Level.FINE    => Log.v
-         * Level.CONFIG  => Log.d
-         * Level.INFO    => Log.i
-         * Level.WARNING => Log.w
-         * Level.SEVERE  => Log.e
-         */
-        static {
-            LEVEL_TO_LOG.put(Level.FINEST, Log.VERBOSE);
-            LEVEL_TO_LOG.put(Level.FINER, Log.VERBOSE);
-            LEVEL_TO_LOG.put(Level.FINE, Log.VERBOSE);
-            LEVEL_TO_LOG.put(Level.CONFIG, Log.DEBUG);
-            LEVEL_TO_LOG.put(Level.INFO, Log.INFO);
-            LEVEL_TO_LOG.put(Level.WARNING, Log.WARN);
-            LEVEL_TO_LOG.put(Level.SEVERE, Log.ERROR);
-        }
+    @VisibleForTesting
+    public static void setSynchronous(final boolean synchronous) {
+        LOG_SINK.setSynchronous(synchronous);
+    }
 
-        @Override
-        @SuppressLint("LogTagMismatch")
-        public void publish(final LogRecord logRecord) {
-            if (isLoggable(logRecord)) {
-                final int priority;
-                if (LEVEL_TO_LOG.containsKey(logRecord.getLevel())) {
-                    priority = LEVEL_TO_LOG.get(logRecord.getLevel());
-                } else {
-                    priority = Log.VERBOSE;
-                }
-
-                String message = logRecord.getMessage() + "\n";
-
-                final Throwable error = logRecord.getThrown();
-                if (error != null) {
-                    message += Log.getStackTraceString(error);
-                }
-
-                Log.println(priority, LOGTAG, message);
-            }
+    private static void log(@NonNull final Level level, @Nullable final String format,
+            @Nullable final Object arg1, @Nullable final Object arg2,
+            @Nullable final Throwable throwable) {
+        // Returns a shared empty array, without allocating, when there are no Handlers.
+        if (LOGGER.getHandlers().length > 0) {
+            LOGGER.log(level, LogSink.format(format, arg1, arg2), throwable);
+        }
+        if (level.intValue() >= sLevelValue) {
+            LOG_SINK.log(level, format, arg1, arg2, throwable);
         }
-
-        @Override public void close() {}
-
-        @Override public void flush() {}
     }
 }
@@ -4,48 +4,91 @@ import android.annotation.TargetApi;
 import android.os.AsyncTask;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.util.LaneExecutor.Priority;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 public class AsyncTasks {
-    private static Executor sExecutor;
+    /**
+     * The kinds of background work the SDK does. Each lane has its own bounded set of threads, so
+     * that, for example, video downloads don't hold up reading from the disk cache.
+     */
+    public enum Lane {
+        NETWORK("network", 4),
+        DISK("disk", 2),
+        CPU("cpu", Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4)));
 
-    static {
-        init();
+        @NonNull private final String mName;
+        private final int mThreadCount;
+
+        Lane(@NonNull final String name, final int threadCount) {
+            mName = name;
+            mThreadCount = threadCount;
+        }
     }
 
-    // This is in a separate method rather than a static block to pass lint.
-    @TargetApi(VERSION_CODES.HONEYCOMB)
-    private static void init() {
-        // Reuse the async task executor if possible
-        if (VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB) {
-            sExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
-        } else {
-            sExecutor = Executors.newSingleThreadExecutor();
+    private static final Map<Lane, LaneExecutor> sLaneExecutors =
+            new EnumMap<Lane, LaneExecutor>(Lane.class);
+    @Nullable private static Executor sExecutor;
+
+    static {
+        for (final Lane lane : Lane.values()) {
+            sLaneExecutors.put(lane, new LaneExecutor(lane.mName, lane.mThreadCount));
         }
     }
 
+    /**
+     * Runs every task on the given executor instead of the SDK's lanes.
+     */
     @VisibleForTesting
     public static void setExecutor(Executor executor) {
         sExecutor = executor;
     }
 
+    /**
+     * Returns the lane's executor, for its queue depth and wait time metrics.
+     */
+    @NonNull
+    public static LaneExecutor getLaneExecutor(@NonNull final Lane lane) {
+        Preconditions.checkNotNull(lane);
+
+        return sLaneExecutors.get(lane);
+    }
+
+    /**
+     * Runs the task on the CPU lane at default priority.
+     *
+     * @see #safeExecuteOnExecutor(Lane, Priority, AsyncTask, Object[])
+     */
+    public static <P> void safeExecuteOnExecutor(AsyncTask<P, ?, ?> asyncTask, P... params) {
+        safeExecuteOnExecutor(Lane.CPU, Priority.DEFAULT, asyncTask, params);
+    }
+
     /**
      * Starting with Honeycomb, default AsyncTask#execute behavior runs the tasks serially. This
-     * method attempts to force these AsyncTasks to run in parallel with a ThreadPoolExecutor, if
-     * possible.
+     * method runs these AsyncTasks in parallel on one of the SDK's own lanes, if possible, rather
+     * than on the thread pool the SDK shares with the app.
      */
     @TargetApi(VERSION_CODES.HONEYCOMB)
-    public static <P> void safeExecuteOnExecutor(AsyncTask<P, ?, ?> asyncTask, P... params) {
+    public static <P> void safeExecuteOnExecutor(@NonNull final Lane lane,
+            @NonNull final Priority priority, AsyncTask<P, ?, ?> asyncTask, P... params) {
+        Preconditions.checkNotNull(lane);
+        Preconditions.checkNotNull(priority);
         Preconditions.checkNotNull(asyncTask, "Unable to execute null AsyncTask.");
         Preconditions.checkUiThread("AsyncTask must be executed on the main thread");
 
         if (VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB) {
-            asyncTask.executeOnExecutor(sExecutor, params);
+            final Executor executor = sExecutor != null
+                    ? sExecutor
+                    : sLaneExecutors.get(lane).getExecutor(priority);
+            asyncTask.executeOnExecutor(executor, params);
         } else {
             asyncTask.execute(params);
         }
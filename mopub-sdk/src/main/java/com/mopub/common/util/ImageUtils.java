@@ -3,10 +3,33 @@ package com.mopub.common.util;
 import android.graphics.Bitmap;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.widget.ImageView;
 
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
 
 public class ImageUtils {
+    /**
+     * Frames are downsampled until neither side is longer than this before they are blurred.
+     */
+    @VisibleForTesting static final int MAX_BLUR_DIMENSION = 480;
+    private static final int MAX_BLUR_STRIP_COUNT = 4;
+    // Below this, handing strips to other threads costs more than it saves.
+    private static final int MIN_PARALLEL_BLUR_PIXELS = 64 * 1024;
+
+    // The two pixel buffers of the last blur, kept for the next one. Taken out while in use, so
+    // that concurrent blurs don't share them.
+    @Nullable private static SoftReference<int[][]> sBlurBuffersRef;
 
     /**
      * Fast Gaussian blurring algorithm source:
@@ -23,19 +46,7 @@ public class ImageUtils {
         for (int r = radius; r >= 1; r /= 2) {
             for (int i = r; i < h - r; i++) {
                 for (int j = r; j < w - r; j++) {
-                    int tl = pixels[(i - r) * w + j - r];
-                    int tr = pixels[(i - r) * w + j + r];
-                    int tc = pixels[(i - r) * w + j];
-                    int bl = pixels[(i + r) * w + j - r];
-                    int br = pixels[(i + r) * w + j + r];
-                    int bc = pixels[(i + r) * w + j];
-                    int cl = pixels[i * w + j - r];
-                    int cr = pixels[i * w + j + r];
-
-                    pixels[(i * w) + j] = 0xFF000000 |
-                            (((tl & 0xFF) + (tr & 0xFF) + (tc & 0xFF) + (bl & 0xFF) + (br & 0xFF) + (bc & 0xFF) + (cl & 0xFF) + (cr & 0xFF)) >> 3) & 0xFF |
-                            (((tl & 0xFF00) + (tr & 0xFF00) + (tc & 0xFF00) + (bl & 0xFF00) + (br & 0xFF00) + (bc & 0xFF00) + (cl & 0xFF00) + (cr & 0xFF00)) >> 3) & 0xFF00 |
-                            (((tl & 0xFF0000) + (tr & 0xFF0000) + (tc & 0xFF0000) + (bl & 0xFF0000) + (br & 0xFF0000) + (bc & 0xFF0000) + (cl & 0xFF0000) + (cr & 0xFF0000)) >> 3) & 0xFF0000;
+                    pixels[(i * w) + j] = averageNeighbors(pixels, w, i, j, r);
                 }
             }
         }
@@ -44,6 +55,189 @@ public class ImageUtils {
         return mutableBitmap;
     }
 
+    /**
+     * Blurs a copy of the bitmap that is downsampled to at most {@link #MAX_BLUR_DIMENSION} on
+     * its longer side, using the same filter as {@link #applyFastGaussianBlurToBitmap}. Rows are
+     * blurred in strips on the CPU lane. The result is meant to be scaled back up by the view
+     * that shows it, which blurs it a little more.
+     *
+     * Bitmaps that are already small enough are blurred in place and returned. The caller can
+     * recycle the original if it gets a different bitmap back.
+     *
+     * @param radius The blur radius in pixels of the original bitmap. It is scaled down with the
+     * bitmap, so that the result looks as blurred as a full size blur would.
+     * @return The blurred bitmap, or null if the thread was interrupted.
+     */
+    @Nullable
+    public static Bitmap applyDownsampledBlurToBitmap(@NonNull Bitmap mutableBitmap, int radius) {
+        final int downsampleFactor = getBlurDownsampleFactor(mutableBitmap.getWidth(),
+                mutableBitmap.getHeight());
+        final Bitmap bitmap = downsampleFactor == 1
+                ? mutableBitmap
+                : Bitmap.createScaledBitmap(mutableBitmap,
+                        Math.max(mutableBitmap.getWidth() / downsampleFactor, 1),
+                        Math.max(mutableBitmap.getHeight() / downsampleFactor, 1),
+                        true);
+        final int w = bitmap.getWidth();
+        final int h = bitmap.getHeight();
+
+        final int[][] buffers = obtainBlurBuffers(w * h);
+        try {
+            bitmap.getPixels(buffers[0], 0, w, 0, 0, w, h);
+            final int[] pixels = blurPixels(buffers[0], buffers[1], w, h,
+                    getDownsampledBlurRadius(radius, downsampleFactor));
+            if (pixels == null) {
+                if (bitmap != mutableBitmap) {
+                    bitmap.recycle();
+                }
+                return null;
+            }
+            bitmap.setPixels(pixels, 0, w, 0, 0, w, h);
+            return bitmap;
+        } finally {
+            recycleBlurBuffers(buffers);
+        }
+    }
+
+    @VisibleForTesting
+    static int getBlurDownsampleFactor(final int width, final int height) {
+        final int longerSide = Math.max(width, height);
+        return Math.max((longerSide + MAX_BLUR_DIMENSION - 1) / MAX_BLUR_DIMENSION, 1);
+    }
+
+    @VisibleForTesting
+    static int getDownsampledBlurRadius(final int radius, final int downsampleFactor) {
+        return Math.max((radius + downsampleFactor / 2) / downsampleFactor, 1);
+    }
+
+    /**
+     * Blurs the pixels with one pass per halving of the radius. Each pass reads one buffer and
+     * writes the other, so that the rows can be split into strips that are blurred in parallel.
+     *
+     * @return The buffer holding the blurred pixels, or null if the thread was interrupted.
+     */
+    @Nullable
+    @VisibleForTesting
+    static int[] blurPixels(@NonNull int[] pixels, @NonNull int[] scratch, final int w,
+            final int h, final int radius) {
+        final int stripCount = w * h < MIN_PARALLEL_BLUR_PIXELS
+                ? 1
+                : Math.min(Math.min(MAX_BLUR_STRIP_COUNT,
+                        Runtime.getRuntime().availableProcessors()), h);
+
+        int[] source = pixels;
+        int[] destination = scratch;
+        for (int r = radius; r >= 1; r /= 2) {
+            if (!blurRowsInStrips(source, destination, w, h, r, stripCount)) {
+                return null;
+            }
+            final int[] blurred = destination;
+            destination = source;
+            source = blurred;
+        }
+        return source;
+    }
+
+    /**
+     * Blurs every row, handing all strips but the first to the CPU lane. Strips that the lane
+     * hasn't started by the time the first is done are blurred on this thread, so that a busy
+     * lane, including one this thread belongs to, can't stall the blur.
+     */
+    private static boolean blurRowsInStrips(@NonNull final int[] source,
+            @NonNull final int[] destination, final int w, final int h, final int r,
+            final int stripCount) {
+        if (stripCount == 1) {
+            blurRows(source, destination, w, h, r, 0, h);
+            return true;
+        }
+
+        final Executor executor = AsyncTasks.getLaneExecutor(Lane.CPU)
+                .getExecutor(Priority.USER_FACING);
+        final List<FutureTask<Void>> strips = new ArrayList<FutureTask<Void>>(stripCount);
+        for (int i = 0; i < stripCount; i++) {
+            final int startRow = h * i / stripCount;
+            final int endRow = h * (i + 1) / stripCount;
+            final FutureTask<Void> strip = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    blurRows(source, destination, w, h, r, startRow, endRow);
+                }
+            }, null);
+            strips.add(strip);
+            if (i > 0) {
+                executor.execute(strip);
+            }
+        }
+
+        // Running a strip that has already been started or finished does nothing.
+        for (final FutureTask<Void> strip : strips) {
+            strip.run();
+        }
+        try {
+            for (final FutureTask<Void> strip : strips) {
+                strip.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return true;
+    }
+
+    private static void blurRows(@NonNull final int[] source, @NonNull final int[] destination,
+            final int w, final int h, final int r, final int startRow, final int endRow) {
+        for (int i = startRow; i < endRow; i++) {
+            final int rowStart = i * w;
+            if (i < r || i >= h - r || w <= 2 * r) {
+                // Too close to the edge to be blurred.
+                System.arraycopy(source, rowStart, destination, rowStart, w);
+                continue;
+            }
+
+            System.arraycopy(source, rowStart, destination, rowStart, r);
+            for (int j = r; j < w - r; j++) {
+                destination[rowStart + j] = averageNeighbors(source, w, i, j, r);
+            }
+            System.arraycopy(source, rowStart + w - r, destination, rowStart + w - r, r);
+        }
+    }
+
+    /**
+     * Averages the eight pixels r away from pixel (i, j) in each direction.
+     */
+    private static int averageNeighbors(@NonNull final int[] pixels, final int w, final int i,
+            final int j, final int r) {
+        int tl = pixels[(i - r) * w + j - r];
+        int tr = pixels[(i - r) * w + j + r];
+        int tc = pixels[(i - r) * w + j];
+        int bl = pixels[(i + r) * w + j - r];
+        int br = pixels[(i + r) * w + j + r];
+        int bc = pixels[(i + r) * w + j];
+        int cl = pixels[i * w + j - r];
+        int cr = pixels[i * w + j + r];
+
+        return 0xFF000000 |
+                (((tl & 0xFF) + (tr & 0xFF) + (tc & 0xFF) + (bl & 0xFF) + (br & 0xFF) + (bc & 0xFF) + (cl & 0xFF) + (cr & 0xFF)) >> 3) & 0xFF |
+                (((tl & 0xFF00) + (tr & 0xFF00) + (tc & 0xFF00) + (bl & 0xFF00) + (br & 0xFF00) + (bc & 0xFF00) + (cl & 0xFF00) + (cr & 0xFF00)) >> 3) & 0xFF00 |
+                (((tl & 0xFF0000) + (tr & 0xFF0000) + (tc & 0xFF0000) + (bl & 0xFF0000) + (br & 0xFF0000) + (bc & 0xFF0000) + (cl & 0xFF0000) + (cr & 0xFF0000)) >> 3) & 0xFF0000;
+    }
+
+    @NonNull
+    private static synchronized int[][] obtainBlurBuffers(final int size) {
+        final int[][] buffers = sBlurBuffersRef == null ? null : sBlurBuffersRef.get();
+        sBlurBuffersRef = null;
+        if (buffers != null && buffers[0].length >= size) {
+            return buffers;
+        }
+        return new int[][] { new int[size], new int[size] };
+    }
+
+    private static synchronized void recycleBlurBuffers(@NonNull final int[][] buffers) {
+        sBlurBuffersRef = new SoftReference<int[][]>(buffers);
+    }
+
     /**
      * Sets the alpha value of the ImageView.
      * API Level < 16: https://developer.android.com/reference/android/widget/ImageView.html#setAlpha(int)
@@ -0,0 +1,258 @@
+package com.mopub.common.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * A pool of SDK-owned background threads for one kind of work, such as network I/O. Each lane is
+ * bounded to a fixed number of threads, so that a burst of one kind of work can't take over the
+ * device, and is separate from {@link android.os.AsyncTask#THREAD_POOL_EXECUTOR}, so that the SDK
+ * doesn't compete with the app's own tasks.
+ *
+ * Queued tasks run in {@link Priority} order, then in the order they were queued. Running tasks
+ * can't be interrupted, so in lanes with more than one thread, {@link Priority#PREFETCH} tasks are
+ * kept off one of the threads. A long prefetch, such as a video download, then never leaves
+ * user-facing work, such as resolving a click, waiting for a thread.
+ *
+ * Threads are started as they are needed and stop after being idle for a while.
+ *
+ * This class is thread safe.
+ */
+public class LaneExecutor {
+    public enum Priority {
+        /**
+         * Work the user is waiting on, such as resolving a click or showing an ad.
+         */
+        USER_FACING,
+        /**
+         * Work needed to load an ad.
+         */
+        DEFAULT,
+        /**
+         * Work that only gets something ready ahead of time.
+         */
+        PREFETCH
+    }
+
+    private static final long KEEP_ALIVE_MILLIS = 30 * 1000;
+
+    private static class Task implements Comparable<Task> {
+        @NonNull final Runnable mRunnable;
+        @NonNull final Priority mPriority;
+        final long mSequence;
+        final long mQueuedMillis;
+
+        Task(@NonNull final Runnable runnable, @NonNull final Priority priority,
+                final long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+            mQueuedMillis = SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public int compareTo(@NonNull final Task other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    @NonNull private final String mName;
+    private final int mThreadCount;
+    private final int mMaxPrefetchThreadCount;
+    @NonNull private final PriorityQueue<Task> mQueue;
+    @NonNull private final Map<Priority, Executor> mExecutors;
+    @NonNull private final LatencyHistogram mWaitTimeHistogram;
+
+    private long mNextSequence;
+    private int mStartedThreadCount;
+    private int mIdleThreadCount;
+    private int mRunningPrefetchCount;
+    private int mMaxQueueDepth;
+
+    /**
+     * @param name Used to name the lane's threads.
+     * @param threadCount The most threads the lane runs at once. Must be positive.
+     */
+    public LaneExecutor(@NonNull final String name, final int threadCount) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkArgument(threadCount > 0);
+
+        mName = name;
+        mThreadCount = threadCount;
+        mMaxPrefetchThreadCount = Math.max(threadCount - 1, 1);
+        mQueue = new PriorityQueue<Task>();
+        mWaitTimeHistogram = new LatencyHistogram();
+        mExecutors = new EnumMap<Priority, Executor>(Priority.class);
+        for (final Priority priority : Priority.values()) {
+            mExecutors.put(priority, new Executor() {
+                @Override
+                public void execute(@NonNull final Runnable runnable) {
+                    LaneExecutor.this.execute(runnable, priority);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns an executor that queues tasks on this lane at the given priority.
+     */
+    @NonNull
+    public Executor getExecutor(@NonNull final Priority priority) {
+        Preconditions.checkNotNull(priority);
+
+        return mExecutors.get(priority);
+    }
+
+    public void execute(@NonNull final Runnable runnable, @NonNull final Priority priority) {
+        Preconditions.checkNotNull(runnable);
+        Preconditions.checkNotNull(priority);
+
+        synchronized (this) {
+            mQueue.add(new Task(runnable, priority, mNextSequence++));
+            mMaxQueueDepth = Math.max(mMaxQueueDepth, mQueue.size());
+
+            if (mIdleThreadCount > 0) {
+                notifyAll();
+            } else if (mStartedThreadCount < mThreadCount) {
+                mStartedThreadCount++;
+                startWorker(mStartedThreadCount);
+            }
+        }
+    }
+
+    /**
+     * The number of tasks waiting for a thread.
+     */
+    public synchronized int getQueueDepth() {
+        return mQueue.size();
+    }
+
+    /**
+     * The most tasks that have been waiting for a thread at once.
+     */
+    public synchronized int getMaxQueueDepth() {
+        return mMaxQueueDepth;
+    }
+
+    /**
+     * The time tasks spent waiting for a thread.
+     */
+    @NonNull
+    public LatencyHistogram getWaitTimeHistogram() {
+        return mWaitTimeHistogram;
+    }
+
+    @VisibleForTesting
+    synchronized int getStartedThreadCount() {
+        return mStartedThreadCount;
+    }
+
+    private void startWorker(final int threadNumber) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runTasks();
+            }
+        }, "MoPub " + mName + " #" + threadNumber);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runTasks() {
+        boolean stoppedIdle = false;
+        try {
+            while (true) {
+                final Task task = takeTask();
+                if (task == null) {
+                    stoppedIdle = true;
+                    return;
+                }
+
+                mWaitTimeHistogram.record(SystemClock.uptimeMillis() - task.mQueuedMillis);
+                try {
+                    task.mRunnable.run();
+                } catch (RuntimeException e) {
+                    MoPubLog.d("Uncaught exception in " + mName + " task", e);
+                } finally {
+                    if (task.mPriority == Priority.PREFETCH) {
+                        synchronized (this) {
+                            mRunningPrefetchCount--;
+                            // A waiting prefetch task may be able to run now.
+                            notifyAll();
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (!stoppedIdle) {
+                onWorkerDied();
+            }
+        }
+    }
+
+    /**
+     * Called when a task has thrown an {@link Error} and ended its thread. The thread no longer
+     * counts towards the lane's threads, and is replaced if there is queued work that no idle
+     * thread will pick up.
+     */
+    private synchronized void onWorkerDied() {
+        mStartedThreadCount--;
+        if (!mQueue.isEmpty() && mIdleThreadCount == 0) {
+            mStartedThreadCount++;
+            startWorker(mStartedThreadCount);
+        }
+    }
+
+    /**
+     * Returns the next task this thread should run, or null if it has been idle long enough to
+     * stop.
+     */
+    private synchronized Task takeTask() {
+        long idleSinceMillis = SystemClock.uptimeMillis();
+        while (true) {
+            final Task task = mQueue.peek();
+            if (task != null && (task.mPriority != Priority.PREFETCH
+                    || mRunningPrefetchCount < mMaxPrefetchThreadCount)) {
+                mQueue.poll();
+                if (task.mPriority == Priority.PREFETCH) {
+                    mRunningPrefetchCount++;
+                }
+                return task;
+            }
+
+            final long idleMillis = SystemClock.uptimeMillis() - idleSinceMillis;
+            if (task == null && idleMillis >= KEEP_ALIVE_MILLIS) {
+                mStartedThreadCount--;
+                return null;
+            }
+
+            mIdleThreadCount++;
+            try {
+                wait(task == null ? KEEP_ALIVE_MILLIS - idleMillis : 0);
+            } catch (InterruptedException e) {
+                // Keep waiting. The lane's threads are never meant to be interrupted.
+            } finally {
+                mIdleThreadCount--;
+            }
+            if (task != null) {
+                // Only idle time with nothing to do counts towards stopping.
+                idleSinceMillis = SystemClock.uptimeMillis();
+            }
+        }
+    }
+}
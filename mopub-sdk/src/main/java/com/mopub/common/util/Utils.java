@@ -1,29 +1,51 @@
 package com.mopub.common.util;
 
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
-import java.util.Locale;
+import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class Utils {
     private static final AtomicLong sNextGeneratedId = new AtomicLong(1);
 
-    public static String sha1(String string) {
-        StringBuilder stringBuilder = new StringBuilder();
-
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-1");
-            byte[] bytes = string.getBytes("UTF-8");
-            digest.update(bytes, 0, bytes.length);
-            bytes = digest.digest();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
-            for (final byte b : bytes) {
-                stringBuilder.append(String.format("%02X", b));
+    // MessageDigest.getInstance looks up the provider every time, and digests aren't thread safe,
+    // so each thread keeps its own.
+    private static final ThreadLocal<MessageDigest> sSha1Digest = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                return null;
             }
+        }
+    };
 
-            return stringBuilder.toString().toLowerCase(Locale.US);
-        } catch (Exception e) {
+    /**
+     * Returns the lowercase hex SHA-1 of the UTF-8 bytes of the string, or an empty string if
+     * the string is null or SHA-1 is not available.
+     */
+    public static String sha1(String string) {
+        final MessageDigest digest = sSha1Digest.get();
+        if (digest == null || string == null) {
             return "";
         }
+
+        digest.reset();
+        final byte[] bytes = digest.digest(string.getBytes(UTF_8));
+        return toHexString(bytes);
+    }
+
+    private static String toHexString(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+        return new String(chars);
     }
 
     /**
@@ -5,8 +5,12 @@ import android.support.annotation.Nullable;
 
 import com.mopub.common.AdFormat;
 import com.mopub.common.AdType;
+import com.mopub.common.CustomEventRegistry;
 import com.mopub.common.util.ResponseHeader;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.mopub.network.HeaderUtils.extractHeader;
@@ -31,6 +35,15 @@ public class AdTypeTranslator {
 
         UNSPECIFIED("", null);
 
+        private static final Map<String, CustomEventType> sKeyToType =
+                new HashMap<String, CustomEventType>();
+
+        static {
+            for (CustomEventType customEventType : values()) {
+                sKeyToType.put(customEventType.mKey, customEventType);
+            }
+        }
+
         private final String mKey;
         private final String mClassName;
 
@@ -40,13 +53,8 @@ public class AdTypeTranslator {
         }
 
         private static CustomEventType fromString(String key) {
-            for (CustomEventType customEventType : values()) {
-                if (customEventType.mKey.equals(key)) {
-                    return customEventType;
-                }
-            }
-
-            return UNSPECIFIED;
+            final CustomEventType customEventType = sKeyToType.get(key);
+            return customEventType != null ? customEventType : UNSPECIFIED;
         }
 
         @Override
@@ -58,6 +66,20 @@ public class AdTypeTranslator {
     public static final String BANNER_SUFFIX = "_banner";
     public static final String INTERSTITIAL_SUFFIX = "_interstitial";
 
+    /**
+     * Loads the built-in custom event classes in the background, so that the first ad load
+     * doesn't have to. Must be called from the UI thread.
+     */
+    public static void warmUpCustomEvents() {
+        final List<String> classNames = new ArrayList<String>();
+        for (CustomEventType customEventType : CustomEventType.values()) {
+            if (customEventType.mClassName != null) {
+                classNames.add(customEventType.mClassName);
+            }
+        }
+        CustomEventRegistry.warmUp(classNames.toArray(new String[classNames.size()]));
+    }
+
     static String getAdNetworkType(String adType, String fullAdType) {
         String adNetworkType = AdType.INTERSTITIAL.equals(adType) ? fullAdType : adType;
         return adNetworkType != null ? adNetworkType : "unknown";
@@ -17,6 +17,7 @@ import com.mopub.common.AdReport;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.Constants;
 import com.mopub.common.Preconditions;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.event.BaseEvent;
 import com.mopub.common.logging.MoPubLog;
@@ -59,6 +60,8 @@ public class AdViewController {
 
     @Nullable private AdResponse mAdResponse;
     private final Runnable mRefreshRunnable;
+    @Nullable private TimerWheel.Timer mRefreshTimer;
+    @Nullable private ViewableRefreshScheduler mViewableRefreshScheduler;
     @NonNull private final AdRequest.Listener mAdListener;
 
     private boolean mIsDestroyed;
@@ -97,6 +100,7 @@ public class AdViewController {
         // Timeout value of less than 0 means use the ad format's default timeout
         mTimeoutMilliseconds = -1;
         mBroadcastIdentifier = Utils.generateUniqueId();
+        AdTypeTranslator.warmUpCustomEvents();
 
         mUrlGenerator = new WebViewAdUrlGenerator(mContext.getApplicationContext(),
                 MraidNativeCommandHandler.isStorePictureSupported(mContext));
@@ -240,7 +244,7 @@ public class AdViewController {
     void loadNonJavascript(String url) {
         if (url == null) return;
 
-        MoPubLog.d("Loading url: " + url);
+        MoPubLog.d("Loading url: {}", url);
         if (mIsLoading) {
             if (!TextUtils.isEmpty(mAdUnitId)) {  // This shouldn't be able to happen?
                 MoPubLog.i("Already loading an ad for " + mAdUnitId + ", wait to finish.");
@@ -255,7 +259,7 @@ public class AdViewController {
     }
 
     public void reload() {
-        MoPubLog.d("Reload ad: " + mUrl);
+        MoPubLog.d("Reload ad: {}", mUrl);
         loadNonJavascript(mUrl);
     }
 
@@ -346,6 +350,44 @@ public class AdViewController {
         setAutorefreshEnabled(mPreviousAutoRefreshSetting);
     }
 
+    /**
+     * When enabled, the banner refreshes once it has been viewable for the refresh interval
+     * instead of once the interval has passed.
+     */
+    void setViewableRefreshEnabled(final boolean enabled) {
+        if (enabled == (mViewableRefreshScheduler != null)) {
+            return;
+        }
+
+        final MoPubView moPubView = getMoPubView();
+        if (enabled && moPubView == null) {
+            // Without a view to watch, the banner keeps refreshing on the timer.
+            return;
+        }
+
+        cancelRefreshTimer();
+        if (enabled) {
+            mViewableRefreshScheduler = new ViewableRefreshScheduler(moPubView, mRefreshRunnable);
+        } else {
+            mViewableRefreshScheduler.destroy();
+            mViewableRefreshScheduler = null;
+        }
+
+        if (mAdWasLoaded && mAutoRefreshEnabled) {
+            scheduleRefreshTimerIfEnabled();
+        }
+    }
+
+    boolean getViewableRefreshEnabled() {
+        return mViewableRefreshScheduler != null;
+    }
+
+    long getAvoidedRefreshCount() {
+        return mViewableRefreshScheduler != null
+                ? mViewableRefreshScheduler.getAvoidedRefreshCount()
+                : 0;
+    }
+
     void forceSetAutorefreshEnabled(boolean enabled) {
         mPreviousAutoRefreshSetting = enabled;
         setAutorefreshEnabled(enabled);
@@ -401,6 +443,10 @@ public class AdViewController {
 
         setAutorefreshEnabled(false);
         cancelRefreshTimer();
+        if (mViewableRefreshScheduler != null) {
+            mViewableRefreshScheduler.destroy();
+            mViewableRefreshScheduler = null;
+        }
 
         // WebView subclasses are not garbage-collected in a timely fashion on Froyo and below,
         // thanks to some persistent references in WebViewCore. We manually release some resources
@@ -481,10 +527,14 @@ public class AdViewController {
     void scheduleRefreshTimerIfEnabled() {
         cancelRefreshTimer();
         if (mAutoRefreshEnabled && mRefreshTimeMillis != null && mRefreshTimeMillis > 0) {
-
-            mHandler.postDelayed(mRefreshRunnable,
-                    Math.min(MAX_REFRESH_TIME_MILLISECONDS,
-                            mRefreshTimeMillis * (long) Math.pow(BACKOFF_FACTOR, mBackoffPower)));
+            final long refreshDelayMillis = Math.min(MAX_REFRESH_TIME_MILLISECONDS,
+                    mRefreshTimeMillis * (long) Math.pow(BACKOFF_FACTOR, mBackoffPower));
+            if (mViewableRefreshScheduler != null) {
+                mViewableRefreshScheduler.schedule(refreshDelayMillis);
+            } else {
+                mRefreshTimer = TimerWheel.getInstance().schedule(mRefreshRunnable,
+                        refreshDelayMillis);
+            }
         }
     }
 
@@ -504,7 +554,13 @@ public class AdViewController {
     }
 
     private void cancelRefreshTimer() {
-        mHandler.removeCallbacks(mRefreshRunnable);
+        if (mRefreshTimer != null) {
+            mRefreshTimer.cancel();
+            mRefreshTimer = null;
+        }
+        if (mViewableRefreshScheduler != null) {
+            mViewableRefreshScheduler.cancel();
+        }
     }
 
     private boolean isNetworkAvailable() {
@@ -41,7 +41,7 @@ public class BaseHtmlWebView extends BaseWebView implements UserClickListener {
     public void loadUrl(String url) {
         if (url == null) return;
 
-        MoPubLog.d("Loading url: " + url);
+        MoPubLog.d("Loading url: {}", url);
         if (url.startsWith("javascript:")) {
             super.loadUrl(url);
         }
@@ -1,7 +1,6 @@
 package com.mopub.mobileads;
 
 import android.content.Context;
-import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.View;
@@ -9,6 +8,7 @@ import android.view.View;
 import com.mopub.common.AdReport;
 import com.mopub.common.Constants;
 import com.mopub.common.Preconditions;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.CustomEventBanner.CustomEventBannerListener;
 import com.mopub.mobileads.factories.CustomEventBannerFactory;
@@ -33,8 +33,8 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
     private Map<String, Object> mLocalExtras;
     private Map<String, String> mServerExtras;
 
-    private final Handler mHandler;
     private final Runnable mTimeout;
+    @Nullable private TimerWheel.Timer mTimeoutTimer;
     private boolean mStoredAutorefresh;
 
     public CustomEventBannerAdapter(@NonNull MoPubView moPubView,
@@ -43,7 +43,6 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
             long broadcastIdentifier,
             @Nullable AdReport adReport) {
         Preconditions.checkNotNull(serverExtras);
-        mHandler = new Handler();
         mMoPubView = moPubView;
         mContext = moPubView.getContext();
         mTimeout = new Runnable() {
@@ -82,7 +81,8 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
             return;
         }
 
-        mHandler.postDelayed(mTimeout, getTimeoutDelayMilliseconds());
+        cancelTimeout();
+        mTimeoutTimer = TimerWheel.getInstance().schedule(mTimeout, getTimeoutDelayMilliseconds());
 
         // Custom event classes can be developed by any third party and may not be tested.
         // We catch all exceptions here to prevent crashes from untested code.
@@ -116,7 +116,10 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
     }
 
     private void cancelTimeout() {
-        mHandler.removeCallbacks(mTimeout);
+        if (mTimeoutTimer != null) {
+            mTimeoutTimer.cancel();
+            mTimeoutTimer = null;
+        }
     }
 
     private int getTimeoutDelayMilliseconds() {
@@ -1,13 +1,13 @@
 package com.mopub.mobileads;
 
 import android.content.Context;
-import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.mopub.common.AdReport;
 import com.mopub.common.Constants;
 import com.mopub.common.Preconditions;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.CustomEventInterstitial.CustomEventInterstitialListener;
 import com.mopub.mobileads.factories.CustomEventInterstitialFactory;
@@ -31,8 +31,8 @@ public class CustomEventInterstitialAdapter implements CustomEventInterstitialLi
     private Context mContext;
     private Map<String, Object> mLocalExtras;
     private Map<String, String> mServerExtras;
-    private final Handler mHandler;
     private final Runnable mTimeout;
+    @Nullable private TimerWheel.Timer mTimeoutTimer;
 
     public CustomEventInterstitialAdapter(@NonNull final MoPubInterstitial moPubInterstitial,
             @NonNull final String className,
@@ -40,7 +40,6 @@ public class CustomEventInterstitialAdapter implements CustomEventInterstitialLi
             long broadcastIdentifier,
             @Nullable AdReport adReport) {
         Preconditions.checkNotNull(serverExtras);
-        mHandler = new Handler();
         mMoPubInterstitial = moPubInterstitial;
         mContext = mMoPubInterstitial.getActivity();
         mTimeout = new Runnable() {
@@ -75,7 +74,8 @@ public class CustomEventInterstitialAdapter implements CustomEventInterstitialLi
             return;
         }
 
-        mHandler.postDelayed(mTimeout, getTimeoutDelayMilliseconds());
+        cancelTimeout();
+        mTimeoutTimer = TimerWheel.getInstance().schedule(mTimeout, getTimeoutDelayMilliseconds());
 
         // Custom event classes can be developed by any third party and may not be tested.
         // We catch all exceptions here to prevent crashes from untested code.
@@ -130,7 +130,10 @@ public class CustomEventInterstitialAdapter implements CustomEventInterstitialLi
     }
 
     private void cancelTimeout() {
-        mHandler.removeCallbacks(mTimeout);
+        if (mTimeoutTimer != null) {
+            mTimeoutTimer.cancel();
+            mTimeoutTimer = null;
+        }
     }
 
     private int getTimeoutDelayMilliseconds() {
@@ -0,0 +1,338 @@
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.Preconditions;
+import com.mopub.common.TimerWheel;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.mobileads.factories.MoPubInterstitialFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.mopub.mobileads.MoPubInterstitial.InterstitialAdListener;
+
+/**
+ * Keeps several interstitials of one ad unit loaded in the background, so that one is ready to be
+ * shown right away, including right after another was shown. This is an opt-in alternative to
+ * loading a single {@link MoPubInterstitial} on demand.
+ *
+ * Interstitials are loaded one at a time until the pool is full, and are shown oldest first. A
+ * loaded interstitial that hasn't been shown within the expiration time is discarded and
+ * replaced. Failed loads are retried with a back-off, and retrying stops after the last back-off
+ * until the pool is asked to show an interstitial again.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+public class MoPubInterstitialPool {
+    public static final int DEFAULT_POOL_SIZE = 2;
+
+    private static class ReadyInterstitial {
+        @NonNull final MoPubInterstitial mInterstitial;
+        final long mLoadedMillis;
+
+        ReadyInterstitial(@NonNull final MoPubInterstitial interstitial) {
+            mInterstitial = interstitial;
+            mLoadedMillis = SystemClock.uptimeMillis();
+        }
+    }
+
+    @NonNull private final Activity mActivity;
+    @NonNull private final String mAdUnitId;
+    private final int mPoolSize;
+    @NonNull private final ReadyPoolTracker mReadyPoolTracker;
+    @NonNull private final List<ReadyInterstitial> mReadyInterstitials;
+    @NonNull private final Set<MoPubInterstitial> mShownInterstitials;
+    @NonNull private final InterstitialAdListener mPooledInterstitialListener;
+    @NonNull private final Handler mHandler;
+    @NonNull private final Runnable mRetryRunnable;
+    @NonNull private final Runnable mExpirationRunnable;
+
+    @Nullable private TimerWheel.Timer mRetryTimer;
+    @Nullable private TimerWheel.Timer mExpirationTimer;
+    @Nullable private MoPubInterstitial mLoadingInterstitial;
+    @Nullable private InterstitialAdListener mInterstitialAdListener;
+    @Nullable private String mKeywords;
+    private boolean mIsStarted;
+    private boolean mIsRetryPending;
+    private boolean mIsDestroyed;
+
+    public MoPubInterstitialPool(@NonNull final Activity activity, @NonNull final String adUnitId) {
+        this(activity, adUnitId, DEFAULT_POOL_SIZE);
+    }
+
+    public MoPubInterstitialPool(@NonNull final Activity activity, @NonNull final String adUnitId,
+            final int poolSize) {
+        this(activity, adUnitId, poolSize, ReadyPoolTracker.DEFAULT_EXPIRATION_MILLIS);
+    }
+
+    /**
+     * @param poolSize How many interstitials to keep loaded. Must be positive.
+     * @param expirationMillis How long a loaded interstitial may wait to be shown.
+     */
+    public MoPubInterstitialPool(@NonNull final Activity activity, @NonNull final String adUnitId,
+            final int poolSize, final long expirationMillis) {
+        Preconditions.checkNotNull(activity);
+        Preconditions.checkNotNull(adUnitId);
+        Preconditions.checkArgument(poolSize > 0);
+
+        mActivity = activity;
+        mAdUnitId = adUnitId;
+        mPoolSize = poolSize;
+        mReadyPoolTracker = new ReadyPoolTracker(expirationMillis);
+        mReadyInterstitials = new ArrayList<ReadyInterstitial>(poolSize);
+        mShownInterstitials = new HashSet<MoPubInterstitial>();
+        mHandler = new Handler();
+        mRetryRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mIsRetryPending = false;
+                replenishPool();
+            }
+        };
+        mExpirationRunnable = new Runnable() {
+            @Override
+            public void run() {
+                removeExpiredInterstitials();
+                replenishPool();
+            }
+        };
+        mPooledInterstitialListener = new PooledInterstitialListener();
+    }
+
+    public void setKeywords(@Nullable final String keywords) {
+        mKeywords = keywords;
+    }
+
+    /**
+     * Sets the listener for the pool. {@link InterstitialAdListener#onInterstitialLoaded} is
+     * called when the pool goes from no interstitials ready to one ready, and {@link
+     * InterstitialAdListener#onInterstitialFailed} when the pool stops retrying failed loads. The
+     * other callbacks are for the interstitial being shown.
+     */
+    public void setInterstitialAdListener(@Nullable final InterstitialAdListener listener) {
+        mInterstitialAdListener = listener;
+    }
+
+    /**
+     * Starts loading interstitials into the pool.
+     */
+    public void load() {
+        if (mIsDestroyed) {
+            MoPubLog.d("MoPubInterstitialPool destroyed. Ignoring all requests.");
+            return;
+        }
+
+        mIsStarted = true;
+        replenishPool();
+    }
+
+    public boolean isReady() {
+        for (final ReadyInterstitial readyInterstitial : mReadyInterstitials) {
+            if (!mReadyPoolTracker.isExpired(readyInterstitial.mLoadedMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getReadyCount() {
+        return mReadyInterstitials.size();
+    }
+
+    /**
+     * Shows the oldest interstitial in the pool and starts loading its replacement.
+     *
+     * @return {@code true} if an interstitial was shown.
+     */
+    public boolean show() {
+        if (mIsDestroyed) {
+            MoPubLog.d("MoPubInterstitialPool destroyed. Ignoring all requests.");
+            return false;
+        }
+
+        removeExpiredInterstitials();
+        if (mReadyInterstitials.isEmpty()) {
+            MoPubLog.d("No interstitial ready in the pool for ad unit " + mAdUnitId + ".");
+            mReadyPoolTracker.onShowMissed();
+            replenishPool();
+            return false;
+        }
+
+        final MoPubInterstitial interstitial = mReadyInterstitials.remove(0).mInterstitial;
+        mShownInterstitials.add(interstitial);
+        scheduleExpiration();
+        final boolean isShown = interstitial.show();
+        if (!isShown) {
+            // No dismiss callback will come for an interstitial that didn't show.
+            MoPubLog.d("Interstitial from the pool for ad unit " + mAdUnitId + " failed to show.");
+            mShownInterstitials.remove(interstitial);
+            interstitial.destroy();
+        }
+        replenishPool();
+        return isShown;
+    }
+
+    /**
+     * The time from the pool needing an interstitial to one being loaded. Calls to {@link #show()}
+     * that found no interstitial ready are counted as failures.
+     */
+    @NonNull
+    public LatencyHistogram getReadyLatencyHistogram() {
+        return mReadyPoolTracker.getReadyLatencyHistogram();
+    }
+
+    public void destroy() {
+        if (mIsDestroyed) {
+            return;
+        }
+        mIsDestroyed = true;
+
+        if (mRetryTimer != null) {
+            mRetryTimer.cancel();
+            mRetryTimer = null;
+        }
+        cancelExpiration();
+        if (mLoadingInterstitial != null) {
+            mLoadingInterstitial.destroy();
+            mLoadingInterstitial = null;
+        }
+        for (final ReadyInterstitial readyInterstitial : mReadyInterstitials) {
+            readyInterstitial.mInterstitial.destroy();
+        }
+        mReadyInterstitials.clear();
+        for (final MoPubInterstitial interstitial : mShownInterstitials) {
+            interstitial.destroy();
+        }
+        mShownInterstitials.clear();
+        mInterstitialAdListener = null;
+    }
+
+    private void replenishPool() {
+        if (mIsDestroyed || !mIsStarted || mIsRetryPending || mLoadingInterstitial != null
+                || mReadyInterstitials.size() >= mPoolSize) {
+            return;
+        }
+
+        mReadyPoolTracker.onAdNeeded();
+        final MoPubInterstitial interstitial = MoPubInterstitialFactory.create(mActivity, mAdUnitId);
+        interstitial.setKeywords(mKeywords);
+        interstitial.setInterstitialAdListener(mPooledInterstitialListener);
+        mLoadingInterstitial = interstitial;
+        interstitial.load();
+    }
+
+    private void removeExpiredInterstitials() {
+        for (int i = mReadyInterstitials.size() - 1; i >= 0; i--) {
+            final ReadyInterstitial readyInterstitial = mReadyInterstitials.get(i);
+            if (mReadyPoolTracker.isExpired(readyInterstitial.mLoadedMillis)) {
+                readyInterstitial.mInterstitial.destroy();
+                mReadyInterstitials.remove(i);
+            }
+        }
+        scheduleExpiration();
+    }
+
+    private void scheduleExpiration() {
+        cancelExpiration();
+        if (!mReadyInterstitials.isEmpty()) {
+            // The oldest interstitial is the first to expire.
+            mExpirationTimer = TimerWheel.getInstance().schedule(mExpirationRunnable,
+                    mReadyPoolTracker.getMillisUntilExpiration(
+                            mReadyInterstitials.get(0).mLoadedMillis));
+        }
+    }
+
+    private void cancelExpiration() {
+        if (mExpirationTimer != null) {
+            mExpirationTimer.cancel();
+            mExpirationTimer = null;
+        }
+    }
+
+    /**
+     * Interstitials call their listener in the middle of handling their own events, so they are
+     * destroyed once that is done.
+     */
+    private void destroyAfterCallback(@NonNull final MoPubInterstitial interstitial) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                interstitial.destroy();
+            }
+        });
+    }
+
+    private class PooledInterstitialListener implements InterstitialAdListener {
+        @Override
+        public void onInterstitialLoaded(final MoPubInterstitial interstitial) {
+            if (interstitial != mLoadingInterstitial) {
+                return;
+            }
+
+            mLoadingInterstitial = null;
+            mReadyPoolTracker.onAdLoaded();
+            mReadyInterstitials.add(new ReadyInterstitial(interstitial));
+            scheduleExpiration();
+            if (mReadyInterstitials.size() == 1 && mInterstitialAdListener != null) {
+                mInterstitialAdListener.onInterstitialLoaded(interstitial);
+            }
+
+            replenishPool();
+        }
+
+        @Override
+        public void onInterstitialFailed(final MoPubInterstitial interstitial,
+                final MoPubErrorCode errorCode) {
+            if (interstitial != mLoadingInterstitial) {
+                return;
+            }
+
+            mLoadingInterstitial = null;
+            destroyAfterCallback(interstitial);
+
+            final long retryMillis = mReadyPoolTracker.onAdFailed();
+            if (retryMillis < 0) {
+                if (mInterstitialAdListener != null) {
+                    mInterstitialAdListener.onInterstitialFailed(interstitial, errorCode);
+                }
+                return;
+            }
+
+            mIsRetryPending = true;
+            mRetryTimer = TimerWheel.getInstance().schedule(mRetryRunnable, retryMillis);
+        }
+
+        @Override
+        public void onInterstitialShown(final MoPubInterstitial interstitial) {
+            if (mInterstitialAdListener != null) {
+                mInterstitialAdListener.onInterstitialShown(interstitial);
+            }
+        }
+
+        @Override
+        public void onInterstitialClicked(final MoPubInterstitial interstitial) {
+            if (mInterstitialAdListener != null) {
+                mInterstitialAdListener.onInterstitialClicked(interstitial);
+            }
+        }
+
+        @Override
+        public void onInterstitialDismissed(final MoPubInterstitial interstitial) {
+            if (mInterstitialAdListener != null) {
+                mInterstitialAdListener.onInterstitialDismissed(interstitial);
+            }
+
+            if (mShownInterstitials.remove(interstitial)) {
+                destroyAfterCallback(interstitial);
+            }
+        }
+    }
+}
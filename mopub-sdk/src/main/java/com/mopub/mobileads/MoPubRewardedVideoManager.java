@@ -14,14 +14,16 @@ import com.mopub.common.AdReport;
 import com.mopub.common.AdUrlGenerator;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.Constants;
+import com.mopub.common.CustomEventRegistry;
 import com.mopub.common.DataKeys;
+import com.mopub.common.LatencyHistogram;
 import com.mopub.common.MediationSettings;
 import com.mopub.common.MoPubReward;
 import com.mopub.common.Preconditions;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.MoPubCollections;
-import com.mopub.common.util.Reflection;
 import com.mopub.common.util.Utils;
 import com.mopub.network.AdRequest;
 import com.mopub.network.AdResponse;
@@ -63,8 +65,9 @@ public class MoPubRewardedVideoManager {
     @NonNull private final Set<MediationSettings> mGlobalMediationSettings;
     @NonNull private final Map<String, Set<MediationSettings>> mInstanceMediationSettings;
 
-    @NonNull private final Handler mCustomEventTimeoutHandler;
-    @NonNull private final Map<String, Runnable> mTimeoutMap;
+    @NonNull private final Map<String, TimerWheel.Timer> mTimeoutMap;
+
+    @NonNull private final Map<String, ReadyPool> mReadyPools;
 
     public static class RewardedVideoRequestListener implements AdRequest.Listener {
         public final String adUnitId;
@@ -117,11 +120,12 @@ public class MoPubRewardedVideoManager {
         mGlobalMediationSettings = new HashSet<MediationSettings>();
         MoPubCollections.addAllNonNull(mGlobalMediationSettings, mediationSettings);
         mInstanceMediationSettings = new HashMap<String, Set<MediationSettings>>();
-        mCustomEventTimeoutHandler = new Handler();
-        mTimeoutMap = new HashMap<String, Runnable>();
+        mTimeoutMap = new HashMap<String, TimerWheel.Timer>();
+        mReadyPools = new HashMap<String, ReadyPool>();
         mBroadcastIdentifier = Utils.generateUniqueId();
         
         mAdRequestStatus = new AdRequestStatusMapping();
+        AdTypeTranslator.warmUpCustomEvents();
     }
 
     public static synchronized void init(@NonNull Activity mainActivity, MediationSettings... mediationSettings) {
@@ -241,13 +245,77 @@ public class MoPubRewardedVideoManager {
             sInstance.mRewardedVideoData.setCustomerId(customerId);
         }
 
+        loadVideo(adUnitId, generateAdUrlString(adUnitId, requestParameters));
+    }
+
+    @NonNull
+    private static String generateAdUrlString(@NonNull final String adUnitId,
+            @Nullable final RequestParameters requestParameters) {
         final AdUrlGenerator urlGenerator = new WebViewAdUrlGenerator(sInstance.mContext, false);
-        final String adUrlString = urlGenerator.withAdUnitId(adUnitId)
+        return urlGenerator.withAdUnitId(adUnitId)
                 .withKeywords(requestParameters == null ? null : requestParameters.mKeywords)
                 .withLocation(requestParameters == null ? null : requestParameters.mLocation)
                 .generateUrlString(Constants.HOST);
+    }
 
-        loadVideo(adUnitId, adUrlString);
+    /**
+     * Keeps a rewarded video loaded for the given adUnitId, so that one is ready to be shown
+     * without the app calling {@link #loadVideo} first. The next video is loaded as soon as the
+     * current one is closed, failed loads are retried with a back-off, and a video that hasn't
+     * been shown within the expiration time is replaced. Only one rewarded video can be loaded at
+     * a time for each ad unit, so the pool holds at most one video.
+     *
+     * @param adUnitId MoPub adUnitId String
+     * @param requestParameters Optional RequestParameters object used for every load
+     * @param mediationSettings Optional instance-level MediationSettings to associate with the
+     *                          above adUnitId.
+     */
+    public static void enableReadyPool(@NonNull final String adUnitId,
+            @Nullable final RequestParameters requestParameters,
+            @Nullable final MediationSettings... mediationSettings) {
+        if (sInstance == null) {
+            logErrorNotInitialized();
+            return;
+        }
+
+        disableReadyPool(adUnitId);
+        final ReadyPool readyPool = new ReadyPool(adUnitId, requestParameters);
+        sInstance.mReadyPools.put(adUnitId, readyPool);
+        readyPool.mReadyPoolTracker.onAdNeeded();
+        loadVideo(adUnitId, requestParameters, mediationSettings);
+    }
+
+    /**
+     * Stops keeping a rewarded video loaded for the given adUnitId. A video that is already loaded
+     * can still be shown.
+     */
+    public static void disableReadyPool(@NonNull final String adUnitId) {
+        if (sInstance == null) {
+            logErrorNotInitialized();
+            return;
+        }
+
+        final ReadyPool readyPool = sInstance.mReadyPools.remove(adUnitId);
+        if (readyPool != null) {
+            readyPool.cancelReload();
+            readyPool.cancelExpiration();
+        }
+    }
+
+    /**
+     * The time from the ready pool of the given adUnitId needing a video to one being loaded, or
+     * null if the ad unit has no ready pool. Shows that found no video ready are counted as
+     * failures.
+     */
+    @Nullable
+    public static LatencyHistogram getReadyLatencyHistogram(@NonNull final String adUnitId) {
+        if (sInstance == null) {
+            logErrorNotInitialized();
+            return null;
+        }
+
+        final ReadyPool readyPool = sInstance.mReadyPools.get(adUnitId);
+        return readyPool == null ? null : readyPool.mReadyPoolTracker.getReadyLatencyHistogram();
     }
 
     private static void loadVideo(@NonNull String adUnitId, @NonNull String adUrlString) {
@@ -294,8 +362,10 @@ public class MoPubRewardedVideoManager {
                         sInstance.mRewardedVideoData.getMoPubReward(adUnitId));
                 sInstance.mRewardedVideoData.setCurrentAdUnitId(adUnitId);
                 sInstance.mAdRequestStatus.markPlayed(adUnitId);
+                sInstance.onReadyPoolVideoShown(adUnitId);
                 customEvent.showVideo();
             } else {
+                sInstance.onReadyPoolShowMissed(adUnitId);
                 sInstance.failover(adUnitId, MoPubErrorCode.VIDEO_NOT_AVAILABLE);
             }
         } else {
@@ -340,10 +410,8 @@ public class MoPubRewardedVideoManager {
 
         try {
             // Instantiate a custom event
-            final CustomEventRewardedVideo customEvent =
-                    Reflection.instantiateClassWithEmptyConstructor(
-                            customEventClassName,
-                            CustomEventRewardedVideo.class);
+            final CustomEventRewardedVideo customEvent = CustomEventRegistry.create(
+                    customEventClassName, CustomEventRewardedVideo.class);
 
             // Put important data into localExtras...
             final Map<String, Object> localExtras = new TreeMap<String, Object>();
@@ -384,8 +452,7 @@ public class MoPubRewardedVideoManager {
                     customEvent.onInvalidate();
                 }
             };
-            mCustomEventTimeoutHandler.postDelayed(timeout, timeoutMillis);
-            mTimeoutMap.put(adUnitId, timeout);
+            mTimeoutMap.put(adUnitId, TimerWheel.getInstance().schedule(timeout, timeoutMillis));
 
             // Load custom event
             customEvent.loadCustomEvent(mainActivity, localExtras, adResponse.getServerExtras());
@@ -427,15 +494,141 @@ public class MoPubRewardedVideoManager {
 
         if (failoverUrl != null) {
             loadVideo(adUnitId, failoverUrl);
-        } else if (mVideoListener != null) {
+            return;
+        }
+
+        if (mVideoListener != null) {
             mVideoListener.onRewardedVideoLoadFailure(adUnitId, errorCode);
         }
+        onReadyPoolLoadFailed(adUnitId);
+    }
+
+    ///// Ready pool methods /////
+    private void onReadyPoolVideoLoaded(@NonNull final String adUnitId) {
+        final ReadyPool readyPool = mReadyPools.get(adUnitId);
+        if (readyPool == null) {
+            return;
+        }
+
+        readyPool.mReadyPoolTracker.onAdLoaded();
+        readyPool.scheduleExpiration();
+    }
+
+    private void onReadyPoolLoadFailed(@NonNull final String adUnitId) {
+        final ReadyPool readyPool = mReadyPools.get(adUnitId);
+        if (readyPool == null) {
+            return;
+        }
+
+        final long retryMillis = readyPool.mReadyPoolTracker.onAdFailed();
+        readyPool.cancelReload();
+        if (retryMillis >= 0) {
+            readyPool.scheduleReload(retryMillis);
+        }
+    }
+
+    private void onReadyPoolVideoShown(@NonNull final String adUnitId) {
+        final ReadyPool readyPool = mReadyPools.get(adUnitId);
+        if (readyPool != null) {
+            // A video that is playing can't expire. The next one is loaded once it is closed,
+            // since loading a video invalidates the previous one for the ad unit.
+            readyPool.cancelExpiration();
+        }
+    }
+
+    private void onReadyPoolShowMissed(@NonNull final String adUnitId) {
+        final ReadyPool readyPool = mReadyPools.get(adUnitId);
+        if (readyPool != null) {
+            readyPool.mReadyPoolTracker.onShowMissed();
+        }
+    }
+
+    private void onReadyPoolVideoClosed(@NonNull final String adUnitId) {
+        final ReadyPool readyPool = mReadyPools.get(adUnitId);
+        if (readyPool != null) {
+            readyPool.cancelReload();
+            readyPool.reload();
+        }
+    }
+
+    /**
+     * The state of an ad unit's ready pool.
+     */
+    private static class ReadyPool {
+        @NonNull final String mAdUnitId;
+        @Nullable final RequestParameters mRequestParameters;
+        @NonNull final ReadyPoolTracker mReadyPoolTracker;
+        @NonNull final Runnable mReloadRunnable;
+        @NonNull final Runnable mExpirationRunnable;
+        @Nullable private TimerWheel.Timer mReloadTimer;
+        @Nullable private TimerWheel.Timer mExpirationTimer;
+
+        ReadyPool(@NonNull final String adUnitId,
+                @Nullable final RequestParameters requestParameters) {
+            mAdUnitId = adUnitId;
+            mRequestParameters = requestParameters;
+            mReadyPoolTracker = new ReadyPoolTracker(ReadyPoolTracker.DEFAULT_EXPIRATION_MILLIS);
+            mReloadRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    reload();
+                }
+            };
+            mExpirationRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    if (sInstance == null || !sInstance.mAdRequestStatus.canPlay(mAdUnitId)) {
+                        return;
+                    }
+
+                    MoPubLog.d("Rewarded video for ad unit " + mAdUnitId + " expired. Loading "
+                            + "another.");
+                    sInstance.mAdRequestStatus.markFail(mAdUnitId);
+                    reload();
+                }
+            };
+        }
+
+        void scheduleReload(final long delayMillis) {
+            mReloadTimer = TimerWheel.getInstance().schedule(mReloadRunnable, delayMillis);
+        }
+
+        void cancelReload() {
+            if (mReloadTimer != null) {
+                mReloadTimer.cancel();
+                mReloadTimer = null;
+            }
+        }
+
+        void scheduleExpiration() {
+            cancelExpiration();
+            mExpirationTimer = TimerWheel.getInstance().schedule(mExpirationRunnable,
+                    mReadyPoolTracker.getExpirationMillis());
+        }
+
+        void cancelExpiration() {
+            if (mExpirationTimer != null) {
+                mExpirationTimer.cancel();
+                mExpirationTimer = null;
+            }
+        }
+
+        void reload() {
+            if (sInstance == null) {
+                return;
+            }
+
+            mReadyPoolTracker.onAdNeeded();
+            // This doesn't go through the public loadVideo, so that the ad unit's instance
+            // MediationSettings are kept.
+            loadVideo(mAdUnitId, generateAdUrlString(mAdUnitId, mRequestParameters));
+        }
     }
 
     private void cancelTimeouts(@NonNull String moPubId) {
-        final Runnable runnable = mTimeoutMap.remove(moPubId);
-        if (runnable != null) {  // We can't pass null or all callbacks will be removed.
-            mCustomEventTimeoutHandler.removeCallbacks(runnable);
+        final TimerWheel.Timer timer = mTimeoutMap.remove(moPubId);
+        if (timer != null) {
+            timer.cancel();
         }
     }
 
@@ -456,6 +649,7 @@ public class MoPubRewardedVideoManager {
             @Override
             protected void forEach(@NonNull final String moPubId) {
                 sInstance.cancelTimeouts(moPubId);
+                sInstance.onReadyPoolVideoLoaded(moPubId);
                 if (sInstance.mVideoListener != null) {
                     sInstance.mVideoListener.onRewardedVideoLoadSuccess(moPubId);
                 }
@@ -586,6 +780,7 @@ public class MoPubRewardedVideoManager {
         if (sInstance.mVideoListener != null) {
             sInstance.mVideoListener.onRewardedVideoClosed(adUnitId);
         }
+        sInstance.onReadyPoolVideoClosed(adUnitId);
     }
 
     public static <T extends CustomEventRewardedVideo>
@@ -311,6 +311,38 @@ public class MoPubView extends FrameLayout {
         }
     }
 
+    /**
+     * Refreshes the banner only once it has been at least half on screen for the refresh
+     * interval, so that banners scrolled off screen don't make ad requests. Disabled by default.
+     */
+    public void setViewableRefreshEnabled(boolean enabled) {
+        if (mAdViewController != null) {
+            mAdViewController.setViewableRefreshEnabled(enabled);
+        }
+    }
+
+    public boolean getViewableRefreshEnabled() {
+        if (mAdViewController != null) return mAdViewController.getViewableRefreshEnabled();
+        else {
+            MoPubLog.d("Can't get viewable refresh status for destroyed MoPubView. " +
+                    "Returning false.");
+            return false;
+        }
+    }
+
+    /**
+     * The number of refreshes skipped because the banner wasn't viewable, when viewable refresh is
+     * enabled.
+     */
+    public long getAvoidedRefreshCount() {
+        if (mAdViewController != null) return mAdViewController.getAvoidedRefreshCount();
+        else {
+            MoPubLog.d("Can't get avoided refresh count for destroyed MoPubView. " +
+                    "Returning 0.");
+            return 0;
+        }
+    }
+
     public void setAdContentView(View view) {
         if (mAdViewController != null) mAdViewController.setAdContentView(view);
     }
@@ -0,0 +1,327 @@
+package com.mopub.mobileads;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.Streams;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * The bytes downloaded so far for one url, kept on disk so that a download that was cancelled or
+ * dropped can pick up where it left off with an HTTP Range request.
+ *
+ * The bytes are kept in a data file and the number of them that are known to be on disk in a
+ * separate progress file. The progress file is only updated after the bytes it counts have been
+ * synced, so anything past that count in the data file is discarded when the download resumes.
+ * Syncing is slow, so the data file is kept open while downloading, and the progress is only
+ * saved every {@link #SAVE_INTERVAL_BYTES} and on {@link #close()}. If the process dies, at most
+ * that many bytes have to be downloaded again.
+ *
+ * Not thread safe. Only one download of a url should run at a time.
+ */
+class PartialDownload {
+    private static final String DATA_SUFFIX = ".partial";
+    private static final String PROGRESS_SUFFIX = ".progress";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long MAX_AGE_MILLIS = 24 * 60 * 60 * 1000;
+    @VisibleForTesting static final long SAVE_INTERVAL_BYTES = 4 * 1024 * 1024; // 4 MiB
+
+    static final long UNKNOWN_LENGTH = -1;
+
+    @NonNull private final String mUrl;
+    @NonNull private final File mDataFile;
+    @NonNull private final File mProgressFile;
+
+    @NonNull private String mValidator = "";
+    private long mTotalLength = UNKNOWN_LENGTH;
+    // The bytes written to the data file so far.
+    private long mLength;
+    // The bytes counted by the progress file.
+    private long mSavedLength;
+    // Open while downloading.
+    @Nullable private RandomAccessFile mOutput;
+
+    /**
+     * Opens the partial download for the url in the given directory, reading back any progress
+     * that was saved by an earlier download.
+     */
+    @NonNull
+    static PartialDownload open(@NonNull final File directory, @NonNull final String url) {
+        Preconditions.checkNotNull(directory);
+        Preconditions.checkNotNull(url);
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            MoPubLog.d("Unable to create partial download directory.");
+        }
+        deleteStaleFiles(directory);
+
+        final PartialDownload partialDownload = new PartialDownload(directory, url);
+        partialDownload.readProgress();
+        return partialDownload;
+    }
+
+    private PartialDownload(@NonNull final File directory, @NonNull final String url) {
+        mUrl = url;
+        final String fileName = CacheService.createValidDiskCacheKey(url);
+        mDataFile = new File(directory, fileName + DATA_SUFFIX);
+        mProgressFile = new File(directory, fileName + PROGRESS_SUFFIX);
+    }
+
+    /**
+     * The number of bytes downloaded so far. The download should resume from here.
+     */
+    long getLength() {
+        return mLength;
+    }
+
+    /**
+     * The length of the whole file, or {@link #UNKNOWN_LENGTH} if the server didn't say.
+     */
+    long getTotalLength() {
+        return mTotalLength;
+    }
+
+    /**
+     * The ETag or Last-Modified value the bytes on disk were downloaded with, or an empty string
+     * if the server didn't send one. Without one, a download can't safely be resumed.
+     */
+    @NonNull
+    String getValidator() {
+        return mValidator;
+    }
+
+    boolean canResume() {
+        return mLength > 0 && !mValidator.isEmpty();
+    }
+
+    boolean isComplete() {
+        return mTotalLength != UNKNOWN_LENGTH && mLength == mTotalLength;
+    }
+
+    /**
+     * Discards any bytes on disk and starts again for a file with the given validator and length.
+     */
+    void restart(@Nullable final String validator, final long totalLength) throws IOException {
+        mValidator = validator != null ? validator : "";
+        mTotalLength = totalLength;
+        mLength = 0;
+        if (mOutput != null) {
+            mOutput.setLength(0);
+        }
+        writeProgress();
+        mSavedLength = 0;
+    }
+
+    /**
+     * Writes the next length bytes of the file to disk, and saves the progress if enough has been
+     * written since it was last saved.
+     */
+    void append(@NonNull final byte[] buffer, final int length) throws IOException {
+        Preconditions.checkNotNull(buffer);
+
+        if (mOutput == null) {
+            mOutput = new RandomAccessFile(mDataFile, "rw");
+            // Bytes past the saved progress may not have been synced, so they aren't trusted.
+            mOutput.setLength(mLength);
+            mOutput.seek(mLength);
+        }
+        mOutput.write(buffer, 0, length);
+        mLength += length;
+
+        if (mLength - mSavedLength >= SAVE_INTERVAL_BYTES) {
+            saveProgress();
+        }
+    }
+
+    /**
+     * Saves the progress and closes the data file. Must be called once the download stops,
+     * whether or not it finished.
+     */
+    void close() {
+        if (mOutput == null) {
+            return;
+        }
+
+        try {
+            if (mLength != mSavedLength) {
+                saveProgress();
+            }
+        } catch (IOException e) {
+            MoPubLog.d("Unable to save partial download progress.", e);
+        } finally {
+            Streams.closeStream(mOutput);
+            mOutput = null;
+        }
+    }
+
+    /**
+     * Reads back the bytes downloaded so far.
+     */
+    @NonNull
+    InputStream openInputStream() throws IOException {
+        return new BoundedInputStream(
+                new BufferedInputStream(new FileInputStream(mDataFile)), mLength);
+    }
+
+    /**
+     * The file holding the bytes downloaded so far. Once the download is complete and closed, it
+     * holds exactly the whole file and can be moved elsewhere.
+     */
+    @NonNull
+    File getDataFile() {
+        return mDataFile;
+    }
+
+    void delete() {
+        Streams.closeStream(mOutput);
+        mOutput = null;
+        mValidator = "";
+        mTotalLength = UNKNOWN_LENGTH;
+        mLength = 0;
+        mSavedLength = 0;
+        deleteFile(mDataFile);
+        deleteFile(mProgressFile);
+    }
+
+    private void readProgress() {
+        if (!mProgressFile.exists()) {
+            return;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(mProgressFile));
+            final String url = in.readUTF();
+            final String validator = in.readUTF();
+            final long totalLength = in.readLong();
+            final long committedLength = in.readLong();
+            if (!mUrl.equals(url) || committedLength < 0
+                    || committedLength > mDataFile.length()
+                    || (totalLength != UNKNOWN_LENGTH && committedLength > totalLength)) {
+                throw new IOException("Partial download progress doesn't match its data.");
+            }
+            mValidator = validator;
+            mTotalLength = totalLength;
+            mLength = committedLength;
+            mSavedLength = committedLength;
+        } catch (IOException e) {
+            MoPubLog.d("Discarding partial download of " + mUrl, e);
+            Streams.closeStream(in);
+            in = null;
+            delete();
+        } finally {
+            Streams.closeStream(in);
+        }
+    }
+
+    private void saveProgress() throws IOException {
+        if (mOutput != null) {
+            mOutput.getFD().sync();
+        }
+        writeProgress();
+        mSavedLength = mLength;
+    }
+
+    private void writeProgress() throws IOException {
+        // Written to a temporary file first, so a crash never leaves a half written progress file.
+        final File tempFile = new File(mProgressFile.getPath() + TEMP_SUFFIX);
+        final FileOutputStream fileOut = new FileOutputStream(tempFile);
+        try {
+            final DataOutputStream out = new DataOutputStream(fileOut);
+            out.writeUTF(mUrl);
+            out.writeUTF(mValidator);
+            out.writeLong(mTotalLength);
+            out.writeLong(mLength);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            Streams.closeStream(fileOut);
+        }
+
+        if (!tempFile.renameTo(mProgressFile)) {
+            deleteFile(tempFile);
+            throw new IOException("Unable to save partial download progress.");
+        }
+    }
+
+    /**
+     * Deletes partial downloads that haven't been touched in a while, since the ads they were for
+     * have expired.
+     */
+    private static void deleteStaleFiles(@NonNull final File directory) {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final long oldestMillis = System.currentTimeMillis() - MAX_AGE_MILLIS;
+        for (final File file : files) {
+            if (file.lastModified() < oldestMillis) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    private static void deleteFile(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            MoPubLog.d("Unable to delete " + file.getPath());
+        }
+    }
+
+    /**
+     * Stops reading at the committed length, so bytes past it are never treated as downloaded.
+     */
+    private static class BoundedInputStream extends InputStream {
+        @NonNull private final InputStream mInputStream;
+        private long mRemaining;
+
+        BoundedInputStream(@NonNull final InputStream inputStream, final long length) {
+            mInputStream = inputStream;
+            mRemaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            final int result = mInputStream.read();
+            if (result != -1) {
+                mRemaining--;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@NonNull final byte[] buffer, final int offset, final int length)
+                throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            final int result = mInputStream.read(buffer, offset,
+                    (int) Math.min(length, mRemaining));
+            if (result > 0) {
+                mRemaining -= result;
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mInputStream.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.mopub.mobileads;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+/**
+ * Keeps the timing of a ready pool of full screen ads: when a loaded ad expires, how long to back
+ * off before retrying a failed load, and how long the pool takes to get an ad ready once it needs
+ * one.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+class ReadyPoolTracker {
+    static final long DEFAULT_EXPIRATION_MILLIS = 60 * 60 * 1000; // 1 hour
+    private static final int MAXIMUM_RETRY_TIME_MILLISECONDS = 5 * 60 * 1000; // 5 minutes
+    @VisibleForTesting static final int[] RETRY_TIME_ARRAY_MILLISECONDS =
+            new int[]{1000, 3000, 5000, 25000, 60000, MAXIMUM_RETRY_TIME_MILLISECONDS};
+
+    @NonNull private final LatencyHistogram mReadyLatencyHistogram;
+    private final long mExpirationMillis;
+    private int mCurrentRetries;
+    private long mAdNeededMillis;
+
+    ReadyPoolTracker(final long expirationMillis) {
+        Preconditions.checkArgument(expirationMillis > 0);
+
+        mReadyLatencyHistogram = new LatencyHistogram();
+        mExpirationMillis = expirationMillis;
+        mAdNeededMillis = -1;
+    }
+
+    /**
+     * Called when the pool starts loading an ad because it has fewer ads than it should. Only the
+     * first call until an ad loads counts, so retries are part of the latency.
+     */
+    void onAdNeeded() {
+        if (mAdNeededMillis < 0) {
+            mAdNeededMillis = SystemClock.uptimeMillis();
+        }
+    }
+
+    void onAdLoaded() {
+        if (mAdNeededMillis >= 0) {
+            mReadyLatencyHistogram.record(SystemClock.uptimeMillis() - mAdNeededMillis);
+            mAdNeededMillis = -1;
+        }
+        mCurrentRetries = 0;
+    }
+
+    /**
+     * Returns how long to wait before retrying the failed load, or -1 if the pool should stop
+     * retrying until it is asked for an ad again. Stopping prevents using battery while the app
+     * doesn't show ads, eg. when it is backgrounded.
+     */
+    long onAdFailed() {
+        if (mCurrentRetries >= RETRY_TIME_ARRAY_MILLISECONDS.length) {
+            mCurrentRetries = 0;
+            return -1;
+        }
+        return RETRY_TIME_ARRAY_MILLISECONDS[mCurrentRetries++];
+    }
+
+    /**
+     * Called when an ad was to be shown but none was ready.
+     */
+    void onShowMissed() {
+        mReadyLatencyHistogram.recordFailure();
+    }
+
+    long getExpirationMillis() {
+        return mExpirationMillis;
+    }
+
+    boolean isExpired(final long loadedMillis) {
+        return getMillisUntilExpiration(loadedMillis) <= 0;
+    }
+
+    long getMillisUntilExpiration(final long loadedMillis) {
+        return loadedMillis + mExpirationMillis - SystemClock.uptimeMillis();
+    }
+
+    /**
+     * The time from the pool needing an ad to the ad being loaded. Shows that found no ad ready are
+     * counted as failures.
+     */
+    @NonNull
+    LatencyHistogram getReadyLatencyHistogram() {
+        return mReadyLatencyHistogram;
+    }
+}
@@ -28,6 +28,7 @@ class VastLinearXmlManager {
     private static final String CLICK_TRACKER = "ClickTracking";
     private static final String MEDIA_FILES = "MediaFiles";
     private static final String MEDIA_FILE = "MediaFile";
+    private static final String DURATION = "Duration";
     public static final String ICONS = "Icons";
     public static final String ICON = "Icon";
 
@@ -314,6 +315,32 @@ class VastLinearXmlManager {
         return skipOffsetString.trim();
     }
 
+    /**
+     * Gets the length of the video, which is given in the format 'hh:mm:ss(.mmm)'.
+     *
+     * @return The duration in milliseconds, or {@code null} if there isn't a valid one.
+     */
+    @Nullable
+    Integer getDurationMillis() {
+        final Node duration = XmlUtils.getFirstMatchingChildNode(mLinearNode, DURATION);
+        if (duration == null) {
+            return null;
+        }
+
+        final String durationString = XmlUtils.getNodeValue(duration);
+        if (durationString == null) {
+            return null;
+        }
+
+        try {
+            final Integer durationMillis = Strings.parseAbsoluteOffset(durationString);
+            return durationMillis != null && durationMillis > 0 ? durationMillis : null;
+        } catch (NumberFormatException e) {
+            MoPubLog.d(String.format("Failed to parse VAST duration %s", durationString));
+            return null;
+        }
+    }
+
     /**
      * If there is a Media section, return its XML manager.
      *
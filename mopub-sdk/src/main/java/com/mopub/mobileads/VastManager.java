@@ -12,6 +12,8 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.mobileads.VideoDownloader.VideoDownloaderListener;
 
 /**
@@ -71,7 +73,8 @@ public class VastManager implements VastXmlManagerAggregator.VastXmlManagerAggre
             mDspCreativeId = dspCreativeId;
 
             try {
-                AsyncTasks.safeExecuteOnExecutor(mVastXmlManagerAggregator, vastXml);
+                AsyncTasks.safeExecuteOnExecutor(Lane.NETWORK, Priority.DEFAULT,
+                        mVastXmlManagerAggregator, vastXml);
             } catch (Exception e) {
                 MoPubLog.d("Failed to aggregate vast xml", e);
                 mVastManagerListener.onVastVideoConfigurationPrepared(null);
@@ -18,6 +18,7 @@ class VastMediaXmlManager {
     private static final String HEIGHT = "height";
     private static final String DELIVERY = "delivery";
     private static final String VIDEO_TYPE  = "type";
+    private static final String BITRATE = "bitrate";
 
     @NonNull private final Node mMediaNode;
 
@@ -60,6 +61,17 @@ class VastMediaXmlManager {
         return XmlUtils.getAttributeValueAsInt(mMediaNode, HEIGHT);
     }
 
+    /**
+     * Average bitrate of the video in kilobits per second or {@code null} if not specified. This
+     * is an optional attribute.
+     *
+     * @return Integer bitrate of video or {@code null}
+     */
+    @Nullable
+    Integer getBitrate() {
+        return XmlUtils.getAttributeValueAsInt(mMediaNode, BITRATE);
+    }
+
     /**
      * The MIME file type of the video or {@code null} if not specified. This is a required
      * attribute. (e.g. 'video/x-flv' or 'video/mp4').
@@ -0,0 +1,124 @@
+package com.mopub.mobileads;
+
+import android.support.annotation.NonNull;
+
+import com.mopub.common.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An index of VAST progress trackers ordered by the playback position, in milliseconds, at which
+ * they should be triggered. Fractional trackers are resolved to absolute positions, so the
+ * timeline can only be built once the video duration is known.
+ *
+ * Due trackers are read through a cursor, so each poll only visits the trackers that have become
+ * due since the previous poll instead of rescanning every tracker on the video.
+ */
+public class VastProgressTrackerTimeline {
+    public static final int NO_PENDING_TRIGGER = -1;
+
+    @NonNull private final VastTracker[] mTrackers;
+    @NonNull private final int[] mTriggerMillis;
+    private final int mVideoLengthMillis;
+    private int mCursor;
+
+    public VastProgressTrackerTimeline(
+            @NonNull final List<VastAbsoluteProgressTracker> absoluteTrackers,
+            @NonNull final List<VastFractionalProgressTracker> fractionalTrackers,
+            final int videoLengthMillis) {
+        Preconditions.checkNotNull(absoluteTrackers);
+        Preconditions.checkNotNull(fractionalTrackers);
+        Preconditions.checkArgument(videoLengthMillis > 0);
+
+        mVideoLengthMillis = videoLengthMillis;
+
+        final int absoluteCount = absoluteTrackers.size();
+        final int fractionalCount = fractionalTrackers.size();
+        mTrackers = new VastTracker[absoluteCount + fractionalCount];
+        mTriggerMillis = new int[absoluteCount + fractionalCount];
+
+        // Both lists are kept sorted by VastVideoConfig, so a single merge pass is enough. On
+        // ties, absolute trackers come first to match getUntriggeredTrackersBefore.
+        int absoluteIndex = 0;
+        int fractionalIndex = 0;
+        int index = 0;
+        while (absoluteIndex < absoluteCount || fractionalIndex < fractionalCount) {
+            final int absoluteMillis = absoluteIndex < absoluteCount
+                    ? absoluteTrackers.get(absoluteIndex).getTrackingMilliseconds()
+                    : Integer.MAX_VALUE;
+            final int fractionalMillis = fractionalIndex < fractionalCount
+                    ? toTriggerMillis(fractionalTrackers.get(fractionalIndex), videoLengthMillis)
+                    : Integer.MAX_VALUE;
+
+            if (absoluteIndex < absoluteCount && absoluteMillis <= fractionalMillis) {
+                mTrackers[index] = absoluteTrackers.get(absoluteIndex++);
+                mTriggerMillis[index] = absoluteMillis;
+            } else {
+                mTrackers[index] = fractionalTrackers.get(fractionalIndex++);
+                mTriggerMillis[index] = fractionalMillis;
+            }
+            index++;
+        }
+        mCursor = 0;
+    }
+
+    /**
+     * Returns the untriggered trackers that have become due at or before the given position and
+     * advances the cursor past them. Trackers are returned in trigger order. The caller is
+     * responsible for firing the trackers and marking them as tracked.
+     *
+     * @param currentPositionMillis the current video position in milliseconds.
+     */
+    @NonNull
+    public List<VastTracker> pollDueTrackers(final int currentPositionMillis) {
+        if (mCursor >= mTriggerMillis.length || mTriggerMillis[mCursor] > currentPositionMillis) {
+            return Collections.emptyList();
+        }
+
+        final List<VastTracker> dueTrackers = new ArrayList<VastTracker>();
+        while (mCursor < mTriggerMillis.length && mTriggerMillis[mCursor] <= currentPositionMillis) {
+            final VastTracker tracker = mTrackers[mCursor];
+            mCursor++;
+            if (!tracker.isTracked()) {
+                dueTrackers.add(tracker);
+            }
+        }
+        return dueTrackers;
+    }
+
+    /**
+     * Returns the position in milliseconds of the next tracker that has not been polled yet, or
+     * {@link #NO_PENDING_TRIGGER} if every tracker has already been polled.
+     */
+    public int getNextTriggerMillis() {
+        if (mCursor >= mTriggerMillis.length) {
+            return NO_PENDING_TRIGGER;
+        }
+        return mTriggerMillis[mCursor];
+    }
+
+    /**
+     * Returns the number of trackers that have not been polled yet.
+     */
+    public int getPendingTrackerCount() {
+        return mTriggerMillis.length - mCursor;
+    }
+
+    public int getVideoLengthMillis() {
+        return mVideoLengthMillis;
+    }
+
+    private static int toTriggerMillis(@NonNull final VastFractionalProgressTracker tracker,
+            final int videoLengthMillis) {
+        // Find the first position whose progress fraction reaches the tracker's fraction, using
+        // the same float comparison as getUntriggeredTrackersBefore to avoid off-by-one triggers.
+        final float fraction = tracker.trackingFraction();
+        int triggerMillis = (int) Math.floor(fraction * videoLengthMillis);
+        if (triggerMillis / (float) videoLengthMillis < fraction) {
+            triggerMillis++;
+        }
+        return triggerMillis;
+    }
+}
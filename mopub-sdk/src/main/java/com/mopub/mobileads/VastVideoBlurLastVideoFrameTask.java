@@ -8,12 +8,22 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.widget.ImageView;
 
+import com.mopub.common.MemoryGovernor;
+import com.mopub.common.MemoryGovernor.MemoryConsumer;
+import com.mopub.common.MemoryGovernor.RestoreCost;
+import com.mopub.common.MemoryGovernor.TrimLevel;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.ImageUtils;
 import com.mopub.mobileads.resource.DrawableConstants;
 
-public class VastVideoBlurLastVideoFrameTask extends AsyncTask<String, Void, Boolean> {
+/**
+ * Blurs the last frame of a video to show behind the end card. Once shown, the blurred frame is
+ * registered with the {@link MemoryGovernor}, which may drop it under memory pressure. The end
+ * card is then shown without it.
+ */
+public class VastVideoBlurLastVideoFrameTask extends AsyncTask<String, Void, Boolean>
+        implements MemoryConsumer {
 
     private static final int MICROSECONDS_PER_MILLISECOND = 1000;
 
@@ -22,10 +32,14 @@ public class VastVideoBlurLastVideoFrameTask extends AsyncTask<String, Void, Boo
      */
     private static final int OFFSET_IN_MICROSECONDS = 200000;
 
+    /**
+     * The blur radius in pixels of the full size frame.
+     */
+    private static final int BLUR_RADIUS = 4;
+
     @NonNull private final MediaMetadataRetriever mMediaMetadataRetriever;
     @NonNull private final ImageView mBlurredLastVideoFrameImageView;
     private int mVideoDuration;
-    @Nullable private Bitmap mLastVideoFrame;
     @Nullable private Bitmap mBlurredLastVideoFrame;
 
     public VastVideoBlurLastVideoFrameTask(
@@ -51,18 +65,23 @@ public class VastVideoBlurLastVideoFrameTask extends AsyncTask<String, Void, Boo
                 // This actually gets a frame just before the video ends. If we try to get a frame
                 // that's actually past the end of the video or before 0, this will pick some
                 // arbitrary frame.
-                mLastVideoFrame = mMediaMetadataRetriever.getFrameAtTime(
+                final Bitmap lastVideoFrame = mMediaMetadataRetriever.getFrameAtTime(
                         mVideoDuration * MICROSECONDS_PER_MILLISECOND - OFFSET_IN_MICROSECONDS,
                         MediaMetadataRetriever.OPTION_CLOSEST);
 
-                if (mLastVideoFrame == null) {
+                if (lastVideoFrame == null) {
                     return false;
                 }
 
-                mBlurredLastVideoFrame = ImageUtils.applyFastGaussianBlurToBitmap(
-                        mLastVideoFrame, 4);
+                // Blurred at a fraction of the video's resolution, with the radius scaled down
+                // to match. The full size frame is only needed to downsample from.
+                mBlurredLastVideoFrame = ImageUtils.applyDownsampledBlurToBitmap(
+                        lastVideoFrame, BLUR_RADIUS);
+                if (mBlurredLastVideoFrame != lastVideoFrame) {
+                    lastVideoFrame.recycle();
+                }
 
-                return true;
+                return mBlurredLastVideoFrame != null;
             } catch (Exception e) {
                 MoPubLog.d("Failed to blur last video frame", e);
                 return false;
@@ -83,6 +102,11 @@ public class VastVideoBlurLastVideoFrameTask extends AsyncTask<String, Void, Boo
             mBlurredLastVideoFrameImageView.setImageBitmap(mBlurredLastVideoFrame);
             ImageUtils.setImageViewAlpha(mBlurredLastVideoFrameImageView,
                     DrawableConstants.BlurredLastVideoFrame.ALPHA);
+
+            final MemoryGovernor memoryGovernor = MemoryGovernor.getInstance();
+            memoryGovernor.register(mBlurredLastVideoFrameImageView.getContext(), this,
+                    RestoreCost.CONTENT);
+            memoryGovernor.enforceBudget();
         }
     }
 
@@ -91,6 +115,26 @@ public class VastVideoBlurLastVideoFrameTask extends AsyncTask<String, Void, Boo
         MoPubLog.d("VastVideoBlurLastVideoFrameTask was cancelled.");
     }
 
+    @Override
+    public long getFootprintBytes() {
+        final Bitmap blurredLastVideoFrame = mBlurredLastVideoFrame;
+        if (blurredLastVideoFrame == null) {
+            return 0;
+        }
+        return blurredLastVideoFrame.getRowBytes() * blurredLastVideoFrame.getHeight();
+    }
+
+    @Override
+    public void trimMemory(@NonNull final TrimLevel level) {
+        if (mBlurredLastVideoFrame == null) {
+            return;
+        }
+
+        // Not recycled, since the image view may still be drawing it.
+        mBlurredLastVideoFrameImageView.setImageDrawable(null);
+        mBlurredLastVideoFrame = null;
+    }
+
     // for testing
     @Deprecated
     @VisibleForTesting
@@ -68,6 +68,11 @@ public class VastVideoConfig implements Serializable {
      */
     private boolean mIsForceOrientationSet;
 
+    /**
+     * Progress trackers indexed by trigger position. Built lazily once the video duration is known
+     * and rebuilt whenever progress trackers are added or the duration changes.
+     */
+    @Nullable private transient VastProgressTrackerTimeline mProgressTrackerTimeline;
 
     public VastVideoConfig() {
         mImpressionTrackers = new ArrayList<VastTracker>();
@@ -109,6 +114,7 @@ public class VastVideoConfig implements Serializable {
         Preconditions.checkNotNull(fractionalTrackers, "fractionalTrackers cannot be null");
         mFractionalTrackers.addAll(fractionalTrackers);
         Collections.sort(mFractionalTrackers);
+        mProgressTrackerTimeline = null;
     }
 
     /**
@@ -118,6 +124,7 @@ public class VastVideoConfig implements Serializable {
         Preconditions.checkNotNull(absoluteTrackers, "absoluteTrackers cannot be null");
         mAbsoluteTrackers.addAll(absoluteTrackers);
         Collections.sort(mAbsoluteTrackers);
+        mProgressTrackerTimeline = null;
     }
 
     public void addCompleteTrackers(@NonNull final List<VastTracker> completeTrackers) {
@@ -654,6 +661,25 @@ public class VastVideoConfig implements Serializable {
         }
     }
 
+    /**
+     * Returns the progress trackers indexed by trigger position for a video of the given length.
+     * The same timeline, and therefore the same cursor, is returned until progress trackers are
+     * added or the video length changes.
+     *
+     * @param videoLengthMillis the total video length. Must be greater than 0.
+     */
+    @NonNull
+    public VastProgressTrackerTimeline getProgressTrackerTimeline(final int videoLengthMillis) {
+        Preconditions.checkArgument(videoLengthMillis > 0);
+
+        if (mProgressTrackerTimeline == null
+                || mProgressTrackerTimeline.getVideoLengthMillis() != videoLengthMillis) {
+            mProgressTrackerTimeline = new VastProgressTrackerTimeline(mAbsoluteTrackers,
+                    mFractionalTrackers, videoLengthMillis);
+        }
+        return mProgressTrackerTimeline;
+    }
+
     /**
      * Returns the number of untriggered progress trackers.
      *
@@ -681,8 +707,7 @@ public class VastVideoConfig implements Serializable {
                     float percentage = Float.parseFloat(mSkipOffset.replace("%", "")) / 100f;
                     skipOffsetMilliseconds = Math.round(videoDuration * percentage);
                 } else {
-                    MoPubLog.d(
-                            String.format("Invalid VAST skipoffset format: %s", mSkipOffset));
+                    MoPubLog.d("Invalid VAST skipoffset format: {}", mSkipOffset);
                     return null;
                 }
 
@@ -694,7 +719,7 @@ public class VastVideoConfig implements Serializable {
                     }
                 }
             } catch (NumberFormatException e) {
-                MoPubLog.d(String.format("Failed to parse skipoffset %s", mSkipOffset));
+                MoPubLog.d("Failed to parse skipoffset {}", mSkipOffset);
             }
         }
         return null;
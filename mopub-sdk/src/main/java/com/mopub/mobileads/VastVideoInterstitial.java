@@ -1,6 +1,7 @@
 package com.mopub.mobileads;
 
 import com.mopub.common.CacheService;
+import com.mopub.common.CacheService.DiskCacheInitializedListener;
 import com.mopub.common.DataKeys;
 import com.mopub.mobileads.factories.VastManagerFactory;
 
@@ -11,6 +12,7 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
     private String mVastResponse;
     private VastManager mVastManager;
     private VastVideoConfig mVastVideoConfig;
+    private boolean mIsInvalidated;
 
     @Override
     protected void extractExtras(Map<String, String> serverExtras) {
@@ -21,14 +23,24 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
     protected void preRenderHtml(CustomEventInterstitialListener customEventInterstitialListener) {
         mCustomEventInterstitialListener = customEventInterstitialListener;
 
-        if (!CacheService.initializeDiskCache(mContext)) {
-            mCustomEventInterstitialListener.onInterstitialFailed(MoPubErrorCode.VIDEO_CACHE_ERROR);
-            return;
-        }
-
-        mVastManager = VastManagerFactory.create(mContext);
-        mVastManager.prepareVastVideoConfiguration(mVastResponse, this,
-                mAdReport.getDspCreativeId(), mContext);
+        CacheService.initializeDiskCacheAsync(mContext, new DiskCacheInitializedListener() {
+            @Override
+            public void onDiskCacheInitialized(final boolean success) {
+                if (mIsInvalidated) {
+                    return;
+                }
+
+                if (!success) {
+                    mCustomEventInterstitialListener.onInterstitialFailed(
+                            MoPubErrorCode.VIDEO_CACHE_ERROR);
+                    return;
+                }
+
+                mVastManager = VastManagerFactory.create(mContext);
+                mVastManager.prepareVastVideoConfiguration(mVastResponse,
+                        VastVideoInterstitial.this, mAdReport.getDspCreativeId(), mContext);
+            }
+        });
     }
 
     @Override
@@ -38,6 +50,7 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
 
     @Override
     public void onInvalidate() {
+        mIsInvalidated = true;
         if (mVastManager != null) {
             mVastManager.cancel();
         }
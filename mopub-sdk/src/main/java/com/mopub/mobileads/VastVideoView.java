@@ -14,6 +14,8 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.common.util.Streams;
 
 import java.io.File;
@@ -54,6 +56,8 @@ public class VastVideoView extends VideoView {
 
             try {
                 AsyncTasks.safeExecuteOnExecutor(
+                        Lane.CPU,
+                        Priority.USER_FACING,
                         mBlurLastVideoFrameTask,
                         diskMediaFileUrl
                 );
@@ -37,8 +37,9 @@ public class VastVideoViewProgressRunnable extends RepeatingHandlerRunnable {
         mVideoViewController.updateProgressBar();
 
         if (videoLength > 0) {
-            final List<VastTracker> trackersToTrack =
-                    mVastVideoConfig.getUntriggeredTrackersBefore(currentPosition, videoLength);
+            final List<VastTracker> trackersToTrack = mVastVideoConfig
+                    .getProgressTrackerTimeline(videoLength)
+                    .pollDueTrackers(currentPosition);
             if (!trackersToTrack.isEmpty()) {
                 final List<String> trackUrls = new ArrayList<String>();
                 for (VastTracker tracker : trackersToTrack) {
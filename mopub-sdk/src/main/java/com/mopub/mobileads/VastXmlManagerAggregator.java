@@ -17,6 +17,7 @@ import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Dips;
 import com.mopub.common.util.Streams;
 import com.mopub.common.util.Strings;
+import com.mopub.network.BandwidthEstimator;
 import com.mopub.network.Networking;
 
 import java.io.BufferedInputStream;
@@ -72,6 +73,11 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
     static final int MAX_TIMES_TO_FOLLOW_VAST_REDIRECT = 10;
     private static final double ASPECT_RATIO_WEIGHT = 70;
     private static final double AREA_WEIGHT = 30;
+    private static final double BITRATE_WEIGHT = 40;
+    // Media files that would take longer than this to download are penalized by their bitrate.
+    private static final int TARGET_DOWNLOAD_MILLIS = 10000;
+    // Assumed when the VAST document doesn't give the video's duration.
+    private static final int DEFAULT_DURATION_MILLIS = 30000;
     private static final List<String> VIDEO_MIME_TYPES =
             Arrays.asList("video/mp4", "video/3gpp");
     private static final int MINIMUM_COMPANION_AD_WIDTH = 300;
@@ -81,6 +87,7 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
     private final double mScreenAspectRatio;
     private final int mScreenAreaDp;
     @NonNull private final Context mContext;
+    @NonNull private final BandwidthEstimator mBandwidthEstimator;
 
     /**
      * Number of times this has followed a redirect. This value is only
@@ -101,6 +108,7 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
         mScreenAspectRatio = screenAspectRatio;
         mScreenAreaDp = screenAreaDp;
         mContext = context.getApplicationContext();
+        mBandwidthEstimator = BandwidthEstimator.getInstance();
     }
 
     @Override
@@ -303,8 +311,10 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
                 = vastInLineXmlManager.getLinearXmlManagers();
 
         for (VastLinearXmlManager linearXmlManager : linearXmlManagers) {
-            String bestMediaFileUrl = getBestMediaFileUrl(linearXmlManager.getMediaXmlManagers());
-            if (bestMediaFileUrl != null) {
+            final VastMediaXmlManager bestMediaXmlManager =
+                    getBestMediaXmlManager(linearXmlManager.getMediaXmlManagers(),
+                            linearXmlManager.getDurationMillis());
+            if (bestMediaXmlManager != null) {
                 // Create vast video configuration and populate initial trackers
                 final VastVideoConfig vastVideoConfig = new VastVideoConfig();
                 vastVideoConfig.addImpressionTrackers(vastInLineXmlManager.getImpressionTrackers());
@@ -314,7 +324,7 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
                 // are under an InLine element. They will not have these assets when they are under
                 // a Wrapper element.
                 vastVideoConfig.setClickThroughUrl(linearXmlManager.getClickThroughUrl());
-                vastVideoConfig.setNetworkMediaFileUrl(bestMediaFileUrl);
+                vastVideoConfig.setNetworkMediaFileUrl(bestMediaXmlManager.getMediaUrl());
 
                 final List<VastCompanionAdXmlManager> companionAdXmlManagers =
                         vastInLineXmlManager.getCompanionAdXmlManagers();
@@ -487,10 +497,25 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
     @VisibleForTesting
     @Nullable
     String getBestMediaFileUrl(@NonNull final List<VastMediaXmlManager> managers) {
+        final VastMediaXmlManager bestMediaXmlManager = getBestMediaXmlManager(managers, null);
+        return bestMediaXmlManager != null ? bestMediaXmlManager.getMediaUrl() : null;
+    }
+
+    /**
+     * Picks the playable media file that best fits the screen and can be downloaded in time on
+     * the current network.
+     *
+     * @param durationMillis The length of the video, used with each media file's bitrate to
+     *                       estimate its size. {@code null} if unknown.
+     */
+    @Nullable
+    private VastMediaXmlManager getBestMediaXmlManager(
+            @NonNull final List<VastMediaXmlManager> managers,
+            @Nullable final Integer durationMillis) {
         Preconditions.checkNotNull(managers, "managers cannot be null");
         final List<VastMediaXmlManager> mediaXmlManagers = new ArrayList<VastMediaXmlManager>(managers);
         double bestMediaFitness = Double.POSITIVE_INFINITY;
-        String bestMediaFileUrl = null;
+        VastMediaXmlManager bestMediaXmlManager = null;
 
         final Iterator<VastMediaXmlManager> xmlManagerIterator = mediaXmlManagers.iterator();
         while (xmlManagerIterator.hasNext()) {
@@ -509,14 +534,16 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
                 continue;
             }
 
-            final double mediaFitness = calculateFitness(mediaWidth, mediaHeight);
+            final double mediaFitness = calculateFitness(mediaWidth, mediaHeight)
+                    + calculateBitrateFitness(mediaXmlManager.getBitrate(),
+                            durationMillis != null ? durationMillis : DEFAULT_DURATION_MILLIS);
             if (mediaFitness < bestMediaFitness) {
                 bestMediaFitness = mediaFitness;
-                bestMediaFileUrl = mediaUrl;
+                bestMediaXmlManager = mediaXmlManager;
             }
         }
 
-        return bestMediaFileUrl;
+        return bestMediaXmlManager;
     }
 
     @VisibleForTesting
@@ -771,6 +798,32 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
                 + AREA_WEIGHT * Math.abs(Math.log(areaRatio));
     }
 
+    /**
+     * Calculates how much a media file should be penalized for the time it would take to download
+     * at the current estimated bandwidth. Files that can be downloaded within
+     * {@link #TARGET_DOWNLOAD_MILLIS}, files without a bitrate, and all files when there is no
+     * bandwidth estimate yet are not penalized.
+     *
+     * @param bitrateKbps the bitrate of the media file
+     * @param durationMillis the length of the video
+     * @return the fitness score. The closer to 0, the better.
+     */
+    private double calculateBitrateFitness(@Nullable final Integer bitrateKbps,
+            final int durationMillis) {
+        if (bitrateKbps == null || bitrateKbps <= 0) {
+            return 0;
+        }
+
+        // kilobits per second times milliseconds is bits.
+        final long mediaFileBytes = (long) bitrateKbps * durationMillis / 8;
+        final long downloadMillis = mBandwidthEstimator.estimateDownloadMillis(mediaFileBytes);
+        if (downloadMillis == BandwidthEstimator.UNKNOWN
+                || downloadMillis <= TARGET_DOWNLOAD_MILLIS) {
+            return 0;
+        }
+        return BITRATE_WEIGHT * Math.log((double) downloadMillis / TARGET_DOWNLOAD_MILLIS);
+    }
+
     /**
      * Since MoPub does not support ad pods, do not accept any positive integers greater than 1.
      * MoPub will use the first ad in an ad pod (sequence = 1), but it will ignore all other ads in
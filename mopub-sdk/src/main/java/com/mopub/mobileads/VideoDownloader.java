@@ -1,6 +1,7 @@
 package com.mopub.mobileads;
 
 import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -10,24 +11,65 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.common.util.Streams;
+import com.mopub.network.BandwidthEstimator;
 
-import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
 
+/**
+ * Downloads videos into the disk cache ahead of time.
+ *
+ * Videos are downloaded in chunks into a {@link PartialDownload}, and only moved into the disk
+ * cache once they are complete. A download that is cancelled or dropped keeps the chunks it has
+ * already written, and the next download of the same url asks for only the rest of the file with
+ * an HTTP Range request. At most {@link #MAX_CONCURRENT_DOWNLOADS} videos are downloaded at once,
+ * and never the same url twice at once; the rest wait their turn in the order they were asked for.
+ */
 public class VideoDownloader {
     private static final int MAX_VIDEO_SIZE = 25 * 1024 * 1024; // 25 MiB
+    // A dropped download loses at most the chunk it was reading.
+    @VisibleForTesting static final int CHUNK_SIZE = 256 * 1024; // 256 KiB
+    @VisibleForTesting static final int MAX_CONCURRENT_DOWNLOADS = 2;
+    private static final String RANGE_HEADER = "Range";
+    private static final String IF_RANGE_HEADER = "If-Range";
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
     private static final Deque<WeakReference<VideoDownloaderTask>> sDownloaderTasks =
             new ArrayDeque<WeakReference<VideoDownloaderTask>>();
+    // Downloads waiting for one of the running ones to finish. Only accessed from the UI thread.
+    private static final Deque<PendingDownload> sPendingDownloads =
+            new ArrayDeque<PendingDownload>();
+    // The urls being downloaded. Only accessed from the UI thread.
+    private static final Set<String> sRunningUrls = new HashSet<String>();
 
     interface VideoDownloaderListener {
         void onComplete(boolean success);
     }
 
+    private static class PendingDownload {
+        @NonNull final VideoDownloaderTask mTask;
+        @NonNull final String mUrl;
+
+        PendingDownload(@NonNull final VideoDownloaderTask task, @NonNull final String url) {
+            mTask = task;
+            mUrl = url;
+        }
+    }
+
     private VideoDownloader() {}
 
     public static void cache(@Nullable final String url,
@@ -41,13 +83,41 @@ public class VideoDownloader {
         }
 
         final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(listener);
+        if (sRunningUrls.size() < MAX_CONCURRENT_DOWNLOADS && !sRunningUrls.contains(url)) {
+            execute(videoDownloaderTask, url);
+        } else {
+            sPendingDownloads.add(new PendingDownload(videoDownloaderTask, url));
+        }
+    }
+
+    private static void execute(@NonNull final VideoDownloaderTask videoDownloaderTask,
+            @NonNull final String url) {
+        videoDownloaderTask.mRunningUrl = url;
+        sRunningUrls.add(url);
         try {
-            AsyncTasks.safeExecuteOnExecutor(videoDownloaderTask, url);
+            AsyncTasks.safeExecuteOnExecutor(Lane.NETWORK, Priority.PREFETCH,
+                    videoDownloaderTask, url);
         } catch (Exception e) {
-            listener.onComplete(false);
+            videoDownloaderTask.mRunningUrl = null;
+            sRunningUrls.remove(url);
+            sDownloaderTasks.remove(videoDownloaderTask.mWeakSelf);
+            videoDownloaderTask.mListener.onComplete(false);
         }
     }
 
+    private static void executePendingDownloads() {
+        final Iterator<PendingDownload> iterator = sPendingDownloads.iterator();
+        while (sRunningUrls.size() < MAX_CONCURRENT_DOWNLOADS && iterator.hasNext()) {
+            final PendingDownload pendingDownload = iterator.next();
+            if (pendingDownload.mTask.isCancelled()) {
+                // Cancelled tasks have already told their listener.
+                iterator.remove();
+            } else if (!sRunningUrls.contains(pendingDownload.mUrl)) {
+                iterator.remove();
+                execute(pendingDownload.mTask, pendingDownload.mUrl);
+            }
+        }
+    }
 
     public static void cancelAllDownloaderTasks() {
         for (final WeakReference<VideoDownloaderTask> weakDownloaderTask : sDownloaderTasks) {
@@ -90,6 +160,9 @@ public class VideoDownloader {
     static class VideoDownloaderTask extends AsyncTask<String, Void, Boolean> {
         @NonNull private final VideoDownloaderListener mListener;
         @NonNull private final WeakReference<VideoDownloaderTask> mWeakSelf;
+        // The url being downloaded, once the task has been executed. Only accessed from the UI
+        // thread.
+        @Nullable private String mRunningUrl;
 
         @VisibleForTesting
         VideoDownloaderTask(@NonNull final VideoDownloaderListener listener) {
@@ -106,37 +179,151 @@ public class VideoDownloader {
             }
 
             final String videoUrl = params[0];
+            final File partialDownloadDirectory = CacheService.getPartialDownloadDirectory();
+            if (partialDownloadDirectory == null) {
+                MoPubLog.d("VideoDownloader task has nowhere to download to.");
+                return false;
+            }
+
+            // Another download of the same url may have just finished.
+            if (CacheService.containsKeyDiskCache(videoUrl)) {
+                return true;
+            }
+
+            final PartialDownload partialDownload =
+                    PartialDownload.open(partialDownloadDirectory, videoUrl);
+            try {
+                final boolean isDownloaded;
+                try {
+                    isDownloaded = partialDownload.isComplete()
+                            || download(videoUrl, partialDownload);
+                } finally {
+                    // Saves the progress, also when the download was cancelled or dropped.
+                    partialDownload.close();
+                }
+                if (!isDownloaded) {
+                    return false;
+                }
+
+                final boolean diskPutResult = putToDiskCache(videoUrl, partialDownload);
+                if (diskPutResult) {
+                    partialDownload.delete();
+                }
+                return diskPutResult;
+            } catch (Exception e) {
+                // What has been downloaded so far is kept, to be resumed next time.
+                MoPubLog.d("VideoDownloader task threw an internal exception.", e);
+                return false;
+            }
+        }
+
+        /**
+         * Moves the downloaded file into the disk cache, or copies it if it can't be moved.
+         */
+        private static boolean putToDiskCache(@NonNull final String videoUrl,
+                @NonNull final PartialDownload partialDownload) throws IOException {
+            if (CacheService.moveToDiskCache(videoUrl, partialDownload.getDataFile())) {
+                return true;
+            }
+
+            final InputStream inputStream = partialDownload.openInputStream();
+            try {
+                return CacheService.putToDiskCache(videoUrl, inputStream);
+            } finally {
+                Streams.closeStream(inputStream);
+            }
+        }
+
+        /**
+         * Downloads the rest of the file into partialDownload.
+         *
+         * @return true if the whole file is now on disk.
+         */
+        private boolean download(@NonNull final String videoUrl,
+                @NonNull final PartialDownload partialDownload) throws IOException {
             HttpURLConnection urlConnection = null;
             InputStream inputStream = null;
             try {
                 urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(videoUrl);
-                inputStream = new BufferedInputStream(urlConnection.getInputStream());
+                final boolean isResuming = partialDownload.canResume();
+                if (isResuming) {
+                    urlConnection.setRequestProperty(RANGE_HEADER,
+                            "bytes=" + partialDownload.getLength() + "-");
+                    // The server sends the whole file instead if it has changed since.
+                    urlConnection.setRequestProperty(IF_RANGE_HEADER,
+                            partialDownload.getValidator());
+                }
 
                 // Check status code range
-                int statusCode = urlConnection.getResponseCode();
-                if (statusCode < HttpURLConnection.HTTP_OK
-                        || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                final int statusCode = urlConnection.getResponseCode();
+                if (statusCode == HttpURLConnection.HTTP_PARTIAL) {
+                    final long[] contentRange = parseContentRange(
+                            urlConnection.getHeaderField(CONTENT_RANGE_HEADER));
+                    if (!isResuming || contentRange == null
+                            || contentRange[0] != partialDownload.getLength()
+                            || contentRange[1] != partialDownload.getTotalLength()) {
+                        MoPubLog.d("VideoDownloader received a range it didn't ask for.");
+                        partialDownload.delete();
+                        return false;
+                    }
+                    MoPubLog.d("VideoDownloader resuming download at "
+                            + partialDownload.getLength() + " bytes.");
+                } else if (statusCode >= HttpURLConnection.HTTP_OK
+                        && statusCode < HttpURLConnection.HTTP_MULT_CHOICE) {
+                    String validator = urlConnection.getHeaderField(ETAG_HEADER);
+                    if (validator == null) {
+                        validator = urlConnection.getHeaderField(LAST_MODIFIED_HEADER);
+                    }
+                    partialDownload.restart(validator, urlConnection.getContentLength());
+                } else {
                     MoPubLog.d("VideoDownloader encountered unexpected statusCode: " +
                             statusCode);
+                    if (statusCode == HTTP_RANGE_NOT_SATISFIABLE) {
+                        partialDownload.delete();
+                    }
                     return false;
                 }
 
                 // Check video size below maximum
-                int contentLength = urlConnection.getContentLength();
+                final long contentLength = partialDownload.getTotalLength();
                 if (contentLength > MAX_VIDEO_SIZE) {
                     MoPubLog.d(String.format(
                             "VideoDownloader encountered video larger than disk cap. " +
                                     "(%d bytes / %d maximum).",
                             contentLength,
                             MAX_VIDEO_SIZE));
+                    partialDownload.delete();
                     return false;
                 }
 
-                boolean diskPutResult = CacheService.putToDiskCache(videoUrl, inputStream);
-                return diskPutResult;
-            } catch (Exception e) {
-                MoPubLog.d("VideoDownloader task threw an internal exception.", e);
-                return false;
+                inputStream = urlConnection.getInputStream();
+                final byte[] chunk = new byte[CHUNK_SIZE];
+                while (!isCancelled()) {
+                    final long startMillis = SystemClock.elapsedRealtime();
+                    final int chunkLength = readChunk(inputStream, chunk);
+                    if (chunkLength <= 0) {
+                        break;
+                    }
+                    BandwidthEstimator.getInstance().addTransfer(chunkLength,
+                            SystemClock.elapsedRealtime() - startMillis);
+                    if (partialDownload.getLength() + chunkLength > MAX_VIDEO_SIZE) {
+                        MoPubLog.d("VideoDownloader encountered video larger than disk cap.");
+                        partialDownload.delete();
+                        return false;
+                    }
+                    partialDownload.append(chunk, chunkLength);
+                }
+
+                if (isCancelled()) {
+                    return false;
+                }
+                if (contentLength != PartialDownload.UNKNOWN_LENGTH
+                        && partialDownload.getLength() != contentLength) {
+                    MoPubLog.d("VideoDownloader connection ended before the whole video was "
+                            + "downloaded.");
+                    return false;
+                }
+                return true;
             } finally {
                 Streams.closeStream(inputStream);
                 if (urlConnection != null) {
@@ -153,6 +340,7 @@ public class VideoDownloader {
             }
 
             sDownloaderTasks.remove(mWeakSelf);
+            onFinished();
 
             if (success == null) {
                 mListener.onComplete(false);
@@ -166,8 +354,67 @@ public class VideoDownloader {
         protected void onCancelled() {
             MoPubLog.d("VideoDownloader task was cancelled.");
             sDownloaderTasks.remove(mWeakSelf);
+            onFinished();
             mListener.onComplete(false);
         }
+
+        private void onFinished() {
+            if (mRunningUrl != null) {
+                sRunningUrls.remove(mRunningUrl);
+                mRunningUrl = null;
+                executePendingDownloads();
+            }
+        }
+    }
+
+    /**
+     * Reads from the stream until the chunk is full or the stream ends.
+     *
+     * @return The number of bytes read, or 0 if the stream has ended.
+     */
+    private static int readChunk(@NonNull final InputStream inputStream,
+            @NonNull final byte[] chunk) throws IOException {
+        int length = 0;
+        while (length < chunk.length) {
+            final int read = inputStream.read(chunk, length, chunk.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Parses a Content-Range header such as "bytes 100-199/200".
+     *
+     * @return The first byte and the total length, which is {@link PartialDownload#UNKNOWN_LENGTH}
+     * if the server didn't say, or null if the header can't be parsed.
+     */
+    @VisibleForTesting
+    @Nullable
+    static long[] parseContentRange(@Nullable final String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+
+        final int dash = contentRange.indexOf('-');
+        final int slash = contentRange.indexOf('/');
+        if (dash < 0 || slash < dash) {
+            return null;
+        }
+
+        try {
+            final long first =
+                    Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+            final String total = contentRange.substring(slash + 1).trim();
+            return new long[] {
+                    first,
+                    "*".equals(total) ? PartialDownload.UNKNOWN_LENGTH : Long.parseLong(total)
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     @Deprecated
@@ -180,5 +427,7 @@ public class VideoDownloader {
     @VisibleForTesting
     public static void clearDownloaderTasks() {
         sDownloaderTasks.clear();
+        sPendingDownloads.clear();
+        sRunningUrls.clear();
     }
 }
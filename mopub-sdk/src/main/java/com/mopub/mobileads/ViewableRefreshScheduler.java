@@ -0,0 +1,173 @@
+package com.mopub.mobileads;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.TimerWheel;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.VisibilityTracker;
+import com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
+
+import java.util.List;
+
+/**
+ * Refreshes a banner once it has been viewable for the refresh interval, instead of once the
+ * refresh interval has passed. Time spent off screen, eg. scrolled out of a ScrollView or a
+ * RecyclerView, doesn't count towards the interval, so banners nobody can see don't make ad
+ * requests. Viewable time adds up across the times the banner goes on and off screen.
+ *
+ * Each time a refresh interval passes while the banner hasn't been viewable long enough, a
+ * refresh that a plain timer would have made is counted as avoided.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+class ViewableRefreshScheduler {
+    static final int MIN_VIEWABLE_PERCENT = 50;
+
+    @NonNull private final View mView;
+    @NonNull private final Runnable mRefreshRunnable;
+    @NonNull private final VisibilityTracker mVisibilityTracker;
+    @NonNull private final Runnable mViewableTimeRunnable;
+    @NonNull private final Runnable mIntervalRunnable;
+
+    @Nullable private TimerWheel.Timer mViewableTimeTimer;
+    @Nullable private TimerWheel.Timer mIntervalTimer;
+    private boolean mIsScheduled;
+    private boolean mIsViewable;
+    private long mIntervalMillis;
+    private long mViewableMillis;
+    private long mViewableSinceMillis;
+    private long mAvoidedRefreshCount;
+
+    ViewableRefreshScheduler(@NonNull final View view, @NonNull final Runnable refreshRunnable) {
+        this(view, refreshRunnable, new VisibilityTracker(view.getContext()));
+    }
+
+    @VisibleForTesting
+    ViewableRefreshScheduler(@NonNull final View view, @NonNull final Runnable refreshRunnable,
+            @NonNull final VisibilityTracker visibilityTracker) {
+        Preconditions.checkNotNull(view);
+        Preconditions.checkNotNull(refreshRunnable);
+        Preconditions.checkNotNull(visibilityTracker);
+
+        mView = view;
+        mRefreshRunnable = refreshRunnable;
+        mVisibilityTracker = visibilityTracker;
+        mViewableTimeRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mViewableTimeTimer = null;
+                refresh();
+            }
+        };
+        mIntervalRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mIntervalTimer = null;
+                if (getViewableMillis() >= mIntervalMillis) {
+                    refresh();
+                    return;
+                }
+
+                mAvoidedRefreshCount++;
+                mIntervalTimer = TimerWheel.getInstance().schedule(mIntervalRunnable,
+                        mIntervalMillis);
+            }
+        };
+
+        mVisibilityTracker.setVisibilityTrackerListener(new VisibilityTrackerListener() {
+            @Override
+            public void onVisibilityChanged(final List<View> visibleViews,
+                    final List<View> invisibleViews) {
+                if (visibleViews.contains(mView)) {
+                    setViewable(true);
+                } else if (invisibleViews.contains(mView)) {
+                    setViewable(false);
+                }
+            }
+        });
+        mVisibilityTracker.addView(mView, MIN_VIEWABLE_PERCENT);
+    }
+
+    /**
+     * Refreshes once the banner has been viewable for intervalMillis from now, replacing any
+     * refresh that was scheduled.
+     */
+    void schedule(final long intervalMillis) {
+        cancel();
+
+        mIsScheduled = true;
+        mIntervalMillis = intervalMillis;
+        mViewableMillis = 0;
+        mIntervalTimer = TimerWheel.getInstance().schedule(mIntervalRunnable, intervalMillis);
+        if (mIsViewable) {
+            startViewableTime();
+        }
+    }
+
+    void cancel() {
+        mIsScheduled = false;
+        if (mViewableTimeTimer != null) {
+            mViewableTimeTimer.cancel();
+            mViewableTimeTimer = null;
+        }
+        if (mIntervalTimer != null) {
+            mIntervalTimer.cancel();
+            mIntervalTimer = null;
+        }
+    }
+
+    /**
+     * The number of refreshes a timer that ignores visibility would have made while the banner
+     * wasn't viewable.
+     */
+    long getAvoidedRefreshCount() {
+        return mAvoidedRefreshCount;
+    }
+
+    void destroy() {
+        cancel();
+        mVisibilityTracker.destroy();
+    }
+
+    private void setViewable(final boolean isViewable) {
+        if (mIsViewable == isViewable) {
+            return;
+        }
+
+        mIsViewable = isViewable;
+        if (!mIsScheduled) {
+            return;
+        }
+
+        if (isViewable) {
+            startViewableTime();
+        } else {
+            mViewableMillis += SystemClock.uptimeMillis() - mViewableSinceMillis;
+            if (mViewableTimeTimer != null) {
+                mViewableTimeTimer.cancel();
+                mViewableTimeTimer = null;
+            }
+        }
+    }
+
+    private void startViewableTime() {
+        mViewableSinceMillis = SystemClock.uptimeMillis();
+        mViewableTimeTimer = TimerWheel.getInstance().schedule(mViewableTimeRunnable,
+                mIntervalMillis - mViewableMillis);
+    }
+
+    private long getViewableMillis() {
+        return mIsViewable
+                ? mViewableMillis + SystemClock.uptimeMillis() - mViewableSinceMillis
+                : mViewableMillis;
+    }
+
+    private void refresh() {
+        cancel();
+        mRefreshRunnable.run();
+    }
+}
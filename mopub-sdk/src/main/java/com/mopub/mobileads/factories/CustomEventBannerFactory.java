@@ -1,9 +1,8 @@
 package com.mopub.mobileads.factories;
 
+import com.mopub.common.CustomEventRegistry;
 import com.mopub.mobileads.CustomEventBanner;
 
-import java.lang.reflect.Constructor;
-
 public class CustomEventBannerFactory {
     private static CustomEventBannerFactory instance = new CustomEventBannerFactory();
 
@@ -17,10 +16,6 @@ public class CustomEventBannerFactory {
     }
 
     protected CustomEventBanner internalCreate(String className) throws Exception {
-        Class<? extends CustomEventBanner> bannerClass = Class.forName(className)
-                .asSubclass(CustomEventBanner.class);
-        Constructor<?> bannerConstructor = bannerClass.getDeclaredConstructor((Class[]) null);
-        bannerConstructor.setAccessible(true);
-        return (CustomEventBanner) bannerConstructor.newInstance();
+        return CustomEventRegistry.create(className, CustomEventBanner.class);
     }
 }
@@ -1,9 +1,8 @@
 package com.mopub.mobileads.factories;
 
+import com.mopub.common.CustomEventRegistry;
 import com.mopub.mobileads.CustomEventInterstitial;
 
-import java.lang.reflect.Constructor;
-
 public class CustomEventInterstitialFactory {
     private static CustomEventInterstitialFactory instance = new CustomEventInterstitialFactory();
 
@@ -17,10 +16,6 @@ public class CustomEventInterstitialFactory {
     }
 
     protected CustomEventInterstitial internalCreate(String className) throws Exception {
-        Class<? extends CustomEventInterstitial> interstitialClass = Class.forName(className)
-                .asSubclass(CustomEventInterstitial.class);
-        Constructor<?> interstitialConstructor = interstitialClass.getDeclaredConstructor((Class[]) null);
-        interstitialConstructor.setAccessible(true);
-        return (CustomEventInterstitial) interstitialConstructor.newInstance();
+        return CustomEventRegistry.create(className, CustomEventInterstitial.class);
     }
 }
@@ -0,0 +1,24 @@
+package com.mopub.mobileads.factories;
+
+import android.app.Activity;
+
+import com.mopub.common.VisibleForTesting;
+import com.mopub.mobileads.MoPubInterstitial;
+
+public class MoPubInterstitialFactory {
+    protected static MoPubInterstitialFactory instance = new MoPubInterstitialFactory();
+
+    @VisibleForTesting
+    @Deprecated
+    public static void setInstance(MoPubInterstitialFactory factory) {
+        instance = factory;
+    }
+
+    public static MoPubInterstitial create(Activity activity, String adUnitId) {
+        return instance.internalCreate(activity, adUnitId);
+    }
+
+    protected MoPubInterstitial internalCreate(Activity activity, String adUnitId) {
+        return new MoPubInterstitial(activity, adUnitId);
+    }
+}
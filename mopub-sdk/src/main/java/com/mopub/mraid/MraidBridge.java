@@ -224,7 +224,7 @@ public class MraidBridge {
                     + "attached:\n\t" + javascript);
             return;
         }
-        MoPubLog.v("Injecting Javascript into MRAID WebView:\n\t" + javascript);
+        MoPubLog.v("Injecting Javascript into MRAID WebView:\n\t{}", javascript);
         mMraidWebView.loadUrl("javascript:" + javascript);
     }
 
@@ -28,8 +28,10 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
 import com.mopub.common.util.DeviceUtils;
 import com.mopub.common.util.Intents;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.common.util.Streams;
 import com.mopub.common.util.Utils;
 import com.mopub.common.util.VersionCode;
@@ -418,7 +420,8 @@ public class MraidNativeCommandHandler {
                                 "downloading and saving image file."));
                     }
                 });
-        AsyncTasks.safeExecuteOnExecutor(downloadImageAsyncTask, uriString);
+        AsyncTasks.safeExecuteOnExecutor(Lane.NETWORK, Priority.USER_FACING,
+                downloadImageAsyncTask, uriString);
     }
 
     private void showUserDialog(final Context context, final String imageUrl,
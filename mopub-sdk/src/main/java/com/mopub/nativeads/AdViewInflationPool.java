@@ -0,0 +1,343 @@
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Xml;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Keeps ad views for a single ad layout inflated ahead of time.
+ *
+ * Inflating an ad layout on the main thread the first time an ad row scrolls into view can drop
+ * frames. This pool inflates views on a background thread, and looks up their view holders there
+ * as well, so that {@link #obtainView} can usually hand out a ready view. When a pooled view is
+ * handed out its view holder is put in the renderer's view holder map, so the renderer doesn't
+ * have to look up the views on first bind.
+ *
+ * The pool is sized by the observed ad density: the number of ad views requested during the last
+ * {@link #DENSITY_WINDOW_MILLIS}, between 1 and {@link #MAX_POOL_SIZE}. Views can only be reused
+ * with the Context they were inflated with, so the pool is emptied whenever ad views are requested
+ * for a different Context.
+ *
+ * Pooled views hold on to their Context, so the pool must be emptied with {@link #clear()} when
+ * the views are no longer needed. It is also emptied once the Activity they were inflated with is
+ * finishing.
+ *
+ * Views are inflated in the background without a parent, so that they aren't attached to the
+ * hierarchy off the main thread. The layout params of the root view are generated from the layout
+ * in the background as well, for the type of parent that ad views were last requested for, and
+ * handed out with the view. Only views pooled before the parent type changed have theirs
+ * generated on the main thread.
+ *
+ * All methods must be called on the main thread.
+ */
+class AdViewInflationPool<T> {
+    @VisibleForTesting static final int MAX_POOL_SIZE = 4;
+    @VisibleForTesting static final int DENSITY_WINDOW_MILLIS = 2000;
+
+    /**
+     * Describes the ad layout to inflate and how to find its views.
+     */
+    interface AdLayout<T> {
+        int getLayoutId();
+
+        /**
+         * Looks up the views of an inflated ad layout. Called on a background thread for
+         * pre-inflated views, so it must not touch anything but the given view.
+         */
+        @NonNull
+        T createViewHolder(@NonNull View view);
+    }
+
+    private static class PooledView<T> {
+        @NonNull final View mView;
+        @NonNull final T mViewHolder;
+        // The layout params of the view's root, generated for a parent of this class.
+        @Nullable final ViewGroup.LayoutParams mLayoutParams;
+        @Nullable final Class<? extends ViewGroup> mLayoutParentClass;
+
+        PooledView(@NonNull final View view, @NonNull final T viewHolder,
+                @Nullable final ViewGroup.LayoutParams layoutParams,
+                @Nullable final Class<? extends ViewGroup> layoutParentClass) {
+            mView = view;
+            mViewHolder = viewHolder;
+            mLayoutParams = layoutParams;
+            mLayoutParentClass = layoutParentClass;
+        }
+    }
+
+    @NonNull private final AdLayout<T> mAdLayout;
+    @NonNull private final Map<View, T> mViewHolderMap;
+    @NonNull private final ArrayDeque<PooledView<T>> mPooledViews;
+
+    // Times of the most recent ad view requests, used to estimate the ad density.
+    @NonNull private final long[] mRequestTimes;
+    private int mRequestCount;
+
+    @Nullable private WeakReference<Context> mContextRef;
+    // The parent ad views were last requested for. Views inflated in the background get layout
+    // params for this type of parent.
+    @Nullable private WeakReference<ViewGroup> mParentRef;
+
+    // Incremented whenever the pool is emptied, so that inflations started before then are dropped.
+    private int mGeneration;
+    private int mPendingInflationCount;
+    private boolean mIsAsyncInflationSupported;
+    private int mMainThreadLayoutParamsCount;
+
+    AdViewInflationPool(@NonNull final AdLayout<T> adLayout,
+            @NonNull final Map<View, T> viewHolderMap) {
+        Preconditions.checkNotNull(adLayout);
+        Preconditions.checkNotNull(viewHolderMap);
+
+        mAdLayout = adLayout;
+        mViewHolderMap = viewHolderMap;
+        mPooledViews = new ArrayDeque<PooledView<T>>(MAX_POOL_SIZE);
+        mRequestTimes = new long[MAX_POOL_SIZE];
+        mIsAsyncInflationSupported = true;
+    }
+
+    /**
+     * Returns a pre-inflated ad view if one is ready, and inflates one otherwise. Then starts
+     * inflating views in the background until the pool is back to its target size.
+     */
+    @NonNull
+    View obtainView(@NonNull final Context context, @Nullable final ViewGroup parent) {
+        Preconditions.checkNotNull(context);
+
+        recordRequest();
+        useContext(context);
+        mParentRef = parent == null ? null : new WeakReference<ViewGroup>(parent);
+
+        final PooledView<T> pooledView = mPooledViews.poll();
+        final View view;
+        if (pooledView != null) {
+            view = pooledView.mView;
+            final Class<? extends ViewGroup> parentClass =
+                    parent == null ? FrameLayout.class : parent.getClass();
+            if (pooledView.mLayoutParams != null
+                    && parentClass.equals(pooledView.mLayoutParentClass)) {
+                view.setLayoutParams(pooledView.mLayoutParams);
+            } else {
+                mMainThreadLayoutParamsCount++;
+                view.setLayoutParams(generateLayoutParams(context, mAdLayout.getLayoutId(),
+                        parent));
+            }
+            mViewHolderMap.put(view, pooledView.mViewHolder);
+        } else {
+            view = LayoutInflater.from(context).inflate(mAdLayout.getLayoutId(), parent, false);
+        }
+
+        fill();
+        return view;
+    }
+
+    /**
+     * Starts inflating ad views in the background, so that they are ready before the first ad row
+     * is shown.
+     */
+    void preInflate(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        useContext(context);
+        fill();
+    }
+
+    /**
+     * Drops all pooled views, and any views being inflated, so that their Context can be
+     * collected.
+     */
+    void clear() {
+        mPooledViews.clear();
+        mPendingInflationCount = 0;
+        mGeneration++;
+        mContextRef = null;
+        mParentRef = null;
+    }
+
+    private void useContext(@NonNull final Context context) {
+        final Context currentContext = mContextRef == null ? null : mContextRef.get();
+        if (currentContext == context) {
+            return;
+        }
+
+        clear();
+        mContextRef = new WeakReference<Context>(context);
+    }
+
+    private void fill() {
+        if (!mIsAsyncInflationSupported) {
+            return;
+        }
+
+        final Context context = mContextRef == null ? null : mContextRef.get();
+        if (context == null || isFinishing(context)) {
+            clear();
+            return;
+        }
+
+        final ViewGroup parent = mParentRef == null ? null : mParentRef.get();
+        final int targetSize = getTargetPoolSize();
+        while (mPooledViews.size() + mPendingInflationCount < targetSize) {
+            mPendingInflationCount++;
+            AsyncTasks.safeExecuteOnExecutor(Lane.CPU, Priority.PREFETCH,
+                    new InflateTask<T>(this, mGeneration, LayoutInflater.from(context), parent));
+        }
+    }
+
+    private void onInflationComplete(final int generation,
+            @Nullable final PooledView<T> pooledView) {
+        if (generation != mGeneration) {
+            return;
+        }
+
+        final Context context = mContextRef == null ? null : mContextRef.get();
+        if (context == null || isFinishing(context)) {
+            clear();
+            return;
+        }
+
+        mPendingInflationCount--;
+        if (pooledView == null) {
+            // This layout can't be inflated off the main thread, e.g. because one of its views
+            // creates a Handler. Fall back to inflating on demand.
+            mIsAsyncInflationSupported = false;
+            mPooledViews.clear();
+            return;
+        }
+        mPooledViews.add(pooledView);
+    }
+
+    /**
+     * Generates the layout params of the layout's root view for the given parent, the way
+     * {@link LayoutInflater} does when it inflates with a parent. Only reads the parent, so it
+     * can be called in the background.
+     */
+    @Nullable
+    private static ViewGroup.LayoutParams generateLayoutParams(@NonNull final Context context,
+            final int layoutId, @Nullable final ViewGroup parent) {
+        final XmlResourceParser parser = context.getResources().getLayout(layoutId);
+        try {
+            int type = parser.next();
+            while (type != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT) {
+                type = parser.next();
+            }
+            if (type != XmlPullParser.START_TAG) {
+                return null;
+            }
+
+            final ViewGroup layoutParent = parent != null ? parent : new FrameLayout(context);
+            return layoutParent.generateLayoutParams(Xml.asAttributeSet(parser));
+        } catch (XmlPullParserException e) {
+            MoPubLog.d("Unable to read ad view layout params.", e);
+            return null;
+        } catch (IOException e) {
+            MoPubLog.d("Unable to read ad view layout params.", e);
+            return null;
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static boolean isFinishing(@NonNull final Context context) {
+        return context instanceof Activity && ((Activity) context).isFinishing();
+    }
+
+    private void recordRequest() {
+        mRequestTimes[mRequestCount % mRequestTimes.length] = SystemClock.uptimeMillis();
+        mRequestCount++;
+    }
+
+    /**
+     * The number of ad views requested during the last {@link #DENSITY_WINDOW_MILLIS}, between 1
+     * and {@link #MAX_POOL_SIZE}.
+     */
+    @VisibleForTesting
+    int getTargetPoolSize() {
+        final long now = SystemClock.uptimeMillis();
+        final int recordedCount = Math.min(mRequestCount, mRequestTimes.length);
+        int recentCount = 0;
+        for (int i = 0; i < recordedCount; i++) {
+            if (now - mRequestTimes[i] < DENSITY_WINDOW_MILLIS) {
+                recentCount++;
+            }
+        }
+        return Math.max(recentCount, 1);
+    }
+
+    @VisibleForTesting
+    int getPooledViewCount() {
+        return mPooledViews.size();
+    }
+
+    @VisibleForTesting
+    boolean isAsyncInflationSupported() {
+        return mIsAsyncInflationSupported;
+    }
+
+    @VisibleForTesting
+    int getMainThreadLayoutParamsCount() {
+        return mMainThreadLayoutParamsCount;
+    }
+
+    private static class InflateTask<T> extends AsyncTask<Void, Void, PooledView<T>> {
+        @NonNull private final AdViewInflationPool<T> mPool;
+        @NonNull private final AdLayout<T> mAdLayout;
+        private final int mGeneration;
+        @NonNull private final LayoutInflater mLayoutInflater;
+        @Nullable private final ViewGroup mParent;
+
+        InflateTask(@NonNull final AdViewInflationPool<T> pool, final int generation,
+                @NonNull final LayoutInflater layoutInflater, @Nullable final ViewGroup parent) {
+            mPool = pool;
+            mAdLayout = pool.mAdLayout;
+            mGeneration = generation;
+            mLayoutInflater = layoutInflater;
+            mParent = parent;
+        }
+
+        @Override
+        @Nullable
+        protected PooledView<T> doInBackground(final Void... voids) {
+            try {
+                final int layoutId = mAdLayout.getLayoutId();
+                final View view = mLayoutInflater.inflate(layoutId, null, false);
+                final ViewGroup.LayoutParams layoutParams = generateLayoutParams(
+                        mLayoutInflater.getContext(), layoutId, mParent);
+                return new PooledView<T>(view, mAdLayout.createViewHolder(view), layoutParams,
+                        mParent == null ? FrameLayout.class : mParent.getClass());
+            } catch (RuntimeException e) {
+                MoPubLog.d("Unable to inflate ad view in the background.", e);
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(@Nullable final PooledView<T> pooledView) {
+            mPool.onInflationComplete(mGeneration, pooledView);
+        }
+    }
+}
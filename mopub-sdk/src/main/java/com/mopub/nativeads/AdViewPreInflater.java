@@ -0,0 +1,18 @@
+package com.mopub.nativeads;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+/**
+ * Implemented by ad renderers that can inflate ad views ahead of time. The stream ad placer
+ * calls this when it places an ad, before the adapter asks for the ad view.
+ */
+interface AdViewPreInflater {
+    void preInflateAdViews(@NonNull Context context);
+
+    /**
+     * Drops the ad views inflated ahead of time, so that the Context they were inflated with can
+     * be collected. Called when the stream ad placer clears its ads or is destroyed.
+     */
+    void releasePreInflatedAdViews();
+}
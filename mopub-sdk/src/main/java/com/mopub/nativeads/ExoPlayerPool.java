@@ -0,0 +1,262 @@
+package com.mopub.nativeads;
+
+import android.support.annotation.NonNull;
+
+import com.google.android.exoplayer.ExoPlayer;
+import com.google.android.exoplayer.upstream.Allocation;
+import com.google.android.exoplayer.upstream.Allocator;
+import com.mopub.common.MemoryGovernor;
+import com.mopub.common.MemoryGovernor.MemoryConsumer;
+import com.mopub.common.MemoryGovernor.TrimLevel;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.nativeads.NativeVideoController.ExoPlayerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps a few stopped {@link ExoPlayer}s around so that native video ads scrolling into view can
+ * reuse them instead of starting new ones, and hands out buffer allocators that share one pool of
+ * buffer segments.
+ *
+ * Each video gets its own allocator from {@link #newAllocator()}, which limits what that video
+ * buffers on its own, so that one buffering video can't hold back the loading of another. The
+ * segments released by any video are kept for the next one, up to {@link #getBufferBudget()}.
+ * Past the budget for all videos together, a video only keeps loading while it has less than
+ * {@link #GUARANTEED_SOURCE_BUFFER_SIZE} buffered, so the video on screen always gets some.
+ *
+ * Nothing is lost by trimming the pool, so the {@link MemoryGovernor} trims it before anything
+ * else.
+ *
+ * Methods other than those of the allocators must be called on the main thread.
+ */
+public class ExoPlayerPool implements MemoryConsumer {
+    @VisibleForTesting static final int MAX_IDLE_PLAYERS = 2;
+
+    @VisibleForTesting static final int BUFFER_SEGMENT_SIZE = 64 * 1024; // 64 kB
+    // Enough for two videos on screen to buffer at once.
+    private static final int BUFFER_SEGMENT_COUNT = 64; // 64 kB * 64 ~= 4 MB
+    private static final int SOURCE_BUFFER_SIZE = BUFFER_SEGMENT_SIZE * BUFFER_SEGMENT_COUNT / 2;
+    @VisibleForTesting static final int GUARANTEED_SOURCE_BUFFER_SIZE = SOURCE_BUFFER_SIZE / 2;
+
+    @NonNull private static final ExoPlayerPool sInstance = new ExoPlayerPool();
+
+    // Most recently recycled last.
+    @NonNull private final Deque<ExoPlayer> mIdlePlayers = new ArrayDeque<ExoPlayer>();
+
+    // Guards the buffer segments, which are allocated and released on the players' loader threads.
+    @NonNull private final Object mBufferLock = new Object();
+    @NonNull private final Deque<Allocation> mFreeAllocations = new ArrayDeque<Allocation>();
+    private int mAllocatedBytes;
+
+    @NonNull
+    static ExoPlayerPool getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        sInstance.clear();
+    }
+
+    @VisibleForTesting
+    ExoPlayerPool() {
+    }
+
+    /**
+     * Returns an idle player, or a new one from the factory if there aren't any. The player must
+     * be given back with {@link #recycle(ExoPlayer)} when it is no longer needed.
+     */
+    @NonNull
+    ExoPlayer acquire(@NonNull final ExoPlayerFactory exoPlayerFactory) {
+        Preconditions.checkNotNull(exoPlayerFactory);
+
+        final ExoPlayer exoPlayer = mIdlePlayers.pollLast();
+        if (exoPlayer != null) {
+            return exoPlayer;
+        }
+        return exoPlayerFactory.newInstance(2, 1000, 5000);
+    }
+
+    /**
+     * Stops the player and keeps it for reuse, or releases it if enough players are idle already.
+     * The caller must have removed its listeners from the player.
+     */
+    void recycle(@NonNull final ExoPlayer exoPlayer) {
+        Preconditions.checkNotNull(exoPlayer);
+
+        if (mIdlePlayers.contains(exoPlayer)) {
+            return;
+        }
+
+        exoPlayer.stop();
+        if (mIdlePlayers.size() < MAX_IDLE_PLAYERS) {
+            // So the next video starts from the beginning.
+            exoPlayer.seekTo(0);
+            mIdlePlayers.addLast(exoPlayer);
+        } else {
+            exoPlayer.release();
+        }
+    }
+
+    /**
+     * Returns a new allocator for a single video's sample source.
+     */
+    @NonNull
+    Allocator newAllocator() {
+        return new SourceAllocator(this);
+    }
+
+    /**
+     * The most bytes that a single video may have buffered. Sample sources should request this
+     * buffer size.
+     */
+    int getSourceBufferSize() {
+        return SOURCE_BUFFER_SIZE;
+    }
+
+    /**
+     * The most bytes that all the videos together may have buffered once each has buffered
+     * {@link #GUARANTEED_SOURCE_BUFFER_SIZE}.
+     */
+    int getBufferBudget() {
+        return BUFFER_SEGMENT_SIZE * BUFFER_SEGMENT_COUNT;
+    }
+
+    /**
+     * The bytes of the free buffer segments. Segments that videos are buffering into can't be
+     * trimmed, so they aren't counted, and idle players hold no buffers of their own.
+     */
+    @Override
+    public long getFootprintBytes() {
+        synchronized (mBufferLock) {
+            return mFreeAllocations.size() * BUFFER_SEGMENT_SIZE;
+        }
+    }
+
+    @Override
+    public void trimMemory(@NonNull final TrimLevel level) {
+        clear();
+    }
+
+    @VisibleForTesting
+    int getIdlePlayerCount() {
+        return mIdlePlayers.size();
+    }
+
+    @VisibleForTesting
+    int getFreeAllocationCount() {
+        synchronized (mBufferLock) {
+            return mFreeAllocations.size();
+        }
+    }
+
+    /**
+     * Releases all idle players and the free buffer segments.
+     */
+    void clear() {
+        for (final ExoPlayer exoPlayer : mIdlePlayers) {
+            exoPlayer.release();
+        }
+        mIdlePlayers.clear();
+        synchronized (mBufferLock) {
+            mFreeAllocations.clear();
+        }
+    }
+
+    @NonNull
+    private Allocation allocate(@NonNull final SourceAllocator sourceAllocator) {
+        synchronized (mBufferLock) {
+            Allocation allocation = mFreeAllocations.pollLast();
+            if (allocation == null) {
+                allocation = new Allocation(new byte[BUFFER_SEGMENT_SIZE], 0);
+            }
+            sourceAllocator.mAllocatedBytes += BUFFER_SEGMENT_SIZE;
+            mAllocatedBytes += BUFFER_SEGMENT_SIZE;
+            return allocation;
+        }
+    }
+
+    private void release(@NonNull final SourceAllocator sourceAllocator,
+            @NonNull final Allocation allocation) {
+        synchronized (mBufferLock) {
+            sourceAllocator.mAllocatedBytes -= BUFFER_SEGMENT_SIZE;
+            mAllocatedBytes -= BUFFER_SEGMENT_SIZE;
+            if (mAllocatedBytes + mFreeAllocations.size() * BUFFER_SEGMENT_SIZE
+                    < getBufferBudget()) {
+                mFreeAllocations.addLast(allocation);
+            }
+            mBufferLock.notifyAll();
+        }
+    }
+
+    private void blockWhileOverBudget(@NonNull final SourceAllocator sourceAllocator,
+            final int limit) throws InterruptedException {
+        synchronized (mBufferLock) {
+            while (sourceAllocator.mAllocatedBytes > limit
+                    || (mAllocatedBytes > getBufferBudget()
+                            && sourceAllocator.mAllocatedBytes > GUARANTEED_SOURCE_BUFFER_SIZE)) {
+                mBufferLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Allocates segments from the pool for a single video, and tracks how much that video has
+     * buffered.
+     */
+    @VisibleForTesting
+    static class SourceAllocator implements Allocator {
+        @NonNull private final ExoPlayerPool mPool;
+        // Guarded by the pool's buffer lock.
+        private int mAllocatedBytes;
+
+        SourceAllocator(@NonNull final ExoPlayerPool pool) {
+            mPool = pool;
+        }
+
+        @Override
+        public Allocation allocate() {
+            return mPool.allocate(this);
+        }
+
+        @Override
+        public void release(final Allocation allocation) {
+            mPool.release(this, allocation);
+        }
+
+        /**
+         * Does nothing, since freed segments are shared with the other videos. The pool drops them
+         * when it is trimmed.
+         */
+        @Override
+        public void trim(final int targetSize) {
+        }
+
+        /**
+         * Blocks while this video has more than the limit buffered, or while all the videos
+         * together are over the pool's budget and this video has its guaranteed share.
+         */
+        @Override
+        public void blockWhileTotalBytesAllocatedExceeds(final int limit)
+                throws InterruptedException {
+            mPool.blockWhileOverBudget(this, limit);
+        }
+
+        /**
+         * The bytes this video has buffered.
+         */
+        @Override
+        public int getTotalBytesAllocated() {
+            synchronized (mPool.mBufferLock) {
+                return mAllocatedBytes;
+            }
+        }
+
+        @Override
+        public int getIndividualAllocationLength() {
+            return BUFFER_SEGMENT_SIZE;
+        }
+    }
+}
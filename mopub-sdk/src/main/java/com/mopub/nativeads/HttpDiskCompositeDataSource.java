@@ -1,6 +1,7 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -17,6 +18,7 @@ import com.mopub.common.event.Event;
 import com.mopub.common.event.EventDetails;
 import com.mopub.common.event.MoPubEvents;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.network.BandwidthEstimator;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -60,6 +62,12 @@ public class HttpDiskCompositeDataSource implements DataSource {
      */
     @VisibleForTesting static final int BLOCK_SIZE = 500 * 1024;
 
+    /**
+     * Network reads are added up until they reach this many bytes before they are added to the
+     * bandwidth estimate, since a single read is usually too quick to time.
+     */
+    @VisibleForTesting static final int BANDWIDTH_SAMPLE_SIZE = 256 * 1024;
+
     /**
      * The network data source
      */
@@ -133,6 +141,13 @@ public class HttpDiskCompositeDataSource implements DataSource {
      */
     private boolean mHasLoggedDownloadStart;
 
+    /**
+     * Network bytes read, and the time spent reading them, since they were last added to the
+     * {@link BandwidthEstimator}.
+     */
+    private int mUnreportedNetworkBytes;
+    private long mUnreportedNetworkMillis;
+
     public HttpDiskCompositeDataSource(@NonNull final Context context,
             @NonNull final String userAgent, @Nullable final EventDetails eventDetails) {
         this(context, userAgent, eventDetails,
@@ -303,6 +318,9 @@ public class HttpDiskCompositeDataSource implements DataSource {
         mStartInDataBlock = 0;
         mExpectedFileLength = null;
         mIsDirty = false;
+        // Whatever is left is too small to be a good sample.
+        mUnreportedNetworkBytes = 0;
+        mUnreportedNetworkMillis = 0;
     }
 
     private static void writeIntervalsToDisk(@NonNull final TreeSet<IntInterval> intervals,
@@ -406,8 +424,13 @@ public class HttpDiskCompositeDataSource implements DataSource {
         }
 
         // Read from network and store to disk
+        final long networkStartMillis = SystemClock.elapsedRealtime();
         int bytesReadFromNetwork = mHttpDataSource.read(buffer, offset + bytesReadFromDisk,
                 bytesToReadFromNetwork);
+        if (bytesReadFromNetwork > 0) {
+            reportNetworkRead(bytesReadFromNetwork,
+                    SystemClock.elapsedRealtime() - networkStartMillis);
+        }
 
         final int bytesAvailableInCurrentBlockForNetwork =
                 BLOCK_SIZE - mStartInDataBlock - mDataBlockOffset;
@@ -440,6 +463,17 @@ public class HttpDiskCompositeDataSource implements DataSource {
         return bytesReadFromNetwork + bytesReadFromDisk;
     }
 
+    private void reportNetworkRead(final int bytes, final long elapsedMillis) {
+        mUnreportedNetworkBytes += bytes;
+        mUnreportedNetworkMillis += elapsedMillis;
+        if (mUnreportedNetworkBytes >= BANDWIDTH_SAMPLE_SIZE) {
+            BandwidthEstimator.getInstance().addTransfer(mUnreportedNetworkBytes,
+                    mUnreportedNetworkMillis);
+            mUnreportedNetworkBytes = 0;
+            mUnreportedNetworkMillis = 0;
+        }
+    }
+
     private static boolean areBytesAvailableInCache(final int farthestContiguousPoint,
             final int startInFile, final int dataBlockOffset) {
         return farthestContiguousPoint > startInFile + dataBlockOffset;
@@ -0,0 +1,373 @@
+package com.mopub.nativeads;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.nativeads.NativeImageHelper.ImageListener;
+import com.mopub.network.MaxWidthImageLoader.DiskCacheImageListener;
+import com.mopub.network.Networking;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.ImageLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precaches the images of a native ad, in parallel and within a deadline.
+ *
+ * Only the images whose type is in the required set have to be cached for the ad to load. The ad
+ * loads as soon as they are, and fails as soon as one of them fails or the deadline passes. Other
+ * images are still loaded in the background, but never hold up or fail the ad. Requests are sent
+ * in the order of {@link ImageType}, so that the most important images get to the network first.
+ *
+ * The latency of every image loaded from the network is recorded per host, so that slow image
+ * servers show up in {@link #getHostLatencyHistograms()}.
+ *
+ * All methods must be called on the main thread.
+ */
+public class ImagePreCacher {
+    /**
+     * The types of native ad images, from most to least important.
+     */
+    public enum ImageType {
+        MAIN_IMAGE,
+        ICON_IMAGE,
+        PRIVACY_INFORMATION_ICON_IMAGE,
+        EXTRA_IMAGE
+    }
+
+    public static final long DEFAULT_DEADLINE_MILLIS = 10000;
+
+    private static final String UNKNOWN_HOST = "unknown";
+    // Hosts beyond this many are dropped, least recently used first, so that ads from many image
+    // servers don't grow the histograms without bound.
+    @VisibleForTesting static final int MAX_HOST_LATENCY_HISTOGRAMS = 32;
+
+    // Only accessed on the main thread.
+    @NonNull private static final Map<String, LatencyHistogram> sHostLatencyHistograms =
+            new LinkedHashMap<String, LatencyHistogram>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, LatencyHistogram> eldest) {
+                    return size() > MAX_HOST_LATENCY_HISTOGRAMS;
+                }
+            };
+
+    public static final class Builder {
+        @NonNull private final Context context;
+        @NonNull private final List<Image> images;
+        @NonNull private Set<ImageType> requiredImageTypes;
+        @NonNull private Map<String, Integer> maxImageWidths;
+        private long deadlineMillis;
+
+        public Builder(@NonNull final Context context) {
+            Preconditions.checkNotNull(context);
+
+            this.context = context;
+            this.images = new ArrayList<Image>();
+            this.requiredImageTypes = EnumSet.of(ImageType.MAIN_IMAGE, ImageType.ICON_IMAGE);
+            this.maxImageWidths = Collections.emptyMap();
+            this.deadlineMillis = DEFAULT_DEADLINE_MILLIS;
+        }
+
+        /**
+         * Adds an image to precache. Null urls are ignored. An empty url for a required image type
+         * fails the ad.
+         */
+        @NonNull
+        public final Builder addImage(@Nullable final String url, @NonNull final ImageType type) {
+            Preconditions.checkNotNull(type);
+
+            if (url != null) {
+                images.add(new Image(url, type));
+            }
+            return this;
+        }
+
+        @NonNull
+        public final Builder addImages(@NonNull final List<String> urls,
+                @NonNull final ImageType type) {
+            Preconditions.checkNotNull(urls);
+
+            for (final String url : urls) {
+                addImage(url, type);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the image types that must be cached for the ad to load. By default, these are the
+         * main image and the icon.
+         */
+        @NonNull
+        public final Builder requiredImageTypes(@NonNull final Set<ImageType> requiredImageTypes) {
+            Preconditions.checkNotNull(requiredImageTypes);
+
+            this.requiredImageTypes = requiredImageTypes.isEmpty()
+                    ? EnumSet.noneOf(ImageType.class)
+                    : EnumSet.copyOf(requiredImageTypes);
+            return this;
+        }
+
+        /**
+         * Sets the width, in pixels, to decode images at, by url, like {@link
+         * NativeImageHelper#preCacheImages(Context, List, Map, ImageListener)}.
+         */
+        @NonNull
+        public final Builder maxImageWidths(@NonNull final Map<String, Integer> maxImageWidths) {
+            Preconditions.checkNotNull(maxImageWidths);
+
+            this.maxImageWidths = new HashMap<String, Integer>(maxImageWidths);
+            return this;
+        }
+
+        /**
+         * Sets how long the required images may take to cache, or 0 for no deadline.
+         */
+        @NonNull
+        public final Builder deadlineMillis(final long deadlineMillis) {
+            Preconditions.checkArgument(deadlineMillis >= 0);
+
+            this.deadlineMillis = deadlineMillis;
+            return this;
+        }
+
+        @NonNull
+        public final ImagePreCacher build() {
+            return new ImagePreCacher(this);
+        }
+    }
+
+    private static class Image {
+        @NonNull final String mUrl;
+        @NonNull final ImageType mType;
+        boolean mIsSettled;
+
+        Image(@NonNull final String url, @NonNull final ImageType type) {
+            mUrl = url;
+            mType = type;
+        }
+    }
+
+    @NonNull private final Context mContext;
+    @NonNull private final List<Image> mImages;
+    @NonNull private final Set<ImageType> mRequiredImageTypes;
+    @NonNull private final Map<String, Integer> mMaxImageWidths;
+    private final long mDeadlineMillis;
+    @NonNull private final Handler mHandler;
+    @NonNull private final Runnable mDeadlineRunnable;
+
+    @Nullable private ImageListener mImageListener;
+    private int mPendingRequiredImageCount;
+    private boolean mIsStarted;
+    private boolean mIsFinished;
+
+    private ImagePreCacher(@NonNull final Builder builder) {
+        mContext = builder.context.getApplicationContext();
+        mImages = new ArrayList<Image>(builder.images);
+        mRequiredImageTypes = builder.requiredImageTypes;
+        mMaxImageWidths = builder.maxImageWidths;
+        mDeadlineMillis = builder.deadlineMillis;
+        mHandler = new Handler();
+        mDeadlineRunnable = new Runnable() {
+            @Override
+            public void run() {
+                onDeadline();
+            }
+        };
+    }
+
+    /**
+     * Starts precaching. The listener is called exactly once, with either {@link
+     * ImageListener#onImagesCached()} or {@link ImageListener#onImagesFailedToCache}.
+     */
+    public void start(@NonNull final ImageListener imageListener) {
+        Preconditions.checkNotNull(imageListener);
+        Preconditions.checkState(!mIsStarted, "ImagePreCacher can only be started once.");
+
+        mIsStarted = true;
+        mImageListener = imageListener;
+
+        for (final Image image : mImages) {
+            if (!isRequired(image)) {
+                continue;
+            }
+            if (TextUtils.isEmpty(image.mUrl)) {
+                finish(false);
+                return;
+            }
+            mPendingRequiredImageCount++;
+        }
+
+        // Collections.sort is stable, so images of the same type keep the order they were added in.
+        Collections.sort(mImages, new Comparator<Image>() {
+            @Override
+            public int compare(final Image lhs, final Image rhs) {
+                return lhs.mType.compareTo(rhs.mType);
+            }
+        });
+
+        if (mDeadlineMillis > 0 && mPendingRequiredImageCount > 0) {
+            mHandler.postDelayed(mDeadlineRunnable, mDeadlineMillis);
+        }
+
+        final ImageLoader imageLoader = Networking.getImageLoader(mContext);
+        for (final Image image : mImages) {
+            if (!TextUtils.isEmpty(image.mUrl)) {
+                load(imageLoader, image);
+            }
+        }
+
+        if (mPendingRequiredImageCount == 0) {
+            finish(true);
+        }
+    }
+
+    private void load(@NonNull final ImageLoader imageLoader, @NonNull final Image image) {
+        final long startMillis = SystemClock.elapsedRealtime();
+        final ImageLoader.ImageListener volleyImageListener = new DiskCacheImageListener() {
+            private boolean mIsDiskCacheHit;
+
+            @Override
+            public void onDiskCacheHit() {
+                mIsDiskCacheHit = true;
+            }
+
+            @Override
+            public void onResponse(final ImageLoader.ImageContainer imageContainer,
+                    final boolean isImmediate) {
+                // Image Loader returns a "default" response immediately. We want to ignore this
+                // unless the image is already cached.
+                if (imageContainer.getBitmap() == null) {
+                    return;
+                }
+
+                // Images from the memory and disk tiers say nothing about the host.
+                if (!isImmediate && !mIsDiskCacheHit) {
+                    getHostLatencyHistogram(image.mUrl).record(
+                            SystemClock.elapsedRealtime() - startMillis);
+                }
+                onImageSettled(image, true);
+            }
+
+            @Override
+            public void onErrorResponse(final VolleyError volleyError) {
+                MoPubLog.d("Failed to download a native ads image:", volleyError);
+                getHostLatencyHistogram(image.mUrl).recordFailure();
+                onImageSettled(image, false);
+            }
+        };
+
+        final Integer maxImageWidth = mMaxImageWidths.get(image.mUrl);
+        if (maxImageWidth != null && maxImageWidth > 0) {
+            imageLoader.get(image.mUrl, volleyImageListener, maxImageWidth, 0);
+        } else {
+            imageLoader.get(image.mUrl, volleyImageListener);
+        }
+    }
+
+    private void onImageSettled(@NonNull final Image image, final boolean isCached) {
+        if (image.mIsSettled) {
+            return;
+        }
+        image.mIsSettled = true;
+
+        if (mIsFinished || !isRequired(image)) {
+            return;
+        }
+
+        if (!isCached) {
+            finish(false);
+            return;
+        }
+
+        mPendingRequiredImageCount--;
+        if (mPendingRequiredImageCount == 0) {
+            finish(true);
+        }
+    }
+
+    private void onDeadline() {
+        if (mIsFinished) {
+            return;
+        }
+
+        for (final Image image : mImages) {
+            if (isRequired(image) && !image.mIsSettled) {
+                MoPubLog.d("Native ad image from {} did not load within {} ms.",
+                        getHost(image.mUrl), mDeadlineMillis);
+            }
+        }
+        finish(false);
+    }
+
+    private void finish(final boolean isSuccess) {
+        if (mIsFinished) {
+            return;
+        }
+        mIsFinished = true;
+        mHandler.removeCallbacks(mDeadlineRunnable);
+
+        final ImageListener imageListener = mImageListener;
+        mImageListener = null;
+        if (imageListener == null) {
+            return;
+        }
+
+        if (isSuccess) {
+            imageListener.onImagesCached();
+        } else {
+            imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        }
+    }
+
+    private boolean isRequired(@NonNull final Image image) {
+        return mRequiredImageTypes.contains(image.mType);
+    }
+
+    /**
+     * Returns a copy of the image latency histograms recorded so far, by host.
+     */
+    @NonNull
+    public static Map<String, LatencyHistogram> getHostLatencyHistograms() {
+        return new HashMap<String, LatencyHistogram>(sHostLatencyHistograms);
+    }
+
+    @VisibleForTesting
+    static void clearHostLatencyHistograms() {
+        sHostLatencyHistograms.clear();
+    }
+
+    @NonNull
+    private static LatencyHistogram getHostLatencyHistogram(@NonNull final String url) {
+        final String host = getHost(url);
+        LatencyHistogram latencyHistogram = sHostLatencyHistograms.get(host);
+        if (latencyHistogram == null) {
+            latencyHistogram = new LatencyHistogram();
+            sHostLatencyHistograms.put(host, latencyHistogram);
+        }
+        return latencyHistogram;
+    }
+
+    @NonNull
+    private static String getHost(@NonNull final String url) {
+        final String host = Uri.parse(url).getHost();
+        return host == null ? UNKNOWN_HOST : host;
+    }
+}
@@ -7,6 +7,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.View;
 
+import com.mopub.common.VisibilityTracker;
 import com.mopub.common.VisibleForTesting;
 
 import java.util.ArrayList;
@@ -14,8 +15,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
-import static com.mopub.nativeads.VisibilityTracker.VisibilityChecker;
-import static com.mopub.nativeads.VisibilityTracker.VisibilityTrackerListener;
+import static com.mopub.common.VisibilityTracker.VisibilityChecker;
+import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
 
 /**
  * Impression tracker used to call {@link ImpressionInterface#recordImpression(View)} when a
@@ -15,6 +15,7 @@ public class MediaViewBinder {
         private int iconImageId;
         private int callToActionId;
         private int privacyInformationIconImageId;
+        private int iconImageWidthHint;
 
         @NonNull private Map<String, Integer> extras = Collections.emptyMap();
 
@@ -59,6 +60,17 @@ public class MediaViewBinder {
             return this;
         }
 
+        /**
+         * The width, in pixels, that the icon image is displayed at. Only needed if the icon view
+         * doesn't have a fixed width in the layout. Icon images are decoded no wider than this,
+         * which is 64dp by default.
+         */
+        @NonNull
+        public final Builder iconImageWidthHint(final int iconImageWidthHint) {
+            this.iconImageWidthHint = iconImageWidthHint;
+            return this;
+        }
+
         @NonNull
         public final Builder addExtras(final Map<String, Integer> resourceIds) {
             this.extras = new HashMap<String, Integer>(resourceIds);
@@ -84,6 +96,7 @@ public class MediaViewBinder {
     final int callToActionId;
     final int iconImageId;
     final int privacyInformationIconImageId;
+    final int iconImageWidthHint;
     @NonNull final Map<String, Integer> extras;
 
     private MediaViewBinder(@NonNull final Builder builder) {
@@ -94,6 +107,7 @@ public class MediaViewBinder {
         this.callToActionId = builder.callToActionId;
         this.iconImageId = builder.iconImageId;
         this.privacyInformationIconImageId = builder.privacyInformationIconImageId;
+        this.iconImageWidthHint = builder.iconImageWidthHint;
         this.extras = builder.extras;
     }
 }
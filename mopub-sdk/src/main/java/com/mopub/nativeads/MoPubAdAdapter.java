@@ -15,6 +15,7 @@ import android.widget.ListView;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.Preconditions.NoThrow;
+import com.mopub.common.VisibilityTracker;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubServerPositioning;
@@ -25,7 +26,7 @@ import java.util.WeakHashMap;
 import static android.widget.AdapterView.OnItemClickListener;
 import static android.widget.AdapterView.OnItemLongClickListener;
 import static android.widget.AdapterView.OnItemSelectedListener;
-import static com.mopub.nativeads.VisibilityTracker.VisibilityTrackerListener;
+import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
 
 /**
  * {@code MoPubAdAdapter} facilitates placing ads into an Android {@link android.widget.ListView} or
@@ -22,7 +22,6 @@ import java.util.Set;
 
 import static com.mopub.common.DataKeys.JSON_BODY_KEY;
 import static com.mopub.common.util.Numbers.parseDouble;
-import static com.mopub.nativeads.NativeImageHelper.preCacheImages;
 
 public class MoPubCustomEventNative extends CustomEventNative {
 
@@ -142,17 +141,25 @@ public class MoPubCustomEventNative extends CustomEventNative {
             }
             setPrivacyInformationIconClickThroughUrl(PRIVACY_INFORMATION_CLICKTHROUGH_URL);
 
-            preCacheImages(mContext, getAllImageUrls(), new ImageListener() {
-                @Override
-                public void onImagesCached() {
-                    mCustomEventNativeListener.onNativeAdLoaded(MoPubStaticNativeAd.this);
-                }
-
-                @Override
-                public void onImagesFailedToCache(final NativeErrorCode errorCode) {
-                    mCustomEventNativeListener.onNativeAdFailed(errorCode);
-                }
-            });
+            // The main image and icon are required, extra images are loaded on a best effort basis.
+            new ImagePreCacher.Builder(mContext)
+                    .addImage(getMainImageUrl(), ImagePreCacher.ImageType.MAIN_IMAGE)
+                    .addImage(getIconImageUrl(), ImagePreCacher.ImageType.ICON_IMAGE)
+                    .addImages(getExtrasImageUrls(), ImagePreCacher.ImageType.EXTRA_IMAGE)
+                    .maxImageWidths(
+                            NativeImageHelper.getMaxImageWidths(mContext, getIconImageUrl()))
+                    .build()
+                    .start(new ImageListener() {
+                        @Override
+                        public void onImagesCached() {
+                            mCustomEventNativeListener.onNativeAdLoaded(MoPubStaticNativeAd.this);
+                        }
+
+                        @Override
+                        public void onImagesFailedToCache(final NativeErrorCode errorCode) {
+                            mCustomEventNativeListener.onNativeAdFailed(errorCode);
+                        }
+                    });
         }
 
         private boolean containsRequiredKeys(@NonNull final JSONObject jsonObject) {
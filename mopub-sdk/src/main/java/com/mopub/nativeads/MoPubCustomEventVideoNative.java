@@ -13,6 +13,7 @@ import android.view.View;
 
 import com.mopub.common.DataKeys;
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibilityTracker;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.event.BaseEvent;
 import com.mopub.common.event.Event;
@@ -48,7 +49,6 @@ import static com.mopub.common.DataKeys.JSON_BODY_KEY;
 import static com.mopub.common.DataKeys.MAX_BUFFER_MS;
 import static com.mopub.common.DataKeys.PAUSE_VISIBLE_PERCENT;
 import static com.mopub.common.DataKeys.PLAY_VISIBLE_PERCENT;
-import static com.mopub.nativeads.NativeImageHelper.preCacheImages;
 import static com.mopub.nativeads.NativeVideoController.VisibilityTrackingEvent;
 
 @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
@@ -273,20 +273,28 @@ public class MoPubCustomEventVideoNative extends CustomEventNative {
             }
             setPrivacyInformationIconClickThroughUrl(PRIVACY_INFORMATION_CLICKTHROUGH_URL);
 
-            preCacheImages(mContext, getAllImageUrls(), new NativeImageHelper.ImageListener() {
-                @Override
-                public void onImagesCached() {
-                    mVastManager.prepareVastVideoConfiguration(getVastVideo(),
-                            MoPubVideoNativeAd.this,
-                            mEventDetails == null ? null : mEventDetails.getDspCreativeId(),
-                            mContext);
-                }
+            // The main image and icon are required, extra images are loaded on a best effort basis.
+            new ImagePreCacher.Builder(mContext)
+                    .addImage(getMainImageUrl(), ImagePreCacher.ImageType.MAIN_IMAGE)
+                    .addImage(getIconImageUrl(), ImagePreCacher.ImageType.ICON_IMAGE)
+                    .addImages(getExtrasImageUrls(), ImagePreCacher.ImageType.EXTRA_IMAGE)
+                    .maxImageWidths(
+                            NativeImageHelper.getMaxImageWidths(mContext, getIconImageUrl()))
+                    .build()
+                    .start(new NativeImageHelper.ImageListener() {
+                        @Override
+                        public void onImagesCached() {
+                            mVastManager.prepareVastVideoConfiguration(getVastVideo(),
+                                    MoPubVideoNativeAd.this,
+                                    mEventDetails == null ? null : mEventDetails.getDspCreativeId(),
+                                    mContext);
+                        }
 
-                @Override
-                public void onImagesFailedToCache(final NativeErrorCode errorCode) {
-                    mCustomEventNativeListener.onNativeAdFailed(errorCode);
-                }
-            });
+                        @Override
+                        public void onImagesFailedToCache(final NativeErrorCode errorCode) {
+                            mCustomEventNativeListener.onNativeAdFailed(errorCode);
+                        }
+                    });
         }
 
         @Override
@@ -764,20 +772,6 @@ public class MoPubCustomEventVideoNative extends CustomEventNative {
             return extrasBitmapUrls;
         }
 
-        @NonNull
-        private List<String> getAllImageUrls() {
-            final List<String> imageUrls = new ArrayList<String>();
-            if (getMainImageUrl() != null) {
-                imageUrls.add(getMainImageUrl());
-            }
-            if (getIconImageUrl() != null) {
-                imageUrls.add(getIconImageUrl());
-            }
-
-            imageUrls.addAll(getExtrasImageUrls());
-            return imageUrls;
-        }
-
         @Deprecated
         @VisibleForTesting
         boolean needsPrepare() {
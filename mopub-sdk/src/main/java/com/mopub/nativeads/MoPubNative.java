@@ -11,6 +11,7 @@ import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.DeviceUtils;
 import com.mopub.common.util.ManifestUtils;
+import com.mopub.mobileads.AdTypeTranslator;
 import com.mopub.mobileads.MoPubErrorCode;
 import com.mopub.network.AdRequest;
 import com.mopub.network.AdResponse;
@@ -87,6 +88,7 @@ public class MoPubNative {
         mAdUnitId = adUnitId;
         mMoPubNativeNetworkListener = moPubNativeNetworkListener;
         mAdRendererRegistry = adRendererRegistry;
+        AdTypeTranslator.warmUpCustomEvents();
         mVolleyListener = new AdRequest.Listener() {
             @Override
             public void onSuccess(@NonNull final AdResponse response) {
@@ -171,7 +173,7 @@ public class MoPubNative {
         final String endpointUrl = generator.generateUrlString(Constants.HOST);
 
         if (endpointUrl != null) {
-            MoPubLog.d("Loading ad from: " + endpointUrl);
+            MoPubLog.d("Loading ad from: {}", endpointUrl);
         }
 
         requestNativeAd(endpointUrl);
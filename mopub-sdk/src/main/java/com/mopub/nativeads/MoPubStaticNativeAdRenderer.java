@@ -3,7 +3,6 @@ package com.mopub.nativeads;
 import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -17,12 +16,16 @@ import static android.view.View.VISIBLE;
 /**
  * An implementation of {@link com.mopub.nativeads.MoPubAdRenderer} for rendering native ads.
  */
-public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNativeAd> {
+public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNativeAd>,
+        AdViewPreInflater {
     @NonNull private final ViewBinder mViewBinder;
 
     // This is used instead of View.setTag, which causes a memory leak in 2.3
     // and earlier: https://code.google.com/p/android/issues/detail?id=18273
+    // The tag of an ad view also belongs to the publisher and to NativeAdViewHelper, so the SDK
+    // can't use it for view holders.
     @VisibleForTesting @NonNull final WeakHashMap<View, StaticNativeViewHolder> mViewHolderMap;
+    @VisibleForTesting @NonNull final AdViewInflationPool<StaticNativeViewHolder> mAdViewPool;
 
     /**
      * Constructs a native ad renderer with a view binder.
@@ -32,14 +35,35 @@ public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNative
     public MoPubStaticNativeAdRenderer(@NonNull final ViewBinder viewBinder) {
         mViewBinder = viewBinder;
         mViewHolderMap = new WeakHashMap<View, StaticNativeViewHolder>();
+        mAdViewPool = new AdViewInflationPool<StaticNativeViewHolder>(
+                new AdViewInflationPool.AdLayout<StaticNativeViewHolder>() {
+                    @Override
+                    public int getLayoutId() {
+                        return mViewBinder.layoutId;
+                    }
+
+                    @NonNull
+                    @Override
+                    public StaticNativeViewHolder createViewHolder(@NonNull final View view) {
+                        return StaticNativeViewHolder.fromViewBinder(view, mViewBinder);
+                    }
+                }, mViewHolderMap);
     }
 
     @Override
     @NonNull
     public View createAdView(@NonNull final Context context, @Nullable final ViewGroup parent) {
-        return LayoutInflater
-                .from(context)
-                .inflate(mViewBinder.layoutId, parent, false);
+        return mAdViewPool.obtainView(context, parent);
+    }
+
+    @Override
+    public void preInflateAdViews(@NonNull final Context context) {
+        mAdViewPool.preInflate(context);
+    }
+
+    @Override
+    public void releasePreInflatedAdViews() {
+        mAdViewPool.clear();
     }
 
     @Override
@@ -73,8 +97,8 @@ public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNative
                 staticNativeAd.getCallToAction());
         NativeImageHelper.loadImageView(staticNativeAd.getMainImageUrl(),
                 staticNativeViewHolder.mainImageView);
-        NativeImageHelper.loadImageView(staticNativeAd.getIconImageUrl(),
-                staticNativeViewHolder.iconImageView);
+        NativeImageHelper.loadIconImageView(staticNativeAd.getIconImageUrl(),
+                staticNativeViewHolder.iconImageView, mViewBinder.iconImageWidthHint);
         NativeRendererHelper.addPrivacyInformationIcon(
                 staticNativeViewHolder.privacyInformationIconImageView,
                 staticNativeAd.getPrivacyInformationIconImageUrl(),
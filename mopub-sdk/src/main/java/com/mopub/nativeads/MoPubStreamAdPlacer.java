@@ -3,11 +3,13 @@ package com.mopub.nativeads;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.mopub.common.DoubleTimeTracker.Clock;
 import com.mopub.common.Preconditions;
 import com.mopub.common.Preconditions.NoThrow;
 import com.mopub.common.VisibleForTesting;
@@ -39,6 +41,11 @@ public class MoPubStreamAdPlacer {
      * instead of an ad.
      */
     public static final int CONTENT_VIEW_TYPE = 0;
+
+    /**
+     * Frame budget that disables budgeting, placing every ad in the visible range at once.
+     */
+    public static final int NO_FRAME_BUDGET = 0;
     private static final int DEFAULT_AD_VIEW_TYPE = -1;
     private final static MoPubNativeAdLoadedListener EMPTY_NATIVE_AD_LOADED_LISTENER =
             new MoPubNativeAdLoadedListener() {
@@ -50,8 +57,15 @@ public class MoPubStreamAdPlacer {
                 public void onAdRemoved(final int position) {
                 }
             };
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long elapsedRealTime() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
 
     @NonNull private final Activity mActivity;
+    @NonNull private final Clock mClock;
     @NonNull private final Handler mPlacementHandler;
     @NonNull private final Runnable mPlacementRunnable;
     @NonNull private final PositioningSource mPositioningSource;
@@ -83,6 +97,21 @@ public class MoPubStreamAdPlacer {
     private static final int RANGE_BUFFER = 6;
     private boolean mNeedsPlacement;
 
+    // Time placing ads may take on the main thread before the remaining placements are deferred
+    // to the next frame. Ad views bound during the same frame are charged against this budget.
+    @VisibleForTesting static final int DEFAULT_FRAME_BUDGET_MILLIS = 4;
+    @VisibleForTesting static final int FRAME_INTERVAL_MILLIS = 16;
+    private int mFrameBudgetMillis = DEFAULT_FRAME_BUDGET_MILLIS;
+    private long mPlacementDeadlineMillis;
+    private int mPlacementsThisFrame;
+    private boolean mIsPlacementDeferred;
+    private long mBindFrameStartMillis;
+    private long mBindMillisThisFrame;
+
+    // Jank metrics.
+    private int mDeferredPlacementCount;
+    private int mFrameOverrunCount;
+
     /**
      * Creates a new MoPubStreamAdPlacer object.
      *
@@ -128,12 +157,22 @@ public class MoPubStreamAdPlacer {
     MoPubStreamAdPlacer(@NonNull final Activity activity,
             @NonNull final NativeAdSource adSource,
             @NonNull final PositioningSource positioningSource) {
+        this(activity, adSource, positioningSource, SYSTEM_CLOCK);
+    }
+
+    @VisibleForTesting
+    MoPubStreamAdPlacer(@NonNull final Activity activity,
+            @NonNull final NativeAdSource adSource,
+            @NonNull final PositioningSource positioningSource,
+            @NonNull final Clock clock) {
         Preconditions.checkNotNull(activity, "activity is not allowed to be null");
         Preconditions.checkNotNull(adSource, "adSource is not allowed to be null");
         Preconditions.checkNotNull(positioningSource, "positioningSource is not allowed to be " +
                 "null");
+        Preconditions.checkNotNull(clock, "clock is not allowed to be null");
 
         mActivity = activity;
+        mClock = clock;
         mPositioningSource = positioningSource;
         mAdSource = adSource;
         mPlacementData = PlacementData.empty();
@@ -150,6 +189,9 @@ public class MoPubStreamAdPlacer {
                 }
                 placeAds();
                 mNeedsPlacement = false;
+                if (mIsPlacementDeferred) {
+                    notifyNeedsPlacement();
+                }
             }
         };
 
@@ -180,6 +222,36 @@ public class MoPubStreamAdPlacer {
         return mAdSource.getAdRendererForViewType(viewType);
     }
 
+    /**
+     * Sets how long placing ads may block the main thread in a single frame.
+     *
+     * Ads are placed nearest the visible range first. When placing ads and binding ad views in
+     * the current frame have used up the budget, the remaining placements are deferred to the next
+     * frame. At least one ad is placed per frame, so placement always makes progress.
+     *
+     * @param frameBudgetMillis The per-frame budget in milliseconds, or {@link #NO_FRAME_BUDGET}
+     * to place all ads in the visible range at once.
+     */
+    public void setFrameBudgetMillis(final int frameBudgetMillis) {
+        mFrameBudgetMillis = Math.max(frameBudgetMillis, NO_FRAME_BUDGET);
+    }
+
+    /**
+     * Returns the number of times placing ads ran out of frame budget and deferred the remaining
+     * placements to the next frame.
+     */
+    public int getDeferredPlacementCount() {
+        return mDeferredPlacementCount;
+    }
+
+    /**
+     * Returns the number of frames in which placing ads and binding ad views took longer than the
+     * frame budget. This happens when a single placement or bind is more expensive than the budget.
+     */
+    public int getFrameOverrunCount() {
+        return mFrameOverrunCount;
+    }
+
     /**
      * Sets a listener that will be called after the SDK loads new ads from the server and places
      * them into your stream.
@@ -266,6 +338,12 @@ public class MoPubStreamAdPlacer {
 
     @VisibleForTesting
     void handlePositioningLoad(@NonNull final MoPubClientPositioning positioning) {
+        // Newer positioning can arrive after ads were placed with cached positioning. Moving the
+        // ads now would make them jump around, so it is only used the next time ads are loaded.
+        if (mHasPlacedAds) {
+            return;
+        }
+
         PlacementData placementData = PlacementData.fromAdPositioning(positioning);
         if (mHasReceivedAds) {
             placeInitialAds(placementData);
@@ -298,6 +376,9 @@ public class MoPubStreamAdPlacer {
         mPlacementData = placementData;
         placeAds();
         mHasPlacedAds = true;
+        if (mIsPlacementDeferred) {
+            notifyNeedsPlacement();
+        }
     }
 
     /**
@@ -352,6 +433,7 @@ public class MoPubStreamAdPlacer {
     public void clearAds() {
         removeAdsInRange(0, mItemCount);
         mAdSource.clear();
+        releasePreInflatedAdViews();
     }
 
     /**
@@ -367,6 +449,16 @@ public class MoPubStreamAdPlacer {
         mPlacementHandler.removeMessages(0);
         mAdSource.clear();
         mPlacementData.clearAds();
+        releasePreInflatedAdViews();
+    }
+
+    private void releasePreInflatedAdViews() {
+        for (int viewType = 1; viewType <= mAdSource.getAdRendererCount(); viewType++) {
+            final MoPubAdRenderer adRenderer = mAdSource.getAdRendererForViewType(viewType);
+            if (adRenderer instanceof AdViewPreInflater) {
+                ((AdViewPreInflater) adRenderer).releasePreInflatedAdViews();
+            }
+        }
     }
 
     /**
@@ -421,10 +513,12 @@ public class MoPubStreamAdPlacer {
             mappedView = mappedViewRef.get();
         }
         if (!adView.equals(mappedView)) {
+            final long bindStartMillis = mClock.elapsedRealTime();
             clearNativeAd(mappedView);
             clearNativeAd(adView);
             prepareNativeAd(nativeAd, adView);
             nativeAd.renderAdView(adView);
+            chargeBindTime(bindStartMillis, mClock.elapsedRealTime());
         }
     }
 
@@ -642,9 +736,34 @@ public class MoPubStreamAdPlacer {
     }
 
     /**
-     * Places ads using the current visible range.
+     * Places ads using the current visible range, until the frame budget runs out.
+     *
+     * If the budget runs out, {@link #mIsPlacementDeferred} is set and the caller should schedule
+     * another placement. The next placement starts over from the visible range at that time, so
+     * positions the user has scrolled away from are never placed ahead of visible ones.
      */
     private void placeAds() {
+        final long frameStartMillis = mClock.elapsedRealTime();
+        final long bindMillis = frameStartMillis - mBindFrameStartMillis < FRAME_INTERVAL_MILLIS
+                ? mBindMillisThisFrame : 0;
+        mPlacementDeadlineMillis = (mFrameBudgetMillis == NO_FRAME_BUDGET)
+                ? Long.MAX_VALUE
+                : frameStartMillis + mFrameBudgetMillis - bindMillis;
+        mPlacementsThisFrame = 0;
+        mIsPlacementDeferred = false;
+
+        placeAdsNearVisibleRange();
+
+        final long elapsedMillis = mClock.elapsedRealTime() - frameStartMillis + bindMillis;
+        if (mFrameBudgetMillis != NO_FRAME_BUDGET && elapsedMillis > mFrameBudgetMillis) {
+            mFrameOverrunCount++;
+        }
+        if (mIsPlacementDeferred) {
+            mDeferredPlacementCount++;
+        }
+    }
+
+    private void placeAdsNearVisibleRange() {
         // Place ads within the visible range
         if (!tryPlaceAdsInRange(mVisibleRangeStart, mVisibleRangeEnd)) {
             return;
@@ -656,13 +775,31 @@ public class MoPubStreamAdPlacer {
         tryPlaceAdsInRange(mVisibleRangeEnd, mVisibleRangeEnd + RANGE_BUFFER);
     }
 
+    /**
+     * Records time spent binding an ad view. Binds must happen synchronously, since the adapter
+     * is about to display the view, so their cost is charged to the placement budget of the
+     * current frame instead.
+     */
+    private void chargeBindTime(final long bindStartMillis, final long bindEndMillis) {
+        if (bindStartMillis - mBindFrameStartMillis >= FRAME_INTERVAL_MILLIS) {
+            mBindFrameStartMillis = bindStartMillis;
+            mBindMillisThisFrame = 0;
+        }
+        final long bindMillis = bindEndMillis - bindStartMillis;
+        mBindMillisThisFrame += bindMillis;
+
+        if (mFrameBudgetMillis != NO_FRAME_BUDGET && bindMillis > mFrameBudgetMillis) {
+            mFrameOverrunCount++;
+        }
+    }
+
     /**
      * Attempts to place ads in the range [start, end], returning false if there is no ad available
-     * to be placed.
+     * to be placed or the frame budget has run out.
      *
      * @param start The start of the range in which to place ads, inclusive.
      * @param end The end of the range in which to place ads, exclusive.
-     * @return false if there is no ad available to be placed.
+     * @return false if there is no ad available to be placed or the frame budget has run out.
      */
     private boolean tryPlaceAdsInRange(final int start, final int end) {
         int position = start;
@@ -684,12 +821,17 @@ public class MoPubStreamAdPlacer {
 
     /**
      * Attempts to place an ad at the given position, returning false if there is no ad available to
-     * be placed.
+     * be placed or the frame budget has run out.
      *
      * @param position The position to place the ad at.
-     * @return false if there is no ad available to be placed.
+     * @return false if there is no ad available to be placed or the frame budget has run out.
      */
     private boolean tryPlaceAd(final int position) {
+        if (mPlacementsThisFrame > 0 && mClock.elapsedRealTime() >= mPlacementDeadlineMillis) {
+            mIsPlacementDeferred = true;
+            return false;
+        }
+
         final NativeAd nativeAd = mAdSource.dequeueAd();
         if (nativeAd == null) {
             return false;
@@ -697,6 +839,13 @@ public class MoPubStreamAdPlacer {
 
         mPlacementData.placeAd(position, nativeAd);
         mItemCount++;
+        mPlacementsThisFrame++;
+
+        // Get an ad view ready off the main thread before the adapter asks for it.
+        final MoPubAdRenderer adRenderer = nativeAd.getMoPubAdRenderer();
+        if (adRenderer instanceof AdViewPreInflater) {
+            ((AdViewPreInflater) adRenderer).preInflateAdViews(mActivity);
+        }
 
         mAdLoadedListener.onAdLoaded(position);
         return true;
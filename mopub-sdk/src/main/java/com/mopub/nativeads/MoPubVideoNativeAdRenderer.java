@@ -3,7 +3,6 @@ package com.mopub.nativeads;
 import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -14,13 +13,18 @@ import java.util.WeakHashMap;
 
 import static android.view.View.VISIBLE;
 
-public class MoPubVideoNativeAdRenderer implements MoPubAdRenderer<VideoNativeAd> {
+public class MoPubVideoNativeAdRenderer implements MoPubAdRenderer<VideoNativeAd>,
+        AdViewPreInflater {
     @NonNull private final MediaViewBinder mMediaViewBinder;
 
     // This is used instead of View.setTag, which causes a memory leak in 2.3
     // and earlier: https://code.google.com/p/android/issues/detail?id=18273
+    // The tag of an ad view also belongs to the publisher and to NativeAdViewHelper, so the SDK
+    // can't use it for view holders.
     @VisibleForTesting
     @NonNull final WeakHashMap<View, MediaViewHolder> mMediaViewHolderMap;
+    @VisibleForTesting
+    @NonNull final AdViewInflationPool<MediaViewHolder> mAdViewPool;
 
     /**
      * Constructs a native ad renderer with a view binder.
@@ -30,14 +34,35 @@ public class MoPubVideoNativeAdRenderer implements MoPubAdRenderer<VideoNativeAd
     public MoPubVideoNativeAdRenderer(@NonNull final MediaViewBinder mediaViewBinder) {
         mMediaViewBinder = mediaViewBinder;
         mMediaViewHolderMap = new WeakHashMap<View, MediaViewHolder>();
+        mAdViewPool = new AdViewInflationPool<MediaViewHolder>(
+                new AdViewInflationPool.AdLayout<MediaViewHolder>() {
+                    @Override
+                    public int getLayoutId() {
+                        return mMediaViewBinder.layoutId;
+                    }
+
+                    @NonNull
+                    @Override
+                    public MediaViewHolder createViewHolder(@NonNull final View view) {
+                        return MediaViewHolder.fromViewBinder(view, mMediaViewBinder);
+                    }
+                }, mMediaViewHolderMap);
     }
 
     @Override
     @NonNull
     public View createAdView(@NonNull final Context context, @Nullable final ViewGroup parent) {
-        return LayoutInflater
-                .from(context)
-                .inflate(mMediaViewBinder.layoutId, parent, false);
+        return mAdViewPool.obtainView(context, parent);
+    }
+
+    @Override
+    public void preInflateAdViews(@NonNull final Context context) {
+        mAdViewPool.preInflate(context);
+    }
+
+    @Override
+    public void releasePreInflatedAdViews() {
+        mAdViewPool.clear();
     }
 
     @Override
@@ -75,8 +100,8 @@ public class MoPubVideoNativeAdRenderer implements MoPubAdRenderer<VideoNativeAd
             NativeImageHelper.loadImageView(videoNativeAd.getMainImageUrl(),
                     mediaViewHolder.mediaLayout.getMainImageView());
         }
-        NativeImageHelper.loadImageView(videoNativeAd.getIconImageUrl(),
-                mediaViewHolder.iconImageView);
+        NativeImageHelper.loadIconImageView(videoNativeAd.getIconImageUrl(),
+                mediaViewHolder.iconImageView, mMediaViewBinder.iconImageWidthHint);
         NativeRendererHelper.addPrivacyInformationIcon(
                 mediaViewHolder.privacyInformationIconImageView,
                 videoNativeAd.getPrivacyInformationIconImageUrl(),
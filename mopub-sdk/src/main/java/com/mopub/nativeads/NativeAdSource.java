@@ -6,6 +6,7 @@ import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.mopub.common.TimerWheel;
 import com.mopub.common.VisibleForTesting;
 
 import java.util.ArrayList;
@@ -42,6 +43,7 @@ class NativeAdSource {
     @NonNull private final List<TimestampWrapper<NativeAd>> mNativeAdCache;
     @NonNull private final Handler mReplenishCacheHandler;
     @NonNull private final Runnable mReplenishCacheRunnable;
+    @NonNull private final TimerWheel mTimerWheel;
     @NonNull private final MoPubNativeNetworkListener mMoPubNativeNetworkListener;
 
     @VisibleForTesting boolean mRequestInFlight;
@@ -50,6 +52,7 @@ class NativeAdSource {
     @VisibleForTesting int mCurrentRetries;
 
     @Nullable private AdSourceListener mAdSourceListener;
+    @Nullable private TimerWheel.Timer mRetryTimer;
 
     // We will need collections of these when we support multiple ad units.
     @Nullable private RequestParameters mRequestParameters;
@@ -70,15 +73,18 @@ class NativeAdSource {
     NativeAdSource() {
         this(new ArrayList<TimestampWrapper<NativeAd>>(CACHE_LIMIT),
                 new Handler(),
+                TimerWheel.getInstance(),
                 new AdRendererRegistry());
     }
 
     @VisibleForTesting
     NativeAdSource(@NonNull final List<TimestampWrapper<NativeAd>> nativeAdCache,
             @NonNull final Handler replenishCacheHandler,
+            @NonNull final TimerWheel timerWheel,
             @NonNull AdRendererRegistry adRendererRegistry) {
         mNativeAdCache = nativeAdCache;
         mReplenishCacheHandler = replenishCacheHandler;
+        mTimerWheel = timerWheel;
         mReplenishCacheRunnable = new Runnable() {
             @Override
             public void run() {
@@ -125,7 +131,7 @@ class NativeAdSource {
 
                 updateRetryTime();
                 mRetryInFlight = true;
-                mReplenishCacheHandler.postDelayed(mReplenishCacheRunnable, getRetryTime());
+                mRetryTimer = mTimerWheel.schedule(mReplenishCacheRunnable, getRetryTime());
             }
         };
 
@@ -205,6 +211,10 @@ class NativeAdSource {
         mNativeAdCache.clear();
 
         mReplenishCacheHandler.removeMessages(0);
+        if (mRetryTimer != null) {
+            mRetryTimer.cancel();
+            mRetryTimer = null;
+        }
         mRequestInFlight = false;
         mSequenceNumber = 0;
         resetRetryTime();
@@ -1,19 +1,29 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.Dips;
 import com.mopub.nativeads.CustomEventNative.CustomEventNativeListener;
+import com.mopub.network.MaxWidthImageLoader;
 import com.mopub.network.Networking;
 import com.mopub.volley.VolleyError;
 import com.mopub.volley.toolbox.ImageLoader;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -21,6 +31,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Collection of helper methods to assist with image downloading and displaying
  */
 public class NativeImageHelper {
+    // Icons are precached at this width, since the icon view isn't known yet. It is also the width
+    // icons are loaded at when the icon view has no known width, so that they match the cache.
+    @VisibleForTesting static final int ICON_IMAGE_MAX_WIDTH_DIPS = 64;
 
     public interface ImageListener {
         /**
@@ -41,11 +54,28 @@ public class NativeImageHelper {
     /**
      * Pre caches the given set of image urls. We recommend using this method to warm the image
      * cache before calling {@link CustomEventNativeListener#onNativeAdLoaded}. Doing so will
-     * force images to cache before displaying the ad.
+     * force images to cache before displaying the ad. Every image must cache for the ad to load,
+     * however long that takes. Use {@link ImagePreCacher} to make some images optional or to fail
+     * the ad after a deadline.
      */
     public static void preCacheImages(@NonNull final Context context,
             @NonNull final List<String> imageUrls,
             @NonNull final ImageListener imageListener) {
+        preCacheImages(context, imageUrls, Collections.<String, Integer>emptyMap(), imageListener);
+    }
+
+    /**
+     * Pre caches the given set of image urls, like {@link #preCacheImages(Context, List,
+     * ImageListener)}. Images are decoded no wider than their width in maxImageWidths, so small
+     * images like icons don't take up the memory of full-size ones. Images without a width are
+     * decoded at the full width of the display.
+     *
+     * @param maxImageWidths The width, in pixels, that images are displayed at, by url.
+     */
+    public static void preCacheImages(@NonNull final Context context,
+            @NonNull final List<String> imageUrls,
+            @NonNull final Map<String, Integer> maxImageWidths,
+            @NonNull final ImageListener imageListener) {
         final ImageLoader imageLoader = Networking.getImageLoader(context);
         // These Atomics are only accessed on the main thread.
         // We use Atomics here so we can change their values while keeping a reference for the inner class.
@@ -81,10 +111,29 @@ public class NativeImageHelper {
                 imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
                 return;
             }
-            imageLoader.get(url, volleyImageListener);
+            final Integer maxImageWidth = maxImageWidths.get(url);
+            if (maxImageWidth != null && maxImageWidth > 0) {
+                imageLoader.get(url, volleyImageListener, maxImageWidth, 0);
+            } else {
+                imageLoader.get(url, volleyImageListener);
+            }
         }
     }
 
+    /**
+     * Returns the widths to precache a native ad's images at, for {@link #preCacheImages(Context,
+     * List, Map, ImageListener)}.
+     */
+    @NonNull
+    static Map<String, Integer> getMaxImageWidths(@NonNull final Context context,
+            @Nullable final String iconImageUrl) {
+        final Map<String, Integer> maxImageWidths = new HashMap<String, Integer>();
+        if (iconImageUrl != null) {
+            maxImageWidths.put(iconImageUrl, getIconImageWidthHint(context, 0));
+        }
+        return maxImageWidths;
+    }
+
     /**
      * Helper method that takes an image url and loads the image into an image view.
      *
@@ -92,31 +141,113 @@ public class NativeImageHelper {
      * @param imageView The image view into which to load the image
      */
     public static void loadImageView(@Nullable final String url, @Nullable final ImageView imageView) {
+        loadImageView(url, imageView, 0);
+    }
+
+    /**
+     * Helper method that takes an image url and loads the image into an image view. The image is
+     * decoded no wider than the image view. If the image view hasn't been measured yet and has no
+     * fixed width, the width hint is used instead.
+     *
+     * @param url The image url
+     * @param imageView The image view into which to load the image
+     * @param widthHint The width, in pixels, that the image view is expected to have, or 0 if
+     * unknown.
+     */
+    public static void loadImageView(@Nullable final String url, @Nullable final ImageView imageView,
+            final int widthHint) {
         if (!Preconditions.NoThrow.checkNotNull(imageView, "Cannot load image into null ImageView")) {
             return;
         }
 
+        final ImageLoader mImageLoader = Networking.getImageLoader(imageView.getContext());
         if (!Preconditions.NoThrow.checkNotNull(url, "Cannot load image with null url")) {
-            imageView.setImageDrawable(null);
+            setImageBitmap(imageView, mImageLoader, null);
             return;
         }
 
-        final ImageLoader mImageLoader = Networking.getImageLoader(imageView.getContext());
-        mImageLoader.get(url, new ImageLoader.ImageListener() {
+        final ImageLoader.ImageListener volleyImageListener = new ImageLoader.ImageListener() {
             @Override
             public void onResponse(final ImageLoader.ImageContainer imageContainer,
                     final boolean isImmediate) {
                 if (!isImmediate) {
                     MoPubLog.d("Image was not loaded immediately into your ad view. You should call preCacheImages as part of your custom event loading process.");
                 }
-                imageView.setImageBitmap(imageContainer.getBitmap());
+                setImageBitmap(imageView, mImageLoader, imageContainer.getBitmap());
             }
 
             @Override
             public void onErrorResponse(final VolleyError volleyError) {
                 MoPubLog.d("Failed to load image.", volleyError);
-                imageView.setImageDrawable(null);
+                setImageBitmap(imageView, mImageLoader, null);
             }
-        });
+        };
+
+        final int maxImageWidth = getMaxImageWidth(imageView, widthHint);
+        if (maxImageWidth > 0) {
+            mImageLoader.get(url, volleyImageListener, maxImageWidth, 0);
+        } else {
+            mImageLoader.get(url, volleyImageListener);
+        }
+    }
+
+    /**
+     * Loads an icon image into an image view, like {@link #loadImageView(String, ImageView, int)}.
+     * Icons are small, so when the icon view has no known width and there is no width hint, the
+     * icon is decoded at the width it was precached at.
+     */
+    static void loadIconImageView(@Nullable final String url, @Nullable final ImageView imageView,
+            final int widthHint) {
+        if (imageView == null) {
+            loadImageView(url, null, widthHint);
+            return;
+        }
+        loadImageView(url, imageView, getIconImageWidthHint(imageView.getContext(), widthHint));
+    }
+
+    @VisibleForTesting
+    static int getIconImageWidthHint(@NonNull final Context context, final int widthHint) {
+        if (widthHint > 0) {
+            return widthHint;
+        }
+        return Dips.asIntPixels(ICON_IMAGE_MAX_WIDTH_DIPS, context);
+    }
+
+    @VisibleForTesting
+    static int getMaxImageWidth(@NonNull final ImageView imageView, final int widthHint) {
+        if (imageView.getWidth() > 0) {
+            return imageView.getWidth();
+        }
+
+        final ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+        if (layoutParams != null && layoutParams.width > 0) {
+            return layoutParams.width;
+        }
+        return widthHint;
+    }
+
+    /**
+     * Shows the bitmap in the image view, and lets the image loader know which bitmaps are on
+     * screen so that it only reuses the memory of bitmaps that aren't.
+     */
+    private static void setImageBitmap(@NonNull final ImageView imageView,
+            @NonNull final ImageLoader imageLoader, @Nullable final Bitmap bitmap) {
+        final Drawable previousDrawable = imageView.getDrawable();
+        final Bitmap previousBitmap = previousDrawable instanceof BitmapDrawable
+                ? ((BitmapDrawable) previousDrawable).getBitmap()
+                : null;
+
+        if (bitmap == null) {
+            imageView.setImageDrawable(null);
+        } else {
+            imageView.setImageBitmap(bitmap);
+        }
+
+        if (imageLoader instanceof MaxWidthImageLoader) {
+            final MaxWidthImageLoader maxWidthImageLoader = (MaxWidthImageLoader) imageLoader;
+            // Acquire before releasing, in case the view is showing the same bitmap again.
+            maxWidthImageLoader.onBitmapDisplayed(bitmap);
+            maxWidthImageLoader.onBitmapReleased(previousBitmap);
+        }
     }
 }
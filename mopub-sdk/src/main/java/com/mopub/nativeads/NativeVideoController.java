@@ -2,6 +2,7 @@ package com.mopub.nativeads;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.media.AudioManager;
@@ -11,6 +12,7 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.Surface;
@@ -20,13 +22,18 @@ import com.google.android.exoplayer.ExoPlaybackException;
 import com.google.android.exoplayer.ExoPlayer;
 import com.google.android.exoplayer.MediaCodecAudioTrackRenderer;
 import com.google.android.exoplayer.MediaCodecSelector;
+import com.google.android.exoplayer.MediaCodecTrackRenderer;
 import com.google.android.exoplayer.MediaCodecVideoTrackRenderer;
 import com.google.android.exoplayer.extractor.Extractor;
 import com.google.android.exoplayer.extractor.ExtractorSampleSource;
 import com.google.android.exoplayer.extractor.mp4.Mp4Extractor;
 import com.google.android.exoplayer.upstream.Allocator;
 import com.google.android.exoplayer.upstream.DataSource;
-import com.google.android.exoplayer.upstream.DefaultAllocator;
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.MemoryGovernor;
+import com.mopub.common.MemoryGovernor.MemoryConsumer;
+import com.mopub.common.MemoryGovernor.RestoreCost;
+import com.mopub.common.MemoryGovernor.TrimLevel;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.event.BaseEvent;
@@ -37,7 +44,7 @@ import com.mopub.mobileads.RepeatingHandlerRunnable;
 import com.mopub.mobileads.VastTracker;
 import com.mopub.mobileads.VastVideoConfig;
 import com.mopub.nativeads.NativeVideoController.NativeVideoProgressRunnable.ProgressListener;
-import com.mopub.nativeads.VisibilityTracker.VisibilityChecker;
+import com.mopub.common.VisibilityTracker.VisibilityChecker;
 import com.mopub.network.TrackingRequest;
 
 import java.lang.ref.WeakReference;
@@ -70,12 +77,40 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
 
     public static final long RESUME_FINISHED_THRESHOLD = 750L;
 
-    private static final int BUFFER_SEGMENT_SIZE = 64 * 1024; // 64 kB
-    private static final int BUFFER_SEGMENT_COUNT = 32; // 64 kB * 32 ~= 2 MB
+    // Only accessed on the main thread.
+    @NonNull private static LatencyHistogram sFirstFrameLatencyHistogram = new LatencyHistogram();
+
+    /**
+     * Frees the final frames of videos whose players have been released. Without a final frame,
+     * a finished video keeps showing whatever its media layout last showed.
+     */
+    @NonNull private static final MemoryConsumer sFinalFrameMemoryConsumer = new MemoryConsumer() {
+        @Override
+        public long getFootprintBytes() {
+            long footprintBytes = 0;
+            for (final NativeVideoController nativeVideoController : sManagerMap.values()) {
+                final Bitmap finalFrame = nativeVideoController.getFinalFrameBitmap();
+                if (finalFrame != null) {
+                    footprintBytes += finalFrame.getRowBytes() * finalFrame.getHeight();
+                }
+            }
+            return footprintBytes;
+        }
+
+        @Override
+        public void trimMemory(@NonNull final TrimLevel level) {
+            for (final NativeVideoController nativeVideoController : sManagerMap.values()) {
+                if (nativeVideoController.mExoPlayer == null) {
+                    nativeVideoController.mFinalFrame = null;
+                }
+            }
+        }
+    };
 
     @NonNull private final Context mContext;
     @NonNull private final Handler mHandler;
     @NonNull private final ExoPlayerFactory mExoPlayerFactory;
+    @NonNull private final ExoPlayerPool mExoPlayerPool;
     @NonNull private VastVideoConfig mVastVideoConfig;
     @NonNull private NativeVideoProgressRunnable mNativeVideoProgressRunnable;
     @NonNull private AudioManager mAudioManager;
@@ -90,6 +125,7 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
     @Nullable private MediaCodecAudioTrackRenderer mAudioTrackRenderer;
     @Nullable private MediaCodecVideoTrackRenderer mVideoTrackRenderer;
     @Nullable private EventDetails mEventDetails;
+    @Nullable private FirstFrameListener mFirstFrameListener;
 
     private boolean mPlayWhenReady;
     private boolean mAudioEnabled;
@@ -147,6 +183,20 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
         return sManagerMap.remove(id);
     }
 
+    /**
+     * Returns the times from preparing a video to drawing its first frame. Failures are videos
+     * that hit an error before their first frame.
+     */
+    @NonNull
+    public static LatencyHistogram getFirstFrameLatencyHistogram() {
+        return sFirstFrameLatencyHistogram;
+    }
+
+    @VisibleForTesting
+    static void clearFirstFrameLatencyHistogram() {
+        sFirstFrameLatencyHistogram = new LatencyHistogram();
+    }
+
     private NativeVideoController(@NonNull final Context context,
             @NonNull final List<VisibilityTrackingEvent> visibilityTrackingEvents,
             @NonNull final VastVideoConfig vastVideoConfig,
@@ -177,8 +227,13 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
         mVastVideoConfig = vastVideoConfig;
         mNativeVideoProgressRunnable = nativeVideoProgressRunnable;
         mExoPlayerFactory = exoPlayerFactory;
+        mExoPlayerPool = ExoPlayerPool.getInstance();
         mEventDetails = eventDetails;
         mAudioManager = audioManager;
+
+        final MemoryGovernor memoryGovernor = MemoryGovernor.getInstance();
+        memoryGovernor.register(mContext, mExoPlayerPool, RestoreCost.POOL);
+        memoryGovernor.register(mContext, sFinalFrameMemoryConsumer, RestoreCost.CONTENT);
     }
 
     public void setListener(@Nullable final Listener listener) {
@@ -291,6 +346,13 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
         }
     }
 
+    @Deprecated
+    @VisibleForTesting
+    @Nullable
+    FirstFrameListener getFirstFrameListener() {
+        return mFirstFrameListener;
+    }
+
     @Override
     public void onPlayerStateChanged(final boolean playWhenReady, final int newState) {
         if (newState == STATE_ENDED && mFinalFrame == null) {
@@ -350,6 +412,11 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
 
     @Override
     public void onPlayerError(ExoPlaybackException e) {
+        if (mFirstFrameListener != null) {
+            sFirstFrameLatencyHistogram.recordFailure();
+            mFirstFrameListener = null;
+        }
+
         if (mListener == null) {
             return;
         }
@@ -384,6 +451,11 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
         return mFinalFrame;
     }
 
+    @Nullable
+    private Bitmap getFinalFrameBitmap() {
+        return mFinalFrame == null ? null : mFinalFrame.getBitmap();
+    }
+
     void triggerImpressionTrackers() {
         mNativeVideoProgressRunnable.checkImpressionTrackers(true);
     }
@@ -394,21 +466,23 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
         }
 
         setExoSurface(null);
-        mExoPlayer.stop();
-        mExoPlayer.release();
+        mExoPlayer.removeListener(this);
+        mExoPlayerPool.recycle(mExoPlayer);
         mExoPlayer = null;
+        mFirstFrameListener = null;
         mNativeVideoProgressRunnable.stop();
         mNativeVideoProgressRunnable.setExoPlayer(null);
     }
 
     private void preparePlayer() {
         if (mExoPlayer == null) {
-            mExoPlayer = mExoPlayerFactory.newInstance(2, 1000, 5000);
+            mFirstFrameListener = new FirstFrameListener(SystemClock.elapsedRealtime());
+            mExoPlayer = mExoPlayerPool.acquire(mExoPlayerFactory);
             mNativeVideoProgressRunnable.setExoPlayer(mExoPlayer);
             mExoPlayer.addListener(this);
 
             // Set up data sources
-            final Allocator allocator = new DefaultAllocator(BUFFER_SEGMENT_SIZE);
+            final Allocator allocator = mExoPlayerPool.newAllocator();
             final Extractor extractor = new Mp4Extractor();
 
             final DataSource httpSource = new HttpDiskCompositeDataSource(mContext, "exo_demo",
@@ -417,11 +491,11 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
             final String videoUrl = mVastVideoConfig.getNetworkMediaFileUrl();
 
             final ExtractorSampleSource sampleSource = new ExtractorSampleSource(Uri.parse(videoUrl),
-                    httpSource, allocator, BUFFER_SEGMENT_SIZE * BUFFER_SEGMENT_COUNT, extractor);
+                    httpSource, allocator, mExoPlayerPool.getSourceBufferSize(), extractor);
             mVideoTrackRenderer = new MediaCodecVideoTrackRenderer(mContext, sampleSource,
                     MediaCodecSelector.DEFAULT,
-                    MediaCodec.VIDEO_SCALING_MODE_SCALE_TO_FIT_WITH_CROPPING, 0, mHandler, null,
-                    10);
+                    MediaCodec.VIDEO_SCALING_MODE_SCALE_TO_FIT_WITH_CROPPING, 0, mHandler,
+                    mFirstFrameListener, 10);
             mAudioTrackRenderer = new MediaCodecAudioTrackRenderer(sampleSource,
                     MediaCodecSelector.DEFAULT);
             mExoPlayer.prepare(mAudioTrackRenderer, mVideoTrackRenderer);
@@ -463,6 +537,47 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
                 mVideoTrackRenderer, MediaCodecVideoTrackRenderer.MSG_SET_SURFACE, surface);
     }
 
+    /**
+     * Records the time from preparing a video to drawing its first frame. A new one is made for
+     * every prepare, so that late events from the renderers of an earlier video are ignored.
+     */
+    @VisibleForTesting
+    class FirstFrameListener implements MediaCodecVideoTrackRenderer.EventListener {
+        private final long mPrepareStartMillis;
+
+        FirstFrameListener(final long prepareStartMillis) {
+            mPrepareStartMillis = prepareStartMillis;
+        }
+
+        @Override
+        public void onDrawnToSurface(final Surface surface) {
+            if (mFirstFrameListener != this) {
+                return;
+            }
+
+            sFirstFrameLatencyHistogram.record(SystemClock.elapsedRealtime() - mPrepareStartMillis);
+            mFirstFrameListener = null;
+        }
+
+        @Override
+        public void onDroppedFrames(final int count, final long elapsed) {}
+
+        @Override
+        public void onVideoSizeChanged(final int width, final int height,
+                final int unappliedRotationDegrees, final float pixelWidthHeightRatio) {}
+
+        @Override
+        public void onDecoderInitializationError(
+                final MediaCodecTrackRenderer.DecoderInitializationException e) {}
+
+        @Override
+        public void onCryptoError(final MediaCodec.CryptoException e) {}
+
+        @Override
+        public void onDecoderInitialized(final String decoderName,
+                final long elapsedRealtimeMs, final long initializationDurationMs) {}
+    }
+
     /**
      * Created purely for the purpose of mocking to ease testing.
      */
@@ -601,15 +716,16 @@ public class NativeVideoController implements ExoPlayer.Listener,OnAudioFocusCha
                 mProgressListener.updateProgress((int) tenthsOfPercentPlayed);
             }
 
-            final List<VastTracker> trackers =
-                    mVastVideoConfig.getUntriggeredTrackersBefore(
-                            (int) mCurrentPosition, (int) mDuration);
+            if (mDuration <= 0) {
+                return;
+            }
+
+            final List<VastTracker> trackers = mVastVideoConfig
+                    .getProgressTrackerTimeline((int) mDuration)
+                    .pollDueTrackers((int) mCurrentPosition);
             if (!trackers.isEmpty()) {
                 final List<String> trackingUrls = new ArrayList<String>();
                 for (VastTracker tracker : trackers) {
-                    if (tracker.isTracked()) {
-                        continue;
-                    }
                     trackingUrls.add(tracker.getTrackingUrl());
                     tracker.setTracked();
                 }
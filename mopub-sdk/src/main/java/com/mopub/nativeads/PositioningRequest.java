@@ -67,7 +67,7 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
 
     @NonNull
     @VisibleForTesting
-    MoPubClientPositioning parseJson(@NonNull String jsonString) throws  JSONException, MoPubNetworkError {
+    static MoPubClientPositioning parseJson(@NonNull String jsonString) throws  JSONException, MoPubNetworkError {
         JSONObject jsonObject = new JSONObject(jsonString);
 
         // If the server returns an error explicitly, throw an exception with the message.
@@ -96,7 +96,7 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
         return positioning;
     }
 
-    private void parseFixedJson(@NonNull final JSONArray fixed,
+    private static void parseFixedJson(@NonNull final JSONArray fixed,
             @NonNull final MoPubClientPositioning positioning) throws JSONException {
         for (int i = 0; i < fixed.length(); ++i) {
             JSONObject positionObject = fixed.getJSONObject(i);
@@ -116,7 +116,7 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
         }
     }
 
-    private void parseRepeatingJson(@NonNull final JSONObject repeatingObject,
+    private static void parseRepeatingJson(@NonNull final JSONObject repeatingObject,
             @NonNull final MoPubClientPositioning positioning) throws JSONException {
         int interval = repeatingObject.getInt(INTERVAL_KEY);
         if (interval < 2 || interval > MAX_VALUE) {
@@ -124,4 +124,23 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
         }
         positioning.enableRepeatingPositions(interval);
     }
+
+    /**
+     * Writes the positioning in the same format as the server's response, so that it can be read
+     * back with {@link #parseJson(String)}.
+     */
+    @NonNull
+    static String toJson(@NonNull final MoPubClientPositioning positioning) throws JSONException {
+        final JSONArray fixed = new JSONArray();
+        for (final Integer position : positioning.getFixedPositions()) {
+            fixed.put(new JSONObject().put(POSITION_KEY, position));
+        }
+
+        final JSONObject jsonObject = new JSONObject().put(FIXED_KEY, fixed);
+        final int interval = positioning.getRepeatingInterval();
+        if (interval != MoPubClientPositioning.NO_REPEAT) {
+            jsonObject.put(REPEATING_KEY, new JSONObject().put(INTERVAL_KEY, interval));
+        }
+        return jsonObject.toString();
+    }
 }
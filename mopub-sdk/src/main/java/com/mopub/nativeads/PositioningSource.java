@@ -10,6 +10,10 @@ import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 interface PositioningSource {
 
     interface PositioningListener {
+        /**
+         * Called with the positioning to use. May be called a second time with newer positioning,
+         * if cached positioning was passed first.
+         */
         void onLoad(@NonNull MoPubClientPositioning positioning);
 
         void onFailed();
@@ -1,11 +1,13 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
-import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.mopub.common.CacheService;
+import com.mopub.common.CacheService.DiskLruCacheGetListener;
 import com.mopub.common.Constants;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.DeviceUtils;
@@ -17,6 +19,10 @@ import com.mopub.volley.RequestQueue;
 import com.mopub.volley.Response;
 import com.mopub.volley.VolleyError;
 
+import org.json.JSONException;
+
+import java.nio.charset.Charset;
+
 /**
  * Requests positioning information from the MoPub ad server.
  *
@@ -43,6 +49,12 @@ import com.mopub.volley.VolleyError;
  *
  * The JSON parsing logic treats any violations to the above spec as invalid,
  * rather than trying to continue with a partially valid response.
+ *
+ * The last positioning loaded for each ad unit is kept in the {@link CacheService} disk cache.
+ * While the request is in flight, the cached positioning is passed to the listener as soon as it
+ * has been read, so that ads don't wait on the server to be placed. If the server's positioning
+ * differs, and arrives before ads are placed, it is passed to the listener as well. Otherwise it
+ * is used the next time positions are loaded.
  */
 class ServerPositioningSource implements PositioningSource {
 
@@ -52,13 +64,15 @@ class ServerPositioningSource implements PositioningSource {
     // We allow the retry limit to be set per-instance for testing, but it is always initialized
     // to this default.
     private static final int MAXIMUM_RETRY_TIME_MILLISECONDS = 5 * 60 * 1000; // 5 minutes.
+    private static final String DISK_CACHE_KEY_PREFIX = "mopub-positioning";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
     private int mMaximumRetryTimeMillis = MAXIMUM_RETRY_TIME_MILLISECONDS;
 
     @NonNull private final Context mContext;
 
-    // Handler and runnable for retrying after a failed response.
-    @NonNull private final Handler mRetryHandler;
+    // Runnable and timer for retrying after a failed response.
     @NonNull private final Runnable mRetryRunnable;
+    @Nullable private TimerWheel.Timer mRetryTimer;
     private final Response.Listener<MoPubClientPositioning> mPositioningListener;
     private final Response.ErrorListener mErrorListener;
 
@@ -66,11 +80,16 @@ class ServerPositioningSource implements PositioningSource {
     private int mRetryCount;
     @Nullable private String mRetryUrl;
     @Nullable private PositioningRequest mRequest;
+    @Nullable private String mAdUnitId;
+    // Incremented by each load, so that cache reads for earlier loads are ignored.
+    private int mLoadCount;
+    // The positioning passed to the listener from the disk cache in this load, written back out
+    // with PositioningRequest.toJson so that it can be compared with the server's.
+    @Nullable private String mCachedPositioningJson;
 
     ServerPositioningSource(@NonNull final Context context) {
         mContext = context.getApplicationContext();
 
-        mRetryHandler = new Handler();
         mRetryRunnable = new Runnable() {
             @Override
             public void run() {
@@ -112,17 +131,55 @@ class ServerPositioningSource implements PositioningSource {
 
         // If a retry is pending remove it.
         if (mRetryCount > 0) {
-            mRetryHandler.removeCallbacks(mRetryRunnable);
+            if (mRetryTimer != null) {
+                mRetryTimer.cancel();
+                mRetryTimer = null;
+            }
             mRetryCount = 0;
         }
 
         mListener = listener;
+        mAdUnitId = adUnitId;
+        mCachedPositioningJson = null;
         mRetryUrl = new PositioningUrlGenerator(mContext)
                 .withAdUnitId(adUnitId)
                 .generateUrlString(Constants.HOST);
+        loadCachedPositioning(adUnitId, ++mLoadCount);
         requestPositioningInternal();
     }
 
+    private void loadCachedPositioning(@NonNull final String adUnitId, final int loadCount) {
+        CacheService.initialize(mContext);
+        CacheService.getFromDiskCacheAsync(getDiskCacheKey(adUnitId),
+                new DiskLruCacheGetListener() {
+                    @Override
+                    public void onComplete(final String key, final byte[] content) {
+                        // Too late if the request has already succeeded or positions are being
+                        // loaded again.
+                        if (content == null || mListener == null || loadCount != mLoadCount) {
+                            return;
+                        }
+
+                        final MoPubClientPositioning positioning;
+                        final String json;
+                        try {
+                            positioning = PositioningRequest.parseJson(new String(content, UTF_8));
+                            json = PositioningRequest.toJson(positioning);
+                        } catch (JSONException e) {
+                            MoPubLog.d("Ignoring invalid cached positioning", e);
+                            return;
+                        } catch (MoPubNetworkError e) {
+                            MoPubLog.d("Ignoring invalid cached positioning", e);
+                            return;
+                        }
+
+                        MoPubLog.d("Loaded cached positioning for ad unit {}.", adUnitId);
+                        mCachedPositioningJson = json;
+                        mListener.onLoad(positioning);
+                    }
+                });
+    }
+
     private void requestPositioningInternal() {
         MoPubLog.d("Loading positioning from: " + mRetryUrl);
 
@@ -132,7 +189,19 @@ class ServerPositioningSource implements PositioningSource {
     }
 
     private void handleSuccess(@NonNull MoPubClientPositioning positioning) {
-        if (mListener != null) {
+        String json = null;
+        try {
+            json = PositioningRequest.toJson(positioning);
+        } catch (JSONException e) {
+            MoPubLog.d("Unable to cache positioning", e);
+        }
+        if (json != null && mAdUnitId != null) {
+            CacheService.putToDiskCacheAsync(getDiskCacheKey(mAdUnitId), json.getBytes(UTF_8));
+        }
+
+        // No need to pass the same positioning twice.
+        if (mListener != null && (mCachedPositioningJson == null
+                || !mCachedPositioningJson.equals(json))) {
             mListener.onLoad(positioning);
         }
         mListener = null;
@@ -144,7 +213,8 @@ class ServerPositioningSource implements PositioningSource {
         int delay = (int) (DEFAULT_RETRY_TIME_MILLISECONDS * multiplier);
         if (delay >= mMaximumRetryTimeMillis) {
             MoPubLog.d("Error downloading positioning information");
-            if (mListener != null) {
+            // Ads are already being placed with the cached positioning.
+            if (mListener != null && mCachedPositioningJson == null) {
                 mListener.onFailed();
             }
             mListener = null;
@@ -152,7 +222,13 @@ class ServerPositioningSource implements PositioningSource {
         }
 
         mRetryCount++;
-        mRetryHandler.postDelayed(mRetryRunnable, delay);
+        mRetryTimer = TimerWheel.getInstance().schedule(mRetryRunnable, delay);
+    }
+
+    @NonNull
+    @VisibleForTesting
+    static String getDiskCacheKey(@NonNull final String adUnitId) {
+        return DISK_CACHE_KEY_PREFIX + adUnitId;
     }
 
     @Deprecated
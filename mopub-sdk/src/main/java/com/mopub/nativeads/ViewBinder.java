@@ -15,6 +15,7 @@ public class ViewBinder {
         private int mainImageId;
         private int iconImageId;
         private int privacyInformationIconImageId;
+        private int iconImageWidthHint;
         @NonNull private Map<String, Integer> extras = Collections.emptyMap();
 
         public Builder(final int layoutId) {
@@ -58,6 +59,17 @@ public class ViewBinder {
             return this;
         }
 
+        /**
+         * The width, in pixels, that the icon image is displayed at. Only needed if the icon view
+         * doesn't have a fixed width in the layout. Icon images are decoded no wider than this,
+         * which is 64dp by default.
+         */
+        @NonNull
+        public final Builder iconImageWidthHint(final int iconImageWidthHint) {
+            this.iconImageWidthHint = iconImageWidthHint;
+            return this;
+        }
+
         @NonNull
         public final Builder addExtras(final Map<String, Integer> resourceIds) {
             this.extras = new HashMap<String, Integer>(resourceIds);
@@ -83,6 +95,7 @@ public class ViewBinder {
     final int mainImageId;
     final int iconImageId;
     final int privacyInformationIconImageId;
+    final int iconImageWidthHint;
     @NonNull final Map<String, Integer> extras;
 
     private ViewBinder(@NonNull final Builder builder) {
@@ -93,6 +106,7 @@ public class ViewBinder {
         this.mainImageId = builder.mainImageId;
         this.iconImageId = builder.iconImageId;
         this.privacyInformationIconImageId = builder.privacyInformationIconImageId;
+        this.iconImageWidthHint = builder.iconImageWidthHint;
         this.extras = builder.extras;
     }
 }
@@ -0,0 +1,155 @@
+package com.mopub.network;
+
+import android.support.annotation.NonNull;
+
+import com.mopub.common.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Estimates the device's current download bandwidth and request latency from the SDK's own
+ * transfers.
+ *
+ * Transfers of at least {@link #MIN_THROUGHPUT_SAMPLE_BYTES} are throughput samples. The estimate
+ * is their weighted median, with each sample weighted by the square root of its size and old
+ * samples dropped once the total weight passes {@link #MAX_WEIGHT}. The median isn't thrown off by
+ * the odd stalled or cached transfer, and the estimate follows the network as the device moves.
+ * Smaller transfers, such as tracking requests, take about as long as a round trip whatever the
+ * bandwidth, so they are only used to estimate latency.
+ *
+ * This class is thread safe.
+ */
+public class BandwidthEstimator {
+    public static final long UNKNOWN = -1;
+
+    @VisibleForTesting static final long MIN_THROUGHPUT_SAMPLE_BYTES = 16 * 1024;
+    private static final int MAX_WEIGHT = 2000;
+    // How much each new latency sample counts towards the estimate.
+    private static final double LATENCY_SMOOTHING_FACTOR = 0.25;
+
+    private static final BandwidthEstimator sInstance = new BandwidthEstimator();
+
+    private static class Sample {
+        final double mWeight;
+        final long mBitsPerSecond;
+
+        Sample(final double weight, final long bitsPerSecond) {
+            mWeight = weight;
+            mBitsPerSecond = bitsPerSecond;
+        }
+    }
+
+    private static final Comparator<Sample> BY_BITS_PER_SECOND = new Comparator<Sample>() {
+        @Override
+        public int compare(final Sample first, final Sample second) {
+            return first.mBitsPerSecond < second.mBitsPerSecond
+                    ? -1
+                    : (first.mBitsPerSecond == second.mBitsPerSecond ? 0 : 1);
+        }
+    };
+
+    // Oldest first.
+    @NonNull private final Deque<Sample> mSamples = new ArrayDeque<Sample>();
+    private double mTotalWeight;
+    private long mBitsPerSecond = UNKNOWN;
+    private double mLatencyMillis = UNKNOWN;
+
+    @NonNull
+    public static BandwidthEstimator getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static void clearForTesting() {
+        sInstance.clear();
+    }
+
+    @VisibleForTesting
+    BandwidthEstimator() {
+    }
+
+    /**
+     * Adds a transfer to the estimate.
+     *
+     * @param bytes The number of bytes transferred.
+     * @param elapsedMillis How long the transfer took, including waiting for the response.
+     */
+    public synchronized void addTransfer(final long bytes, final long elapsedMillis) {
+        if (bytes <= 0 || elapsedMillis < 0) {
+            return;
+        }
+
+        if (bytes < MIN_THROUGHPUT_SAMPLE_BYTES) {
+            mLatencyMillis = mLatencyMillis == UNKNOWN
+                    ? elapsedMillis
+                    : mLatencyMillis
+                            + LATENCY_SMOOTHING_FACTOR * (elapsedMillis - mLatencyMillis);
+            return;
+        }
+
+        final Sample sample = new Sample(Math.sqrt(bytes),
+                bytes * 8 * 1000 / Math.max(elapsedMillis, 1));
+        mSamples.addLast(sample);
+        mTotalWeight += sample.mWeight;
+        while (mTotalWeight > MAX_WEIGHT && mSamples.size() > 1) {
+            mTotalWeight -= mSamples.removeFirst().mWeight;
+        }
+        mBitsPerSecond = computeWeightedMedian();
+    }
+
+    /**
+     * The estimated download bandwidth, or {@link #UNKNOWN} if there haven't been any large
+     * enough transfers yet.
+     */
+    public synchronized long getBitsPerSecond() {
+        return mBitsPerSecond;
+    }
+
+    /**
+     * The estimated time to get a response to a small request, or {@link #UNKNOWN} if there
+     * haven't been any yet.
+     */
+    public synchronized long getLatencyMillis() {
+        return mLatencyMillis == UNKNOWN ? UNKNOWN : Math.round(mLatencyMillis);
+    }
+
+    /**
+     * Estimates how long downloading the given number of bytes would take, or returns {@link
+     * #UNKNOWN} if the bandwidth isn't known yet.
+     */
+    public synchronized long estimateDownloadMillis(final long bytes) {
+        if (mBitsPerSecond == UNKNOWN) {
+            return UNKNOWN;
+        }
+
+        final long latencyMillis = mLatencyMillis == UNKNOWN ? 0 : Math.round(mLatencyMillis);
+        return latencyMillis + bytes * 8 * 1000 / Math.max(mBitsPerSecond, 1);
+    }
+
+    synchronized void clear() {
+        mSamples.clear();
+        mTotalWeight = 0;
+        mBitsPerSecond = UNKNOWN;
+        mLatencyMillis = UNKNOWN;
+    }
+
+    private long computeWeightedMedian() {
+        final List<Sample> sortedSamples = new ArrayList<Sample>(mSamples);
+        Collections.sort(sortedSamples, BY_BITS_PER_SECOND);
+
+        final double halfWeight = mTotalWeight / 2;
+        double weight = 0;
+        for (final Sample sample : sortedSamples) {
+            weight += sample.mWeight;
+            if (weight >= halfWeight) {
+                return sample.mBitsPerSecond;
+            }
+        }
+        return sortedSamples.get(sortedSamples.size() - 1).mBitsPerSecond;
+    }
+}
@@ -0,0 +1,122 @@
+package com.mopub.network;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Bitmaps that are no longer displayed, kept so that image decodes can reuse their memory through
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} instead of allocating a new bitmap.
+ *
+ * The pool is bounded by the total byte count of its bitmaps. When it is full, the bitmaps that
+ * were pooled first are dropped first.
+ *
+ * This class is thread safe, since images are decoded on background threads.
+ */
+class BitmapPool {
+    private final int mMaxSizeBytes;
+    @NonNull private final LinkedList<Bitmap> mBitmaps;
+    private int mSizeBytes;
+
+    BitmapPool(final int maxSizeBytes) {
+        Preconditions.checkArgument(maxSizeBytes >= 0);
+
+        mMaxSizeBytes = maxSizeBytes;
+        mBitmaps = new LinkedList<Bitmap>();
+    }
+
+    /**
+     * Adds a bitmap to the pool. The caller must guarantee that the bitmap isn't displayed or
+     * otherwise used anymore. Immutable bitmaps can't be decoded into and are ignored.
+     */
+    synchronized void put(@Nullable final Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+
+        final int sizeBytes = getSizeBytes(bitmap);
+        if (sizeBytes > mMaxSizeBytes) {
+            return;
+        }
+
+        mBitmaps.addLast(bitmap);
+        mSizeBytes += sizeBytes;
+        while (mSizeBytes > mMaxSizeBytes) {
+            mSizeBytes -= getSizeBytes(mBitmaps.removeFirst());
+        }
+    }
+
+    /**
+     * Removes and returns a bitmap that an image of the given size and config can be decoded into,
+     * or null if there is none.
+     */
+    @Nullable
+    synchronized Bitmap get(final int width, final int height,
+            @NonNull final Bitmap.Config config) {
+        final Iterator<Bitmap> iterator = mBitmaps.iterator();
+        while (iterator.hasNext()) {
+            final Bitmap bitmap = iterator.next();
+            if (canDecodeInto(bitmap, width, height, config)) {
+                iterator.remove();
+                mSizeBytes -= getSizeBytes(bitmap);
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    synchronized void clear() {
+        mBitmaps.clear();
+        mSizeBytes = 0;
+    }
+
+    @VisibleForTesting
+    synchronized int getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    @VisibleForTesting
+    synchronized int getBitmapCount() {
+        return mBitmaps.size();
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    @VisibleForTesting
+    static boolean canDecodeInto(@NonNull final Bitmap bitmap, final int width, final int height,
+            @NonNull final Bitmap.Config config) {
+        if (bitmap.getConfig() != config) {
+            return false;
+        }
+
+        // Before KitKat, inBitmap only works for bitmaps of exactly the same size.
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return bitmap.getWidth() == width && bitmap.getHeight() == height;
+        }
+        return (long) width * height * getBytesPerPixel(config) <= bitmap.getAllocationByteCount();
+    }
+
+    private static int getSizeBytes(@NonNull final Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    private static int getBytesPerPixel(@NonNull final Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            case ARGB_8888:
+            default:
+                return 4;
+        }
+    }
+}
@@ -2,21 +2,74 @@ package com.mopub.network;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Point;
 import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.Display;
 import android.view.WindowManager;
 
+import com.mopub.common.VisibleForTesting;
 import com.mopub.volley.RequestQueue;
+import com.mopub.volley.VolleyError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 public class MaxWidthImageLoader extends com.mopub.volley.toolbox.ImageLoader {
+    // Caching is done by the TieredImageCache instead, which Volley doesn't know about.
+    private static final ImageCache NO_OP_IMAGE_CACHE = new ImageCache() {
+        @Override
+        public Bitmap getBitmap(final String url) {
+            return null;
+        }
+
+        @Override
+        public void putBitmap(final String url, final Bitmap bitmap) {
+        }
+    };
+
+    /**
+     * A listener that also wants to know when an image came from the disk tier of the
+     * {@link TieredImageCache} rather than from the network.
+     */
+    public interface DiskCacheImageListener extends ImageListener {
+        /**
+         * Called right before {@link #onResponse} for an image read from the disk tier.
+         */
+        void onDiskCacheHit();
+    }
+
+    @VisibleForTesting static final int MIN_SIZE_BUCKET = 32;
+
     private final int mMaxImageWidth;
+    @Nullable private final TieredImageCache mTieredImageCache;
 
+    // Listeners waiting for a disk tier lookup, by cache key.
+    @NonNull private final HashMap<String, List<ImageListener>> mPendingDiskCacheGets;
 
-    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR2)
     public MaxWidthImageLoader(final RequestQueue queue, final Context context, final ImageCache imageCache) {
+        this(queue, context, imageCache, null);
+    }
+
+    /**
+     * Creates an image loader that caches images in a {@link TieredImageCache}.
+     */
+    public MaxWidthImageLoader(final RequestQueue queue, final Context context,
+            @NonNull final TieredImageCache tieredImageCache) {
+        this(queue, context, NO_OP_IMAGE_CACHE, tieredImageCache);
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR2)
+    private MaxWidthImageLoader(final RequestQueue queue, final Context context,
+            final ImageCache imageCache, @Nullable final TieredImageCache tieredImageCache) {
         super(queue, imageCache);
 
+        mTieredImageCache = tieredImageCache;
+        mPendingDiskCacheGets = new HashMap<String, List<ImageListener>>();
+
         // Get Display Options
         WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
         Display display = wm.getDefaultDisplay();
@@ -33,6 +86,182 @@ public class MaxWidthImageLoader extends com.mopub.volley.toolbox.ImageLoader {
 
     @Override
     public ImageContainer get(final String requestUrl, final ImageListener listener) {
-        return super.get(requestUrl, listener, mMaxImageWidth, 0 /* no height limit */);
+        return get(requestUrl, listener, 0, 0);
+    }
+
+    /**
+     * Loads an image scaled down to fit the given size, e.g. that of the view it is for, so that
+     * small views don't hold on to full-size bitmaps. Sizes are rounded up to a power of two
+     * bucket, so that views of similar sizes share cache entries, and widths are never larger
+     * than the skinny side of the display.
+     *
+     * @param maxWidth The width to fit, or 0 to only fit the display.
+     * @param maxHeight The height to fit, or 0 for no height limit.
+     */
+    @Override
+    public ImageContainer get(final String requestUrl, final ImageListener listener,
+            final int maxWidth, final int maxHeight) {
+        final int widthBucket = getSizeBucket(maxWidth, mMaxImageWidth);
+        final int heightBucket = maxHeight <= 0 ? 0 : getSizeBucket(maxHeight, Integer.MAX_VALUE);
+        if (mTieredImageCache == null) {
+            return super.get(requestUrl, listener, widthBucket, heightBucket);
+        }
+        return getFromTieredImageCache(mTieredImageCache, requestUrl, listener, widthBucket,
+                heightBucket);
+    }
+
+    /**
+     * Reports that the SDK started showing a bitmap from this loader, so that its memory is not
+     * reused while it is on screen.
+     */
+    public void onBitmapDisplayed(@Nullable final Bitmap bitmap) {
+        if (mTieredImageCache != null) {
+            mTieredImageCache.onBitmapDisplayed(bitmap);
+        }
+    }
+
+    /**
+     * Reports that the SDK stopped showing a bitmap from this loader.
+     */
+    public void onBitmapReleased(@Nullable final Bitmap bitmap) {
+        if (mTieredImageCache != null) {
+            mTieredImageCache.onBitmapReleased(bitmap);
+        }
+    }
+
+    @Nullable
+    public TieredImageCache getTieredImageCache() {
+        return mTieredImageCache;
+    }
+
+    /**
+     * Looks the image up in the memory tier, then the disk tier, and only then loads it through
+     * Volley. As with Volley's own cache, the listener is called right away with either the cached
+     * bitmap or an empty container.
+     */
+    @NonNull
+    private ImageContainer getFromTieredImageCache(@NonNull final TieredImageCache tieredImageCache,
+            @NonNull final String requestUrl, @NonNull final ImageListener listener,
+            final int maxWidth, final int maxHeight) {
+        final String cacheKey = getTieredCacheKey(requestUrl, maxWidth, maxHeight);
+
+        final Bitmap cachedBitmap = getFromMemory(tieredImageCache, requestUrl, maxWidth,
+                maxHeight);
+        if (cachedBitmap != null) {
+            final ImageContainer container =
+                    new ImageContainer(cachedBitmap, requestUrl, null, null);
+            listener.onResponse(container, true);
+            return container;
+        }
+
+        final ImageContainer emptyContainer = new ImageContainer(null, requestUrl, null, null);
+        listener.onResponse(emptyContainer, true);
+
+        if (!tieredImageCache.shouldLookUpDiskCache(cacheKey)) {
+            tieredImageCache.recordMiss();
+            getFromNetwork(tieredImageCache, cacheKey, requestUrl, listener, maxWidth, maxHeight);
+            return emptyContainer;
+        }
+
+        List<ImageListener> pendingListeners = mPendingDiskCacheGets.get(cacheKey);
+        if (pendingListeners != null) {
+            pendingListeners.add(listener);
+            return emptyContainer;
+        }
+
+        pendingListeners = new ArrayList<ImageListener>();
+        pendingListeners.add(listener);
+        mPendingDiskCacheGets.put(cacheKey, pendingListeners);
+        tieredImageCache.getFromDiskAsync(cacheKey, new TieredImageCache.DiskCacheListener() {
+            @Override
+            public void onComplete(@NonNull final String key, @Nullable final Bitmap bitmap) {
+                final List<ImageListener> listeners = mPendingDiskCacheGets.remove(key);
+                if (listeners == null) {
+                    return;
+                }
+
+                if (bitmap != null) {
+                    for (final ImageListener pendingListener : listeners) {
+                        if (pendingListener instanceof DiskCacheImageListener) {
+                            ((DiskCacheImageListener) pendingListener).onDiskCacheHit();
+                        }
+                        pendingListener.onResponse(
+                                new ImageContainer(bitmap, requestUrl, null, null), false);
+                    }
+                    return;
+                }
+
+                tieredImageCache.recordMiss();
+                for (final ImageListener pendingListener : listeners) {
+                    getFromNetwork(tieredImageCache, key, requestUrl, pendingListener, maxWidth,
+                            maxHeight);
+                }
+            }
+        });
+        return emptyContainer;
+    }
+
+    /**
+     * Looks for the image in the given size bucket, or in a larger one. A larger bitmap that is
+     * already in memory costs nothing extra, while loading a smaller one would.
+     */
+    @Nullable
+    private Bitmap getFromMemory(@NonNull final TieredImageCache tieredImageCache,
+            @NonNull final String requestUrl, final int maxWidth, final int maxHeight) {
+        int width = maxWidth;
+        while (true) {
+            final Bitmap bitmap = tieredImageCache.getFromMemory(
+                    getTieredCacheKey(requestUrl, width, maxHeight));
+            if (bitmap != null || width >= mMaxImageWidth) {
+                return bitmap;
+            }
+            width = getSizeBucket(width * 2, mMaxImageWidth);
+        }
+    }
+
+    private void getFromNetwork(@NonNull final TieredImageCache tieredImageCache,
+            @NonNull final String cacheKey, @NonNull final String requestUrl,
+            @NonNull final ImageListener listener, final int maxWidth, final int maxHeight) {
+        super.get(requestUrl, new ImageListener() {
+            @Override
+            public void onResponse(final ImageContainer imageContainer, final boolean isImmediate) {
+                final Bitmap bitmap = imageContainer.getBitmap();
+                if (bitmap == null) {
+                    // The listener already got its empty response.
+                    return;
+                }
+
+                tieredImageCache.put(cacheKey, bitmap, requestUrl);
+                listener.onResponse(imageContainer, isImmediate);
+            }
+
+            @Override
+            public void onErrorResponse(final VolleyError volleyError) {
+                listener.onErrorResponse(volleyError);
+            }
+        }, maxWidth, maxHeight);
+    }
+
+    /**
+     * Rounds a size up to the next power of two bucket, starting at {@link #MIN_SIZE_BUCKET}, and
+     * limits it to maxSize. Sizes of 0 or less are unknown and get maxSize.
+     */
+    @VisibleForTesting
+    static int getSizeBucket(final int size, final int maxSize) {
+        if (size <= 0 || size >= maxSize) {
+            return maxSize;
+        }
+
+        int bucket = MIN_SIZE_BUCKET;
+        while (bucket < size) {
+            bucket *= 2;
+        }
+        return Math.min(bucket, maxSize);
+    }
+
+    @NonNull
+    static String getTieredCacheKey(@NonNull final String requestUrl, final int maxWidth,
+            final int maxHeight) {
+        return "#W" + maxWidth + "#H" + maxHeight + requestUrl;
     }
 }
@@ -1,15 +1,16 @@
 package com.mopub.network;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.LruCache;
 import android.webkit.WebView;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.Constants;
+import com.mopub.common.MemoryGovernor;
+import com.mopub.common.MemoryGovernor.RestoreCost;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.util.DeviceUtils;
@@ -85,27 +86,18 @@ public class Networking {
                 if (imageLoader == null) {
                     RequestQueue queue = getRequestQueue(context);
                     int cacheSize = DeviceUtils.memoryCacheSizeBytes(context);
-                    final LruCache<String, Bitmap> imageCache = new LruCache<String, Bitmap>(cacheSize) {
-                        @Override
-                        protected int sizeOf(String key, Bitmap value) {
-                            if (value != null) {
-                                return value.getRowBytes() * value.getHeight();
-                            }
-
-                            return super.sizeOf(key, value);
-                        }
-                    };
-                    imageLoader = new MaxWidthImageLoader(queue, context, new MaxWidthImageLoader.ImageCache() {
-                        @Override
-                        public Bitmap getBitmap(final String key) {
-                            return imageCache.get(key);
-                        }
-
-                        @Override
-                        public void putBitmap(final String key, final Bitmap bitmap) {
-                            imageCache.put(key, bitmap);
-                        }
-                    });
+                    // The disk tier of the image cache lives in the CacheService. Opening it reads
+                    // its journal from disk, so the UI thread has it opened in the background.
+                    if (Looper.myLooper() == Looper.getMainLooper()) {
+                        CacheService.initializeDiskCacheAsync(context, null);
+                    } else {
+                        CacheService.initialize(context);
+                    }
+                    final TieredImageCache tieredImageCache =
+                            new TieredImageCache(cacheSize, queue.getCache());
+                    MemoryGovernor.getInstance().register(context, tieredImageCache,
+                            RestoreCost.CACHE);
+                    imageLoader = new MaxWidthImageLoader(queue, context, tieredImageCache);
                     sMaxWidthImageLoader = imageLoader;
                 }
             }
@@ -0,0 +1,471 @@
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.MemoryGovernor;
+import com.mopub.common.MemoryGovernor.MemoryConsumer;
+import com.mopub.common.MemoryGovernor.TrimLevel;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
+import com.mopub.volley.Cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Two-tier cache of decoded ad images.
+ *
+ * The memory tier is an LRU cache of bitmaps. The disk tier keeps images in {@link CacheService}
+ * after they have been downsampled to the size they are displayed at, so that a memory miss costs
+ * a small decode instead of a round trip through the Volley cache and a decode of the full-size
+ * image. Disk tier decodes reuse bitmaps from a {@link BitmapPool}. Images that were JPEGs are
+ * written as JPEGs, and everything else as lossless PNGs, so that transparency and sharp edges
+ * survive the disk tier.
+ *
+ * Writing to the disk tier costs an encode and a second copy on disk of an image that Volley has
+ * usually cached already. That only pays off when the downsampled image is much smaller than the
+ * one Volley would decode again, so images that were downsampled less than {@link
+ * #MIN_DISK_CACHE_DOWNSAMPLE_FACTOR} times are left to Volley's cache. Memory misses on those go
+ * straight to Volley, without a disk tier lookup. Images that aren't in Volley's cache are always
+ * written, since nothing else would spare them a network fetch.
+ *
+ * A bitmap is only pooled once it has left the memory tier and every view showing it has been
+ * released through {@link #onBitmapReleased}. Bitmaps that were never reported as displayed
+ * through {@link #onBitmapDisplayed} are never pooled, because they might still be on screen.
+ *
+ * Under memory pressure the {@link MemoryGovernor} trims the memory tier and the bitmap pool. The
+ * disk tier is kept, so trimmed images come back with a small decode.
+ *
+ * All methods must be called on the main thread.
+ */
+public class TieredImageCache implements MemoryConsumer {
+    interface DiskCacheListener {
+        void onComplete(@NonNull String key, @Nullable Bitmap bitmap);
+    }
+
+    private static final String DISK_CACHE_KEY_PREFIX = "mopub-image";
+    private static final int JPEG_QUALITY = 90;
+    // How many times fewer pixels a downsampled image must have than the image Volley cached for
+    // it to be written to the disk tier.
+    @VisibleForTesting static final int MIN_DISK_CACHE_DOWNSAMPLE_FACTOR = 4;
+
+    // Share of the memory budget that goes to the bitmap pool rather than to cached bitmaps.
+    private static final int BITMAP_POOL_DIVISOR = 4;
+
+    @NonNull private final LruCache<String, Bitmap> mMemoryCache;
+    // Holds the responses that images were decoded from, to tell which format they came in.
+    @Nullable private final Cache mNetworkCache;
+    @NonNull private final BitmapPool mBitmapPool;
+
+    // Number of views showing each displayed bitmap. A bitmap with a count of 0 was displayed and
+    // has been released by every view since. Weak keys, so that views which are never released
+    // don't leak their bitmaps.
+    @NonNull private final WeakHashMap<Bitmap, Integer> mDisplayCounts;
+    // Bitmaps that left the memory tier while still displayed. Pooled once released.
+    @NonNull private final WeakHashMap<Bitmap, Boolean> mEvictedDisplayedBitmaps;
+    // Keys known to be in the disk tier, or being written to it, so that an image is only written
+    // once.
+    @NonNull private final Set<String> mDiskCacheKeys;
+    // Keys that were not worth writing to the disk tier, so that misses on them skip it.
+    @NonNull private final Set<String> mSkippedDiskCacheKeys;
+
+    private int mMemoryHitCount;
+    private int mDiskHitCount;
+    private int mMissCount;
+    private int mDecodeCount;
+    private long mDecodeMillis;
+
+    public TieredImageCache(final int maxSizeBytes) {
+        this(maxSizeBytes, null);
+    }
+
+    /**
+     * @param networkCache The Volley cache that images are loaded through, used to find out
+     *                     which format each image came in.
+     */
+    public TieredImageCache(final int maxSizeBytes, @Nullable final Cache networkCache) {
+        Preconditions.checkArgument(maxSizeBytes > 0);
+
+        mNetworkCache = networkCache;
+        final int bitmapPoolSizeBytes = maxSizeBytes / BITMAP_POOL_DIVISOR;
+        mBitmapPool = new BitmapPool(bitmapPoolSizeBytes);
+        mDisplayCounts = new WeakHashMap<Bitmap, Integer>();
+        mEvictedDisplayedBitmaps = new WeakHashMap<Bitmap, Boolean>();
+        mDiskCacheKeys = new HashSet<String>();
+        mSkippedDiskCacheKeys = new HashSet<String>();
+        mMemoryCache = new LruCache<String, Bitmap>(maxSizeBytes - bitmapPoolSizeBytes) {
+            @Override
+            protected int sizeOf(final String key, final Bitmap value) {
+                if (value != null) {
+                    return value.getRowBytes() * value.getHeight();
+                }
+
+                return super.sizeOf(key, value);
+            }
+
+            @Override
+            protected void entryRemoved(final boolean evicted, final String key,
+                    final Bitmap oldValue, final Bitmap newValue) {
+                if (evicted) {
+                    onEvicted(oldValue);
+                }
+            }
+        };
+    }
+
+    @Nullable
+    Bitmap getFromMemory(@NonNull final String key) {
+        final Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            mMemoryHitCount++;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds a freshly loaded, already downsampled image to both tiers.
+     */
+    void put(@NonNull final String key, @NonNull final Bitmap bitmap) {
+        put(key, bitmap, null);
+    }
+
+    /**
+     * Adds a freshly loaded, already downsampled image to both tiers.
+     *
+     * @param requestUrl The url the image was loaded from, if it was loaded through the network
+     *                   cache.
+     */
+    void put(@NonNull final String key, @NonNull final Bitmap bitmap,
+            @Nullable final String requestUrl) {
+        mMemoryCache.put(key, bitmap);
+        MemoryGovernor.getInstance().enforceBudget();
+
+        if (!mSkippedDiskCacheKeys.contains(key) && mDiskCacheKeys.add(key)) {
+            AsyncTasks.safeExecuteOnExecutor(Lane.DISK, Priority.DEFAULT,
+                    new DiskCachePutTask(this, key, bitmap, requestUrl));
+        }
+    }
+
+    /**
+     * Whether a memory miss on the key should look in the disk tier before loading the image
+     * through Volley. False for images that were not worth writing to the disk tier.
+     */
+    boolean shouldLookUpDiskCache(@NonNull final String key) {
+        return !mSkippedDiskCacheKeys.contains(key);
+    }
+
+    /**
+     * Looks the image up in the disk tier and decodes it on a background thread. On a hit the
+     * image is also added to the memory tier. The listener gets a null bitmap on a miss.
+     */
+    void getFromDiskAsync(@NonNull final String key, @NonNull final DiskCacheListener listener) {
+        AsyncTasks.safeExecuteOnExecutor(Lane.DISK, Priority.DEFAULT,
+                new DiskCacheGetTask(this, key, listener));
+    }
+
+    /**
+     * Records that an image had to be loaded through the network stack.
+     */
+    void recordMiss() {
+        mMissCount++;
+    }
+
+    /**
+     * Reports that a view started showing the bitmap.
+     */
+    void onBitmapDisplayed(@Nullable final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        final Integer displayCount = mDisplayCounts.get(bitmap);
+        mDisplayCounts.put(bitmap, displayCount == null ? 1 : displayCount + 1);
+    }
+
+    /**
+     * Reports that a view stopped showing the bitmap.
+     */
+    void onBitmapReleased(@Nullable final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        final Integer displayCount = mDisplayCounts.get(bitmap);
+        if (displayCount == null || displayCount == 0) {
+            return;
+        }
+
+        mDisplayCounts.put(bitmap, displayCount - 1);
+        if (displayCount == 1 && mEvictedDisplayedBitmaps.remove(bitmap) != null) {
+            mBitmapPool.put(bitmap);
+        }
+    }
+
+    private void onEvicted(@NonNull final Bitmap bitmap) {
+        final Integer displayCount = mDisplayCounts.get(bitmap);
+        if (displayCount == null) {
+            // Never reported as displayed, so it may still be on screen.
+            return;
+        }
+
+        if (displayCount > 0) {
+            mEvictedDisplayedBitmaps.put(bitmap, Boolean.TRUE);
+        } else {
+            mBitmapPool.put(bitmap);
+        }
+    }
+
+    private void onDiskCachePutComplete(@NonNull final String key, final boolean isWritten) {
+        if (!isWritten) {
+            mDiskCacheKeys.remove(key);
+            mSkippedDiskCacheKeys.add(key);
+        }
+    }
+
+    private void onDiskCacheGetComplete(@NonNull final String key, @Nullable final Bitmap bitmap,
+            final long decodeMillis) {
+        if (bitmap == null) {
+            mDiskCacheKeys.remove(key);
+            return;
+        }
+
+        mDiskHitCount++;
+        mDecodeCount++;
+        mDecodeMillis += decodeMillis;
+        mDiskCacheKeys.add(key);
+        mMemoryCache.put(key, bitmap);
+        MemoryGovernor.getInstance().enforceBudget();
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return mMemoryCache.size() + mBitmapPool.getSizeBytes();
+    }
+
+    @Override
+    public void trimMemory(@NonNull final TrimLevel level) {
+        if (level == TrimLevel.MODERATE) {
+            mMemoryCache.trimToSize(mMemoryCache.size() / 2);
+        } else {
+            mMemoryCache.evictAll();
+        }
+        // After evicting, since evicted bitmaps that are no longer displayed go to the pool.
+        mBitmapPool.clear();
+    }
+
+    /**
+     * The number of images served from the memory tier.
+     */
+    public int getMemoryHitCount() {
+        return mMemoryHitCount;
+    }
+
+    /**
+     * The number of images served from the disk tier.
+     */
+    public int getDiskHitCount() {
+        return mDiskHitCount;
+    }
+
+    /**
+     * The number of images that were in neither tier.
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * The fraction of image loads served from either tier, or 0 if no images were loaded.
+     */
+    public float getHitRate() {
+        final int hitCount = mMemoryHitCount + mDiskHitCount;
+        final int requestCount = hitCount + mMissCount;
+        return requestCount == 0 ? 0 : (float) hitCount / requestCount;
+    }
+
+    /**
+     * The average time spent decoding a disk tier image, in milliseconds.
+     */
+    public float getAverageDecodeMillis() {
+        return mDecodeCount == 0 ? 0 : (float) mDecodeMillis / mDecodeCount;
+    }
+
+    @NonNull
+    @VisibleForTesting
+    BitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    @VisibleForTesting
+    void evictAllFromMemory() {
+        mMemoryCache.evictAll();
+    }
+
+    @NonNull
+    private static String getDiskCacheKey(@NonNull final String key) {
+        return DISK_CACHE_KEY_PREFIX + key;
+    }
+
+    /**
+     * The format to write an image to the disk tier in: JPEG if it was a JPEG, since that is
+     * already lossy and compresses photos best, and otherwise lossless PNG.
+     *
+     * @param originalBytes The image as it was downloaded, or null if that isn't known.
+     */
+    @NonNull
+    @VisibleForTesting
+    static Bitmap.CompressFormat getDiskCacheFormat(@Nullable final byte[] originalBytes) {
+        // JPEGs start with a start of image marker.
+        if (originalBytes != null && originalBytes.length >= 2
+                && originalBytes[0] == (byte) 0xFF && originalBytes[1] == (byte) 0xD8) {
+            return Bitmap.CompressFormat.JPEG;
+        }
+        return Bitmap.CompressFormat.PNG;
+    }
+
+    /**
+     * Whether writing the downsampled bitmap to the disk tier saves enough decoding over reading
+     * the original image back from Volley's cache.
+     *
+     * @param originalBytes The image as it was downloaded, or null if it isn't in Volley's cache.
+     */
+    @VisibleForTesting
+    static boolean isWorthDiskCaching(@NonNull final Bitmap bitmap,
+            @Nullable final byte[] originalBytes) {
+        if (originalBytes == null) {
+            return true;
+        }
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(originalBytes, 0, originalBytes.length, options);
+        final long originalPixels = (long) options.outWidth * options.outHeight;
+        final long pixels = (long) bitmap.getWidth() * bitmap.getHeight();
+        return originalPixels >= pixels * MIN_DISK_CACHE_DOWNSAMPLE_FACTOR;
+    }
+
+    /**
+     * Decodes an image from the disk tier, reusing a pooled bitmap if one fits.
+     */
+    @Nullable
+    @VisibleForTesting
+    static Bitmap decode(@NonNull final byte[] bytes, @NonNull final BitmapPool bitmapPool) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = bitmapPool.get(options.outWidth, options.outHeight,
+                Bitmap.Config.ARGB_8888);
+        try {
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap can't be reused for this image after all.
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+    }
+
+    private static class DiskCacheGetTask extends AsyncTask<Void, Void, Bitmap> {
+        @NonNull private final TieredImageCache mTieredImageCache;
+        @NonNull private final String mKey;
+        @NonNull private final DiskCacheListener mListener;
+        @NonNull private final BitmapPool mBitmapPool;
+        private long mDecodeMillis;
+
+        DiskCacheGetTask(@NonNull final TieredImageCache tieredImageCache,
+                @NonNull final String key, @NonNull final DiskCacheListener listener) {
+            mTieredImageCache = tieredImageCache;
+            mKey = key;
+            mListener = listener;
+            mBitmapPool = tieredImageCache.mBitmapPool;
+        }
+
+        @Override
+        @Nullable
+        protected Bitmap doInBackground(final Void... voids) {
+            final byte[] bytes = CacheService.getFromDiskCache(getDiskCacheKey(mKey));
+            if (bytes == null) {
+                return null;
+            }
+
+            final long startMillis = SystemClock.uptimeMillis();
+            final Bitmap bitmap = decode(bytes, mBitmapPool);
+            mDecodeMillis = SystemClock.uptimeMillis() - startMillis;
+            return bitmap;
+        }
+
+        @Override
+        protected void onPostExecute(@Nullable final Bitmap bitmap) {
+            mTieredImageCache.onDiskCacheGetComplete(mKey, bitmap, mDecodeMillis);
+            mListener.onComplete(mKey, bitmap);
+        }
+    }
+
+    private static class DiskCachePutTask extends AsyncTask<Void, Void, Boolean> {
+        @NonNull private final TieredImageCache mTieredImageCache;
+        @NonNull private final String mKey;
+        @NonNull private final Bitmap mBitmap;
+        @Nullable private final Cache mNetworkCache;
+        @Nullable private final String mRequestUrl;
+
+        DiskCachePutTask(@NonNull final TieredImageCache tieredImageCache,
+                @NonNull final String key, @NonNull final Bitmap bitmap,
+                @Nullable final String requestUrl) {
+            mTieredImageCache = tieredImageCache;
+            mKey = key;
+            mBitmap = bitmap;
+            mNetworkCache = tieredImageCache.mNetworkCache;
+            mRequestUrl = requestUrl;
+        }
+
+        /**
+         * @return false if the image was not worth writing, true otherwise.
+         */
+        @Override
+        protected Boolean doInBackground(final Void... voids) {
+            // Volley caches responses by url. Reading the entry touches the disk, so it is done
+            // here rather than when the image is loaded.
+            Cache.Entry originalEntry = null;
+            if (mNetworkCache != null && mRequestUrl != null) {
+                originalEntry = mNetworkCache.get(mRequestUrl);
+            }
+            final byte[] originalBytes = originalEntry == null ? null : originalEntry.data;
+            if (!isWorthDiskCaching(mBitmap, originalBytes)) {
+                return false;
+            }
+
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            if (!mBitmap.compress(getDiskCacheFormat(originalBytes), JPEG_QUALITY,
+                    outputStream)) {
+                MoPubLog.d("Unable to compress image for the disk cache.");
+                return true;
+            }
+
+            CacheService.putToDiskCache(getDiskCacheKey(mKey), outputStream.toByteArray());
+            return true;
+        }
+
+        @Override
+        protected void onPostExecute(final Boolean isWritten) {
+            mTieredImageCache.onDiskCachePutComplete(mKey, isWritten);
+        }
+    }
+}
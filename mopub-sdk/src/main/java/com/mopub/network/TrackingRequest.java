@@ -43,6 +43,12 @@ public class TrackingRequest extends Request<Void> {
 
     @Override
     protected Response<Void> parseNetworkResponse(final NetworkResponse networkResponse) {
+        // Tracking responses are tiny, so these mostly tell the estimator about latency.
+        if (networkResponse.data != null) {
+            BandwidthEstimator.getInstance().addTransfer(networkResponse.data.length,
+                    networkResponse.networkTimeMs);
+        }
+
         if (networkResponse.statusCode != 200) {
             return Response.error(
                     new MoPubNetworkError("Failed to log tracking request. Response code: "
@@ -110,7 +116,7 @@ public class TrackingRequest extends Request<Void> {
             final TrackingRequest.Listener internalListener = new TrackingRequest.Listener() {
                 @Override
                 public void onResponse(@NonNull String url) {
-                    MoPubLog.d("Successfully hit tracking endpoint: " + url);
+                    MoPubLog.d("Successfully hit tracking endpoint: {}", url);
                     if (listener != null) {
                         listener.onResponse(url);
                     }
@@ -118,7 +124,7 @@ public class TrackingRequest extends Request<Void> {
 
                 @Override
                 public void onErrorResponse(final VolleyError volleyError) {
-                    MoPubLog.d("Failed to hit tracking endpoint: " + url);
+                    MoPubLog.d("Failed to hit tracking endpoint: {}", url);
                     if (listener != null) {
                         listener.onErrorResponse(volleyError);
                     }
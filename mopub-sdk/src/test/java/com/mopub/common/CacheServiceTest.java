@@ -15,9 +15,11 @@ import org.robolectric.annotation.Config;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.concurrent.Semaphore;
 
+import static com.mopub.common.CacheService.DiskCacheInitializedListener;
 import static com.mopub.common.CacheService.DiskLruCacheGetListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -25,6 +27,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SdkTestRunner.class)
@@ -79,6 +82,51 @@ public class CacheServiceTest {
         assertThat(diskLruCache).isEqualTo(CacheService.getDiskLruCache());
     }
     
+    @Test
+    public void initializeDiskCacheAsync_shouldOpenDiskCacheAndNotifyListener() throws Exception {
+        final DiskCacheInitializedListener listener = mock(DiskCacheInitializedListener.class);
+
+        CacheService.initializeDiskCacheAsync(context, listener);
+
+        verify(listener).onDiskCacheInitialized(true);
+        assertDiskCacheIsEmpty();
+    }
+
+    @Test
+    public void initializeDiskCacheAsync_whenAlreadyOpen_shouldNotifyListenerRightAway() throws Exception {
+        CacheService.initializeDiskCache(context);
+        Robolectric.getBackgroundThreadScheduler().pause();
+        final DiskCacheInitializedListener listener = mock(DiskCacheInitializedListener.class);
+
+        CacheService.initializeDiskCacheAsync(context, listener);
+
+        verify(listener).onDiskCacheInitialized(true);
+        assertThat(Robolectric.getBackgroundThreadScheduler().size()).isEqualTo(0);
+        Robolectric.getBackgroundThreadScheduler().unPause();
+    }
+
+    @Test
+    public void initializeDiskCacheAsync_withNullContext_shouldNotifyListenerOfFailure() throws Exception {
+        final DiskCacheInitializedListener listener = mock(DiskCacheInitializedListener.class);
+
+        CacheService.initializeDiskCacheAsync(null, listener);
+
+        verify(listener).onDiskCacheInitialized(false);
+    }
+
+    @Test
+    public void containsKeyDiskCache_shouldOnlyAnswerFromIndexOfOpenDiskCache() throws Exception {
+        CacheService.initialize(context);
+
+        // The disk cache isn't opened just to answer this.
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
+
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        assertThat(CacheService.containsKeyDiskCache(key1)).isTrue();
+        assertThat(CacheService.containsKeyDiskCache("https://www.mopub.com/other")).isFalse();
+    }
+
     @Test
     public void getDiskLruCacheDirectory_shouldReturnValidCacheDirectory() throws Exception {
         File file = CacheService.getDiskCacheDirectory(context);
@@ -120,6 +168,29 @@ public class CacheServiceTest {
         assertThat(getBytes).isNull();
     }
 
+    @Test
+    public void moveToDiskCache_shouldMoveFileIntoCache() throws Exception {
+        CacheService.initialize(context);
+        final File file = new File(context.getCacheDir(), "moved");
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(data1.getBytes());
+        outputStream.close();
+
+        assertThat(CacheService.moveToDiskCache(key1, file)).isTrue();
+
+        assertThat(file.exists()).isFalse();
+        assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
+    }
+
+    @Test
+    public void moveToDiskCache_withMissingFile_shouldReturnFalse() throws Exception {
+        CacheService.initialize(context);
+
+        assertThat(CacheService.moveToDiskCache(key1,
+                new File(context.getCacheDir(), "missing"))).isFalse();
+        assertThat(CacheService.getFromDiskCache(key1)).isNull();
+    }
+
     @Test
     public void diskLruCachePut_withEmptyStringKey_shouldPutCorrectly() throws Exception {
         // this works because an empty string sha1 hashes to a valid key
@@ -143,6 +214,24 @@ public class CacheServiceTest {
         assertThat(CacheService.createValidDiskCacheKey(null)).isEqualTo("");
     }
 
+    @Test
+    public void createValidDiskCacheKey_shouldReturnSha1OfKey() throws Exception {
+        assertThat(CacheService.createValidDiskCacheKey(key1))
+                .isEqualTo("1517a72b98abef728592cd71902e107173121cdf");
+    }
+
+    @Test
+    public void createValidDiskCacheKey_withSameKey_shouldReturnMemoizedKey() throws Exception {
+        CacheService.clearDiskCacheKeys();
+
+        final String diskCacheKey = CacheService.createValidDiskCacheKey(key1);
+
+        assertThat(CacheService.createValidDiskCacheKey(key1)).isSameAs(diskCacheKey);
+        CacheService.clearDiskCacheKeys();
+        assertThat(CacheService.createValidDiskCacheKey(key1)).isNotSameAs(diskCacheKey)
+                .isEqualTo(diskCacheKey);
+    }
+
     @Test
     public void diskLruCacheAsyncPut_whenEmpty_shouldReturnNull() throws Exception {
         CacheService.initialize(context);
@@ -151,6 +240,42 @@ public class CacheServiceTest {
         assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
     }
 
+    @Test
+    public void diskLruCacheAsyncGet_withAsyncPutInFlight_shouldWaitForPut() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, "old_data".getBytes());
+        Robolectric.getBackgroundThreadScheduler().pause();
+
+        CacheService.putToDiskCacheAsync(key1, data1.getBytes());
+        CacheService.getFromDiskCacheAsync(key1, diskCacheGetListener);
+
+        assertThat(CacheService.hasAsyncPutInFlight(key1)).isTrue();
+        assertThat(Robolectric.getBackgroundThreadScheduler().size()).isEqualTo(1);
+
+        Robolectric.getBackgroundThreadScheduler().unPause();
+        semaphore.acquire();
+
+        assertThat(getKey).isEqualTo(key1);
+        assertThat(getBytes).isEqualTo(data1.getBytes());
+        assertThat(CacheService.hasAsyncPutInFlight(key1)).isFalse();
+    }
+
+    @Test
+    public void diskLruCacheAsyncPut_withAsyncPutInFlight_shouldWriteInOrder() throws Exception {
+        CacheService.initialize(context);
+        Robolectric.getBackgroundThreadScheduler().pause();
+
+        CacheService.putToDiskCacheAsync(key1, "old_data".getBytes());
+        CacheService.putToDiskCacheAsync(key1, data1.getBytes());
+
+        assertThat(Robolectric.getBackgroundThreadScheduler().size()).isEqualTo(1);
+
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        assertThat(CacheService.hasAsyncPutInFlight(key1)).isFalse();
+        assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
+    }
+
     private static InputStream getInputStreamFromString(final String string) {
         return spy(new ByteArrayInputStream(string.getBytes()));
     }
@@ -0,0 +1,173 @@
+package com.mopub.common;
+
+import com.mopub.common.test.support.AllocationCounter;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Reflection;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class CustomEventRegistryTest {
+    private static final String INVALID_CLASS_NAME = "com.mopub.invalid.NotACustomEvent";
+
+    static class TestAdapter {}
+    static class TestAdapter01 extends TestAdapter {}
+    static class TestAdapter02 extends TestAdapter {}
+    static class TestAdapter03 extends TestAdapter {}
+    static class TestAdapter04 extends TestAdapter {}
+    static class TestAdapter05 extends TestAdapter {}
+    static class TestAdapter06 extends TestAdapter {}
+    static class TestAdapter07 extends TestAdapter {}
+    static class TestAdapter08 extends TestAdapter {}
+    static class TestAdapter09 extends TestAdapter {}
+    static class TestAdapter10 extends TestAdapter {}
+    static class TestAdapter11 extends TestAdapter {}
+    static class TestAdapter12 extends TestAdapter {}
+    static class TestAdapter13 extends TestAdapter {}
+    static class TestAdapter14 extends TestAdapter {}
+    static class TestAdapter15 extends TestAdapter {}
+    static class TestAdapter16 extends TestAdapter {}
+    static class TestAdapter17 extends TestAdapter {}
+    static class TestAdapter18 extends TestAdapter {}
+    static class TestAdapter19 extends TestAdapter {}
+    static class TestAdapter20 extends TestAdapter {}
+
+    private static final Class<?>[] ADAPTER_CLASSES = {
+            TestAdapter01.class, TestAdapter02.class, TestAdapter03.class, TestAdapter04.class,
+            TestAdapter05.class, TestAdapter06.class, TestAdapter07.class, TestAdapter08.class,
+            TestAdapter09.class, TestAdapter10.class, TestAdapter11.class, TestAdapter12.class,
+            TestAdapter13.class, TestAdapter14.class, TestAdapter15.class, TestAdapter16.class,
+            TestAdapter17.class, TestAdapter18.class, TestAdapter19.class, TestAdapter20.class
+    };
+
+    private String[] adapterClassNames;
+
+    @Before
+    public void setUp() {
+        adapterClassNames = new String[ADAPTER_CLASSES.length];
+        for (int i = 0; i < ADAPTER_CLASSES.length; i++) {
+            adapterClassNames[i] = ADAPTER_CLASSES[i].getName();
+        }
+    }
+
+    @Test
+    public void create_shouldCreateNewInstancesOfClass() throws Exception {
+        final TestAdapter first = CustomEventRegistry.create(TestAdapter01.class.getName(),
+                TestAdapter.class);
+        final TestAdapter second = CustomEventRegistry.create(TestAdapter01.class.getName(),
+                TestAdapter.class);
+
+        assertThat(first).isInstanceOf(TestAdapter01.class);
+        assertThat(second).isInstanceOf(TestAdapter01.class);
+        assertThat(second).isNotSameAs(first);
+        assertThat(CustomEventRegistry.isWarm(TestAdapter01.class.getName())).isTrue();
+    }
+
+    @Test
+    public void create_withInvalidClassName_shouldThrowClassNotFoundExceptionEveryTime()
+            throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                CustomEventRegistry.create(INVALID_CLASS_NAME, TestAdapter.class);
+                fail("Expected ClassNotFoundException");
+            } catch (ClassNotFoundException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void create_withClassThatIsNotASubclass_shouldThrowClassCastException()
+            throws Exception {
+        try {
+            CustomEventRegistry.create(String.class.getName(), TestAdapter.class);
+            fail("Expected ClassCastException");
+        } catch (ClassCastException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void create_withRegisteredFactory_shouldUseFactory() throws Exception {
+        final TestAdapter02 adapter = new TestAdapter02();
+        CustomEventRegistry.register(TestAdapter02.class,
+                new CustomEventRegistry.Factory<TestAdapter02>() {
+                    @Override
+                    public TestAdapter02 create() {
+                        return adapter;
+                    }
+                });
+
+        assertThat(CustomEventRegistry.create(TestAdapter02.class.getName(), TestAdapter.class))
+                .isSameAs(adapter);
+
+        CustomEventRegistry.unregister(TestAdapter02.class);
+
+        assertThat(CustomEventRegistry.create(TestAdapter02.class.getName(), TestAdapter.class))
+                .isNotSameAs(adapter);
+    }
+
+    @Test
+    public void getCustomEventClass_shouldReturnClass() throws Exception {
+        assertThat(CustomEventRegistry.getCustomEventClass(TestAdapter03.class.getName(),
+                TestAdapter.class)).isEqualTo(TestAdapter03.class);
+    }
+
+    @Test
+    public void warmUp_shouldCacheConstructorsAndSkipMissingClasses() throws Exception {
+        CustomEventRegistry.warmUp(TestAdapter04.class.getName(), INVALID_CLASS_NAME);
+
+        assertThat(CustomEventRegistry.isWarm(TestAdapter04.class.getName())).isTrue();
+        assertThat(CustomEventRegistry.isWarm(INVALID_CLASS_NAME)).isFalse();
+    }
+
+    @Test
+    public void create_benchmark_withCachedConstructors_shouldAllocateLessThanReflection()
+            throws Exception {
+        Assume.assumeTrue(AllocationCounter.isSupported());
+
+        final int iterations = 100;
+        final AllocationCounter allocationCounter = new AllocationCounter();
+        // Warm up, so that class loading isn't measured.
+        for (final String className : adapterClassNames) {
+            Reflection.instantiateClassWithEmptyConstructor(className, TestAdapter.class);
+            CustomEventRegistry.create(className, TestAdapter.class);
+        }
+
+        allocationCounter.start();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (final String className : adapterClassNames) {
+                Reflection.instantiateClassWithEmptyConstructor(className, TestAdapter.class);
+            }
+        }
+        final long reflectionNanos = System.nanoTime() - startNanos;
+        final long reflectionBytes = allocationCounter.stop();
+
+        allocationCounter.start();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (final String className : adapterClassNames) {
+                CustomEventRegistry.create(className, TestAdapter.class);
+            }
+        }
+        final long cachedNanos = System.nanoTime() - startNanos;
+        final long cachedBytes = allocationCounter.stop();
+
+        final int loads = iterations * adapterClassNames.length;
+        final String results = "Custom event creation across " + adapterClassNames.length
+                + " adapters: cached " + cachedNanos / loads + " ns, " + cachedBytes / loads
+                + " bytes; reflection " + reflectionNanos / loads + " ns, "
+                + reflectionBytes / loads + " bytes";
+        assertThat(cachedBytes).overridingErrorMessage(results).isLessThan(reflectionBytes);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mopub.common;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class LatencyHistogramTest {
+    private LatencyHistogram subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new LatencyHistogram();
+    }
+
+    @Test
+    public void record_shouldCountSamples_shouldTrackAverage() throws Exception {
+        subject.record(10);
+        subject.record(30);
+        subject.recordFailure();
+
+        assertThat(subject.getCount()).isEqualTo(2);
+        assertThat(subject.getFailureCount()).isEqualTo(1);
+        assertThat(subject.getAverageMillis()).isEqualTo(20);
+    }
+
+    @Test
+    public void getPercentileUpperBoundMillis_shouldReturnBoundOfBucketHoldingPercentile() throws Exception {
+        for (int i = 0; i < 9; i++) {
+            subject.record(40);
+        }
+        subject.record(3000);
+
+        assertThat(subject.getPercentileUpperBoundMillis(50)).isEqualTo(50);
+        assertThat(subject.getPercentileUpperBoundMillis(90)).isEqualTo(50);
+        assertThat(subject.getPercentileUpperBoundMillis(100)).isEqualTo(5000);
+    }
+
+    @Test
+    public void getPercentileUpperBoundMillis_withSampleAboveAllBounds_shouldReturnMaxValue() throws Exception {
+        subject.record(60000);
+
+        assertThat(subject.getPercentileUpperBoundMillis(50)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void getPercentileUpperBoundMillis_withNoSamples_shouldReturnZero() throws Exception {
+        assertThat(subject.getPercentileUpperBoundMillis(99)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,188 @@
+package com.mopub.common;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+
+import com.mopub.common.MemoryGovernor.MemoryConsumer;
+import com.mopub.common.MemoryGovernor.RestoreCost;
+import com.mopub.common.MemoryGovernor.TrimLevel;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class MemoryGovernorTest {
+
+    private Activity activity;
+    private List<String> trims;
+    private MemoryGovernor subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        trims = new ArrayList<String>();
+        subject = new MemoryGovernor();
+    }
+
+    @Test
+    public void register_withSameConsumerTwice_shouldOnlyCountItOnce() throws Exception {
+        final TestMemoryConsumer consumer = new TestMemoryConsumer("cache", 1000);
+
+        subject.register(activity, consumer, RestoreCost.CACHE);
+        subject.register(activity, consumer, RestoreCost.CACHE);
+
+        assertThat(subject.getFootprintBytes()).isEqualTo(1000);
+    }
+
+    @Test
+    public void onLowMemory_shouldTrimAllConsumersCompletely() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("content", 0), RestoreCost.CONTENT);
+        subject.register(activity, new TestMemoryConsumer("cache", 1000), RestoreCost.CACHE);
+
+        subject.onLowMemory();
+
+        assertThat(trims).containsExactly("cache COMPLETE", "content COMPLETE");
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void onTrimMemory_withModerateLevel_shouldTrimAllConsumersCompletely() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("pool", 1000), RestoreCost.POOL);
+        subject.register(activity, new TestMemoryConsumer("cache", 1000), RestoreCost.CACHE);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        assertThat(trims).containsExactly("pool COMPLETE", "cache COMPLETE");
+    }
+
+    @Test
+    public void onTrimMemory_withBackgroundLevel_shouldTrimEveryConsumerCompletely() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("content", 1000), RestoreCost.CONTENT);
+        subject.register(activity, new TestMemoryConsumer("pool", 1000), RestoreCost.POOL);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertThat(trims).containsExactly("pool COMPLETE", "content COMPLETE");
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void onTrimMemory_withUiHiddenLevel_shouldOnlyTrimPoolsCompletely() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("content", 1000), RestoreCost.CONTENT);
+        subject.register(activity, new TestMemoryConsumer("cache", 1000), RestoreCost.CACHE);
+        subject.register(activity, new TestMemoryConsumer("pool", 1000), RestoreCost.POOL);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertThat(trims).containsExactly("pool COMPLETE");
+        assertThat(subject.getFootprintBytes()).isEqualTo(2000);
+    }
+
+    @Test
+    public void onTrimMemory_withRunningLowLevel_shouldTrimCheapestConsumersUntilHalved() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("content", 2000), RestoreCost.CONTENT);
+        subject.register(activity, new TestMemoryConsumer("cache", 2000), RestoreCost.CACHE);
+        subject.register(activity, new TestMemoryConsumer("pool", 1000), RestoreCost.POOL);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        // 5000 bytes down to 2500.
+        assertThat(trims).containsExactly("pool MODERATE", "cache MODERATE", "content MODERATE");
+        assertThat(subject.getFootprintBytes()).isEqualTo(2500);
+    }
+
+    @Test
+    public void onTrimMemory_withRunningModerateLevel_shouldStopOnceEnoughIsFreed() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("cache", 2000), RestoreCost.CACHE);
+        subject.register(activity, new TestMemoryConsumer("pool", 2000), RestoreCost.POOL);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertThat(trims).containsExactly("pool MODERATE");
+        assertThat(subject.getFootprintBytes()).isEqualTo(3000);
+    }
+
+    @Test
+    public void setBudgetBytes_whenOverBudget_shouldTrimModeratelyBeforeCompletely() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("pool", 1000), RestoreCost.POOL);
+        subject.register(activity, new TestMemoryConsumer("cache", 2000), RestoreCost.CACHE);
+
+        subject.setBudgetBytes(1000);
+
+        assertThat(trims).containsExactly("pool MODERATE", "cache MODERATE", "pool COMPLETE");
+        assertThat(subject.getFootprintBytes()).isEqualTo(1000);
+    }
+
+    @Test
+    public void enforceBudget_shouldNotTrimConsumersWithoutFootprint() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("content", 0), RestoreCost.CONTENT);
+        subject.register(activity, new TestMemoryConsumer("cache", 2000), RestoreCost.CACHE);
+
+        subject.setBudgetBytes(1);
+
+        assertThat(trims).containsExactly("cache MODERATE", "cache COMPLETE");
+    }
+
+    @Test
+    public void enforceBudget_withNoBudget_shouldNotTrim() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("cache", 2000), RestoreCost.CACHE);
+
+        subject.enforceBudget();
+
+        assertThat(trims).isEmpty();
+    }
+
+    @Test
+    public void register_shouldNotKeepConsumersAlive() throws Exception {
+        subject.register(activity, new TestMemoryConsumer("cache", 1000), RestoreCost.CACHE);
+
+        System.gc();
+
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void setMemoryBudgetBytes_shouldSetBudgetOfDefaultInstance() throws Exception {
+        MoPub.setMemoryBudgetBytes(1000);
+
+        assertThat(MemoryGovernor.getInstance().getBudgetBytes()).isEqualTo(1000);
+        assertThat(MoPub.getMemoryBudgetBytes()).isEqualTo(1000);
+
+        MoPub.setMemoryBudgetBytes(-1);
+
+        assertThat(MoPub.getMemoryBudgetBytes()).isEqualTo(MemoryGovernor.NO_BUDGET);
+    }
+
+    private class TestMemoryConsumer implements MemoryConsumer {
+        @NonNull private final String mName;
+        private long mFootprintBytes;
+
+        TestMemoryConsumer(@NonNull final String name, final long footprintBytes) {
+            mName = name;
+            mFootprintBytes = footprintBytes;
+        }
+
+        @Override
+        public long getFootprintBytes() {
+            return mFootprintBytes;
+        }
+
+        @Override
+        public void trimMemory(@NonNull final TrimLevel level) {
+            trims.add(mName + " " + level);
+            mFootprintBytes = level == TrimLevel.MODERATE ? mFootprintBytes / 2 : 0;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.mopub.common;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class TimerWheelTest {
+    private TimerWheel subject;
+    private List<Long> firedMillis;
+    private long startMillis;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new TimerWheel(new Handler());
+        firedMillis = new ArrayList<Long>();
+        startMillis = SystemClock.uptimeMillis();
+    }
+
+    @Test
+    public void schedule_shouldRunAfterDelay() throws Exception {
+        subject.schedule(new RecordingRunnable(), 1000);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(999);
+        assertThat(firedMillis).isEmpty();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        assertThat(firedMillis).containsExactly(startMillis + 1000);
+    }
+
+    @Test
+    public void schedule_withDelaysOnEveryLevel_shouldRunEachAtItsDeadline() throws Exception {
+        final long[] delays = new long[]{
+                3, 63, 64, 100, 4095, 4096, 30000, 262144, 5 * 60 * 1000, 20 * 24 * 60 * 60 * 1000L};
+        // Schedule out of order, so that the order they run in comes from the deadlines.
+        for (int i = delays.length - 1; i >= 0; i--) {
+            subject.schedule(new RecordingRunnable(), delays[i]);
+        }
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(delays[delays.length - 1]);
+
+        assertThat(firedMillis).hasSize(delays.length);
+        for (int i = 0; i < delays.length; i++) {
+            assertThat(firedMillis.get(i)).isEqualTo(startMillis + delays[i]);
+        }
+    }
+
+    @Test
+    public void schedule_shouldKeepOneMessageForAllTimers() throws Exception {
+        ShadowLooper.pauseMainLooper();
+
+        for (int i = 1; i <= 100; i++) {
+            subject.schedule(new RecordingRunnable(), i * 1000);
+        }
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(1);
+        assertThat(subject.getPendingTimerCount()).isEqualTo(100);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void schedule_withEarlierDeadline_shouldWakeUpEarlier() throws Exception {
+        subject.schedule(new RecordingRunnable(), 5000);
+        subject.schedule(new RecordingRunnable(), 10);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(10);
+
+        assertThat(firedMillis).containsExactly(startMillis + 10);
+    }
+
+    @Test
+    public void schedule_fromTimer_shouldRun() throws Exception {
+        subject.schedule(new Runnable() {
+            @Override
+            public void run() {
+                subject.schedule(new RecordingRunnable(), 500);
+            }
+        }, 500);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1000);
+
+        assertThat(firedMillis).containsExactly(startMillis + 1000);
+    }
+
+    @Test
+    public void schedule_withoutDelayFromLastPendingTimer_shouldRunOneMillisecondLater() throws Exception {
+        subject.schedule(new Runnable() {
+            @Override
+            public void run() {
+                firedMillis.add(SystemClock.uptimeMillis());
+                subject.schedule(this, 0);
+            }
+        }, 0);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(10);
+
+        assertThat(firedMillis).hasSize(11);
+        for (int i = 0; i < firedMillis.size(); i++) {
+            assertThat(firedMillis.get(i)).isEqualTo(startMillis + i);
+        }
+        assertThat(subject.getPendingTimerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void cancel_shouldKeepTimerFromRunning() throws Exception {
+        final TimerWheel.Timer timer = subject.schedule(new RecordingRunnable(), 1000);
+        subject.schedule(new RecordingRunnable(), 2000);
+
+        timer.cancel();
+        Robolectric.getForegroundThreadScheduler().advanceBy(2000);
+
+        assertThat(timer.isPending()).isFalse();
+        assertThat(firedMillis).containsExactly(startMillis + 2000);
+    }
+
+    @Test
+    public void cancel_withLastPendingTimer_shouldRemoveMessage() throws Exception {
+        ShadowLooper.pauseMainLooper();
+        final TimerWheel.Timer timer = subject.schedule(new RecordingRunnable(), 1000);
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(1);
+
+        timer.cancel();
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(0);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void cancel_fromTimerWithSameDeadline_shouldKeepOtherTimerFromRunning() throws Exception {
+        final List<TimerWheel.Timer> timers = new ArrayList<TimerWheel.Timer>();
+        timers.add(subject.schedule(new Runnable() {
+            @Override
+            public void run() {
+                timers.get(1).cancel();
+            }
+        }, 1000));
+        timers.add(subject.schedule(new RecordingRunnable(), 1000));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1000);
+
+        assertThat(firedMillis).isEmpty();
+        assertThat(subject.getPendingTimerCount()).isEqualTo(0);
+        assertThat(subject.getExpiredTimerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getTimerCounts_shouldCountPendingAndExpiredTimers() throws Exception {
+        subject.schedule(new RecordingRunnable(), 1000);
+        subject.schedule(new RecordingRunnable(), 1000);
+        subject.schedule(new RecordingRunnable(), 3000).cancel();
+        subject.schedule(new RecordingRunnable(), 5000);
+        assertThat(subject.getPendingTimerCount()).isEqualTo(3);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1000);
+
+        assertThat(subject.getPendingTimerCount()).isEqualTo(1);
+        assertThat(subject.getExpiredTimerCount()).isEqualTo(2);
+    }
+
+    private class RecordingRunnable implements Runnable {
+        @Override
+        public void run() {
+            firedMillis.add(SystemClock.uptimeMillis());
+        }
+    }
+}
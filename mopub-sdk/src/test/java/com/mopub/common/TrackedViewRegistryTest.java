@@ -0,0 +1,135 @@
+package com.mopub.common;
+
+import android.app.Activity;
+import android.view.View;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class TrackedViewRegistryTest {
+    private Activity activity;
+    private View view;
+    private View view2;
+    private View rootView;
+    private TrackedViewRegistry subject;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        view = new View(activity);
+        view2 = new View(activity);
+        rootView = new View(activity);
+        subject = new TrackedViewRegistry(2);
+    }
+
+    @Test
+    public void put_shouldStoreTrackingParameters() throws Exception {
+        final int slot = subject.put(rootView, view, 50, 10, 7);
+
+        assertThat(subject.size()).isEqualTo(1);
+        assertThat(subject.getSlot(view)).isEqualTo(slot);
+        assertThat(subject.getView(slot)).isSameAs(view);
+        assertThat(subject.getRootView(slot)).isSameAs(rootView);
+        assertThat(subject.getMinViewablePercent(slot)).isEqualTo(50);
+        assertThat(subject.getMaxInvisiblePercent(slot)).isEqualTo(10);
+        assertThat(subject.getAccessOrder(slot)).isEqualTo(7);
+    }
+
+    @Test
+    public void put_withTrackedView_shouldKeepSlot_shouldUpdateTrackingParameters() throws Exception {
+        final int slot = subject.put(view, view, 50, 50, 1);
+
+        assertThat(subject.put(rootView, view, 20, 10, 2)).isEqualTo(slot);
+
+        assertThat(subject.size()).isEqualTo(1);
+        assertThat(subject.getRootView(slot)).isSameAs(rootView);
+        assertThat(subject.getMinViewablePercent(slot)).isEqualTo(20);
+        assertThat(subject.getAccessOrder(slot)).isEqualTo(2);
+    }
+
+    @Test
+    public void put_beyondCapacity_shouldGrow_shouldKeepExistingSlots() throws Exception {
+        final int slot = subject.put(view, view, 50, 50, 0);
+        subject.put(view2, view2, 50, 50, 1);
+        final View view3 = new View(activity);
+
+        subject.put(view3, view3, 50, 50, 2);
+
+        assertThat(subject.getCapacity()).isEqualTo(4);
+        assertThat(subject.size()).isEqualTo(3);
+        assertThat(subject.getView(slot)).isSameAs(view);
+    }
+
+    @Test
+    public void remove_shouldFreeSlot_shouldReuseSlotForNextView() throws Exception {
+        final int slot = subject.put(view, view, 50, 50, 0);
+        subject.put(view2, view2, 50, 50, 1);
+
+        assertThat(subject.remove(view)).isTrue();
+        assertThat(subject.getView(slot)).isNull();
+        assertThat(subject.getSlot(view)).isEqualTo(TrackedViewRegistry.NO_SLOT);
+        assertThat(subject.size()).isEqualTo(1);
+
+        final View view3 = new View(activity);
+        assertThat(subject.put(view3, view3, 50, 50, 2)).isEqualTo(slot);
+    }
+
+    @Test
+    public void remove_withUntrackedView_shouldReturnFalse() throws Exception {
+        assertThat(subject.remove(view)).isFalse();
+        assertThat(subject.remove(null)).isFalse();
+    }
+
+    @Test
+    public void removeSlot_withLastSlot_shouldShrinkSlotCount() throws Exception {
+        subject.put(view, view, 50, 50, 0);
+        final int slot = subject.put(view2, view2, 50, 50, 1);
+
+        subject.removeSlot(slot);
+
+        assertThat(subject.getSlotCount()).isEqualTo(1);
+        assertThat(subject.getSlot(view2)).isEqualTo(TrackedViewRegistry.NO_SLOT);
+    }
+
+    @Test
+    public void clear_shouldRemoveAllViews() throws Exception {
+        subject.put(view, view, 50, 50, 0);
+        subject.put(view2, view2, 50, 50, 1);
+
+        subject.clear();
+
+        assertThat(subject.isEmpty()).isTrue();
+        assertThat(subject.getSlotCount()).isEqualTo(0);
+        assertThat(subject.getSlot(view)).isEqualTo(TrackedViewRegistry.NO_SLOT);
+    }
+
+    @Test
+    public void expungeStaleViews_afterViewIsGarbageCollected_shouldFreeSlot() throws Exception {
+        subject.put(view, view, 50, 50, 0);
+        addUnreferencedView();
+
+        for (int i = 0; i < 20 && subject.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            subject.expungeStaleViews();
+        }
+
+        assertThat(subject.size()).isEqualTo(1);
+        assertThat(subject.getSlot(view)).isEqualTo(0);
+    }
+
+    private void addUnreferencedView() {
+        final View unreferencedView = new View(activity);
+        subject.put(unreferencedView, unreferencedView, 50, 50, 1);
+    }
+}
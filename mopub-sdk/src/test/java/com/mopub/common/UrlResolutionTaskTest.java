@@ -3,6 +3,9 @@ package com.mopub.common;
 import android.support.annotation.Nullable;
 
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
+import com.mopub.common.util.test.support.ShadowAsyncTasks;
 import com.mopub.mobileads.BuildConfig;
 
 import org.junit.Test;
@@ -10,12 +13,17 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.robolectric.annotation.Config;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SdkTestRunner.class)
@@ -24,6 +32,17 @@ public class UrlResolutionTaskTest {
     private final String BASE_URL =  "https://a.example.com/b/c/d?e=f";
     @Mock private HttpURLConnection mockHttpUrlConnection;
 
+    @Test
+    @Config(shadows = {ShadowAsyncTasks.class})
+    public void getResolvedUrl_shouldExecuteOnNetworkLaneWithGivenPriority() {
+        final UrlResolutionTask task = UrlResolutionTask.getResolvedUrl(BASE_URL,
+                Priority.PREFETCH, mock(UrlResolutionTask.UrlResolutionListener.class));
+
+        assertThat(ShadowAsyncTasks.getLatestAsyncTask()).isSameAs(task);
+        assertThat(ShadowAsyncTasks.getLatestLane()).isEqualTo(Lane.NETWORK);
+        assertThat(ShadowAsyncTasks.getLatestPriority()).isEqualTo(Priority.PREFETCH);
+    }
+
     @Test
     public void resolveRedirectLocation_withAbsoluteRedirect_shouldReturnAbsolutePath() throws Exception {
         setupMockHttpUrlConnection(302, "https://www.abc.com");
@@ -135,6 +154,53 @@ public class UrlResolutionTaskTest {
         UrlResolutionTask.resolveRedirectLocation(BASE_URL, mockHttpUrlConnection);
     }
 
+    @Test
+    public void releaseConnection_withSmallBody_shouldReadBody_shouldNotDisconnect() throws Exception {
+        setupMockHttpUrlConnection(302, "https://www.abc.com");
+        final InputStream inputStream = spy(new ByteArrayInputStream(new byte[100]));
+        when(mockHttpUrlConnection.getInputStream()).thenReturn(inputStream);
+
+        UrlResolutionTask.releaseConnection(mockHttpUrlConnection);
+
+        assertThat(inputStream.available()).isEqualTo(0);
+        verify(inputStream).close();
+        verify(mockHttpUrlConnection, never()).disconnect();
+    }
+
+    @Test
+    public void releaseConnection_withLargeBody_shouldDisconnect() throws Exception {
+        setupMockHttpUrlConnection(200, null);
+        when(mockHttpUrlConnection.getInputStream())
+                .thenReturn(new ByteArrayInputStream(new byte[100 * 1024]));
+
+        UrlResolutionTask.releaseConnection(mockHttpUrlConnection);
+
+        verify(mockHttpUrlConnection).disconnect();
+    }
+
+    @Test
+    public void releaseConnection_withErrorResponse_shouldReadErrorStream() throws Exception {
+        setupMockHttpUrlConnection(404, null);
+        final InputStream errorStream = spy(new ByteArrayInputStream(new byte[100]));
+        when(mockHttpUrlConnection.getErrorStream()).thenReturn(errorStream);
+
+        UrlResolutionTask.releaseConnection(mockHttpUrlConnection);
+
+        verify(errorStream).close();
+        verify(mockHttpUrlConnection, never()).getInputStream();
+        verify(mockHttpUrlConnection, never()).disconnect();
+    }
+
+    @Test
+    public void releaseConnection_whenReadingBodyFails_shouldDisconnect() throws Exception {
+        setupMockHttpUrlConnection(302, "https://www.abc.com");
+        when(mockHttpUrlConnection.getInputStream()).thenThrow(new IOException());
+
+        UrlResolutionTask.releaseConnection(mockHttpUrlConnection);
+
+        verify(mockHttpUrlConnection).disconnect();
+    }
+
     private void setupMockHttpUrlConnection(final int responseCode,
             @Nullable final String absolutePathUrl) throws IOException {
         mockHttpUrlConnection = mock(HttpURLConnection.class);
@@ -0,0 +1,264 @@
+package com.mopub.common;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.Window;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+import com.mopub.common.VisibilityEngine.FrameScheduler;
+import com.mopub.common.VisibilityEngine.Subscriber;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mopub.common.VisibilityTracker.VisibilityChecker;
+import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
+import static com.mopub.common.VisibilityTrackerTest.createViewMock;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class VisibilityEngineTest {
+    private static final int TRACKED_VIEW_COUNT = 500;
+
+    private Activity activity;
+    private VisibilityChecker visibilityChecker;
+    private VisibilityEngine subject;
+
+    @Mock private FrameScheduler frameScheduler;
+    @Mock private Subscriber subscriber;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        visibilityChecker = spy(new VisibilityChecker());
+        subject = new VisibilityEngine(frameScheduler, visibilityChecker);
+    }
+
+    @Test
+    public void observe_withActivity_shouldAddOnPreDrawListenerToDecorView() throws Exception {
+        ViewTreeObserver viewTreeObserver = mockDecorViewTreeObserver(true);
+
+        assertThat(subject.observe(createActivity(viewTreeObserver), null))
+                .isEqualTo(viewTreeObserver);
+
+        verify(viewTreeObserver).addOnPreDrawListener(subject.mOnPreDrawListener);
+    }
+
+    @Test
+    public void observe_withSameViewTreeObserverTwice_shouldOnlyAddOnPreDrawListenerOnce() throws Exception {
+        ViewTreeObserver viewTreeObserver = mockDecorViewTreeObserver(true);
+        Activity activity1 = createActivity(viewTreeObserver);
+
+        subject.observe(activity1, null);
+        subject.observe(activity1, null);
+
+        verify(viewTreeObserver, times(1)).addOnPreDrawListener(subject.mOnPreDrawListener);
+    }
+
+    @Test
+    public void observe_withNonAliveViewTreeObserver_shouldNotAddOnPreDrawListener() throws Exception {
+        ViewTreeObserver viewTreeObserver = mockDecorViewTreeObserver(false);
+
+        assertThat(subject.observe(createActivity(viewTreeObserver), null)).isNull();
+
+        verify(viewTreeObserver, never()).addOnPreDrawListener(subject.mOnPreDrawListener);
+    }
+
+    @Test
+    public void observe_withApplicationContext_withNullView_shouldReturnNull() throws Exception {
+        assertThat(subject.observe(activity.getApplicationContext(), null)).isNull();
+    }
+
+    @Test
+    public void schedulePass_withSubscriber_shouldPostOneFrameCallback() throws Exception {
+        subject.subscribe(subscriber);
+
+        subject.schedulePass();
+        subject.schedulePass();
+
+        assertThat(subject.isPassScheduled()).isTrue();
+        verify(frameScheduler, times(1)).postFrameCallbackDelayed(
+                any(Choreographer.FrameCallback.class),
+                eq((long) VisibilityEngine.VISIBILITY_THROTTLE_MILLIS));
+    }
+
+    @Test
+    public void schedulePass_withoutSubscribers_shouldNotPostFrameCallback() throws Exception {
+        subject.schedulePass();
+
+        assertThat(subject.isPassScheduled()).isFalse();
+        verify(frameScheduler, never()).postFrameCallbackDelayed(
+                any(Choreographer.FrameCallback.class), eq((long) VisibilityEngine.VISIBILITY_THROTTLE_MILLIS));
+    }
+
+    @Test
+    public void subscribe_withSameSubscriberTwice_shouldOnlySubscribeOnce() throws Exception {
+        subject.subscribe(subscriber);
+        subject.subscribe(subscriber);
+
+        assertThat(subject.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void runPass_shouldCallEverySubscriber_shouldResetPassScheduled() throws Exception {
+        Subscriber subscriber2 = mock(Subscriber.class);
+        subject.subscribe(subscriber);
+        subject.subscribe(subscriber2);
+        subject.schedulePass();
+
+        subject.runPass();
+
+        verify(subscriber).onVisibilityPass(subject);
+        verify(subscriber2).onVisibilityPass(subject);
+        assertThat(subject.isPassScheduled()).isFalse();
+        assertThat(subject.getPassCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void runPass_withSubscriberThatUnsubscribesDuringPass_shouldStillCallNextSubscriber() throws Exception {
+        final Subscriber subscriber2 = mock(Subscriber.class);
+        final Subscriber unsubscribingSubscriber = new Subscriber() {
+            @Override
+            public void onVisibilityPass(@NonNull final VisibilityEngine engine) {
+                engine.unsubscribe(this);
+            }
+        };
+        subject.subscribe(unsubscribingSubscriber);
+        subject.subscribe(subscriber2);
+
+        subject.runPass();
+
+        verify(subscriber2).onVisibilityPass(subject);
+        assertThat(subject.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void unsubscribe_withLastSubscriber_shouldRemoveScheduledFrameCallback() throws Exception {
+        subject.subscribe(subscriber);
+        subject.schedulePass();
+
+        subject.unsubscribe(subscriber);
+
+        assertThat(subject.getSubscriberCount()).isEqualTo(0);
+        assertThat(subject.isPassScheduled()).isFalse();
+        verify(frameScheduler).removeFrameCallback(any(Choreographer.FrameCallback.class));
+    }
+
+    @Test
+    public void isVisible_withSameViewTwiceInOnePass_shouldOnlyMeasureViewOnce() throws Exception {
+        View view = createViewMock(View.VISIBLE, 50, 100, 100, 100, true, true);
+
+        assertThat(subject.isVisible(view, view, 50)).isTrue();
+        assertThat(subject.isVisible(view, view, 51)).isFalse();
+
+        verify(visibilityChecker, times(1)).getVisiblePercentage(view);
+        assertThat(subject.getMeasurementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void isVisible_inNextPass_shouldMeasureViewAgain() throws Exception {
+        View view = createViewMock(View.VISIBLE, 100, 100, 100, 100, true, true);
+
+        subject.isVisible(view, view, 50);
+        subject.runPass();
+        subject.isVisible(view, view, 50);
+
+        verify(visibilityChecker, times(2)).getVisiblePercentage(view);
+    }
+
+    @Test
+    public void isVisible_whenParentIsNull_shouldReturnFalse_shouldNotMeasureView() throws Exception {
+        View view = createViewMock(View.VISIBLE, 100, 100, 100, 100, false, true);
+
+        assertThat(subject.isVisible(view, view, 50)).isFalse();
+
+        verify(visibilityChecker, never()).getVisiblePercentage(view);
+    }
+
+    @Test
+    public void runPass_with500TrackedViews_withTwoTrackersPerView_shouldMeasureEachViewOncePerPass() throws Exception {
+        // Each tracker trims itself to its most recently added views, so spread the views across
+        // several groups like multiple adapters would. Every group is tracked by two trackers,
+        // like an adapter and an impression tracker watching the same ad views.
+        final int viewsPerGroup = VisibilityTracker.NUM_ACCESSES_BEFORE_TRIMMING;
+        final int groupCount = TRACKED_VIEW_COUNT / viewsPerGroup;
+        final int[] visibleCounts = new int[groupCount * 2];
+        final List<VisibilityTracker> trackers = new ArrayList<VisibilityTracker>();
+
+        for (int group = 0; group < groupCount; group++) {
+            final List<View> views = new ArrayList<View>(viewsPerGroup);
+            for (int i = 0; i < viewsPerGroup; i++) {
+                // Half of the views in each group are at least 50% visible.
+                views.add(createViewMock(View.VISIBLE, 100, i * 100 / viewsPerGroup, 100, 100,
+                        true, true));
+            }
+
+            for (int copy = 0; copy < 2; copy++) {
+                final int trackerIndex = trackers.size();
+                final VisibilityTracker tracker = new VisibilityTracker(activity,
+                        new TrackedViewRegistry(), subject);
+                tracker.setVisibilityTrackerListener(new VisibilityTrackerListener() {
+                    @Override
+                    public void onVisibilityChanged(final List<View> visibleViews,
+                            final List<View> invisibleViews) {
+                        visibleCounts[trackerIndex] = visibleViews.size();
+                    }
+                });
+                for (final View view : views) {
+                    tracker.addView(view, 50);
+                }
+                trackers.add(tracker);
+            }
+        }
+
+        final long startNanos = System.nanoTime();
+        subject.runPass();
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final String results = String.format(
+                "Visibility pass over %d views and %d trackers: %d us", TRACKED_VIEW_COUNT,
+                trackers.size(), elapsedNanos / 1000);
+
+        assertThat(subject.getMeasurementCount()).overridingErrorMessage(results)
+                .isEqualTo(TRACKED_VIEW_COUNT);
+        for (final int visibleCount : visibleCounts) {
+            assertThat(visibleCount).isEqualTo(viewsPerGroup / 2);
+        }
+    }
+
+    private ViewTreeObserver mockDecorViewTreeObserver(final boolean isAlive) {
+        ViewTreeObserver viewTreeObserver = mock(ViewTreeObserver.class);
+        when(viewTreeObserver.isAlive()).thenReturn(isAlive);
+        return viewTreeObserver;
+    }
+
+    private Activity createActivity(final ViewTreeObserver viewTreeObserver) {
+        Activity activity1 = mock(Activity.class);
+        Window window = mock(Window.class);
+        View decorView = mock(View.class);
+
+        when(activity1.getWindow()).thenReturn(window);
+        when(window.getDecorView()).thenReturn(decorView);
+        when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
+        return activity1;
+    }
+}
@@ -1,19 +1,21 @@
-package com.mopub.nativeads;
+package com.mopub.common;
 
 import android.app.Activity;
 import android.graphics.Rect;
-import android.os.Handler;
 import android.os.SystemClock;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewParent;
 import android.view.ViewTreeObserver;
 import android.view.Window;
 
+import com.mopub.common.test.support.AllocationCounter;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.BuildConfig;
-import com.mopub.nativeads.VisibilityTracker.TrackingInfo;
+import com.mopub.common.VisibilityEngine.FrameScheduler;
 
 import org.fest.util.Lists;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -26,15 +28,14 @@ import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowSystemClock;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
-import static android.view.ViewTreeObserver.OnPreDrawListener;
-import static com.mopub.nativeads.VisibilityTracker.VisibilityChecker;
-import static com.mopub.nativeads.VisibilityTracker.VisibilityTrackerListener;
+import static com.mopub.common.VisibilityTracker.VisibilityChecker;
+import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -48,18 +49,20 @@ public class VisibilityTrackerTest {
 
     private Activity activity;
     private VisibilityTracker subject;
-    private Map<View, TrackingInfo> trackedViews;
+    private TrackedViewRegistry trackedViews;
     private VisibilityChecker visibilityChecker;
 
     @Mock private VisibilityTrackerListener visibilityTrackerListener;
     @Mock private View view;
     @Mock private View view2;
-    @Mock private Handler visibilityHandler;
+    @Mock private FrameScheduler frameScheduler;
+    private VisibilityEngine visibilityEngine;
 
     @Before
     public void setUp() throws Exception {
-        trackedViews = new WeakHashMap<View, TrackingInfo>();
+        trackedViews = new TrackedViewRegistry();
         visibilityChecker = new VisibilityChecker();
+        visibilityEngine = new VisibilityEngine(frameScheduler, visibilityChecker);
         activity = Robolectric.buildActivity(Activity.class).create().get();
         view = createViewMock(View.VISIBLE, 100, 100, 100, 100, true, true);
         view2 = createViewMock(View.VISIBLE, 100, 100, 100, 100, true, true);
@@ -73,7 +76,7 @@ public class VisibilityTrackerTest {
                 visibilityTrackerListener.onVisibilityChanged(safeVisibleViews, safeInVisibleViews);
             }
         };
-        subject = new VisibilityTracker(activity, trackedViews, visibilityChecker, visibilityHandler);
+        subject = new VisibilityTracker(activity, trackedViews, visibilityEngine);
         subject.setVisibilityTrackerListener(proxyListener);
 
         // XXX We need this to ensure that our SystemClock starts
@@ -81,25 +84,12 @@ public class VisibilityTrackerTest {
     }
 
     @Test
-    public void constructor_shouldSetOnPreDrawListenerForDecorView() throws Exception {
-        Activity activity1 = mock(Activity.class);
-        Window window = mock(Window.class);
-        View decorView = mock(View.class);
-        ViewTreeObserver viewTreeObserver = mock(ViewTreeObserver.class);
-
-        when(activity1.getWindow()).thenReturn(window);
-        when(window.getDecorView()).thenReturn(decorView);
-        when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
-        when(viewTreeObserver.isAlive()).thenReturn(true);
-
-        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
-        assertThat(subject.mOnPreDrawListener).isNotNull();
-        verify(viewTreeObserver).addOnPreDrawListener(subject.mOnPreDrawListener);
-        assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
+    public void constructor_shouldSubscribeToVisibilityEngine() throws Exception {
+        assertThat(visibilityEngine.getSubscriberCount()).isEqualTo(1);
     }
 
     @Test
-    public void constructor_withNonAliveViewTreeObserver_shouldNotSetOnPreDrawListenerForDecorView() throws Exception {
+    public void constructor_shouldObserveDecorView() throws Exception {
         Activity activity1 = mock(Activity.class);
         Window window = mock(Window.class);
         View decorView = mock(View.class);
@@ -108,17 +98,17 @@ public class VisibilityTrackerTest {
         when(activity1.getWindow()).thenReturn(window);
         when(window.getDecorView()).thenReturn(decorView);
         when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
-        when(viewTreeObserver.isAlive()).thenReturn(false);
+        when(viewTreeObserver.isAlive()).thenReturn(true);
 
-        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
-        verify(viewTreeObserver, never()).addOnPreDrawListener(subject.mOnPreDrawListener);
-        assertThat(subject.mWeakViewTreeObserver.get()).isNull();
+        subject = new VisibilityTracker(activity1, trackedViews, visibilityEngine);
+        verify(viewTreeObserver).addOnPreDrawListener(visibilityEngine.mOnPreDrawListener);
+        assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
     }
 
     @Test
-    public void constructor_withApplicationContext_shouldNotSetOnPreDrawListener() {
+    public void constructor_withApplicationContext_shouldNotSetViewTreeObserver() {
         subject = new VisibilityTracker(activity.getApplicationContext(), trackedViews,
-                visibilityChecker, visibilityHandler);
+                visibilityEngine);
 
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
     }
@@ -183,7 +173,7 @@ public class VisibilityTrackerTest {
     public void addView_withVisibleView_shouldAddVisibleViewToTrackedViews() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
 
-        assertThat(trackedViews).hasSize(1);
+        assertThat(trackedViews.size()).isEqualTo(1);
     }
 
     @Test
@@ -197,9 +187,10 @@ public class VisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
         subject = new VisibilityTracker(activity.getApplicationContext(), trackedViews,
-                visibilityChecker, visibilityHandler);
+                visibilityEngine);
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
 
+        verify(viewTreeObserver).addOnPreDrawListener(visibilityEngine.mOnPreDrawListener);
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
     }
 
@@ -207,75 +198,71 @@ public class VisibilityTrackerTest {
     public void addView_whenViewIsNull_shouldThrowNPE() throws Exception {
         subject.addView(null, MIN_PERCENTAGE_VIEWED);
 
-        assertThat(trackedViews).isEmpty();
+        assertThat(trackedViews.isEmpty()).isTrue();
     }
 
     @Test
     public void removeView_shouldRemoveFromTrackedViews() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
 
-        assertThat(trackedViews).hasSize(1);
-        assertThat(trackedViews).containsKey(view);
+        assertThat(trackedViews.size()).isEqualTo(1);
+        assertThat(trackedViews.getSlot(view)).isNotEqualTo(TrackedViewRegistry.NO_SLOT);
 
         subject.removeView(view);
 
-        assertThat(trackedViews).isEmpty();
+        assertThat(trackedViews.isEmpty()).isTrue();
     }
 
     @Test
-    public void clear_shouldRemoveAllViewsFromTrackedViews_shouldRemoveMessagesFromVisibilityHandler_shouldResetIsVisibilityScheduled() throws Exception {
+    public void addView_withNewView_shouldScheduleVisibilityPass() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
-        subject.addView(view2, MIN_PERCENTAGE_VIEWED);
-        assertThat(trackedViews).hasSize(2);
-
-        subject.clear();
 
-        assertThat(trackedViews).isEmpty();
-        verify(visibilityHandler).removeMessages(0);
+        assertThat(visibilityEngine.isPassScheduled()).isTrue();
+        verify(frameScheduler).postFrameCallbackDelayed(any(Choreographer.FrameCallback.class),
+                anyLong());
     }
 
     @Test
-    public void destroy_shouldCallClear_shouldRemoveListenerFromDecorView() throws Exception {
-        Activity activity1 = mock(Activity.class);
-        Window window = mock(Window.class);
-        View decorView = mock(View.class);
-        ViewTreeObserver viewTreeObserver = mock(ViewTreeObserver.class);
+    public void clear_shouldRemoveAllViewsFromTrackedViews() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED);
+        subject.addView(view2, MIN_PERCENTAGE_VIEWED);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
-        when(activity1.getWindow()).thenReturn(window);
-        when(window.getDecorView()).thenReturn(decorView);
-        when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
-        when(viewTreeObserver.isAlive()).thenReturn(true);
+        subject.clear();
 
-        subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
+        assertThat(trackedViews.isEmpty()).isTrue();
+    }
 
+    @Test
+    public void destroy_shouldCallClear_shouldUnsubscribeFromVisibilityEngine() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
         subject.addView(view2, MIN_PERCENTAGE_VIEWED);
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         subject.destroy();
 
-        assertThat(trackedViews).isEmpty();
-        verify(visibilityHandler).removeMessages(0);
-        verify(viewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
+        assertThat(trackedViews.isEmpty()).isTrue();
+        assertThat(visibilityEngine.getSubscriberCount()).isEqualTo(0);
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
+        verify(frameScheduler).removeFrameCallback(any(Choreographer.FrameCallback.class));
     }
 
     @Test
-    public void visibilityRunnable_run_withVisibleView_shouldCallOnVisibleCallback() throws Exception {
+    public void visibilityRunnable_onVisibilityPass_withVisibleView_shouldCallOnVisibleCallback() throws Exception {
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
 
-        subject.new VisibilityRunnable().run();
+        subject.new VisibilityRunnable().onVisibilityPass(visibilityEngine);
 
         verify(visibilityTrackerListener).onVisibilityChanged(
                 Lists.newArrayList(view), Lists.<View>newArrayList());
     }
 
     @Test
-    public void visibilityRunnable_run_withNonVisibleView_shouldCallOnNonVisibleCallback() throws Exception {
+    public void visibilityRunnable_onVisibilityPass_withNonVisibleView_shouldCallOnNonVisibleCallback() throws Exception {
         when(view.getVisibility()).thenReturn(View.INVISIBLE);
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
 
-        subject.new VisibilityRunnable().run();
+        subject.new VisibilityRunnable().onVisibilityPass(visibilityEngine);
 
         ArgumentCaptor<List> visibleCaptor = ArgumentCaptor.forClass(List.class);
         ArgumentCaptor<List> invisibleCaptor = ArgumentCaptor.forClass(List.class);
@@ -286,6 +273,53 @@ public class VisibilityTrackerTest {
         assertThat(invisibleCaptor.getValue().size()).isEqualTo(1);
     }
 
+    @Test
+    public void visibilityRunnable_onVisibilityPass_afterFirstPass_shouldNotAllocate() throws Exception {
+        Assume.assumeTrue(AllocationCounter.isSupported());
+
+        // Answers from a fixed table so that only the tracker's own loop is measured.
+        final IdentityHashMap<View, Boolean> visibleViews = new IdentityHashMap<View, Boolean>();
+        final VisibilityEngine fixedVisibilityEngine =
+                new VisibilityEngine(frameScheduler, visibilityChecker) {
+                    @Override
+                    boolean isVisible(final View rootView, final View view,
+                            final int minPercentageViewed) {
+                        return visibleViews.containsKey(view);
+                    }
+                };
+        subject = new VisibilityTracker(activity, trackedViews, fixedVisibilityEngine);
+        subject.setVisibilityTrackerListener(new VisibilityTrackerListener() {
+            @Override
+            public void onVisibilityChanged(final List<View> visibleViews,
+                    final List<View> invisibleViews) {
+            }
+        });
+        final List<View> views = new ArrayList<View>();
+        for (int i = 0; i < VisibilityTracker.NUM_ACCESSES_BEFORE_TRIMMING - 1; i++) {
+            final View trackedView = new View(activity);
+            if (i % 2 == 0) {
+                visibleViews.put(trackedView, true);
+            }
+            views.add(trackedView);
+            subject.addView(trackedView, MIN_PERCENTAGE_VIEWED);
+        }
+        final VisibilityTracker.VisibilityRunnable visibilityRunnable =
+                subject.new VisibilityRunnable();
+        final AllocationCounter allocationCounter = new AllocationCounter();
+
+        // Let the visible and invisible lists grow to size.
+        visibilityRunnable.onVisibilityPass(fixedVisibilityEngine);
+
+        allocationCounter.start();
+        for (int i = 0; i < 100; i++) {
+            visibilityRunnable.onVisibilityPass(fixedVisibilityEngine);
+        }
+        final long allocatedBytes = allocationCounter.stop();
+
+        assertThat(allocatedBytes).isEqualTo(0);
+        assertThat(views).hasSize(trackedViews.size());
+    }
+
     // VisibilityChecker tests
 
     @Test
@@ -360,34 +394,48 @@ public class VisibilityTrackerTest {
         assertThat(visibilityChecker.isVisible(null, null, MIN_PERCENTAGE_VIEWED)).isFalse();
     }
 
+    @Test
+    public void getVisiblePercentage_whenViewIs49PercentVisible_shouldReturn49() throws Exception {
+        view = createViewMock(View.VISIBLE, 49, 100, 100, 100, true, true);
+
+        assertThat(visibilityChecker.getVisiblePercentage(view)).isEqualTo(49);
+    }
+
+    @Test
+    public void getVisiblePercentage_whenViewIsOffScreen_shouldReturnNegativeOne() throws Exception {
+        view = createViewMock(View.VISIBLE, 100, 100, 100, 100, true, false);
+
+        assertThat(visibilityChecker.getVisiblePercentage(view)).isEqualTo(-1);
+    }
+
     @Test
     public void addView_shouldClearViewAfterNumAccesses() {
         // Access 1 time
         subject.addView(view, MIN_PERCENTAGE_VIEWED);
-        assertThat(trackedViews).hasSize(1);
+        assertThat(trackedViews.size()).isEqualTo(1);
 
         // Access 2-49 times
         for (int i = 0; i < VisibilityTracker.NUM_ACCESSES_BEFORE_TRIMMING - 2; ++i) {
             subject.addView(view2, MIN_PERCENTAGE_VIEWED);
         }
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         // 50th time
         subject.addView(view2, MIN_PERCENTAGE_VIEWED);
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         // 51-99
         for (int i = 0; i < VisibilityTracker.NUM_ACCESSES_BEFORE_TRIMMING - 1; ++i) {
             subject.addView(view2, MIN_PERCENTAGE_VIEWED);
         }
-        assertThat(trackedViews).hasSize(2);
+        assertThat(trackedViews.size()).isEqualTo(2);
 
         // 100
         subject.addView(view2, MIN_PERCENTAGE_VIEWED);
-        assertThat(trackedViews).hasSize(1);
+        assertThat(trackedViews.size()).isEqualTo(1);
     }
 
-    static View createViewMock(final int visibility,
+    public static View createViewMock(final int visibility,
             final int visibleWidth,
             final int visibleHeight,
             final int viewWidth,
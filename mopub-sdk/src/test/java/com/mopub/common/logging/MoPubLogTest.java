@@ -0,0 +1,190 @@
+package com.mopub.common.logging;
+
+import com.mopub.common.test.support.AllocationCounter;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class MoPubLogTest {
+
+    @After
+    public void tearDown() {
+        MoPubLog.setSdkHandlerLevel(Level.FINE);
+    }
+
+    @Test
+    public void isLoggable_shouldCompareWithSdkLevel() throws Exception {
+        MoPubLog.setSdkHandlerLevel(Level.INFO);
+
+        assertThat(MoPubLog.isLoggable(Level.CONFIG)).isFalse();
+        assertThat(MoPubLog.isLoggable(Level.INFO)).isTrue();
+        assertThat(MoPubLog.isLoggable(Level.SEVERE)).isTrue();
+    }
+
+    @Test
+    public void d_withArguments_shouldLogFormattedMessage() throws Exception {
+        MoPubLog.d("Loading {} from {}.", "ad", "http://www.mopub.com");
+
+        final List<ShadowLog.LogItem> logs = ShadowLog.getLogsForTag("MoPub");
+        assertThat(logs).hasSize(1);
+        assertThat(logs.get(0).msg).isEqualTo("Loading ad from http://www.mopub.com.\n");
+    }
+
+    @Test
+    public void d_belowSdkLevel_shouldNotLog() throws Exception {
+        MoPubLog.setSdkHandlerLevel(Level.INFO);
+
+        MoPubLog.d("Loading {}.", "ad");
+        MoPubLog.d("Loading ad.");
+
+        assertThat(ShadowLog.getLogsForTag("MoPub")).isEmpty();
+    }
+
+    @Test
+    public void e_withThrowable_shouldLogStackTrace() throws Exception {
+        MoPubLog.e("Failed.", new IllegalStateException("broken"));
+
+        final String message = ShadowLog.getLogsForTag("MoPub").get(0).msg;
+        assertThat(message).startsWith("Failed.\n");
+        assertThat(message).contains("IllegalStateException: broken");
+    }
+
+    @Test
+    public void format_shouldReplacePlaceholdersInOrder() throws Exception {
+        assertThat(LogSink.format("No placeholders", "a", "b")).isEqualTo("No placeholders");
+        assertThat(LogSink.format("{} only", "a", null)).isEqualTo("a only");
+        assertThat(LogSink.format("{} and {}", "a", 2)).isEqualTo("a and 2");
+        assertThat(LogSink.format("{} {} {}", "a", "b")).isEqualTo("a b {}");
+        assertThat(LogSink.format("Null {}", null, null)).isEqualTo("Null null");
+        assertThat(LogSink.format(null, null, null)).isEqualTo("null");
+    }
+
+    @Test
+    public void log_whenRingBufferIsFull_shouldDropOldestMessages() throws Exception {
+        final LogSink logSink = new LogSink(2, false);
+
+        logSink.log(Level.INFO, "first", null, null, null);
+        logSink.log(Level.INFO, "second", null, null, null);
+        logSink.log(Level.INFO, "third {}", "message", null, null);
+        assertThat(ShadowLog.getLogsForTag("MoPub")).isEmpty();
+
+        logSink.drain();
+
+        final List<ShadowLog.LogItem> logs = ShadowLog.getLogsForTag("MoPub");
+        assertThat(logs).hasSize(3);
+        assertThat(logs.get(0).msg).isEqualTo("Dropped 1 log messages.\n");
+        assertThat(logs.get(1).msg).isEqualTo("second\n");
+        assertThat(logs.get(2).msg).isEqualTo("third message\n");
+    }
+
+    @Test
+    public void log_withSevereLevel_shouldWriteQueuedMessagesAndErrorRightAway() throws Exception {
+        final LogSink logSink = new LogSink(2, false);
+
+        logSink.log(Level.INFO, "queued", null, null, null);
+        logSink.log(Level.SEVERE, "failed", null, null, null);
+
+        final List<ShadowLog.LogItem> logs = ShadowLog.getLogsForTag("MoPub");
+        assertThat(logs).hasSize(2);
+        assertThat(logs.get(0).msg).isEqualTo("queued\n");
+        assertThat(logs.get(1).msg).isEqualTo("failed\n");
+    }
+
+    @Test
+    public void v_belowSdkLevel_shouldPassMessageToLoggerHandlersOnCallingThread() throws Exception {
+        MoPubLog.setSynchronous(false);
+        MoPubLog.setSdkHandlerLevel(Level.INFO);
+        final Logger logger = Logger.getLogger(MoPubLog.LOGGER_NAMESPACE);
+        final List<LogRecord> records = new ArrayList<LogRecord>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        final Handler handler = new Handler() {
+            @Override
+            public void publish(final LogRecord record) {
+                records.add(record);
+                threads.add(Thread.currentThread());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        logger.addHandler(handler);
+        try {
+            MoPubLog.v("Invalid url {}", "mopub");
+        } finally {
+            logger.removeHandler(handler);
+            MoPubLog.setSynchronous(true);
+        }
+
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).getLevel()).isEqualTo(Level.FINE);
+        assertThat(records.get(0).getMessage()).isEqualTo("Invalid url mopub");
+        assertThat(threads.get(0)).isSameAs(Thread.currentThread());
+        assertThat(ShadowLog.getLogsForTag("MoPub")).isEmpty();
+    }
+
+    @Test
+    public void d_benchmark_whenDisabled_withArguments_shouldAllocateLessThanConcatenating() throws Exception {
+        Assume.assumeTrue(AllocationCounter.isSupported());
+        MoPubLog.setSdkHandlerLevel(Level.INFO);
+
+        // Hot call sites: tracking requests and MRAID JavaScript injection.
+        final String url = "http://ads.mopub.com/m/imp?appid=&cid=4652bd83d89a40c5a4e276dbf101499f";
+        final String javascript = "mraidbridge.setScreenSize(320,480);"
+                + "mraidbridge.setMaxSize(320,480);mraidbridge.setCurrentPosition(0,0,320,50);";
+        final int iterations = 1000;
+        final AllocationCounter allocationCounter = new AllocationCounter();
+        // Warm up, so that class loading isn't measured.
+        for (int i = 0; i < iterations; i++) {
+            MoPubLog.d("Successfully hit tracking endpoint: " + url);
+            MoPubLog.v("Injecting Javascript into MRAID WebView:\n\t" + javascript);
+            MoPubLog.d("Successfully hit tracking endpoint: {}", url);
+            MoPubLog.v("Injecting Javascript into MRAID WebView:\n\t{}", javascript);
+        }
+
+        allocationCounter.start();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            MoPubLog.d("Successfully hit tracking endpoint: " + url);
+            MoPubLog.v("Injecting Javascript into MRAID WebView:\n\t" + javascript);
+        }
+        final long concatenatedNanos = System.nanoTime() - startNanos;
+        final long concatenatedBytes = allocationCounter.stop();
+
+        allocationCounter.start();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            MoPubLog.d("Successfully hit tracking endpoint: {}", url);
+            MoPubLog.v("Injecting Javascript into MRAID WebView:\n\t{}", javascript);
+        }
+        final long parameterizedNanos = System.nanoTime() - startNanos;
+        final long parameterizedBytes = allocationCounter.stop();
+
+        final String results = "Disabled hot call sites per iteration: parameterized "
+                + parameterizedNanos / iterations + " ns, " + parameterizedBytes / iterations
+                + " bytes; concatenated " + concatenatedNanos / iterations + " ns, "
+                + concatenatedBytes / iterations + " bytes";
+        assertThat(parameterizedBytes).overridingErrorMessage(results)
+                .isLessThan(concatenatedBytes);
+        assertThat(ShadowLog.getLogsForTag("MoPub")).isEmpty();
+    }
+}
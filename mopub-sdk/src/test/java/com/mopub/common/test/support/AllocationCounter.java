@@ -0,0 +1,45 @@
+package com.mopub.common.test.support;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated on the current thread, for tests that check a code path does not
+ * allocate. Only supported on JVMs that expose per-thread allocation counters (e.g. HotSpot).
+ */
+public class AllocationCounter {
+    private final com.sun.management.ThreadMXBean mThreadMXBean;
+    private final long mThreadId;
+    private final long mMeasurementOverheadBytes;
+    private long mStartBytes;
+
+    public static boolean isSupported() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        return threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean)
+                .isThreadAllocatedMemorySupported();
+    }
+
+    public AllocationCounter() {
+        mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+
+        // Reading the counter may allocate on some JVMs. Measure that so it can be subtracted.
+        final long first = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        final long second = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        mMeasurementOverheadBytes = second - first;
+    }
+
+    public void start() {
+        mStartBytes = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+    }
+
+    /**
+     * Returns the bytes allocated on this thread since {@link #start()}.
+     */
+    public long stop() {
+        final long endBytes = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        return Math.max(0, endBytes - mStartBytes - mMeasurementOverheadBytes);
+    }
+}
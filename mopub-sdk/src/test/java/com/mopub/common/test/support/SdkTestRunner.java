@@ -2,17 +2,22 @@ package com.mopub.common.test.support;
 
 import com.mopub.common.CacheService;
 import com.mopub.common.ClientMetadata;
+import com.mopub.common.CustomEventRegistry;
+import com.mopub.common.MemoryGovernor;
 import com.mopub.common.MoPub;
 import com.mopub.common.MoPubHttpUrlConnection;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.event.EventDispatcher;
 import com.mopub.common.event.MoPubEvents;
 import com.mopub.common.factories.MethodBuilderFactory;
+import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.DateAndTime;
 import com.mopub.common.util.test.support.ShadowAsyncTasks;
 import com.mopub.common.util.test.support.ShadowMoPubHttpUrlConnection;
 import com.mopub.common.util.test.support.TestDateAndTime;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
+import com.mopub.mobileads.VideoDownloader;
 import com.mopub.mobileads.factories.AdViewControllerFactory;
 import com.mopub.mobileads.factories.CustomEventBannerAdapterFactory;
 import com.mopub.mobileads.factories.CustomEventBannerFactory;
@@ -20,6 +25,7 @@ import com.mopub.mobileads.factories.CustomEventInterstitialAdapterFactory;
 import com.mopub.mobileads.factories.CustomEventInterstitialFactory;
 import com.mopub.mobileads.factories.HtmlBannerWebViewFactory;
 import com.mopub.mobileads.factories.HtmlInterstitialWebViewFactory;
+import com.mopub.mobileads.factories.MoPubInterstitialFactory;
 import com.mopub.mobileads.factories.MoPubViewFactory;
 import com.mopub.mobileads.factories.MraidControllerFactory;
 import com.mopub.mobileads.factories.VastManagerFactory;
@@ -30,11 +36,14 @@ import com.mopub.mobileads.test.support.TestCustomEventInterstitialAdapterFactor
 import com.mopub.mobileads.test.support.TestCustomEventInterstitialFactory;
 import com.mopub.mobileads.test.support.TestHtmlBannerWebViewFactory;
 import com.mopub.mobileads.test.support.TestHtmlInterstitialWebViewFactory;
+import com.mopub.mobileads.test.support.TestMoPubInterstitialFactory;
 import com.mopub.mobileads.test.support.TestMoPubViewFactory;
 import com.mopub.mobileads.test.support.TestMraidControllerFactory;
 import com.mopub.mobileads.test.support.TestVastManagerFactory;
+import com.mopub.nativeads.ExoPlayerPool;
 import com.mopub.nativeads.factories.CustomEventNativeFactory;
 import com.mopub.nativeads.test.support.TestCustomEventNativeFactory;
+import com.mopub.network.BandwidthEstimator;
 
 import org.junit.runners.model.InitializationError;
 import org.mockito.MockitoAnnotations;
@@ -72,12 +81,15 @@ public class SdkTestRunner extends RobolectricGradleTestRunner {
         @Override
         public void prepareTest(Object test) {
             ClientMetadata.clearForTesting();
+            TimerWheel.clearForTesting();
+            CustomEventRegistry.clearForTesting();
 
             DateAndTime.setInstance(new TestDateAndTime());
             CustomEventBannerFactory.setInstance(new TestCustomEventBannerFactory());
             CustomEventInterstitialFactory.setInstance(new TestCustomEventInterstitialFactory());
             CustomEventBannerAdapterFactory.setInstance(new TestCustomEventBannerAdapterFactory());
             MoPubViewFactory.setInstance(new TestMoPubViewFactory());
+            MoPubInterstitialFactory.setInstance(new TestMoPubInterstitialFactory());
             CustomEventInterstitialAdapterFactory.setInstance(new TestCustomEventInterstitialAdapterFactory());
             HtmlBannerWebViewFactory.setInstance(new TestHtmlBannerWebViewFactory());
             HtmlInterstitialWebViewFactory.setInstance(new TestHtmlInterstitialWebViewFactory());
@@ -97,6 +109,11 @@ public class SdkTestRunner extends RobolectricGradleTestRunner {
 
             AsyncTasks.setExecutor(new RoboExecutorService());
             CacheService.clearAndNullCaches();
+            VideoDownloader.clearDownloaderTasks();
+            BandwidthEstimator.clearForTesting();
+            ExoPlayerPool.clearForTesting();
+            MemoryGovernor.clearForTesting();
+            MoPubLog.setSynchronous(true);
         }
     }
 }
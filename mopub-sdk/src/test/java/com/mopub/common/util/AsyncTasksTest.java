@@ -7,6 +7,8 @@ import android.os.Handler;
 import android.os.Looper;
 
 import com.mopub.TestSdkHelper;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.mobileads.test.support.ThreadUtils;
 
 import org.junit.Before;
@@ -20,6 +22,7 @@ import java.util.concurrent.Executor;
 import static junit.framework.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
@@ -95,6 +98,18 @@ public class AsyncTasksTest {
     }
 
 
+    @TargetApi(VERSION_CODES.HONEYCOMB)
+    @Test
+    public void safeExecuteOnExecutor_atLeastHoneycomb_withLane_shouldCallExecuteWithLaneExecutorAtPriority() throws Exception {
+        TestSdkHelper.setReportedSdkLevel(VERSION_CODES.HONEYCOMB);
+        AsyncTasks.setExecutor(null);
+        AsyncTasks.safeExecuteOnExecutor(Lane.NETWORK, Priority.USER_FACING, asyncTask, "hello");
+
+        verify(asyncTask).executeOnExecutor(
+                same(AsyncTasks.getLaneExecutor(Lane.NETWORK).getExecutor(Priority.USER_FACING)),
+                eq("hello"));
+    }
+
     @Test
     public void safeExecutorOnExecutor_atLeastHoneycomb_withNullAsyncTask_shouldThrowIllegalArgumentException() throws Exception {
         TestSdkHelper.setReportedSdkLevel(VERSION_CODES.HONEYCOMB);
@@ -0,0 +1,115 @@
+package com.mopub.common.util;
+
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ImageUtilsTest {
+
+    @Test
+    public void getBlurDownsampleFactor_shouldFitLongerSideInMaxBlurDimension() throws Exception {
+        assertThat(ImageUtils.getBlurDownsampleFactor(1920, 1080)).isEqualTo(4);
+        assertThat(ImageUtils.getBlurDownsampleFactor(720, 1280)).isEqualTo(3);
+        assertThat(ImageUtils.getBlurDownsampleFactor(480, 270)).isEqualTo(1);
+        assertThat(ImageUtils.getBlurDownsampleFactor(0, 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void blurPixels_withUniformColor_shouldNotChangePixels() throws Exception {
+        // Large enough to be blurred in strips.
+        final int w = 480;
+        final int h = 270;
+        final int[] pixels = new int[w * h];
+        Arrays.fill(pixels, 0xFF336699);
+
+        final int[] blurred = ImageUtils.blurPixels(pixels, new int[w * h], w, h, 4);
+
+        for (final int pixel : blurred) {
+            assertThat(pixel).isEqualTo(0xFF336699);
+        }
+    }
+
+    @Test
+    public void blurPixels_shouldSpreadPixelsAcrossStrips_shouldKeepEdges() throws Exception {
+        final int w = 480;
+        final int h = 270;
+        final int[] pixels = new int[w * h];
+        Arrays.fill(pixels, 0xFF000000);
+        // On the boundary between the first two strips.
+        pixels[(h / 4) * w + w / 2] = 0xFFFFFFFF;
+        pixels[0] = 0xFFFFFFFF;
+
+        final int[] blurred = ImageUtils.blurPixels(pixels, new int[w * h], w, h, 1);
+
+        assertThat(blurred[(h / 4 - 1) * w + w / 2]).isEqualTo(0xFF1F1F1F);
+        assertThat(blurred[(h / 4 + 1) * w + w / 2]).isEqualTo(0xFF1F1F1F);
+        assertThat(blurred[(h / 4) * w + w / 2]).isEqualTo(0xFF000000);
+        assertThat(blurred[0]).isEqualTo(0xFFFFFFFF);
+    }
+
+    @Test
+    public void applyDownsampledBlurToBitmap_withSmallBitmap_shouldBlurInPlace() throws Exception {
+        final Bitmap bitmap = Bitmap.createBitmap(320, 180, Bitmap.Config.ARGB_8888);
+
+        assertThat(ImageUtils.applyDownsampledBlurToBitmap(bitmap, 4)).isSameAs(bitmap);
+    }
+
+    @Test
+    public void getDownsampledBlurRadius_shouldScaleRadiusWithBitmap_shouldBeAtLeastOne() throws Exception {
+        assertThat(ImageUtils.getDownsampledBlurRadius(4, 1)).isEqualTo(4);
+        assertThat(ImageUtils.getDownsampledBlurRadius(4, 2)).isEqualTo(2);
+        assertThat(ImageUtils.getDownsampledBlurRadius(4, 3)).isEqualTo(1);
+        assertThat(ImageUtils.getDownsampledBlurRadius(8, 3)).isEqualTo(3);
+        assertThat(ImageUtils.getDownsampledBlurRadius(1, 4)).isEqualTo(1);
+    }
+
+    @Test
+    public void applyDownsampledBlurToBitmap_benchmark_shouldBlurAtMostMaxBlurDimension() throws Exception {
+        // Timings vary too much between machines to compare, so they are only reported.
+        final StringBuilder results = new StringBuilder("Blur per frame:");
+        for (final int[] size : new int[][] { { 1280, 720 }, { 1920, 1080 } }) {
+            final int w = size[0];
+            final int h = size[1];
+            final int iterations = 5;
+            // Warm up, so that class loading and the lane's threads starting aren't measured.
+            ImageUtils.applyFastGaussianBlurToBitmap(
+                    Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888), 4);
+            ImageUtils.applyDownsampledBlurToBitmap(
+                    Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888), 4);
+
+            long fullSizeNanos = 0;
+            long downsampledNanos = 0;
+            Bitmap blurred = null;
+            for (int i = 0; i < iterations; i++) {
+                final Bitmap fullSizeFrame = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                long startNanos = System.nanoTime();
+                ImageUtils.applyFastGaussianBlurToBitmap(fullSizeFrame, 4);
+                fullSizeNanos += System.nanoTime() - startNanos;
+
+                final Bitmap downsampledFrame = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                startNanos = System.nanoTime();
+                blurred = ImageUtils.applyDownsampledBlurToBitmap(downsampledFrame, 4);
+                downsampledNanos += System.nanoTime() - startNanos;
+            }
+
+            results.append(" ").append(w).append("x").append(h).append(" downsampled ")
+                    .append(downsampledNanos / iterations / 1000).append(" us, full size ")
+                    .append(fullSizeNanos / iterations / 1000).append(" us;");
+            assertThat(blurred).overridingErrorMessage(results.toString()).isNotNull();
+            assertThat(Math.max(blurred.getWidth(), blurred.getHeight()))
+                    .overridingErrorMessage(results.toString())
+                    .isLessThanOrEqualTo(ImageUtils.MAX_BLUR_DIMENSION);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.mopub.common.util;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.LaneExecutor.Priority;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class LaneExecutorTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Test
+    public void execute_shouldRunTaskAndRecordWaitTime() throws Exception {
+        final LaneExecutor subject = new LaneExecutor("test", 2);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        subject.execute(countDown(done), Priority.DEFAULT);
+
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(subject.getStartedThreadCount()).isEqualTo(1);
+        assertThat(subject.getWaitTimeHistogram().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getExecutor_shouldQueueTasksAtPriority() throws Exception {
+        final LaneExecutor subject = new LaneExecutor("test", 1);
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlocker = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(2);
+
+        subject.execute(block(blockerStarted, releaseBlocker), Priority.DEFAULT);
+        assertThat(blockerStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        subject.getExecutor(Priority.PREFETCH).execute(record(order, "prefetch", done));
+        subject.getExecutor(Priority.USER_FACING).execute(record(order, "user facing", done));
+        releaseBlocker.countDown();
+
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("user facing", "prefetch");
+    }
+
+    @Test
+    public void execute_withOneThread_shouldRunQueuedTasksByPriorityThenInOrder()
+            throws Exception {
+        final LaneExecutor subject = new LaneExecutor("test", 1);
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlocker = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(4);
+
+        subject.execute(block(blockerStarted, releaseBlocker), Priority.DEFAULT);
+        assertThat(blockerStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        subject.execute(record(order, "prefetch", done), Priority.PREFETCH);
+        subject.execute(record(order, "default", done), Priority.DEFAULT);
+        subject.execute(record(order, "user facing 1", done), Priority.USER_FACING);
+        subject.execute(record(order, "user facing 2", done), Priority.USER_FACING);
+
+        assertThat(subject.getQueueDepth()).isEqualTo(4);
+        assertThat(subject.getMaxQueueDepth()).isEqualTo(4);
+
+        releaseBlocker.countDown();
+
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("user facing 1", "user facing 2", "default",
+                "prefetch");
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+        assertThat(subject.getStartedThreadCount()).isEqualTo(1);
+        assertThat(subject.getWaitTimeHistogram().getCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void execute_withPrefetchTasks_shouldKeepOneThreadForOtherTasks() throws Exception {
+        final LaneExecutor subject = new LaneExecutor("test", 2);
+        final CountDownLatch prefetchStarted = new CountDownLatch(1);
+        final CountDownLatch releasePrefetch = new CountDownLatch(1);
+        final CountDownLatch secondPrefetchDone = new CountDownLatch(1);
+        final CountDownLatch userFacingDone = new CountDownLatch(1);
+
+        subject.execute(block(prefetchStarted, releasePrefetch), Priority.PREFETCH);
+        assertThat(prefetchStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        subject.execute(countDown(secondPrefetchDone), Priority.PREFETCH);
+
+        assertThat(secondPrefetchDone.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(subject.getQueueDepth()).isEqualTo(1);
+
+        subject.execute(countDown(userFacingDone), Priority.USER_FACING);
+
+        assertThat(userFacingDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(secondPrefetchDone.getCount()).isEqualTo(1);
+
+        releasePrefetch.countDown();
+
+        assertThat(secondPrefetchDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(subject.getStartedThreadCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_whenTaskThrowsError_shouldReleaseThreadAndKeepRunningTasks()
+            throws Exception {
+        final LaneExecutor subject = new LaneExecutor("test", 1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        subject.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new StackOverflowError();
+            }
+        }, Priority.DEFAULT);
+        subject.execute(countDown(done), Priority.DEFAULT);
+
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(subject.getStartedThreadCount()).isEqualTo(1);
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Let the test time out.
+                }
+            }
+        };
+    }
+
+    private static Runnable record(final List<String> order, final String name,
+            final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+}
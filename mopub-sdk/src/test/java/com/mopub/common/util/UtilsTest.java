@@ -7,8 +7,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -27,4 +33,41 @@ public class UtilsTest {
 
         assertThat(ids).hasSize(expectedIdCount);
     }
+
+    @Test
+    public void sha1_shouldReturnLowercaseHexDigest() throws Exception {
+        assertThat(Utils.sha1("")).isEqualTo("da39a3ee5e6b4b0d3255bfef95601890afd80709");
+        assertThat(Utils.sha1("abc")).isEqualTo("a9993e364706816aba3e25717850c26c9cd0d89d");
+        assertThat(Utils.sha1("https://www.mopub.com/"))
+                .isEqualTo("1517a72b98abef728592cd71902e107173121cdf");
+    }
+
+    @Test
+    public void sha1_shouldHashUtf8Bytes() throws Exception {
+        assertThat(Utils.sha1("\u00e9\u00e8")).isEqualTo("48d2c32def8ecf3b3320e6a6357f84c4c3446352");
+    }
+
+    @Test
+    public void sha1_withNull_shouldReturnEmptyString() throws Exception {
+        assertThat(Utils.sha1(null)).isEqualTo("");
+    }
+
+    @Test
+    public void sha1_fromMultipleThreads_shouldReturnSameDigest() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        final List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(executorService.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return Utils.sha1("abc");
+                }
+            }));
+        }
+
+        for (final Future<String> future : futures) {
+            assertThat(future.get()).isEqualTo("a9993e364706816aba3e25717850c26c9cd0d89d");
+        }
+        executorService.shutdown();
+    }
 }
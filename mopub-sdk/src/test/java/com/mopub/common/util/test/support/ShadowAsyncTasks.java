@@ -3,6 +3,8 @@ package com.mopub.common.util.test.support;
 import android.os.AsyncTask;
 
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -15,6 +17,8 @@ public class ShadowAsyncTasks {
     private static boolean sWasCalled;
     private static AsyncTask<?, ?, ?> sAsyncTask;
     private static List<?> sParams;
+    private static Lane sLane;
+    private static Priority sPriority;
 
     @Implementation
     public static <P> void safeExecuteOnExecutor(AsyncTask<P, ?, ?> asyncTask, P... params)
@@ -24,6 +28,15 @@ public class ShadowAsyncTasks {
         sParams = Arrays.asList(params);
     }
 
+    @Implementation
+    public static <P> void safeExecuteOnExecutor(Lane lane, Priority priority,
+            AsyncTask<P, ?, ?> asyncTask, P... params)
+            throws IllegalArgumentException, IllegalStateException {
+        safeExecuteOnExecutor(asyncTask, params);
+        sLane = lane;
+        sPriority = priority;
+    }
+
     public static boolean wasCalled() {
         return sWasCalled;
     }
@@ -36,9 +49,19 @@ public class ShadowAsyncTasks {
         return sParams;
     }
 
+    public static Lane getLatestLane() {
+        return sLane;
+    }
+
+    public static Priority getLatestPriority() {
+        return sPriority;
+    }
+
     public static void reset() {
         sWasCalled = false;
         sAsyncTask = null;
         sParams = null;
+        sLane = null;
+        sPriority = null;
     }
 }
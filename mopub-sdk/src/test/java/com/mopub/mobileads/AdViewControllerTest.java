@@ -9,6 +9,7 @@ import android.view.View;
 import android.widget.FrameLayout;
 
 import com.mopub.common.AdFormat;
+import com.mopub.common.TimerWheel;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.Reflection;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
@@ -205,6 +206,44 @@ public class AdViewControllerTest {
         assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(0);
     }
 
+    @Test
+    public void setViewableRefreshEnabled_whenBannerIsNotViewable_shouldCountAvoidedRefreshes() throws Exception {
+        subject.setViewableRefreshEnabled(true);
+        assertThat(subject.getViewableRefreshEnabled()).isTrue();
+
+        subject.scheduleRefreshTimerIfEnabled();
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                AdViewController.DEFAULT_REFRESH_TIME_MILLISECONDS);
+
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void setViewableRefreshEnabled_withFalse_shouldRefreshOnTimer() throws Exception {
+        subject.setViewableRefreshEnabled(true);
+        subject.setViewableRefreshEnabled(false);
+
+        subject.scheduleRefreshTimerIfEnabled();
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                AdViewController.DEFAULT_REFRESH_TIME_MILLISECONDS);
+
+        assertThat(subject.getViewableRefreshEnabled()).isFalse();
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(0);
+        assertThat(TimerWheel.getInstance().getExpiredTimerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void setViewableRefreshEnabled_withoutMoPubView_shouldKeepRefreshTimer() throws Exception {
+        subject = new AdViewController(activity, null);
+        subject.scheduleRefreshTimerIfEnabled();
+        assertThat(TimerWheel.getInstance().getPendingTimerCount()).isEqualTo(1);
+
+        subject.setViewableRefreshEnabled(true);
+
+        assertThat(subject.getViewableRefreshEnabled()).isFalse();
+        assertThat(TimerWheel.getInstance().getPendingTimerCount()).isEqualTo(1);
+    }
+
     @Test
     public void forceSetAutoRefreshEnabled_shouldSetAutoRefreshSetting() throws Exception {
         assertThat(subject.getAutorefreshEnabled()).isTrue();
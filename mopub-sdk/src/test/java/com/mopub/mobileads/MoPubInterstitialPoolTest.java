@@ -0,0 +1,234 @@
+package com.mopub.mobileads;
+
+import android.app.Activity;
+
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.MoPubInterstitial.InterstitialAdListener;
+import com.mopub.mobileads.test.support.TestMoPubInterstitialFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class MoPubInterstitialPoolTest {
+    private static final String AD_UNIT_ID = "adUnitId";
+    private static final long EXPIRATION_MILLIS = 10000;
+
+    @Mock private InterstitialAdListener mockListener;
+
+    private MoPubInterstitialPool subject;
+    private List<MoPubInterstitial> createdInterstitials;
+
+    @Before
+    public void setUp() throws Exception {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        subject = new MoPubInterstitialPool(activity, AD_UNIT_ID, 2, EXPIRATION_MILLIS);
+        subject.setKeywords("keywords");
+        subject.setInterstitialAdListener(mockListener);
+        createdInterstitials = TestMoPubInterstitialFactory.getCreatedMocks();
+    }
+
+    @Test
+    public void load_shouldLoadOneInterstitialAtATime_untilPoolIsFull() throws Exception {
+        subject.load();
+        assertThat(createdInterstitials).hasSize(1);
+        verify(createdInterstitials.get(0)).setKeywords("keywords");
+        verify(createdInterstitials.get(0)).load();
+        assertThat(subject.isReady()).isFalse();
+
+        loaded(0);
+        assertThat(createdInterstitials).hasSize(2);
+        verify(mockListener).onInterstitialLoaded(createdInterstitials.get(0));
+        assertThat(subject.isReady()).isTrue();
+
+        loaded(1);
+        assertThat(createdInterstitials).hasSize(2);
+        assertThat(subject.getReadyCount()).isEqualTo(2);
+        verify(mockListener, never()).onInterstitialLoaded(createdInterstitials.get(1));
+    }
+
+    @Test
+    public void show_shouldShowOldestInterstitial_andLoadReplacement() throws Exception {
+        fillPool();
+        when(createdInterstitials.get(0).show()).thenReturn(true);
+
+        assertThat(subject.show()).isTrue();
+
+        verify(createdInterstitials.get(0)).show();
+        verify(createdInterstitials.get(1), never()).show();
+        assertThat(subject.getReadyCount()).isEqualTo(1);
+        assertThat(createdInterstitials).hasSize(3);
+        verify(createdInterstitials.get(2)).load();
+    }
+
+    @Test
+    public void show_whenInterstitialFailsToShow_shouldDestroyIt_andLoadReplacement() throws Exception {
+        fillPool();
+        when(createdInterstitials.get(0).show()).thenReturn(false);
+
+        assertThat(subject.show()).isFalse();
+
+        verify(createdInterstitials.get(0)).destroy();
+        assertThat(subject.getReadyCount()).isEqualTo(1);
+        assertThat(createdInterstitials).hasSize(3);
+        verify(createdInterstitials.get(2)).load();
+
+        subject.destroy();
+        // Not kept as shown, so it isn't destroyed a second time.
+        verify(createdInterstitials.get(0)).destroy();
+    }
+
+    @Test
+    public void show_withNoInterstitialReady_shouldRecordFailure() throws Exception {
+        subject.load();
+
+        assertThat(subject.show()).isFalse();
+
+        assertThat(subject.getReadyLatencyHistogram().getFailureCount()).isEqualTo(1);
+        assertThat(createdInterstitials).hasSize(1);
+    }
+
+    @Test
+    public void onInterstitialFailed_shouldDestroyInterstitial_andRetryWithBackoff() throws Exception {
+        subject.load();
+
+        failed(0);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[0] - 1);
+        verify(createdInterstitials.get(0)).destroy();
+        assertThat(createdInterstitials).hasSize(1);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        assertThat(createdInterstitials).hasSize(2);
+
+        failed(1);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[1] - 1);
+        assertThat(createdInterstitials).hasSize(2);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        assertThat(createdInterstitials).hasSize(3);
+        verify(mockListener, never()).onInterstitialFailed(any(MoPubInterstitial.class),
+                any(MoPubErrorCode.class));
+    }
+
+    @Test
+    public void onInterstitialFailed_afterLastRetry_shouldNotifyListener_andStopRetrying() throws Exception {
+        subject.load();
+
+        for (final int retryMillis : ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS) {
+            failed(createdInterstitials.size() - 1);
+            Robolectric.getForegroundThreadScheduler().advanceBy(retryMillis);
+        }
+        final int createdCount = createdInterstitials.size();
+        failed(createdCount - 1);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[0]);
+
+        verify(mockListener).onInterstitialFailed(createdInterstitials.get(createdCount - 1),
+                MoPubErrorCode.NETWORK_NO_FILL);
+        assertThat(createdInterstitials).hasSize(createdCount);
+
+        // Showing asks for an interstitial again.
+        subject.show();
+        assertThat(createdInterstitials).hasSize(createdCount + 1);
+    }
+
+    @Test
+    public void expiration_shouldDestroyExpiredInterstitial_andLoadReplacement() throws Exception {
+        subject.load();
+        loaded(0);
+        Robolectric.getForegroundThreadScheduler().advanceBy(EXPIRATION_MILLIS / 2);
+        loaded(1);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(EXPIRATION_MILLIS / 2);
+
+        verify(createdInterstitials.get(0)).destroy();
+        verify(createdInterstitials.get(1), never()).destroy();
+        assertThat(subject.getReadyCount()).isEqualTo(1);
+        assertThat(createdInterstitials).hasSize(3);
+        verify(createdInterstitials.get(2)).load();
+    }
+
+    @Test
+    public void getReadyLatencyHistogram_shouldRecordTimeUntilLoaded() throws Exception {
+        subject.load();
+        Robolectric.getForegroundThreadScheduler().advanceBy(300);
+        loaded(0);
+
+        final LatencyHistogram histogram = subject.getReadyLatencyHistogram();
+        assertThat(histogram.getCount()).isEqualTo(1);
+        assertThat(histogram.getPercentileUpperBoundMillis(50)).isEqualTo(500);
+    }
+
+    @Test
+    public void onInterstitialDismissed_shouldNotifyListener_andDestroyShownInterstitial() throws Exception {
+        fillPool();
+        when(createdInterstitials.get(0).show()).thenReturn(true);
+        subject.show();
+        final MoPubInterstitial shown = createdInterstitials.get(0);
+
+        getPoolListener(0).onInterstitialShown(shown);
+        getPoolListener(0).onInterstitialDismissed(shown);
+
+        verify(mockListener).onInterstitialShown(shown);
+        verify(mockListener).onInterstitialDismissed(shown);
+        verify(shown).destroy();
+        verify(createdInterstitials.get(1), never()).destroy();
+    }
+
+    @Test
+    public void destroy_shouldDestroyAllInterstitials_andStopLoading() throws Exception {
+        fillPool();
+        when(createdInterstitials.get(0).show()).thenReturn(true);
+        subject.show();
+        assertThat(createdInterstitials).hasSize(3);
+
+        subject.destroy();
+
+        for (final MoPubInterstitial interstitial : createdInterstitials) {
+            verify(interstitial).destroy();
+        }
+        assertThat(subject.getReadyCount()).isEqualTo(0);
+        subject.load();
+        assertThat(subject.show()).isFalse();
+        assertThat(createdInterstitials).hasSize(3);
+    }
+
+    private void fillPool() {
+        subject.load();
+        loaded(0);
+        loaded(1);
+    }
+
+    private InterstitialAdListener getPoolListener(final int index) {
+        final ArgumentCaptor<InterstitialAdListener> listenerCaptor =
+                ArgumentCaptor.forClass(InterstitialAdListener.class);
+        verify(createdInterstitials.get(index)).setInterstitialAdListener(listenerCaptor.capture());
+        return listenerCaptor.getValue();
+    }
+
+    private void loaded(final int index) {
+        getPoolListener(index).onInterstitialLoaded(createdInterstitials.get(index));
+    }
+
+    private void failed(final int index) {
+        getPoolListener(index).onInterstitialFailed(createdInterstitials.get(index),
+                MoPubErrorCode.NETWORK_NO_FILL);
+    }
+}
@@ -6,6 +6,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.mopub.common.AdType;
+import com.mopub.common.LatencyHistogram;
 import com.mopub.common.LifecycleListener;
 import com.mopub.common.MoPubReward;
 import com.mopub.common.test.support.SdkTestRunner;
@@ -37,6 +38,7 @@ import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -46,6 +48,8 @@ import static org.mockito.Mockito.when;
 public class
         MoPubRewardedVideoManagerTest {
 
+    private static final String READY_POOL_AD_UNIT_ID = "readyPoolAdUnit";
+
     @Mock
     MoPubRequestQueue mockRequestQueue;
     @Mock
@@ -77,6 +81,7 @@ public class
     public void tearDown() {
         // Unpause the main looper in case a test terminated while the looper was paused.
         ShadowLooper.unPauseMainLooper();
+        MoPubRewardedVideoManager.disableReadyPool(READY_POOL_AD_UNIT_ID);
     }
 
     @Test
@@ -369,6 +374,80 @@ public class
         verifyNoMoreInteractions(mockVideoListener);
     }
 
+    @Test
+    public void enableReadyPool_shouldLoadVideo_andReloadAfterVideoIsClosed() throws Exception {
+        final String adUnitId = READY_POOL_AD_UNIT_ID + "_close";
+        MoPubRewardedVideoManager.enableReadyPool(adUnitId, null);
+        assertThat(request.getUrl()).contains(adUnitId);
+
+        loadTestCustomEvent();
+        assertThat(MoPubRewardedVideoManager.hasVideo(adUnitId)).isTrue();
+
+        MoPubRewardedVideoManager.showVideo(adUnitId);
+        MoPubRewardedVideoManager.onRewardedVideoClosed(TestCustomEvent.class, "id!");
+
+        verify(mockRequestQueue, times(2)).add(argThat(new RequestUrlContains(adUnitId)));
+        MoPubRewardedVideoManager.disableReadyPool(adUnitId);
+        requestListener.onErrorResponse(new VolleyError("end test"));
+    }
+
+    @Test
+    public void enableReadyPool_whenLoadFails_shouldRetryWithBackoff() throws Exception {
+        MoPubRewardedVideoManager.enableReadyPool(READY_POOL_AD_UNIT_ID, null);
+
+        requestListener.onErrorResponse(new VolleyError("test"));
+        verify(mockVideoListener).onRewardedVideoLoadFailure(eq(READY_POOL_AD_UNIT_ID),
+                any(MoPubErrorCode.class));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[0] - 1);
+        verify(mockRequestQueue).add(any(AdRequest.class));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        verify(mockRequestQueue, times(2)).add(argThat(new RequestUrlContains(READY_POOL_AD_UNIT_ID)));
+        requestListener.onErrorResponse(new VolleyError("end test"));
+    }
+
+    @Test
+    public void enableReadyPool_whenLoadedVideoExpires_shouldLoadAnother() throws Exception {
+        final String adUnitId = READY_POOL_AD_UNIT_ID + "_expire";
+        MoPubRewardedVideoManager.enableReadyPool(adUnitId, null);
+        loadTestCustomEvent();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ReadyPoolTracker.DEFAULT_EXPIRATION_MILLIS);
+
+        assertThat(MoPubRewardedVideoManager.hasVideo(adUnitId)).isFalse();
+        verify(mockRequestQueue, times(2)).add(argThat(new RequestUrlContains(adUnitId)));
+        MoPubRewardedVideoManager.disableReadyPool(adUnitId);
+        requestListener.onErrorResponse(new VolleyError("end test"));
+    }
+
+    @Test
+    public void getReadyLatencyHistogram_shouldRecordLoadLatency_andMissedShows() throws Exception {
+        MoPubRewardedVideoManager.enableReadyPool(READY_POOL_AD_UNIT_ID, null);
+        Robolectric.getForegroundThreadScheduler().advanceBy(300);
+        requestListener.onErrorResponse(new VolleyError("test"));
+        MoPubRewardedVideoManager.showVideo(READY_POOL_AD_UNIT_ID);
+
+        final LatencyHistogram histogram =
+                MoPubRewardedVideoManager.getReadyLatencyHistogram(READY_POOL_AD_UNIT_ID);
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getFailureCount()).isEqualTo(1);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[1]);
+        loadTestCustomEvent();
+
+        assertThat(histogram.getCount()).isEqualTo(1);
+        assertThat(histogram.getPercentileUpperBoundMillis(50)).isGreaterThan(1000);
+    }
+
+    @Test
+    public void getReadyLatencyHistogram_withoutReadyPool_shouldReturnNull() throws Exception {
+        assertThat(MoPubRewardedVideoManager.getReadyLatencyHistogram("testAdUnit")).isNull();
+    }
+
     @Test
     public void chooseReward_shouldReturnMoPubRewardOverNetworkReward() throws Exception {
         MoPubReward moPubReward = MoPubReward.success("mopub_reward", 123);
@@ -389,6 +468,20 @@ public class
         assertThat(chosenReward).isEqualTo(networkReward);
     }
 
+    private void loadTestCustomEvent() {
+        AdResponse testResponse = new AdResponse.Builder()
+                .setCustomEventClassName(
+                        "com.mopub.mobileads.MoPubRewardedVideoManagerTest$TestCustomEvent")
+                .setAdType(AdType.CUSTOM)
+                .build();
+
+        // Robolectric executes its handlers immediately, so if we want the async behavior we see
+        // in an actual app we have to pause the main looper until we're done successfully loading the ad.
+        ShadowLooper.pauseMainLooper();
+        requestListener.onSuccess(testResponse);
+        ShadowLooper.unPauseMainLooper();
+    }
+
     public static class TestCustomEvent extends CustomEventRewardedVideo {
         protected boolean mPlayable = false;
 
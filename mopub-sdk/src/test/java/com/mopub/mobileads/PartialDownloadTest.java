@@ -0,0 +1,81 @@
+package com.mopub.mobileads;
+
+import android.app.Activity;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class PartialDownloadTest {
+    private static final String URL = "https://video_url";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        CacheService.initialize(activity);
+        directory = CacheService.getPartialDownloadDirectory();
+    }
+
+    @Test
+    public void append_belowSaveInterval_shouldNotSaveProgressUntilClosed() throws Exception {
+        final PartialDownload subject = PartialDownload.open(directory, URL);
+        subject.restart("\"etag\"", 100);
+
+        subject.append(new byte[10], 10);
+
+        assertThat(subject.getLength()).isEqualTo(10);
+        assertThat(PartialDownload.open(directory, URL).getLength()).isEqualTo(0);
+
+        subject.close();
+
+        final PartialDownload reopened = PartialDownload.open(directory, URL);
+        assertThat(reopened.getLength()).isEqualTo(10);
+        assertThat(reopened.canResume()).isTrue();
+    }
+
+    @Test
+    public void append_pastSaveInterval_shouldSaveProgress() throws Exception {
+        final PartialDownload subject = PartialDownload.open(directory, URL);
+        subject.restart("\"etag\"", PartialDownload.UNKNOWN_LENGTH);
+        final byte[] buffer = new byte[64 * 1024];
+
+        long length = 0;
+        while (length < PartialDownload.SAVE_INTERVAL_BYTES) {
+            subject.append(buffer, buffer.length);
+            length += buffer.length;
+        }
+
+        assertThat(PartialDownload.open(directory, URL).getLength()).isEqualTo(length);
+        subject.close();
+    }
+
+    @Test
+    public void append_afterReopening_shouldDropBytesPastSavedProgress() throws Exception {
+        final PartialDownload subject = PartialDownload.open(directory, URL);
+        subject.restart("\"etag\"", 100);
+        subject.append(new byte[10], 10);
+        subject.close();
+        subject.append(new byte[5], 5);
+
+        // As if the process died before the last bytes were saved.
+        final PartialDownload reopened = PartialDownload.open(directory, URL);
+        reopened.append(new byte[20], 20);
+        reopened.close();
+
+        assertThat(reopened.getLength()).isEqualTo(30);
+        assertThat(reopened.getDataFile().length()).isEqualTo(30);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mopub.mobileads;
+
+import android.os.SystemClock;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ReadyPoolTrackerTest {
+    private ReadyPoolTracker subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new ReadyPoolTracker(1000);
+    }
+
+    @Test
+    public void onAdFailed_shouldBackOff_andStopAfterLastRetry() throws Exception {
+        for (final int retryMillis : ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS) {
+            assertThat(subject.onAdFailed()).isEqualTo(retryMillis);
+        }
+
+        assertThat(subject.onAdFailed()).isEqualTo(-1);
+        assertThat(subject.onAdFailed())
+                .isEqualTo(ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[0]);
+    }
+
+    @Test
+    public void onAdLoaded_shouldResetBackOff() throws Exception {
+        subject.onAdFailed();
+        subject.onAdFailed();
+
+        subject.onAdLoaded();
+
+        assertThat(subject.onAdFailed())
+                .isEqualTo(ReadyPoolTracker.RETRY_TIME_ARRAY_MILLISECONDS[0]);
+    }
+
+    @Test
+    public void onAdLoaded_shouldRecordLatencySinceFirstOnAdNeeded() throws Exception {
+        subject.onAdNeeded();
+        Robolectric.getForegroundThreadScheduler().advanceBy(200);
+        subject.onAdNeeded();
+        Robolectric.getForegroundThreadScheduler().advanceBy(200);
+
+        subject.onAdLoaded();
+        // Without an ad needed, a load isn't recorded.
+        subject.onAdLoaded();
+
+        assertThat(subject.getReadyLatencyHistogram().getCount()).isEqualTo(1);
+        assertThat(subject.getReadyLatencyHistogram().getPercentileUpperBoundMillis(50))
+                .isEqualTo(500);
+    }
+
+    @Test
+    public void isExpired_shouldBeTrueOnceExpirationTimePasses() throws Exception {
+        final long loadedMillis = SystemClock.uptimeMillis();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(999);
+        assertThat(subject.isExpired(loadedMillis)).isFalse();
+        assertThat(subject.getMillisUntilExpiration(loadedMillis)).isEqualTo(1);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        assertThat(subject.isExpired(loadedMillis)).isTrue();
+    }
+}
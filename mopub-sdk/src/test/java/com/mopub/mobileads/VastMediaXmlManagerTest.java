@@ -54,6 +54,27 @@ public class VastMediaXmlManagerTest {
         assertThat(subject.getWidth()).isNull();
     }
 
+    @Test
+    public void getBitrate_shouldReturnBitrateAttribute() {
+        assertThat(subject.getBitrate()).isEqualTo(457);
+    }
+
+    @Test
+    public void getBitrate_withNoBitrateAttribute_shouldReturnNull() throws Exception {
+        String mediaXml = "<MediaFile id=\"1\" delivery=\"progressive\" type=\"video/quicktime\" " +
+                "width=\"300\" height=\"225\">" +
+                "        <![CDATA[" +
+                "        https://s3.amazonaws.com/uploads.hipchat" +
+                ".com/10627/429509/t8hqeqf98nvtir7/big_buck_bunny.mp4" +
+                "        ]]>" +
+                "</MediaFile>";
+
+        mediaNode = createNode(mediaXml);
+        subject = new VastMediaXmlManager(mediaNode);
+
+        assertThat(subject.getBitrate()).isNull();
+    }
+
     @Test
     public void getHeight_shouldReturnHeightAttribute() {
         assertThat(subject.getHeight()).isEqualTo(225);
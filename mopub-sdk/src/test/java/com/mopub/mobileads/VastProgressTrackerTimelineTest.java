@@ -0,0 +1,124 @@
+package com.mopub.mobileads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class VastProgressTrackerTimelineTest {
+
+    private List<VastAbsoluteProgressTracker> absoluteTrackers;
+    private List<VastFractionalProgressTracker> fractionalTrackers;
+    private VastProgressTrackerTimeline subject;
+
+    @Before
+    public void setUp() {
+        absoluteTrackers = Arrays.asList(
+                new VastAbsoluteProgressTracker("2secs", 2000),
+                new VastAbsoluteProgressTracker("5secs", 5000));
+        fractionalTrackers = Arrays.asList(
+                new VastFractionalProgressTracker("first", 0.25f),
+                new VastFractionalProgressTracker("midpoint", 0.5f),
+                new VastFractionalProgressTracker("third", 0.75f));
+
+        subject = new VastProgressTrackerTimeline(absoluteTrackers, fractionalTrackers, 10000);
+    }
+
+    @Test
+    public void pollDueTrackers_shouldReturnTrackersInTriggerOrder() throws Exception {
+        final List<VastTracker> dueTrackers = subject.pollDueTrackers(10000);
+
+        assertThat(dueTrackers).hasSize(5);
+        assertThat(dueTrackers.get(0).getTrackingUrl()).isEqualTo("2secs");
+        assertThat(dueTrackers.get(1).getTrackingUrl()).isEqualTo("first");
+        assertThat(dueTrackers.get(2).getTrackingUrl()).isEqualTo("5secs");
+        assertThat(dueTrackers.get(3).getTrackingUrl()).isEqualTo("midpoint");
+        assertThat(dueTrackers.get(4).getTrackingUrl()).isEqualTo("third");
+    }
+
+    @Test
+    public void pollDueTrackers_shouldOnlyReturnEachTrackerOnce() throws Exception {
+        final List<VastTracker> firstPoll = subject.pollDueTrackers(2500);
+        final List<VastTracker> secondPoll = subject.pollDueTrackers(2600);
+        final List<VastTracker> thirdPoll = subject.pollDueTrackers(5000);
+
+        assertThat(firstPoll).hasSize(2);
+        assertThat(secondPoll).isEmpty();
+        assertThat(thirdPoll).hasSize(2);
+        assertThat(thirdPoll.get(0).getTrackingUrl()).isEqualTo("5secs");
+        assertThat(thirdPoll.get(1).getTrackingUrl()).isEqualTo("midpoint");
+    }
+
+    @Test
+    public void pollDueTrackers_withAbsoluteAndFractionalTrackerAtSamePosition_shouldReturnAbsoluteFirst() throws Exception {
+        subject = new VastProgressTrackerTimeline(
+                Arrays.asList(new VastAbsoluteProgressTracker("absolute", 2500)),
+                Arrays.asList(new VastFractionalProgressTracker("fractional", 0.25f)),
+                10000);
+
+        final List<VastTracker> dueTrackers = subject.pollDueTrackers(2500);
+
+        assertThat(dueTrackers).hasSize(2);
+        assertThat(dueTrackers.get(0).getTrackingUrl()).isEqualTo("absolute");
+        assertThat(dueTrackers.get(1).getTrackingUrl()).isEqualTo("fractional");
+    }
+
+    @Test
+    public void pollDueTrackers_withFractionalTracker_shouldTriggerAtSamePositionAsVastVideoConfig() throws Exception {
+        final VastVideoConfig vastVideoConfig = new VastVideoConfig();
+        vastVideoConfig.addFractionalTrackers(
+                Arrays.asList(new VastFractionalProgressTracker("tenth", 0.1f)));
+        subject = new VastProgressTrackerTimeline(new ArrayList<VastAbsoluteProgressTracker>(),
+                vastVideoConfig.getFractionalTrackers(), 1000);
+
+        assertThat(vastVideoConfig.getUntriggeredTrackersBefore(99, 1000)).isEmpty();
+        assertThat(subject.pollDueTrackers(99)).isEmpty();
+        assertThat(vastVideoConfig.getUntriggeredTrackersBefore(100, 1000)).hasSize(1);
+        assertThat(subject.pollDueTrackers(100)).hasSize(1);
+    }
+
+    @Test
+    public void pollDueTrackers_shouldSkipTrackedTrackers() throws Exception {
+        absoluteTrackers.get(0).setTracked();
+
+        final List<VastTracker> dueTrackers = subject.pollDueTrackers(5000);
+
+        assertThat(dueTrackers).hasSize(2);
+        assertThat(dueTrackers.get(0).getTrackingUrl()).isEqualTo("first");
+        assertThat(dueTrackers.get(1).getTrackingUrl()).isEqualTo("5secs");
+    }
+
+    @Test
+    public void pollDueTrackers_beforeFirstTrigger_shouldReturnEmptyList() throws Exception {
+        assertThat(subject.pollDueTrackers(1999)).isEmpty();
+        assertThat(subject.getPendingTrackerCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void getNextTriggerMillis_shouldAdvanceWithCursor() throws Exception {
+        assertThat(subject.getNextTriggerMillis()).isEqualTo(2000);
+
+        subject.pollDueTrackers(2500);
+        assertThat(subject.getNextTriggerMillis()).isEqualTo(5000);
+
+        subject.pollDueTrackers(10000);
+        assertThat(subject.getNextTriggerMillis())
+                .isEqualTo(VastProgressTrackerTimeline.NO_PENDING_TRIGGER);
+        assertThat(subject.getPendingTrackerCount()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_withZeroVideoLength_shouldThrowIllegalArgumentException() throws Exception {
+        new VastProgressTrackerTimeline(absoluteTrackers, fractionalTrackers, 0);
+    }
+}
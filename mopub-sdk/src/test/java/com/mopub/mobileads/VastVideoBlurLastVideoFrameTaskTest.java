@@ -1,18 +1,23 @@
 package com.mopub.mobileads;
 
 import android.annotation.TargetApi;
+import android.app.Activity;
 import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
 import android.media.MediaMetadataRetriever;
 import android.os.Build;
 import android.widget.ImageView;
 
 import com.mopub.TestSdkHelper;
+import com.mopub.common.MemoryGovernor;
+import com.mopub.common.MemoryGovernor.TrimLevel;
 import com.mopub.common.test.support.SdkTestRunner;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.robolectric.Robolectric;
 import org.robolectric.annotation.Config;
 
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -44,6 +49,8 @@ public class VastVideoBlurLastVideoFrameTaskTest {
         videoDuration = 10000;
 
         when(mockMediaMetadataRetriever.getFrameAtTime(anyLong(), anyInt())).thenReturn(mockBitmap);
+        when(mockBlurredLastVideoFrameImageView.getContext()).thenReturn(
+                Robolectric.buildActivity(Activity.class).create().get());
 
         subject = new VastVideoBlurLastVideoFrameTask(mockMediaMetadataRetriever,
                 mockBlurredLastVideoFrameImageView, videoDuration);
@@ -87,6 +94,21 @@ public class VastVideoBlurLastVideoFrameTaskTest {
         assertThat(subject.getBlurredLastVideoFrame()).isNull();
     }
 
+    @TargetApi(Build.VERSION_CODES.GINGERBREAD_MR1)
+    @Test
+    public void doInBackground_withFullSizeFrame_shouldBlurDownsampledFrame_shouldRecycleFullSizeFrame() throws Exception {
+        final Bitmap lastVideoFrame = Bitmap.createBitmap(1920, 1080, Bitmap.Config.ARGB_8888);
+        when(mockMediaMetadataRetriever.getFrameAtTime(anyLong(), anyInt()))
+                .thenReturn(lastVideoFrame);
+
+        assertThat(subject.doInBackground(videoPath)).isTrue();
+
+        final Bitmap blurredLastVideoFrame = subject.getBlurredLastVideoFrame();
+        assertThat(blurredLastVideoFrame.getWidth()).isEqualTo(480);
+        assertThat(blurredLastVideoFrame.getHeight()).isEqualTo(270);
+        assertThat(lastVideoFrame.isRecycled()).isTrue();
+    }
+
     @Test
     public void doInBackground_whenVideoPathIsNull_shouldReturnFalse() throws Exception {
         assertThat(subject.doInBackground((String) null)).isFalse();
@@ -146,4 +168,38 @@ public class VastVideoBlurLastVideoFrameTaskTest {
 
         verify(mockBlurredLastVideoFrameImageView, never()).setImageBitmap(any(Bitmap.class));
     }
+
+    @TargetApi(Build.VERSION_CODES.GINGERBREAD_MR1)
+    @Test
+    public void onPostExecute_whenBlurringSucceeded_shouldRegisterBlurredFrameWithMemoryGovernor() throws Exception {
+        final Bitmap lastVideoFrame = Bitmap.createBitmap(1920, 1080, Bitmap.Config.ARGB_8888);
+        when(mockMediaMetadataRetriever.getFrameAtTime(anyLong(), anyInt()))
+                .thenReturn(lastVideoFrame);
+        subject.doInBackground(videoPath);
+
+        subject.onPostExecute(true);
+
+        assertThat(subject.getFootprintBytes()).isEqualTo(480 * 270 * 4);
+        assertThat(MemoryGovernor.getInstance().getFootprintBytes())
+                .isEqualTo(subject.getFootprintBytes());
+    }
+
+    @Test
+    public void trimMemory_shouldClearBlurredFrameFromImageView() throws Exception {
+        subject.doInBackground(videoPath);
+        subject.onPostExecute(true);
+
+        subject.trimMemory(TrimLevel.COMPLETE);
+
+        verify(mockBlurredLastVideoFrameImageView).setImageDrawable(null);
+        assertThat(subject.getBlurredLastVideoFrame()).isNull();
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void trimMemory_beforeBlurring_shouldDoNothing() throws Exception {
+        subject.trimMemory(TrimLevel.COMPLETE);
+
+        verify(mockBlurredLastVideoFrameImageView, never()).setImageDrawable(any(Drawable.class));
+    }
 }
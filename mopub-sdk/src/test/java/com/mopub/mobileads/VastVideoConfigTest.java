@@ -105,6 +105,35 @@ public class VastVideoConfigTest {
         assertThat(secondTrackersList).hasSize(4);
     }
 
+    @Test
+    public void getProgressTrackerTimeline_withSameVideoLength_shouldReturnSameTimeline() throws Exception {
+        VastVideoConfig subject = new VastVideoConfig();
+        subject.addAbsoluteTrackers(
+                Arrays.asList(new VastAbsoluteProgressTracker("5secs", 5000)));
+
+        final VastProgressTrackerTimeline timeline = subject.getProgressTrackerTimeline(10000);
+
+        assertThat(subject.getProgressTrackerTimeline(10000)).isSameAs(timeline);
+        assertThat(subject.getProgressTrackerTimeline(20000)).isNotSameAs(timeline);
+    }
+
+    @Test
+    public void getProgressTrackerTimeline_afterAddingTrackers_shouldIncludeNewTrackers() throws Exception {
+        VastVideoConfig subject = new VastVideoConfig();
+        subject.addAbsoluteTrackers(
+                Arrays.asList(new VastAbsoluteProgressTracker("5secs", 5000)));
+        subject.getProgressTrackerTimeline(10000);
+
+        subject.addFractionalTrackers(
+                Arrays.asList(new VastFractionalProgressTracker("first", 0.25f)));
+        final List<VastTracker> dueTrackers =
+                subject.getProgressTrackerTimeline(10000).pollDueTrackers(10000);
+
+        assertThat(dueTrackers).hasSize(2);
+        assertThat(dueTrackers.get(0).getTrackingUrl()).isEqualTo("first");
+        assertThat(dueTrackers.get(1).getTrackingUrl()).isEqualTo("5secs");
+    }
+
     @Test
     public void getUntriggeredTrackersBefore_shouldReturnAllTrackersSorted() throws Exception {
         VastVideoConfig subject = new VastVideoConfig();
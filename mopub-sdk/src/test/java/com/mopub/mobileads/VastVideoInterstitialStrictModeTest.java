@@ -0,0 +1,125 @@
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.content.Context;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.CacheServiceTest;
+import com.mopub.common.DataKeys;
+import com.mopub.common.Preconditions.NoThrow;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.test.support.TestVastManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.mopub.mobileads.CustomEventInterstitial.CustomEventInterstitialListener;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Loads a VAST interstitial with disk access on the UI thread treated as an error.
+ *
+ * Robolectric doesn't enforce android.os.StrictMode, so the CacheService's own check that the
+ * disk cache isn't used on the UI thread is made to throw instead, with {@link NoThrow} strict
+ * mode. Background tasks run on the UI thread under Robolectric, so they are held until the UI
+ * thread part of the load is done.
+ */
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class VastVideoInterstitialStrictModeTest {
+    private Context context;
+    private VastManager vastManager;
+    private CustomEventInterstitialListener customEventInterstitialListener;
+    private Map<String, Object> localExtras;
+    private Map<String, String> serverExtras;
+    private VastVideoInterstitial subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new VastVideoInterstitial();
+        vastManager = TestVastManagerFactory.getSingletonMock();
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        customEventInterstitialListener = mock(CustomEventInterstitialListener.class);
+        localExtras = new HashMap<String, Object>();
+        localExtras.put(DataKeys.BROADCAST_IDENTIFIER_KEY, 3333L);
+        serverExtras = new HashMap<String, String>();
+        serverExtras.put(DataKeys.HTML_RESPONSE_BODY_KEY, "<VAST>hello</VAST>");
+
+        NoThrow.setStrictMode(true);
+        Robolectric.getBackgroundThreadScheduler().pause();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        NoThrow.setStrictMode(false);
+        Robolectric.getBackgroundThreadScheduler().unPause();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getFromDiskCache_onUiThread_shouldThrow() throws Exception {
+        CacheService.initialize(context);
+
+        CacheService.getFromDiskCache("key");
+    }
+
+    @Test
+    public void loadInterstitial_shouldNotUseDiskCacheOnUiThread() throws Exception {
+        subject.loadInterstitial(context, customEventInterstitialListener, localExtras,
+                serverExtras);
+
+        assertThat(Robolectric.getBackgroundThreadScheduler().size()).isEqualTo(1);
+        verify(vastManager, never()).prepareVastVideoConfiguration(anyString(),
+                any(VastManager.VastManagerListener.class), anyString(), any(Context.class));
+
+        // The disk cache is opened by the background task.
+        NoThrow.setStrictMode(false);
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        CacheServiceTest.assertDiskCacheIsEmpty();
+        verify(vastManager).prepareVastVideoConfiguration(eq("<VAST>hello</VAST>"), eq(subject),
+                anyString(), eq(context));
+    }
+
+    @Test
+    public void loadInterstitial_thenInvalidate_shouldNotPrepareVast() throws Exception {
+        subject.loadInterstitial(context, customEventInterstitialListener, localExtras,
+                serverExtras);
+        subject.onInvalidate();
+
+        NoThrow.setStrictMode(false);
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        verify(vastManager, never()).prepareVastVideoConfiguration(anyString(),
+                any(VastManager.VastManagerListener.class), anyString(), any(Context.class));
+    }
+
+    @Test
+    public void cacheServiceAsyncMethods_shouldNotUseDiskCacheOnUiThread() throws Exception {
+        CacheService.initialize(context);
+        CacheService.containsKeyDiskCache("key");
+        CacheService.putToDiskCacheAsync("key", "data".getBytes());
+        CacheService.getFromDiskCacheAsync("key",
+                mock(CacheService.DiskLruCacheGetListener.class));
+        CacheService.initializeDiskCacheAsync(context, null);
+
+        assertThat(Robolectric.getBackgroundThreadScheduler().size()).isEqualTo(3);
+
+        NoThrow.setStrictMode(false);
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        assertThat(CacheService.containsKeyDiskCache("key")).isTrue();
+    }
+}
@@ -48,19 +48,20 @@ public class VastVideoViewProgressRunnableTest {
 
     @Test
     public void doWork_whenTrackersReturned_shouldMakeTrackingRequests() {
-        List<VastTracker> testTrackers = new ArrayList<VastTracker>();
+        List<VastAbsoluteProgressTracker> testTrackers = new ArrayList<VastAbsoluteProgressTracker>();
         testTrackers.add(new VastAbsoluteProgressTracker("https://example.com/", 1999));
         testTrackers.add(new VastAbsoluteProgressTracker("https://example1.com/", 2000));
 
-        when(mockVideoConfig.getUntriggeredTrackersBefore(eq(3000), eq(4000)))
-                .thenReturn(testTrackers);
+        when(mockVideoConfig.getProgressTrackerTimeline(eq(4000)))
+                .thenReturn(new VastProgressTrackerTimeline(testTrackers,
+                        new ArrayList<VastFractionalProgressTracker>(), 4000));
         when(mockVastVideoViewController.getCurrentPosition()).thenReturn(3000);
         when(mockVastVideoViewController.getDuration()).thenReturn(4000);
         when(mockVastVideoViewController.getContext()).thenReturn(mockContext);
 
         subject.doWork();
 
-        verify(mockVideoConfig).getUntriggeredTrackersBefore(eq(3000), eq(4000));
+        verify(mockVideoConfig).getProgressTrackerTimeline(eq(4000));
         verify(mockVastVideoViewController).getCurrentPosition();
         verify(mockVastVideoViewController).getDuration();
         verify(mockVastVideoViewController).getContext();
@@ -79,18 +80,20 @@ public class VastVideoViewProgressRunnableTest {
     }
 
     @Test
-    public void doWork_whenNoTrackersReturned_shouldNotMakeTrackingRequests() {
-        List<VastTracker> testTrackers = new ArrayList<VastTracker>();
+    public void doWork_whenNoTrackersDue_shouldNotMakeTrackingRequests() {
+        List<VastAbsoluteProgressTracker> testTrackers = new ArrayList<VastAbsoluteProgressTracker>();
+        testTrackers.add(new VastAbsoluteProgressTracker("https://example.com/", 3001));
 
-        when(mockVideoConfig.getUntriggeredTrackersBefore(eq(3000), eq(4000)))
-                .thenReturn(testTrackers);
+        when(mockVideoConfig.getProgressTrackerTimeline(eq(4000)))
+                .thenReturn(new VastProgressTrackerTimeline(testTrackers,
+                        new ArrayList<VastFractionalProgressTracker>(), 4000));
         when(mockVastVideoViewController.getCurrentPosition()).thenReturn(3000);
         when(mockVastVideoViewController.getDuration()).thenReturn(4000);
         when(mockVastVideoViewController.getContext()).thenReturn(mockContext);
 
         subject.doWork();
 
-        verify(mockVideoConfig).getUntriggeredTrackersBefore(eq(3000), eq(4000));
+        verify(mockVideoConfig).getProgressTrackerTimeline(eq(4000));
         verify(mockVastVideoViewController).getCurrentPosition();
         verify(mockVastVideoViewController).getDuration();
         verify(mockVastVideoViewController).handleIconDisplay(eq(3000));
@@ -10,6 +10,7 @@ import android.view.WindowManager;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.test.support.ShadowMoPubHttpUrlConnection;
 import com.mopub.mobileads.test.support.VastUtils;
+import com.mopub.network.BandwidthEstimator;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
 
@@ -328,6 +329,30 @@ public class VastXmlManagerAggregatorTest {
             "    </Ad>" +
             "</VAST>";
 
+    // A bitrate ladder of the same video, for picking media files by bandwidth. On the 800x480
+    // test screen, the 480p file fits best when bandwidth isn't a concern.
+    static final String TEST_BITRATE_LADDER_MEDIA_FILES =
+            "<MediaFile delivery='progressive' bitrate='4000' width='1920' height='1080' type='video/mp4'>" +
+            "    <![CDATA[https://ladder/1080p.mp4]]>" +
+            "</MediaFile>" +
+            "<MediaFile delivery='progressive' bitrate='2000' width='1280' height='720' type='video/mp4'>" +
+            "    <![CDATA[https://ladder/720p.mp4]]>" +
+            "</MediaFile>" +
+            "<MediaFile delivery='progressive' bitrate='800' width='854' height='480' type='video/mp4'>" +
+            "    <![CDATA[https://ladder/480p.mp4]]>" +
+            "</MediaFile>" +
+            "<MediaFile delivery='progressive' bitrate='400' width='640' height='360' type='video/mp4'>" +
+            "    <![CDATA[https://ladder/360p.mp4]]>" +
+            "</MediaFile>";
+
+    static final String TEST_MISSING_BITRATE_MEDIA_FILES =
+            "<MediaFile delivery='progressive' width='854' height='480' type='video/mp4'>" +
+            "    <![CDATA[https://ladder/480p.mp4]]>" +
+            "</MediaFile>" +
+            "<MediaFile delivery='progressive' bitrate='400' width='640' height='360' type='video/mp4'>" +
+            "    <![CDATA[https://ladder/360p.mp4]]>" +
+            "</MediaFile>";
+
     private Activity context;
     private Semaphore semaphore;
     private VastXmlManagerAggregatorListener vastXmlManagerAggregatorListener;
@@ -553,6 +578,70 @@ public class VastXmlManagerAggregatorTest {
         assertThat(bestMediaFileUrl).isNull();
     }
 
+    @Test
+    public void evaluateVastXmlManager_withBitrateLadder_withNoBandwidthEstimate_shouldIgnoreBitrate() throws Exception {
+        assertThat(getBestMediaFileUrlFromVast("00:00:30", TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/480p.mp4");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withBitrateLadder_withFastNetwork_shouldPickBestFit() throws Exception {
+        // 50 Mbps
+        BandwidthEstimator.getInstance().addTransfer(6250000, 1000);
+
+        assertThat(getBestMediaFileUrlFromVast("00:00:30", TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/480p.mp4");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withBitrateLadder_withSlowNetwork_shouldPickLowerBitrate() throws Exception {
+        // 1 Mbps
+        BandwidthEstimator.getInstance().addTransfer(125000, 1000);
+
+        assertThat(getBestMediaFileUrlFromVast("00:00:30", TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/360p.mp4");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withBitrateLadder_withSlowNetwork_withShortVideo_shouldPickBestFit() throws Exception {
+        // 1 Mbps
+        BandwidthEstimator.getInstance().addTransfer(125000, 1000);
+
+        assertThat(getBestMediaFileUrlFromVast("00:00:10", TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/480p.mp4");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withBitrateLadder_withSlowNetwork_withHighLatency_shouldPickLowerBitrate() throws Exception {
+        // 1 Mbps, with a 5 second round trip. Without the round trip, the 480p file would be
+        // picked for a video this long.
+        BandwidthEstimator.getInstance().addTransfer(125000, 1000);
+        BandwidthEstimator.getInstance().addTransfer(500, 5000);
+
+        assertThat(getBestMediaFileUrlFromVast("00:00:15", TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/360p.mp4");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withBitrateLadder_withSlowNetwork_withNoDuration_shouldAssumeDefaultDuration() throws Exception {
+        // 1 Mbps
+        BandwidthEstimator.getInstance().addTransfer(125000, 1000);
+
+        assertThat(getBestMediaFileUrlFromVast(null, TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/360p.mp4");
+        assertThat(getBestMediaFileUrlFromVast("invalid", TEST_BITRATE_LADDER_MEDIA_FILES))
+                .isEqualTo("https://ladder/360p.mp4");
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withMissingBitrate_withSlowNetwork_shouldNotPenalizeMediaFile() throws Exception {
+        // 1 Mbps
+        BandwidthEstimator.getInstance().addTransfer(125000, 1000);
+
+        assertThat(getBestMediaFileUrlFromVast("00:00:30", TEST_MISSING_BITRATE_MEDIA_FILES))
+                .isEqualTo("https://ladder/480p.mp4");
+    }
+
     @Test
     public void getBestCompanionAd_shouldReturnCompanionAd() throws Exception {
         final VastCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(
@@ -1743,6 +1832,28 @@ public class VastXmlManagerAggregatorTest {
         verifyNoMoreInteractions(mockRequestQueue);
     }
 
+    private String getBestMediaFileUrlFromVast(final String duration, final String mediaFiles) {
+        final String vastXml = "<VAST version='3.0'>" +
+                "    <Ad id='ladder'>" +
+                "        <InLine>" +
+                "            <Impression><![CDATA[https://ladder/impression]]></Impression>" +
+                "            <Creatives>" +
+                "                <Creative>" +
+                "                    <Linear>" +
+                (duration != null ? "<Duration>" + duration + "</Duration>" : "") +
+                "                        <MediaFiles>" + mediaFiles + "</MediaFiles>" +
+                "                    </Linear>" +
+                "                </Creative>" +
+                "            </Creatives>" +
+                "        </InLine>" +
+                "    </Ad>" +
+                "</VAST>";
+
+        final VastVideoConfig vastVideoConfig = subject.evaluateVastXmlManager(vastXml,
+                new ArrayList<VastTracker>());
+        return vastVideoConfig != null ? vastVideoConfig.getNetworkMediaFileUrl() : null;
+    }
+
     private VastMediaXmlManager initializeMediaXmlManagerMock(
             final Integer width,
             final Integer height,
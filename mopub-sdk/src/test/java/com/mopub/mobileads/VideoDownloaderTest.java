@@ -5,6 +5,8 @@ import android.content.Context;
 
 import com.mopub.common.CacheService;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.AsyncTasks.Lane;
+import com.mopub.common.util.LaneExecutor.Priority;
 import com.mopub.common.util.test.support.ShadowAsyncTasks;
 import com.mopub.common.util.test.support.ShadowMoPubHttpUrlConnection;
 import com.mopub.mobileads.VideoDownloader.VideoDownloaderListener;
@@ -19,13 +21,22 @@ import org.mockito.Mock;
 import org.robolectric.Robolectric;
 import org.robolectric.annotation.Config;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(SdkTestRunner.class)
 @Config(constants = BuildConfig.class, shadows = {ShadowAsyncTasks.class, ShadowMoPubHttpUrlConnection.class})
@@ -33,6 +44,7 @@ public class VideoDownloaderTest {
     @Mock VideoDownloaderListener mockListener;
     private final static String expectedUrl1 = "https://video_url";
     private final static String expectedUrl2 = "https://video_url2";
+    private final static String expectedUrl3 = "https://video_url3";
 
     @Before
     public void setUp() {
@@ -54,6 +66,8 @@ public class VideoDownloaderTest {
         assertThat(ShadowAsyncTasks.getLatestAsyncTask()).isInstanceOf(VideoDownloaderTask.class);
         assertThat(ShadowAsyncTasks.getLatestParams()).hasSize(1);
         assertThat(ShadowAsyncTasks.getLatestParams().contains(expectedUrl1)).isTrue();
+        assertThat(ShadowAsyncTasks.getLatestLane()).isEqualTo(Lane.NETWORK);
+        assertThat(ShadowAsyncTasks.getLatestPriority()).isEqualTo(Priority.PREFETCH);
 
         // In the success case, the listener will not be modified until after the AsyncTask is
         // actually executed
@@ -255,6 +269,180 @@ public class VideoDownloaderTest {
         assertThat(VideoDownloader.getDownloaderTasks()).hasSize(0);
     }
 
+    @Test
+    public void cache_withMoreThanMaxConcurrentDownloads_shouldWaitForARunningDownloadToFinish() {
+        VideoDownloader.cache(expectedUrl1, mockListener);
+        final VideoDownloaderTask task1 =
+                (VideoDownloaderTask) ShadowAsyncTasks.getLatestAsyncTask();
+        VideoDownloader.cache(expectedUrl2, mockListener);
+        VideoDownloader.cache(expectedUrl3, mockListener);
+
+        assertThat(VideoDownloader.MAX_CONCURRENT_DOWNLOADS).isEqualTo(2);
+        assertThat(VideoDownloader.getDownloaderTasks()).hasSize(3);
+        assertThat(ShadowAsyncTasks.getLatestParams().contains(expectedUrl2)).isTrue();
+
+        task1.onPostExecute(true);
+
+        assertThat(ShadowAsyncTasks.getLatestParams().contains(expectedUrl3)).isTrue();
+    }
+
+    @Test
+    public void cache_withUrlThatIsAlreadyDownloading_shouldWaitForThatDownloadToFinish() {
+        VideoDownloader.cache(expectedUrl1, mockListener);
+        final VideoDownloaderTask task1 =
+                (VideoDownloaderTask) ShadowAsyncTasks.getLatestAsyncTask();
+        VideoDownloader.cache(expectedUrl1, mockListener);
+
+        assertThat(ShadowAsyncTasks.getLatestAsyncTask()).isSameAs(task1);
+
+        task1.onPostExecute(true);
+
+        assertThat(ShadowAsyncTasks.getLatestAsyncTask()).isNotSameAs(task1);
+        assertThat(ShadowAsyncTasks.getLatestParams().contains(expectedUrl1)).isTrue();
+    }
+
+    @Test
+    public void cache_withCancelledPendingDownload_shouldSkipIt() {
+        VideoDownloader.cache(expectedUrl1, mockListener);
+        final VideoDownloaderTask task1 =
+                (VideoDownloaderTask) ShadowAsyncTasks.getLatestAsyncTask();
+        VideoDownloader.cache(expectedUrl2, mockListener);
+        VideoDownloader.cache(expectedUrl3, mockListener);
+        VideoDownloader.cancelLastDownloadTask();
+        verify(mockListener).onComplete(false);
+
+        task1.onPostExecute(true);
+
+        assertThat(ShadowAsyncTasks.getLatestParams().contains(expectedUrl2)).isTrue();
+    }
+
+    @Test
+    public void doInBackground_whenConnectionDrops_shouldResumeWithRangeRequest() throws Exception {
+        final int totalLength = 2 * VideoDownloader.CHUNK_SIZE + 10;
+        final byte[] video = createVideo(totalLength);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("ETag", "\"etag\"");
+        // Drops part way through the second chunk.
+        addPendingConnection(200, headers, totalLength,
+                new DroppingInputStream(video, VideoDownloader.CHUNK_SIZE + 5));
+
+        assertThat(new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1)).isFalse();
+        assertThat(CacheService.getFromDiskCache(expectedUrl1)).isNull();
+
+        headers.clear();
+        headers.put("Content-Range", "bytes " + VideoDownloader.CHUNK_SIZE + "-"
+                + (totalLength - 1) + "/" + totalLength);
+        final HttpURLConnection resumeConnection = addPendingConnection(206, headers,
+                totalLength - VideoDownloader.CHUNK_SIZE, new ByteArrayInputStream(video,
+                        VideoDownloader.CHUNK_SIZE, totalLength - VideoDownloader.CHUNK_SIZE));
+
+        assertThat(new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1)).isTrue();
+        verify(resumeConnection).setRequestProperty("Range",
+                "bytes=" + VideoDownloader.CHUNK_SIZE + "-");
+        verify(resumeConnection).setRequestProperty("If-Range", "\"etag\"");
+        assertThat(CacheService.getFromDiskCache(expectedUrl1)).isEqualTo(video);
+        assertThat(CacheService.getPartialDownloadDirectory().listFiles()).isEmpty();
+    }
+
+    @Test
+    public void doInBackground_whenResumedVideoHasChanged_shouldStartOver() throws Exception {
+        final int totalLength = VideoDownloader.CHUNK_SIZE + 10;
+        final byte[] video = createVideo(totalLength);
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("ETag", "\"etag\"");
+        addPendingConnection(200, headers, totalLength,
+                new DroppingInputStream(video, VideoDownloader.CHUNK_SIZE + 5));
+        new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1);
+
+        // The server sends the whole new video when If-Range doesn't match.
+        final byte[] newVideo = createLongString(totalLength).getBytes();
+        headers.put("ETag", "\"new etag\"");
+        addPendingConnection(200, headers, totalLength, new ByteArrayInputStream(newVideo));
+
+        assertThat(new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1)).isTrue();
+        assertThat(CacheService.getFromDiskCache(expectedUrl1)).isEqualTo(newVideo);
+    }
+
+    @Test
+    public void doInBackground_withoutValidator_shouldNotResume() throws Exception {
+        final int totalLength = VideoDownloader.CHUNK_SIZE + 10;
+        final byte[] video = createVideo(totalLength);
+        final Map<String, String> headers = new HashMap<String, String>();
+        addPendingConnection(200, headers, totalLength,
+                new DroppingInputStream(video, VideoDownloader.CHUNK_SIZE + 5));
+        new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1);
+
+        final HttpURLConnection retryConnection = addPendingConnection(200, headers, totalLength,
+                new ByteArrayInputStream(video));
+
+        assertThat(new VideoDownloaderTask(mockListener).doInBackground(expectedUrl1)).isTrue();
+        verify(retryConnection, never()).setRequestProperty(eq("Range"), anyString());
+        assertThat(CacheService.getFromDiskCache(expectedUrl1)).isEqualTo(video);
+    }
+
+    @Test
+    public void parseContentRange_shouldReturnFirstByteAndTotalLength() {
+        assertThat(VideoDownloader.parseContentRange("bytes 100-199/200"))
+                .containsOnly(100L, 200L);
+        assertThat(VideoDownloader.parseContentRange("bytes 100-199/*"))
+                .containsOnly(100L, PartialDownload.UNKNOWN_LENGTH);
+        assertThat(VideoDownloader.parseContentRange("bytes */200")).isNull();
+        assertThat(VideoDownloader.parseContentRange("items 100-199/200")).isNull();
+        assertThat(VideoDownloader.parseContentRange(null)).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpURLConnection addPendingConnection(final int statusCode,
+            final Map<String, String> headers, final int contentLength,
+            final InputStream inputStream) throws Exception {
+        final HttpURLConnection mockUrlConnection = mock(HttpURLConnection.class);
+        when(mockUrlConnection.getResponseCode()).thenReturn(statusCode);
+        when(mockUrlConnection.getContentLength()).thenReturn(contentLength);
+        when(mockUrlConnection.getInputStream()).thenReturn(inputStream);
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            when(mockUrlConnection.getHeaderField(header.getKey())).thenReturn(header.getValue());
+        }
+        ShadowMoPubHttpUrlConnection.getPendingUrlConnections().add(mockUrlConnection);
+        return mockUrlConnection;
+    }
+
+    private static byte[] createVideo(final int size) {
+        final byte[] video = new byte[size];
+        for (int i = 0; i < size; i++) {
+            video[i] = (byte) i;
+        }
+        return video;
+    }
+
+    /**
+     * Throws once length bytes have been read, like a dropped connection.
+     */
+    private static class DroppingInputStream extends InputStream {
+        private final InputStream mInputStream;
+
+        DroppingInputStream(final byte[] bytes, final int length) {
+            mInputStream = new ByteArrayInputStream(bytes, 0, length);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return checkNotDropped(mInputStream.read());
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length)
+                throws IOException {
+            return checkNotDropped(mInputStream.read(buffer, offset, length));
+        }
+
+        private static int checkNotDropped(final int read) throws IOException {
+            if (read == -1) {
+                throw new IOException("Connection dropped");
+            }
+            return read;
+        }
+    }
+
     private static String createLongString(int size) {
         return new String(new char[size]).replace("\0", "*");
     }
@@ -0,0 +1,160 @@
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.view.View;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.VisibilityTracker;
+import com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ViewableRefreshSchedulerTest {
+    private static final long INTERVAL_MILLIS = 30000;
+
+    @Mock private VisibilityTracker mockVisibilityTracker;
+    @Mock private Runnable mockRefreshRunnable;
+
+    private View view;
+    private VisibilityTrackerListener visibilityTrackerListener;
+    private ViewableRefreshScheduler subject;
+
+    @Before
+    public void setUp() throws Exception {
+        view = new View(Robolectric.buildActivity(Activity.class).create().get());
+        subject = new ViewableRefreshScheduler(view, mockRefreshRunnable, mockVisibilityTracker);
+
+        final ArgumentCaptor<VisibilityTrackerListener> listenerCaptor =
+                ArgumentCaptor.forClass(VisibilityTrackerListener.class);
+        verify(mockVisibilityTracker).setVisibilityTrackerListener(listenerCaptor.capture());
+        visibilityTrackerListener = listenerCaptor.getValue();
+    }
+
+    @Test
+    public void constructor_shouldTrackViewAtMinViewablePercent() throws Exception {
+        verify(mockVisibilityTracker).addView(view,
+                ViewableRefreshScheduler.MIN_VIEWABLE_PERCENT);
+    }
+
+    @Test
+    public void schedule_whenViewable_shouldRefreshAfterInterval() throws Exception {
+        setViewable(true);
+        subject.schedule(INTERVAL_MILLIS);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(INTERVAL_MILLIS - 1);
+        verify(mockRefreshRunnable, never()).run();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        verify(mockRefreshRunnable).run();
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void schedule_whenNotViewable_shouldNotRefresh_shouldCountAvoidedRefreshes() throws Exception {
+        subject.schedule(INTERVAL_MILLIS);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(INTERVAL_MILLIS * 3);
+
+        verify(mockRefreshRunnable, never()).run();
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void schedule_shouldAddUpViewableTime() throws Exception {
+        subject.schedule(INTERVAL_MILLIS);
+
+        setViewable(true);
+        Robolectric.getForegroundThreadScheduler().advanceBy(10000);
+        setViewable(false);
+        Robolectric.getForegroundThreadScheduler().advanceBy(50000);
+        setViewable(true);
+        Robolectric.getForegroundThreadScheduler().advanceBy(19999);
+        verify(mockRefreshRunnable, never()).run();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        verify(mockRefreshRunnable).run();
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void schedule_shouldRestartViewableTime() throws Exception {
+        setViewable(true);
+        subject.schedule(INTERVAL_MILLIS);
+        Robolectric.getForegroundThreadScheduler().advanceBy(20000);
+
+        subject.schedule(INTERVAL_MILLIS);
+        Robolectric.getForegroundThreadScheduler().advanceBy(20000);
+
+        verify(mockRefreshRunnable, never()).run();
+        Robolectric.getForegroundThreadScheduler().advanceBy(10000);
+        verify(mockRefreshRunnable).run();
+    }
+
+    @Test
+    public void onVisibilityChanged_withViewBetweenThresholds_shouldKeepViewableState() throws Exception {
+        setViewable(true);
+        subject.schedule(INTERVAL_MILLIS);
+
+        visibilityTrackerListener.onVisibilityChanged(Collections.<View>emptyList(),
+                Collections.<View>emptyList());
+        Robolectric.getForegroundThreadScheduler().advanceBy(INTERVAL_MILLIS);
+
+        verify(mockRefreshRunnable).run();
+    }
+
+    @Test
+    public void cancel_shouldNotRefresh() throws Exception {
+        setViewable(true);
+        subject.schedule(INTERVAL_MILLIS);
+
+        subject.cancel();
+        Robolectric.getForegroundThreadScheduler().advanceBy(INTERVAL_MILLIS * 2);
+
+        verify(mockRefreshRunnable, never()).run();
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void refresh_shouldOnlyRunOncePerSchedule() throws Exception {
+        setViewable(true);
+        subject.schedule(INTERVAL_MILLIS);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(INTERVAL_MILLIS * 3);
+
+        verify(mockRefreshRunnable, times(1)).run();
+    }
+
+    @Test
+    public void destroy_shouldDestroyVisibilityTracker() throws Exception {
+        subject.schedule(INTERVAL_MILLIS);
+
+        subject.destroy();
+        Robolectric.getForegroundThreadScheduler().advanceBy(INTERVAL_MILLIS);
+
+        verify(mockVisibilityTracker).destroy();
+        assertThat(subject.getAvoidedRefreshCount()).isEqualTo(0);
+    }
+
+    private void setViewable(final boolean isViewable) {
+        final List<View> views = Collections.singletonList(view);
+        final List<View> noViews = Collections.emptyList();
+        visibilityTrackerListener.onVisibilityChanged(isViewable ? views : noViews,
+                isViewable ? noViews : views);
+    }
+}
@@ -18,10 +18,12 @@ import android.util.DisplayMetrics;
 import android.view.Display;
 import android.view.WindowManager;
 
+import com.mopub.common.AdUrlGenerator;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.GpsHelper;
 import com.mopub.common.GpsHelperTest;
 import com.mopub.common.MoPub;
+import com.mopub.common.test.support.AllocationCounter;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.Reflection.MethodBuilder;
 import com.mopub.common.util.Utils;
@@ -31,6 +33,7 @@ import com.mopub.mraid.MraidNativeCommandHandler;
 import com.mopub.network.PlayServicesUrlRewriter;
 
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -204,6 +207,58 @@ public class WebViewAdUrlGeneratorTest {
         assertThat(generateMinimumUrlString()).contains("&o=s");
     }
 
+    @Test
+    public void generateAdUrl_withCachedStaticParams_shouldMatchUrlWithoutCachedStaticParams() throws Exception {
+        final String cachedAdUrl = generateMinimumUrlString();
+        AdUrlGenerator.clearStaticParamsForTesting();
+
+        assertThat(generateMinimumUrlString()).isEqualTo(cachedAdUrl);
+    }
+
+    @Test
+    public void generateAdUrl_withCachedStaticParams_shouldStillUpdateNetworkType() throws Exception {
+        generateMinimumUrlString();
+
+        shadowConnectivityManager.setActiveNetworkInfo(createNetworkInfo(TYPE_WIFI));
+
+        assertThat(generateMinimumUrlString()).isEqualTo(
+                new AdUrlBuilder(expectedUdid).withNetworkType(MoPubNetworkType.WIFI).build());
+    }
+
+    @Test
+    public void generateAdUrl_benchmark_withCachedStaticParams_shouldTakeLessTimeAndAllocateLess() throws Exception {
+        Assume.assumeTrue(AllocationCounter.isSupported());
+
+        final int iterations = 200;
+        final AllocationCounter allocationCounter = new AllocationCounter();
+        // Warm up, so that class loading and ClientMetadata creation aren't measured.
+        for (int i = 0; i < iterations; i++) {
+            generateMinimumUrlString();
+        }
+
+        allocationCounter.start();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            AdUrlGenerator.clearStaticParamsForTesting();
+            generateMinimumUrlString();
+        }
+        final long uncachedNanos = System.nanoTime() - startNanos;
+        final long uncachedBytes = allocationCounter.stop();
+
+        allocationCounter.start();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            generateMinimumUrlString();
+        }
+        final long cachedNanos = System.nanoTime() - startNanos;
+        final long cachedBytes = allocationCounter.stop();
+
+        final String results = "URL build per request: cached " + cachedNanos / iterations
+                + " ns, " + cachedBytes / iterations + " bytes; uncached "
+                + uncachedNanos / iterations + " ns, " + uncachedBytes / iterations + " bytes";
+        assertThat(cachedBytes).overridingErrorMessage(results).isLessThan(uncachedBytes);
+    }
+
     @Test
     public void generateAdUrl_shouldHandleFunkyNetworkOperatorCodes() throws Exception {
         AdUrlBuilder urlBuilder = new AdUrlBuilder(expectedUdid);
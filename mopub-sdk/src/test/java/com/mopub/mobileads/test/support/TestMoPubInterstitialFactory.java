@@ -0,0 +1,38 @@
+package com.mopub.mobileads.test.support;
+
+import android.app.Activity;
+
+import com.mopub.mobileads.MoPubInterstitial;
+import com.mopub.mobileads.factories.MoPubInterstitialFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+public class TestMoPubInterstitialFactory extends MoPubInterstitialFactory {
+    private final List<MoPubInterstitial> mockMoPubInterstitials = new ArrayList<MoPubInterstitial>();
+
+    /**
+     * Returns the mocks created so far, oldest first.
+     */
+    public static List<MoPubInterstitial> getCreatedMocks() {
+        return getTestFactory().mockMoPubInterstitials;
+    }
+
+    public static MoPubInterstitial getLatestMock() {
+        final List<MoPubInterstitial> mocks = getCreatedMocks();
+        return mocks.isEmpty() ? null : mocks.get(mocks.size() - 1);
+    }
+
+    private static TestMoPubInterstitialFactory getTestFactory() {
+        return (TestMoPubInterstitialFactory) instance;
+    }
+
+    @Override
+    protected MoPubInterstitial internalCreate(Activity activity, String adUnitId) {
+        final MoPubInterstitial mockMoPubInterstitial = mock(MoPubInterstitial.class);
+        mockMoPubInterstitials.add(mockMoPubInterstitial);
+        return mockMoPubInterstitial;
+    }
+}
@@ -0,0 +1,189 @@
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.WeakHashMap;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class AdViewInflationPoolTest {
+    private Activity activity;
+    private FrameLayout parent;
+    private WeakHashMap<View, View> viewHolderMap;
+    private AdViewInflationPool<View> subject;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        parent = new FrameLayout(activity);
+        viewHolderMap = new WeakHashMap<View, View>();
+        subject = new AdViewInflationPool<View>(new TestAdLayout(), viewHolderMap);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Robolectric.getBackgroundThreadScheduler().unPause();
+    }
+
+    @Test
+    public void obtainView_withEmptyPool_shouldInflateView_shouldPreInflateViewInBackground() throws Exception {
+        Robolectric.getBackgroundThreadScheduler().pause();
+
+        final View view = subject.obtainView(activity, parent);
+
+        assertThat(view).isNotNull();
+        assertThat(viewHolderMap).isEmpty();
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        assertThat(subject.getPooledViewCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void obtainView_withPooledView_shouldReturnPooledView_shouldAddViewHolderToMap() throws Exception {
+        subject.preInflate(activity);
+        assertThat(subject.getPooledViewCount()).isEqualTo(1);
+
+        Robolectric.getBackgroundThreadScheduler().pause();
+        final View view = subject.obtainView(activity, parent);
+
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+        assertThat(viewHolderMap.get(view)).isSameAs(view);
+    }
+
+    @Test
+    public void obtainView_withDifferentContext_shouldNotReturnViewFromPreviousContext() throws Exception {
+        subject.preInflate(activity);
+        final Activity activity2 = Robolectric.buildActivity(Activity.class).create().get();
+
+        final View view = subject.obtainView(activity2, null);
+
+        assertThat(view.getContext()).isSameAs(activity2);
+        assertThat(viewHolderMap).isEmpty();
+    }
+
+    @Test
+    public void obtainView_withPooledView_shouldGenerateLayoutParamsForParent() throws Exception {
+        subject.preInflate(activity);
+
+        final View view = subject.obtainView(activity, parent);
+
+        assertThat(view.getLayoutParams()).isInstanceOf(FrameLayout.LayoutParams.class);
+        assertThat(view.getLayoutParams().width).isEqualTo(ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
+    @Test
+    public void obtainView_withPooledViewForSameParentType_shouldUseLayoutParamsFromBackground() throws Exception {
+        final LinearLayout linearLayoutParent = new LinearLayout(activity);
+        subject.preInflate(activity);
+
+        // Pooled for a parent of another type.
+        final View firstView = subject.obtainView(activity, linearLayoutParent);
+        assertThat(subject.getMainThreadLayoutParamsCount()).isEqualTo(1);
+
+        final View secondView = subject.obtainView(activity, linearLayoutParent);
+
+        assertThat(subject.getMainThreadLayoutParamsCount()).isEqualTo(1);
+        assertThat(secondView.getLayoutParams()).isInstanceOf(LinearLayout.LayoutParams.class);
+        assertThat(secondView.getLayoutParams().width).isEqualTo(ViewGroup.LayoutParams.MATCH_PARENT);
+        assertThat(secondView.getLayoutParams()).isNotSameAs(firstView.getLayoutParams());
+    }
+
+    @Test
+    public void clear_shouldDropPooledViewsAndViewsBeingInflated() throws Exception {
+        subject.preInflate(activity);
+        assertThat(subject.getPooledViewCount()).isEqualTo(1);
+
+        subject.clear();
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+
+        Robolectric.getBackgroundThreadScheduler().pause();
+        subject.preInflate(activity);
+        subject.clear();
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void preInflate_withFinishingActivity_shouldNotKeepViews() throws Exception {
+        Robolectric.getBackgroundThreadScheduler().pause();
+        subject.preInflate(activity);
+        activity.finish();
+        Robolectric.getBackgroundThreadScheduler().unPause();
+
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+
+        subject.preInflate(activity);
+
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getTargetPoolSize_shouldFollowRecentAdViewRequests() throws Exception {
+        assertThat(subject.getTargetPoolSize()).isEqualTo(1);
+
+        Robolectric.getBackgroundThreadScheduler().pause();
+        for (int i = 0; i < 3; i++) {
+            subject.obtainView(activity, parent);
+        }
+        assertThat(subject.getTargetPoolSize()).isEqualTo(3);
+
+        for (int i = 0; i < 3; i++) {
+            subject.obtainView(activity, parent);
+        }
+        assertThat(subject.getTargetPoolSize()).isEqualTo(AdViewInflationPool.MAX_POOL_SIZE);
+
+        Robolectric.getBackgroundThreadScheduler().unPause();
+        assertThat(subject.getPooledViewCount()).isEqualTo(AdViewInflationPool.MAX_POOL_SIZE);
+    }
+
+    @Test
+    public void preInflate_withLayoutThatFailsInBackground_shouldFallBackToInflatingOnDemand() throws Exception {
+        subject = new AdViewInflationPool<View>(new TestAdLayout() {
+            @NonNull
+            @Override
+            public View createViewHolder(@NonNull final View view) {
+                throw new IllegalStateException("Can't create handler inside thread");
+            }
+        }, viewHolderMap);
+
+        subject.preInflate(activity);
+
+        assertThat(subject.isAsyncInflationSupported()).isFalse();
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+        assertThat(subject.obtainView(activity, parent)).isNotNull();
+        assertThat(subject.getPooledViewCount()).isEqualTo(0);
+    }
+
+    private static class TestAdLayout implements AdViewInflationPool.AdLayout<View> {
+        @Override
+        public int getLayoutId() {
+            return android.R.layout.simple_list_item_1;
+        }
+
+        @NonNull
+        @Override
+        public View createViewHolder(@NonNull final View view) {
+            return view;
+        }
+    }
+}
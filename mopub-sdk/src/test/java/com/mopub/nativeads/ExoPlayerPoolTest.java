@@ -0,0 +1,211 @@
+package com.mopub.nativeads;
+
+import android.support.annotation.NonNull;
+
+import com.google.android.exoplayer.ExoPlayer;
+import com.google.android.exoplayer.upstream.Allocation;
+import com.google.android.exoplayer.upstream.Allocator;
+import com.mopub.common.MemoryGovernor.TrimLevel;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+import com.mopub.nativeads.NativeVideoController.ExoPlayerFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ExoPlayerPoolTest {
+
+    @Mock private ExoPlayerFactory mockExoPlayerFactory;
+    @Mock private ExoPlayer mockExoPlayer;
+
+    private ExoPlayerPool subject;
+
+    @Before
+    public void setUp() {
+        when(mockExoPlayerFactory.newInstance(2, 1000, 5000)).thenReturn(mockExoPlayer);
+        subject = new ExoPlayerPool();
+    }
+
+    @Test
+    public void acquire_withNoIdlePlayers_shouldCreatePlayer() throws Exception {
+        assertThat(subject.acquire(mockExoPlayerFactory)).isEqualTo(mockExoPlayer);
+
+        verify(mockExoPlayerFactory).newInstance(2, 1000, 5000);
+    }
+
+    @Test
+    public void acquire_afterRecycle_shouldReusePlayer() throws Exception {
+        final ExoPlayer exoPlayer = mock(ExoPlayer.class);
+        subject.recycle(exoPlayer);
+
+        assertThat(subject.acquire(mockExoPlayerFactory)).isEqualTo(exoPlayer);
+
+        verifyZeroInteractions(mockExoPlayerFactory);
+        assertThat(subject.getIdlePlayerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void recycle_shouldStopPlayerAndRewind() throws Exception {
+        subject.recycle(mockExoPlayer);
+
+        verify(mockExoPlayer).stop();
+        verify(mockExoPlayer).seekTo(0);
+        verify(mockExoPlayer, never()).release();
+        assertThat(subject.getIdlePlayerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void recycle_withSamePlayerTwice_shouldOnlyKeepItOnce() throws Exception {
+        subject.recycle(mockExoPlayer);
+        subject.recycle(mockExoPlayer);
+
+        assertThat(subject.getIdlePlayerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void recycle_withPoolFull_shouldReleasePlayer() throws Exception {
+        for (int i = 0; i < ExoPlayerPool.MAX_IDLE_PLAYERS; i++) {
+            subject.recycle(mock(ExoPlayer.class));
+        }
+
+        subject.recycle(mockExoPlayer);
+
+        verify(mockExoPlayer).stop();
+        verify(mockExoPlayer).release();
+        assertThat(subject.getIdlePlayerCount()).isEqualTo(ExoPlayerPool.MAX_IDLE_PLAYERS);
+    }
+
+    @Test
+    public void clear_shouldReleaseIdlePlayers() throws Exception {
+        subject.recycle(mockExoPlayer);
+
+        subject.clear();
+
+        verify(mockExoPlayer).release();
+        assertThat(subject.getIdlePlayerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void trimMemory_shouldReleaseIdlePlayers() throws Exception {
+        subject.recycle(mockExoPlayer);
+
+        subject.trimMemory(TrimLevel.MODERATE);
+
+        verify(mockExoPlayer).release();
+        assertThat(subject.getIdlePlayerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getFootprintBytes_shouldOnlyIncludeFreedSegmentsUntilTrimmed() throws Exception {
+        final Allocator allocator = subject.newAllocator();
+        final Allocation allocation = allocator.allocate();
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+
+        allocator.release(allocation);
+        assertThat(subject.getFootprintBytes()).isEqualTo(ExoPlayerPool.BUFFER_SEGMENT_SIZE);
+
+        subject.trimMemory(TrimLevel.COMPLETE);
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void newAllocator_shouldReuseSegmentsReleasedByOtherAllocators() throws Exception {
+        final Allocator allocator = subject.newAllocator();
+        final Allocation allocation = allocator.allocate();
+        allocator.release(allocation);
+
+        assertThat(subject.newAllocator().allocate()).isSameAs(allocation);
+        assertThat(subject.getFreeAllocationCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getTotalBytesAllocated_shouldOnlyCountBytesOfThatAllocator() throws Exception {
+        final Allocator allocator = subject.newAllocator();
+        final Allocator otherAllocator = subject.newAllocator();
+
+        allocator.allocate();
+        allocator.allocate();
+        otherAllocator.allocate();
+
+        assertThat(allocator.getTotalBytesAllocated())
+                .isEqualTo(2 * ExoPlayerPool.BUFFER_SEGMENT_SIZE);
+        assertThat(otherAllocator.getTotalBytesAllocated())
+                .isEqualTo(ExoPlayerPool.BUFFER_SEGMENT_SIZE);
+    }
+
+    @Test
+    public void trim_shouldNotDropSegmentsSharedWithOtherAllocators() throws Exception {
+        final Allocator allocator = subject.newAllocator();
+        allocator.release(allocator.allocate());
+
+        allocator.trim(0);
+
+        assertThat(subject.getFreeAllocationCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void blockWhileTotalBytesAllocatedExceeds_withOtherAllocatorOverBudget_shouldNotBlockAllocatorUnderItsGuarantee() throws Exception {
+        final Allocator bufferingAllocator = subject.newAllocator();
+        while (bufferingAllocator.getTotalBytesAllocated() <= subject.getBufferBudget()) {
+            bufferingAllocator.allocate();
+        }
+
+        final Allocator onScreenAllocator = subject.newAllocator();
+        onScreenAllocator.allocate();
+
+        assertThat(blocks(onScreenAllocator, subject.getSourceBufferSize())).isFalse();
+        assertThat(blocks(bufferingAllocator, Integer.MAX_VALUE)).isTrue();
+    }
+
+    @Test
+    public void blockWhileTotalBytesAllocatedExceeds_shouldBlockUntilAllocatorIsUnderLimit() throws Exception {
+        final Allocator allocator = subject.newAllocator();
+        final Allocation allocation = allocator.allocate();
+        allocator.allocate();
+
+        final Thread thread = startBlocking(allocator, ExoPlayerPool.BUFFER_SEGMENT_SIZE);
+        thread.join(100);
+        assertThat(thread.isAlive()).isTrue();
+
+        allocator.release(allocation);
+        thread.join(1000);
+        assertThat(thread.isAlive()).isFalse();
+    }
+
+    private boolean blocks(@NonNull final Allocator allocator, final int limit) throws Exception {
+        final Thread thread = startBlocking(allocator, limit);
+        thread.join(100);
+        final boolean isBlocked = thread.isAlive();
+        thread.interrupt();
+        thread.join();
+        return isBlocked;
+    }
+
+    @NonNull
+    private Thread startBlocking(@NonNull final Allocator allocator, final int limit) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    allocator.blockWhileTotalBytesAllocatedExceeds(limit);
+                } catch (InterruptedException e) {
+                    // Done blocking.
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
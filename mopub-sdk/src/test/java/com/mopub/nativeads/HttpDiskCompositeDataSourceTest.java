@@ -7,10 +7,13 @@ import android.net.Uri;
 import com.google.android.exoplayer.upstream.DataSpec;
 import com.google.android.exoplayer.upstream.HttpDataSource;
 import com.mopub.common.CacheService;
+import com.mopub.common.test.support.AllocationCounter;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Utils;
 import com.mopub.mobileads.BuildConfig;
 
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -123,6 +126,52 @@ public class HttpDiskCompositeDataSourceTest {
         verify(mockHttpDataSource).open(refEq(expectedDataSpec));
     }
 
+    @Test
+    public void open_benchmark_diskCacheKeys_whenMemoized_shouldTakeLessTimeAndAllocateLess() throws Exception {
+        Assume.assumeTrue(AllocationCounter.isSupported());
+
+        // The keys open() derives for a seek into the first segment.
+        final String[] keys = new String[] {
+                "0" + uri.toString(),
+                HttpDiskCompositeDataSource.EXPECTED_FILE_SIZE_KEY_PREFIX + uri.toString(),
+                HttpDiskCompositeDataSource.INTERVALS_KEY_PREFIX + uri.toString()
+        };
+        final int iterations = 1000;
+        final AllocationCounter allocationCounter = new AllocationCounter();
+        // Warm up, so that class loading and the first hash of each key aren't measured.
+        for (int i = 0; i < iterations; i++) {
+            for (final String key : keys) {
+                CacheService.createValidDiskCacheKey(key);
+                Utils.sha1(key);
+            }
+        }
+
+        allocationCounter.start();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (final String key : keys) {
+                Utils.sha1(key);
+            }
+        }
+        final long hashedNanos = System.nanoTime() - startNanos;
+        final long hashedBytes = allocationCounter.stop();
+
+        allocationCounter.start();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (final String key : keys) {
+                CacheService.createValidDiskCacheKey(key);
+            }
+        }
+        final long memoizedNanos = System.nanoTime() - startNanos;
+        final long memoizedBytes = allocationCounter.stop();
+
+        final String results = "Disk cache keys per open: memoized " + memoizedNanos / iterations
+                + " ns, " + memoizedBytes / iterations + " bytes; hashed "
+                + hashedNanos / iterations + " ns, " + hashedBytes / iterations + " bytes";
+        assertThat(memoizedBytes).overridingErrorMessage(results).isLessThan(hashedBytes);
+    }
+
     @Test
     public void read_with2048ExpectedBytes_shouldFillBufferWith2048Bytes_shouldReturnNumberOfBytesRead2048() throws Exception {
         // This is the case where we're reading from a cache that has all the necessary bytes
@@ -0,0 +1,256 @@
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+
+import com.mopub.common.LatencyHistogram;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+import com.mopub.nativeads.ImagePreCacher.ImageType;
+import com.mopub.nativeads.NativeImageHelper.ImageListener;
+import com.mopub.network.MaxWidthImageLoader;
+import com.mopub.network.MaxWidthImageLoader.DiskCacheImageListener;
+import com.mopub.network.Networking;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.ImageLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ImagePreCacherTest {
+    private static final String MAIN_IMAGE_URL = "http://main.mopub.com/main.png";
+    private static final String ICON_IMAGE_URL = "http://icon.mopub.com/icon.png";
+    private static final String EXTRA_IMAGE_URL = "http://extra.mopub.com/extra.png";
+
+    @Mock private MaxWidthImageLoader mockImageLoader;
+    @Mock private ImageListener mockImageListener;
+    @Mock private ImageLoader.ImageContainer mockImageContainer;
+
+    private Activity activity;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        when(mockImageContainer.getBitmap()).thenReturn(mock(Bitmap.class));
+        Networking.setImageLoaderForTesting(mockImageLoader);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Networking.setImageLoaderForTesting(null);
+        ImagePreCacher.clearHostLatencyHistograms();
+    }
+
+    @Test
+    public void start_shouldLoadImagesInPriorityOrder() throws Exception {
+        new ImagePreCacher.Builder(activity)
+                .addImage(EXTRA_IMAGE_URL, ImageType.EXTRA_IMAGE)
+                .addImage(ICON_IMAGE_URL, ImageType.ICON_IMAGE)
+                .addImage(MAIN_IMAGE_URL, ImageType.MAIN_IMAGE)
+                .build()
+                .start(mockImageListener);
+
+        final InOrder inOrder = inOrder(mockImageLoader);
+        inOrder.verify(mockImageLoader).get(eq(MAIN_IMAGE_URL), any(ImageLoader.ImageListener.class));
+        inOrder.verify(mockImageLoader).get(eq(ICON_IMAGE_URL), any(ImageLoader.ImageListener.class));
+        inOrder.verify(mockImageLoader).get(eq(EXTRA_IMAGE_URL), any(ImageLoader.ImageListener.class));
+    }
+
+    @Test
+    public void start_whenRequiredImagesCache_shouldNotWaitForOptionalImages() throws Exception {
+        startWithAllImageTypes();
+
+        respond(MAIN_IMAGE_URL);
+        verify(mockImageListener, never()).onImagesCached();
+
+        respond(ICON_IMAGE_URL);
+        verify(mockImageListener).onImagesCached();
+    }
+
+    @Test
+    public void start_whenOptionalImageFails_shouldStillSucceed() throws Exception {
+        startWithAllImageTypes();
+
+        fail(EXTRA_IMAGE_URL);
+        respond(MAIN_IMAGE_URL);
+        respond(ICON_IMAGE_URL);
+
+        verify(mockImageListener).onImagesCached();
+        verify(mockImageListener, never()).onImagesFailedToCache(any(NativeErrorCode.class));
+    }
+
+    @Test
+    public void start_whenRequiredImageFails_shouldFailOnce() throws Exception {
+        startWithAllImageTypes();
+
+        fail(MAIN_IMAGE_URL);
+        fail(ICON_IMAGE_URL);
+
+        verify(mockImageListener).onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        verify(mockImageListener, never()).onImagesCached();
+    }
+
+    @Test
+    public void start_withEmptyRequiredUrl_shouldFailWithoutLoadingImages() throws Exception {
+        new ImagePreCacher.Builder(activity)
+                .addImage("", ImageType.MAIN_IMAGE)
+                .addImage(ICON_IMAGE_URL, ImageType.ICON_IMAGE)
+                .build()
+                .start(mockImageListener);
+
+        verify(mockImageListener).onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        verify(mockImageLoader, never()).get(anyString(), any(ImageLoader.ImageListener.class));
+    }
+
+    @Test
+    public void start_withNoRequiredImages_shouldSucceedImmediately() throws Exception {
+        new ImagePreCacher.Builder(activity)
+                .addImage(EXTRA_IMAGE_URL, ImageType.EXTRA_IMAGE)
+                .build()
+                .start(mockImageListener);
+
+        verify(mockImageListener).onImagesCached();
+        verify(mockImageLoader).get(eq(EXTRA_IMAGE_URL), any(ImageLoader.ImageListener.class));
+    }
+
+    @Test
+    public void start_withCustomRequiredImageTypes_shouldWaitForThoseTypes() throws Exception {
+        new ImagePreCacher.Builder(activity)
+                .addImage(MAIN_IMAGE_URL, ImageType.MAIN_IMAGE)
+                .addImage(EXTRA_IMAGE_URL, ImageType.EXTRA_IMAGE)
+                .requiredImageTypes(EnumSet.of(ImageType.EXTRA_IMAGE))
+                .build()
+                .start(mockImageListener);
+
+        fail(MAIN_IMAGE_URL);
+        respond(EXTRA_IMAGE_URL);
+
+        verify(mockImageListener).onImagesCached();
+    }
+
+    @Test
+    public void start_whenDeadlinePasses_shouldFail() throws Exception {
+        new ImagePreCacher.Builder(activity)
+                .addImage(MAIN_IMAGE_URL, ImageType.MAIN_IMAGE)
+                .deadlineMillis(1000)
+                .build()
+                .start(mockImageListener);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(999);
+        verify(mockImageListener, never()).onImagesFailedToCache(any(NativeErrorCode.class));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1);
+        verify(mockImageListener).onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+
+        respond(MAIN_IMAGE_URL);
+        verify(mockImageListener, never()).onImagesCached();
+    }
+
+    @Test
+    public void start_shouldRecordLatencyPerHost() throws Exception {
+        startWithAllImageTypes();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(300);
+        respond(MAIN_IMAGE_URL);
+        fail(EXTRA_IMAGE_URL);
+
+        final Map<String, LatencyHistogram> histograms = ImagePreCacher.getHostLatencyHistograms();
+        assertThat(histograms.get("main.mopub.com").getCount()).isEqualTo(1);
+        assertThat(histograms.get("main.mopub.com").getPercentileUpperBoundMillis(50))
+                .isEqualTo(500);
+        assertThat(histograms.get("extra.mopub.com").getFailureCount()).isEqualTo(1);
+        assertThat(histograms.get("icon.mopub.com")).isNull();
+    }
+
+    @Test
+    public void start_withDiskCacheHit_shouldNotRecordLatency() throws Exception {
+        startWithAllImageTypes();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(300);
+        final ImageLoader.ImageListener listener = getVolleyImageListener(MAIN_IMAGE_URL);
+        ((DiskCacheImageListener) listener).onDiskCacheHit();
+        listener.onResponse(mockImageContainer, false);
+
+        assertThat(ImagePreCacher.getHostLatencyHistograms().get("main.mopub.com")).isNull();
+    }
+
+    @Test
+    public void start_shouldKeepOnlyMostRecentlyUsedHosts() throws Exception {
+        for (int i = 0; i <= ImagePreCacher.MAX_HOST_LATENCY_HISTOGRAMS; i++) {
+            final String url = "http://host" + i + ".mopub.com/main.png";
+            new ImagePreCacher.Builder(activity)
+                    .addImage(url, ImageType.MAIN_IMAGE)
+                    .deadlineMillis(0)
+                    .build()
+                    .start(mockImageListener);
+            fail(url);
+        }
+
+        final Map<String, LatencyHistogram> histograms = ImagePreCacher.getHostLatencyHistograms();
+        assertThat(histograms).hasSize(ImagePreCacher.MAX_HOST_LATENCY_HISTOGRAMS);
+        assertThat(histograms.get("host0.mopub.com")).isNull();
+        assertThat(histograms.get("host1.mopub.com").getFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void start_withMaxImageWidths_shouldLoadImagesAtTheirWidths() throws Exception {
+        new ImagePreCacher.Builder(activity)
+                .addImage(MAIN_IMAGE_URL, ImageType.MAIN_IMAGE)
+                .addImage(ICON_IMAGE_URL, ImageType.ICON_IMAGE)
+                .maxImageWidths(Collections.singletonMap(ICON_IMAGE_URL, 128))
+                .build()
+                .start(mockImageListener);
+
+        verify(mockImageLoader).get(eq(MAIN_IMAGE_URL), any(ImageLoader.ImageListener.class));
+        verify(mockImageLoader).get(eq(ICON_IMAGE_URL), any(ImageLoader.ImageListener.class),
+                eq(128), eq(0));
+    }
+
+    private void startWithAllImageTypes() {
+        new ImagePreCacher.Builder(activity)
+                .addImage(MAIN_IMAGE_URL, ImageType.MAIN_IMAGE)
+                .addImage(ICON_IMAGE_URL, ImageType.ICON_IMAGE)
+                .addImage(EXTRA_IMAGE_URL, ImageType.EXTRA_IMAGE)
+                .deadlineMillis(0)
+                .build()
+                .start(mockImageListener);
+    }
+
+    private ImageLoader.ImageListener getVolleyImageListener(final String url) {
+        final ArgumentCaptor<ImageLoader.ImageListener> listenerCaptor =
+                ArgumentCaptor.forClass(ImageLoader.ImageListener.class);
+        verify(mockImageLoader).get(eq(url), listenerCaptor.capture());
+        return listenerCaptor.getValue();
+    }
+
+    private void respond(final String url) {
+        getVolleyImageListener(url).onResponse(mockImageContainer, false);
+    }
+
+    private void fail(final String url) {
+        getVolleyImageListener(url).onErrorResponse(new VolleyError());
+    }
+}
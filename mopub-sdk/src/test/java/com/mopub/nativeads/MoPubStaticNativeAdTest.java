@@ -5,6 +5,7 @@ import android.graphics.Bitmap;
 import android.view.View;
 
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Dips;
 import com.mopub.mobileads.BuildConfig;
 import com.mopub.nativeads.BaseNativeAd.NativeEventListener;
 import com.mopub.nativeads.CustomEventNative.CustomEventNativeListener;
@@ -41,6 +42,7 @@ import static com.mopub.volley.toolbox.ImageLoader.ImageListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -261,22 +263,26 @@ public class MoPubStaticNativeAdTest {
         fakeJsonObject.put("iconimage", "iconimageurl");
         fakeJsonObject.put("extraimage", "extraimageurl");
 
+        final Answer<Void> imageLoaderAnswer = new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocationOnMock) throws Throwable {
+                ImageListener listener = ((ImageListener) invocationOnMock.getArguments()[1]);
+                listener.onResponse(mockImageContainer, false);
+                return null;
+            }
+        };
         when(mockImageLoader.get(anyString(), any(ImageListener.class)))
-                .then(new Answer<Void>() {
-                    @Override
-                    public Void answer(final InvocationOnMock invocationOnMock) throws Throwable {
-                        ImageListener listener = ((ImageListener) invocationOnMock.getArguments()[1]);
-                        listener.onResponse(mockImageContainer, false);
-                        return null;
-                    }
-                });
+                .then(imageLoaderAnswer);
+        when(mockImageLoader.get(anyString(), any(ImageListener.class), anyInt(), anyInt()))
+                .then(imageLoaderAnswer);
 
         subject = new MoPubStaticNativeAd(context, fakeJsonObject, mockImpressionTracker,
                 mMockNativeClickHandler, mockCustomEventNativeListener);
         subject.loadAd();
 
         verify(mockImageLoader).get(eq("mainimageurl"), any(ImageListener.class));
-        verify(mockImageLoader).get(eq("iconimageurl"), any(ImageListener.class));
+        verify(mockImageLoader).get(eq("iconimageurl"), any(ImageListener.class),
+                eq(Dips.asIntPixels(NativeImageHelper.ICON_IMAGE_MAX_WIDTH_DIPS, context)), eq(0));
         verify(mockImageLoader).get(eq("extraimageurl"), any(ImageListener.class));
 
         verify(mockCustomEventNativeListener).onNativeAdLoaded(subject);
@@ -289,15 +295,18 @@ public class MoPubStaticNativeAdTest {
         fakeJsonObject.put("iconimage", "iconimageurl");
         fakeJsonObject.put("extraimage", "extraimageurl");
 
+        final Answer<Void> imageLoaderAnswer = new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocationOnMock) throws Throwable {
+                ImageListener listener = ((ImageListener) invocationOnMock.getArguments()[1]);
+                listener.onErrorResponse(new VolleyError());
+                return null;
+            }
+        };
         when(mockImageLoader.get(anyString(), any(ImageListener.class)))
-                .then(new Answer<Void>() {
-                    @Override
-                    public Void answer(final InvocationOnMock invocationOnMock) throws Throwable {
-                        ImageListener listener = ((ImageListener) invocationOnMock.getArguments()[1]);
-                        listener.onErrorResponse(new VolleyError());
-                        return null;
-                    }
-                });
+                .then(imageLoaderAnswer);
+        when(mockImageLoader.get(anyString(), any(ImageListener.class), anyInt(), anyInt()))
+                .then(imageLoaderAnswer);
 
         subject = new MoPubStaticNativeAd(context, fakeJsonObject, mockImpressionTracker,
                 mMockNativeClickHandler, mockCustomEventNativeListener);
@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.mopub.common.DoubleTimeTracker.Clock;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.BuildConfig;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
@@ -15,6 +16,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.Robolectric;
 import org.robolectric.annotation.Config;
 
@@ -26,6 +29,7 @@ import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -97,6 +101,21 @@ public class MoPubStreamAdPlacerTest {
         checkAdPositions(1, 3, 5);
     }
 
+    @Test
+    public void isAd_loadPositions_afterAdsArePlaced_shouldNotMoveAds() {
+        when(mockAdSource.dequeueAd()).thenReturn(mStubNativeAd);
+        subject.registerAdRenderer(mockAdRenderer);
+        subject.loadAds("test-ad-unit-id");
+
+        subject.handlePositioningLoad(positioning);
+        subject.handleAdsAvailable();
+        subject.handlePositioningLoad(MoPubNativeAdPositioning.clientPositioning()
+                .addFixedPosition(0)
+                .enableRepeatingPositions(3));
+        subject.setItemCount(4);
+        checkAdPositions(1, 3, 5);
+    }
+
     @Test
     public void isAd_loadPositions_thenLoadAds_hasAds() {
         when(mockAdSource.dequeueAd()).thenReturn(mStubNativeAd);
@@ -302,6 +321,110 @@ public class MoPubStreamAdPlacerTest {
         verify(mockAdLoadedListener, never()).onAdLoaded(50);
     }
 
+    @Test
+    public void placeAdsInRange_withFrameBudget_shouldDeferRemainingPlacementsToNextFrame() {
+        final FakeClock clock = new FakeClock();
+        subject = createSubjectWithClock(clock, 3);
+        subject.setFrameBudgetMillis(4);
+
+        Robolectric.getForegroundThreadScheduler().pause();
+        subject.setItemCount(100);
+        subject.placeAdsInRange(0, 10);
+        Robolectric.getForegroundThreadScheduler().runOneTask();
+
+        // The second placement finishes past the budget, so the third waits for the next frame.
+        checkAdPositions(1, 3);
+        assertThat(subject.getDeferredPlacementCount()).isEqualTo(1);
+        assertThat(subject.getFrameOverrunCount()).isEqualTo(1);
+
+        Robolectric.getForegroundThreadScheduler().runOneTask();
+
+        checkAdPositions(1, 3, 5, 7);
+        assertThat(subject.getDeferredPlacementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void placeAdsInRange_afterDeferral_shouldStartFromNewVisibleRange() {
+        final FakeClock clock = new FakeClock();
+        subject = createSubjectWithClock(clock, 5);
+        subject.setFrameBudgetMillis(4);
+
+        Robolectric.getForegroundThreadScheduler().pause();
+        subject.setItemCount(100);
+        subject.placeAdsInRange(0, 10);
+        Robolectric.getForegroundThreadScheduler().runOneTask();
+        checkAdPositions(1);
+
+        // The user scrolled before the deferred placement ran.
+        subject.placeAdsInRange(50, 54);
+        Robolectric.getForegroundThreadScheduler().runOneTask();
+
+        verify(mockAdLoadedListener).onAdLoaded(1);
+        verify(mockAdLoadedListener).onAdLoaded(50);
+        verify(mockAdLoadedListener, never()).onAdLoaded(3);
+    }
+
+    @Test
+    public void placeAdsInRange_withNoFrameBudget_shouldPlaceAllAdsInOneFrame() {
+        final FakeClock clock = new FakeClock();
+        subject = createSubjectWithClock(clock, 3);
+        subject.setFrameBudgetMillis(MoPubStreamAdPlacer.NO_FRAME_BUDGET);
+
+        Robolectric.getForegroundThreadScheduler().pause();
+        subject.setItemCount(100);
+        subject.placeAdsInRange(50, 54);
+        Robolectric.getForegroundThreadScheduler().runOneTask();
+
+        verify(mockAdLoadedListener).onAdLoaded(50);
+        verify(mockAdLoadedListener).onAdLoaded(52);
+        verify(mockAdLoadedListener).onAdLoaded(54);
+        verify(mockAdLoadedListener).onAdLoaded(56);
+        assertThat(subject.getDeferredPlacementCount()).isEqualTo(0);
+        assertThat(subject.getFrameOverrunCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void bindAdView_shouldChargeBindTimeToPlacementBudget() {
+        final FakeClock clock = new FakeClock();
+        subject = createSubjectWithClock(clock, 1);
+        subject.setFrameBudgetMillis(4);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                clock.advance(4);
+                return null;
+            }
+        }).when(mStubNativeAd).renderAdView(any(View.class));
+
+        Robolectric.getForegroundThreadScheduler().pause();
+        subject.setItemCount(100);
+        subject.placeAdsInRange(0, 10);
+        subject.bindAdView(mStubNativeAd, new View(activity));
+        Robolectric.getForegroundThreadScheduler().runOneTask();
+
+        // Binding used up the budget, so only one ad is placed in this frame.
+        checkAdPositions(1);
+        assertThat(subject.getDeferredPlacementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void bindAdView_longerThanFrameBudget_shouldCountFrameOverrun() {
+        final FakeClock clock = new FakeClock();
+        subject = createSubjectWithClock(clock, 1);
+        subject.setFrameBudgetMillis(4);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                clock.advance(10);
+                return null;
+            }
+        }).when(mStubNativeAd).renderAdView(any(View.class));
+
+        subject.bindAdView(mStubNativeAd, new View(activity));
+
+        assertThat(subject.getFrameOverrunCount()).isEqualTo(1);
+    }
+
     @Test
     public void getAdView_withNoAds_returnsNull() {
         assertThat(subject.getAdView(1, null, null)).isNull();
@@ -449,6 +572,30 @@ public class MoPubStreamAdPlacerTest {
         verify(mStubNativeAd).destroy();
     }
 
+    @Test
+    public void destroy_shouldReleasePreInflatedAdViews() {
+        final MoPubStaticNativeAdRenderer preInflatingRenderer =
+                mock(MoPubStaticNativeAdRenderer.class);
+        when(mockAdSource.getAdRendererCount()).thenReturn(1);
+        when(mockAdSource.getAdRendererForViewType(1)).thenReturn(preInflatingRenderer);
+
+        subject.destroy();
+
+        verify(preInflatingRenderer).releasePreInflatedAdViews();
+    }
+
+    @Test
+    public void clearAds_shouldReleasePreInflatedAdViews() {
+        final MoPubStaticNativeAdRenderer preInflatingRenderer =
+                mock(MoPubStaticNativeAdRenderer.class);
+        when(mockAdSource.getAdRendererCount()).thenReturn(1);
+        when(mockAdSource.getAdRendererForViewType(1)).thenReturn(preInflatingRenderer);
+
+        subject.clearAds();
+
+        verify(preInflatingRenderer).releasePreInflatedAdViews();
+    }
+
     @Test
     public void modifyClientPositioning_afterConstructingAdPlacer_shouldNotModifyAdPositions() {
         when(mockAdSource.dequeueAd()).thenReturn(mStubNativeAd);
@@ -462,6 +609,39 @@ public class MoPubStreamAdPlacerTest {
         checkAdPositions(1, 3, 5);
     }
 
+    private MoPubStreamAdPlacer createSubjectWithClock(final FakeClock clock,
+            final long dequeueMillis) {
+        when(mockAdSource.dequeueAd()).thenAnswer(new Answer<NativeAd>() {
+            @Override
+            public NativeAd answer(final InvocationOnMock invocation) throws Throwable {
+                clock.advance(dequeueMillis);
+                return mStubNativeAd;
+            }
+        });
+
+        final MoPubStreamAdPlacer adPlacer = new MoPubStreamAdPlacer(activity, mockAdSource,
+                mockPositioningSource, clock);
+        adPlacer.registerAdRenderer(mockAdRenderer);
+        adPlacer.setAdLoadedListener(mockAdLoadedListener);
+        adPlacer.loadAds("test-ad-unit-id");
+        adPlacer.handlePositioningLoad(positioning);
+        adPlacer.handleAdsAvailable();
+        return adPlacer;
+    }
+
+    private static class FakeClock implements Clock {
+        private long mNowMillis = 1000;
+
+        void advance(final long millis) {
+            mNowMillis += millis;
+        }
+
+        @Override
+        public long elapsedRealTime() {
+            return mNowMillis;
+        }
+    }
+
     void checkAdPositions(Integer... positions) {
         List<Integer> expected = Arrays.asList(positions);
         List<Integer> actual = new ArrayList<Integer>();
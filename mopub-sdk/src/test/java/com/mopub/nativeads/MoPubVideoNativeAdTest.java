@@ -13,8 +13,10 @@ import android.view.TextureView;
 import android.view.TextureView.SurfaceTextureListener;
 import android.view.View;
 
+import com.mopub.common.VisibilityTracker;
 import com.mopub.common.event.EventDetails;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Dips;
 import com.mopub.mobileads.BaseVideoPlayerActivity;
 import com.mopub.mobileads.BuildConfig;
 import com.mopub.mobileads.MraidVideoPlayerActivity;
@@ -137,15 +139,18 @@ public class MoPubVideoNativeAdTest {
                         any(EventDetails.class)))
                 .thenReturn(mockNativeVideoController);
 
+        final Answer<Void> imageLoaderAnswer = new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocationOnMock) throws Throwable {
+                ImageListener listener = ((ImageListener) invocationOnMock.getArguments()[1]);
+                listener.onResponse(mockImageContainer, false);
+                return null;
+            }
+        };
         when(mockImageLoader.get(anyString(), any(ImageListener.class)))
-                .then(new Answer<Void>() {
-                    @Override
-                    public Void answer(final InvocationOnMock invocationOnMock) throws Throwable {
-                        ImageListener listener = ((ImageListener) invocationOnMock.getArguments()[1]);
-                        listener.onResponse(mockImageContainer, false);
-                        return null;
-                    }
-                });
+                .then(imageLoaderAnswer);
+        when(mockImageLoader.get(anyString(), any(ImageListener.class), anyInt(), anyInt()))
+                .then(imageLoaderAnswer);
         when(mockMediaLayout.getTextureView()).thenReturn(mockTextureView);
 
         stub(mockImageContainer.getBitmap()).toReturn(mock(Bitmap.class));
@@ -206,7 +211,8 @@ public class MoPubVideoNativeAdTest {
         subject.loadAd();
 
         verify(mockImageLoader).get(eq("mainimageurl"), any(ImageListener.class));
-        verify(mockImageLoader).get(eq("iconimageurl"), any(ImageListener.class));
+        verify(mockImageLoader).get(eq("iconimageurl"), any(ImageListener.class),
+                eq(Dips.asIntPixels(NativeImageHelper.ICON_IMAGE_MAX_WIDTH_DIPS, activity)), eq(0));
         verify(mockImageLoader).get(eq("extraimageurl"), any(ImageListener.class));
         verify(mockVastManager).prepareVastVideoConfiguration(eq("video"),
                 any(VastManager.VastManagerListener.class), anyString(), any(Context.class));
@@ -3,6 +3,7 @@ package com.mopub.nativeads;
 import android.os.Handler;
 import android.os.SystemClock;
 
+import com.mopub.common.TimerWheel;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.BuildConfig;
 
@@ -39,13 +40,15 @@ public class NativeAdSourceTest {
     @Mock private MoPubNative mockMoPubNative;
     @Mock private NativeAd mMockNativeAd;
     @Mock private Handler mockReplenishCacheHandler;
+    @Mock private TimerWheel mockTimerWheel;
     @Mock private AdRendererRegistry mockAdRendererRegistry;
     @Mock private MoPubStaticNativeAdRenderer mockRenderer;
 
     @Before
     public void setUp() {
         nativeAdCache = new ArrayList<TimestampWrapper<NativeAd>>(2);
-        subject = new NativeAdSource(nativeAdCache, mockReplenishCacheHandler, mockAdRendererRegistry);
+        subject = new NativeAdSource(nativeAdCache, mockReplenishCacheHandler, mockTimerWheel,
+                mockAdRendererRegistry);
         subject.setAdSourceListener(mockAdSourceListener);
 
         requestParameters = new RequestParameters.Builder().build();
@@ -365,7 +368,7 @@ public class NativeAdSourceTest {
         assertThat(subject.mRequestInFlight).isEqualTo(false);
         assertThat(subject.mRetryInFlight).isEqualTo(true);
         assertThat(subject.getRetryTime()).isGreaterThan(defaultRetryTime);
-        verify(mockReplenishCacheHandler).postDelayed(any(Runnable.class), eq((long)subject.getRetryTime()));
+        verify(mockTimerWheel).schedule(any(Runnable.class), eq((long)subject.getRetryTime()));
     }
 
     @Test
@@ -379,6 +382,6 @@ public class NativeAdSourceTest {
         assertThat(subject.mRequestInFlight).isEqualTo(false);
         assertThat(subject.mRetryInFlight).isEqualTo(false);
         assertThat(subject.getRetryTime()).isEqualTo(defaultRetryTime);
-        verify(mockReplenishCacheHandler, never()).postDelayed(any(Runnable.class), anyLong());
+        verify(mockTimerWheel, never()).schedule(any(Runnable.class), anyLong());
     }
 }
@@ -17,14 +17,16 @@ import com.google.android.exoplayer.MediaCodecAudioTrackRenderer;
 import com.google.android.exoplayer.MediaCodecVideoTrackRenderer;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.BuildConfig;
-import com.mopub.mobileads.VastTracker;
+import com.mopub.mobileads.VastAbsoluteProgressTracker;
+import com.mopub.mobileads.VastFractionalProgressTracker;
+import com.mopub.mobileads.VastProgressTrackerTimeline;
 import com.mopub.mobileads.VastVideoConfig;
 import com.mopub.nativeads.NativeVideoController.ExoPlayerFactory;
 import com.mopub.nativeads.NativeVideoController.Listener;
 import com.mopub.nativeads.NativeVideoController.NativeVideoProgressRunnable;
 import com.mopub.nativeads.NativeVideoController.NativeVideoProgressRunnable.ProgressListener;
 import com.mopub.nativeads.NativeVideoController.VisibilityTrackingEvent;
-import com.mopub.nativeads.VisibilityTracker.VisibilityChecker;
+import com.mopub.common.VisibilityTracker.VisibilityChecker;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
 import com.mopub.network.TrackingRequest;
@@ -59,6 +61,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -143,6 +146,9 @@ public class NativeVideoControllerTest {
         vastVideoConfig.setNetworkMediaFileUrl("networkMediaFileUrl");
 
         when(mockTextureView.getSurfaceTexture()).thenReturn(mockSurfaceTexture);
+        when(mockVastVideoConfig.getProgressTrackerTimeline(anyInt())).thenReturn(
+                new VastProgressTrackerTimeline(new ArrayList<VastAbsoluteProgressTracker>(),
+                        new ArrayList<VastFractionalProgressTracker>(), 25));
 
         subject = createForId(123,
                 activity,
@@ -169,6 +175,7 @@ public class NativeVideoControllerTest {
         spyNativeVideoProgressRunnable = Mockito.spy(nativeVideoProgressRunnable);
 
         Networking.setRequestQueueForTesting(mockRequestQueue);
+        NativeVideoController.clearFirstFrameLatencyHistogram();
     }
 
     @Test
@@ -315,8 +322,9 @@ public class NativeVideoControllerTest {
 
         verify(mockExoPlayer).sendMessage(any(MediaCodecVideoTrackRenderer.class),
                 eq(MediaCodecVideoTrackRenderer.MSG_SET_SURFACE), eq(null));
+        verify(mockExoPlayer).removeListener(subject);
         verify(mockExoPlayer).stop();
-        verify(mockExoPlayer).release();
+        verify(mockExoPlayer, never()).release();
         verify(mockNativeVideoProgressRunnable).stop();
         verify(mockNativeVideoProgressRunnable).setExoPlayer(null);
     }
@@ -371,8 +379,9 @@ public class NativeVideoControllerTest {
         // clear exo player
         verify(mockExoPlayer).sendMessage(any(MediaCodecVideoTrackRenderer.class),
                 eq(MediaCodecVideoTrackRenderer.MSG_SET_SURFACE), eq(null));
+        verify(mockExoPlayer).removeListener(subject);
         verify(mockExoPlayer).stop();
-        verify(mockExoPlayer).release();
+        verify(mockExoPlayer, never()).release();
         verify(mockNativeVideoProgressRunnable).setExoPlayer(null);
     }
 
@@ -387,8 +396,9 @@ public class NativeVideoControllerTest {
         // clear exo player
         verify(mockExoPlayer).sendMessage(any(MediaCodecVideoTrackRenderer.class),
                 eq(MediaCodecVideoTrackRenderer.MSG_SET_SURFACE), eq(null));
+        verify(mockExoPlayer).removeListener(subject);
         verify(mockExoPlayer).stop();
-        verify(mockExoPlayer).release();
+        verify(mockExoPlayer, never()).release();
         verify(mockNativeVideoProgressRunnable).setExoPlayer(null);
     }
 
@@ -405,6 +415,63 @@ public class NativeVideoControllerTest {
         verifyNoMoreInteractions(mockNativeVideoProgressRunnable);
     }
 
+    @Test
+    public void prepare_afterRelease_shouldReusePooledPlayer() {
+        ExoPlayerFactory mockExoPlayerFactory = mock(ExoPlayerFactory.class);
+        when(mockExoPlayerFactory.newInstance(2, 1000, 5000)).thenReturn(mockExoPlayer);
+        subject = createForId(123,
+                activity,
+                vastVideoConfig,
+                mockNativeVideoProgressRunnable,
+                mockExoPlayerFactory,
+                null,
+                mockAudioManager);
+        subject.prepare(this);
+        subject.release(this);
+
+        subject.prepare(this);
+
+        verify(mockExoPlayerFactory, times(1)).newInstance(2, 1000, 5000);
+        verify(mockExoPlayer, times(2)).addListener(subject);
+        verify(mockExoPlayer, never()).release();
+    }
+
+    @Test
+    public void onDrawnToSurface_shouldRecordFirstFrameLatency() {
+        subject.prepare(this);
+
+        subject.getFirstFrameListener().onDrawnToSurface(mock(Surface.class));
+
+        assertThat(NativeVideoController.getFirstFrameLatencyHistogram().getCount())
+                .isEqualTo(1);
+        assertThat(subject.getFirstFrameListener()).isNull();
+    }
+
+    @Test
+    public void onDrawnToSurface_fromEarlierPrepare_shouldNotRecordFirstFrameLatency() {
+        subject.prepare(this);
+        final NativeVideoController.FirstFrameListener firstFrameListener =
+                subject.getFirstFrameListener();
+        subject.release(this);
+
+        firstFrameListener.onDrawnToSurface(mock(Surface.class));
+
+        assertThat(NativeVideoController.getFirstFrameLatencyHistogram().getCount())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void onPlayerError_beforeFirstFrame_shouldRecordFirstFrameFailure() {
+        subject.prepare(this);
+
+        subject.onPlayerError(mock(ExoPlaybackException.class));
+
+        assertThat(NativeVideoController.getFirstFrameLatencyHistogram().getFailureCount())
+                .isEqualTo(1);
+        assertThat(NativeVideoController.getFirstFrameLatencyHistogram().getCount())
+                .isEqualTo(0);
+    }
+
     @Test
     public void onPlayerStateChanged_withStateEnded_shouldSetFinalFrame_shouldRequestProgressRunnableToStop() {
         subject.setTextureView(mockTextureView);
@@ -526,10 +593,14 @@ public class NativeVideoControllerTest {
         when(mockExoPlayer.getDuration()).thenReturn(25L);
         when(mockExoPlayer.getPlayWhenReady()).thenReturn(true);
 
-        VastTracker vastTracker = new VastTracker("vastTrackingUrl");
-        List<VastTracker> vastTrackers = new ArrayList<VastTracker>();
+        VastAbsoluteProgressTracker vastTracker =
+                new VastAbsoluteProgressTracker("vastTrackingUrl", 5);
+        List<VastAbsoluteProgressTracker> vastTrackers =
+                new ArrayList<VastAbsoluteProgressTracker>();
         vastTrackers.add(vastTracker);
-        when(mockVastVideoConfig.getUntriggeredTrackersBefore(10, 25)).thenReturn(vastTrackers);
+        when(mockVastVideoConfig.getProgressTrackerTimeline(25)).thenReturn(
+                new VastProgressTrackerTimeline(vastTrackers,
+                        new ArrayList<VastFractionalProgressTracker>(), 25));
 
         nativeVideoProgressRunnable.doWork();
 
@@ -548,10 +619,14 @@ public class NativeVideoControllerTest {
         when(mockExoPlayer.getDuration()).thenReturn(25L);
         when(mockExoPlayer.getPlayWhenReady()).thenReturn(true);
 
-        VastTracker vastTracker = new VastTracker("vastTrackingUrl");
-        List<VastTracker> vastTrackers = new ArrayList<VastTracker>();
+        VastAbsoluteProgressTracker vastTracker =
+                new VastAbsoluteProgressTracker("vastTrackingUrl", 5);
+        List<VastAbsoluteProgressTracker> vastTrackers =
+                new ArrayList<VastAbsoluteProgressTracker>();
         vastTrackers.add(vastTracker);
-        when(mockVastVideoConfig.getUntriggeredTrackersBefore(10, 25)).thenReturn(vastTrackers);
+        when(mockVastVideoConfig.getProgressTrackerTimeline(25)).thenReturn(
+                new VastProgressTrackerTimeline(vastTrackers,
+                        new ArrayList<VastFractionalProgressTracker>(), 25));
         nativeVideoProgressRunnable.setUpdateIntervalMillis(10);
 
         nativeVideoProgressRunnable.setExoPlayer(null);
@@ -572,10 +647,14 @@ public class NativeVideoControllerTest {
         when(mockExoPlayer.getDuration()).thenReturn(25L);
         when(mockExoPlayer.getPlayWhenReady()).thenReturn(false);
 
-        VastTracker vastTracker = new VastTracker("vastTrackingUrl");
-        List<VastTracker> vastTrackers = new ArrayList<VastTracker>();
+        VastAbsoluteProgressTracker vastTracker =
+                new VastAbsoluteProgressTracker("vastTrackingUrl", 5);
+        List<VastAbsoluteProgressTracker> vastTrackers =
+                new ArrayList<VastAbsoluteProgressTracker>();
         vastTrackers.add(vastTracker);
-        when(mockVastVideoConfig.getUntriggeredTrackersBefore(10, 25)).thenReturn(vastTrackers);
+        when(mockVastVideoConfig.getProgressTrackerTimeline(25)).thenReturn(
+                new VastProgressTrackerTimeline(vastTrackers,
+                        new ArrayList<VastFractionalProgressTracker>(), 25));
         nativeVideoProgressRunnable.setUpdateIntervalMillis(10);
 
         nativeVideoProgressRunnable.doWork();
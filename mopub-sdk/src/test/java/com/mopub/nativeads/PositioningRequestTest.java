@@ -113,6 +113,30 @@ public class PositioningRequestTest {
         assertThat(positioning.getRepeatingInterval()).isEqualTo(2);
     }
 
+    @Test
+    public void toJson_shouldBeParsedBackToSamePositioning() throws Exception {
+        final MoPubNativeAdPositioning.MoPubClientPositioning positioning =
+                new MoPubNativeAdPositioning.MoPubClientPositioning()
+                        .addFixedPosition(1)
+                        .addFixedPosition(8)
+                        .enableRepeatingPositions(5);
+
+        final MoPubNativeAdPositioning.MoPubClientPositioning parsed =
+                PositioningRequest.parseJson(PositioningRequest.toJson(positioning));
+
+        assertThat(parsed.getFixedPositions()).containsExactly(1, 8);
+        assertThat(parsed.getRepeatingInterval()).isEqualTo(5);
+    }
+
+    @Test
+    public void toJson_withNoRepeating_shouldOnlyWriteFixedPositions() throws Exception {
+        final MoPubNativeAdPositioning.MoPubClientPositioning parsed = PositioningRequest.parseJson(
+                PositioningRequest.toJson(new MoPubNativeAdPositioning.MoPubClientPositioning()));
+
+        assertThat(parsed.getFixedPositions()).isEmpty();
+        assertThat(parsed.getRepeatingInterval()).isEqualTo(MoPubNativeAdPositioning.MoPubClientPositioning.NO_REPEAT);
+    }
+
     @Test
     public void parseJson_invalidRepeating_shouldThrowException() throws Exception {
         checkException("{repeating: }", "Missing value at character 12");
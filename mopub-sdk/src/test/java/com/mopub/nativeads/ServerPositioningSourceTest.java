@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.pm.PackageManager;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.DownloadResponse;
 import com.mopub.common.logging.MoPubLog;
@@ -209,4 +210,94 @@ public class ServerPositioningSourceTest {
         // All log messages end with a newline character.
         assertThat(latestLogMessage.msg.trim()).isEqualTo(MoPubErrorCode.NO_CONNECTION.toString());
     }
+
+    @Test
+    public void loadPositions_thenComplete_shouldCachePositioning() throws Exception {
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        final MoPubClientPositioning response = new MoPubClientPositioning()
+                .addFixedPosition(1)
+                .enableRepeatingPositions(3);
+        positionRequestCaptor.getValue().deliverResponse(response);
+
+        final byte[] cached = CacheService.getFromDiskCache(
+                ServerPositioningSource.getDiskCacheKey("test_ad_unit"));
+        assertThat(new String(cached)).isEqualTo(PositioningRequest.toJson(response));
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioning_shouldCallOnLoadBeforeRequestCompletes() {
+        putCachedPositioning("test_ad_unit", "{fixed: [{position: 2}]}");
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockPositioningListener).onLoad(positioningCaptor.capture());
+        assertThat(positioningCaptor.getValue().getFixedPositions()).containsOnly(2);
+        verify(mockRequestQueue).add(any(Request.class));
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioning_thenCompleteWithSamePositioning_shouldNotCallOnLoadAgain() {
+        putCachedPositioning("test_ad_unit", "{fixed: [{position: 2}]}");
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        positionRequestCaptor.getValue().deliverResponse(
+                new MoPubClientPositioning().addFixedPosition(2));
+
+        verify(mockPositioningListener, times(1)).onLoad(any(MoPubClientPositioning.class));
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioning_thenCompleteWithNewPositioning_shouldCallOnLoadAgain() {
+        putCachedPositioning("test_ad_unit", "{fixed: [{position: 2}]}");
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        final MoPubClientPositioning response = new MoPubClientPositioning()
+                .enableRepeatingPositions(3);
+        positionRequestCaptor.getValue().deliverResponse(response);
+
+        verify(mockPositioningListener, times(2)).onLoad(any(MoPubClientPositioning.class));
+        verify(mockPositioningListener).onLoad(eq(response));
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioning_thenFailAfterMaxRetryTime_shouldNotCallFailureHandler() {
+        putCachedPositioning("test_ad_unit", "{fixed: [{position: 2}]}");
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        subject.setMaximumRetryTimeMilliseconds(999);
+
+        verify(mockRequestQueue).add(positionRequestCaptor.capture());
+        positionRequestCaptor.getValue().deliverError(new VolleyError("test error"));
+
+        verify(mockPositioningListener).onLoad(any(MoPubClientPositioning.class));
+        verify(mockPositioningListener, never()).onFailed();
+    }
+
+    @Test
+    public void loadPositions_withInvalidCachedPositioning_shouldIgnoreIt() {
+        putCachedPositioning("test_ad_unit", "blah blah");
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockPositioningListener, never()).onLoad(any(MoPubClientPositioning.class));
+        verify(mockRequestQueue).add(any(Request.class));
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioningForOtherAdUnit_shouldNotCallOnLoad() {
+        putCachedPositioning("other_ad_unit", "{fixed: [{position: 2}]}");
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        verify(mockPositioningListener, never()).onLoad(any(MoPubClientPositioning.class));
+    }
+
+    private void putCachedPositioning(final String adUnitId, final String json) {
+        CacheService.initialize(spyActivity);
+        CacheService.putToDiskCache(ServerPositioningSource.getDiskCacheKey(adUnitId),
+                json.getBytes());
+    }
 }
@@ -0,0 +1,101 @@
+package com.mopub.network;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class BandwidthEstimatorTest {
+
+    private BandwidthEstimator subject;
+
+    @Before
+    public void setUp() {
+        subject = new BandwidthEstimator();
+    }
+
+    @Test
+    public void withNoTransfers_shouldReturnUnknown() throws Exception {
+        assertThat(subject.getBitsPerSecond()).isEqualTo(BandwidthEstimator.UNKNOWN);
+        assertThat(subject.getLatencyMillis()).isEqualTo(BandwidthEstimator.UNKNOWN);
+        assertThat(subject.estimateDownloadMillis(1000)).isEqualTo(BandwidthEstimator.UNKNOWN);
+    }
+
+    @Test
+    public void addTransfer_shouldEstimateBitsPerSecond() throws Exception {
+        // 1 Mbps
+        subject.addTransfer(125000, 1000);
+
+        assertThat(subject.getBitsPerSecond()).isEqualTo(1000000);
+        assertThat(subject.getLatencyMillis()).isEqualTo(BandwidthEstimator.UNKNOWN);
+    }
+
+    @Test
+    public void addTransfer_withOutlier_shouldReturnMedian() throws Exception {
+        subject.addTransfer(125000, 1000);
+        subject.addTransfer(125000, 10);
+        subject.addTransfer(125000, 1000);
+
+        assertThat(subject.getBitsPerSecond()).isEqualTo(1000000);
+    }
+
+    @Test
+    public void addTransfer_shouldDropOldestSamples() throws Exception {
+        // Each of these weighs 1000, so only the last two are kept.
+        subject.addTransfer(1000000, 8000);
+        subject.addTransfer(1000000, 8000);
+        subject.addTransfer(1000000, 800);
+        subject.addTransfer(1000000, 800);
+
+        assertThat(subject.getBitsPerSecond()).isEqualTo(10000000);
+    }
+
+    @Test
+    public void addTransfer_withSmallTransfers_shouldOnlyEstimateLatency() throws Exception {
+        subject.addTransfer(500, 200);
+
+        assertThat(subject.getLatencyMillis()).isEqualTo(200);
+        assertThat(subject.getBitsPerSecond()).isEqualTo(BandwidthEstimator.UNKNOWN);
+
+        subject.addTransfer(500, 600);
+
+        assertThat(subject.getLatencyMillis()).isEqualTo(300);
+    }
+
+    @Test
+    public void addTransfer_withInvalidTransfers_shouldIgnoreThem() throws Exception {
+        subject.addTransfer(0, 100);
+        subject.addTransfer(125000, -1);
+
+        assertThat(subject.getBitsPerSecond()).isEqualTo(BandwidthEstimator.UNKNOWN);
+        assertThat(subject.getLatencyMillis()).isEqualTo(BandwidthEstimator.UNKNOWN);
+    }
+
+    @Test
+    public void estimateDownloadMillis_shouldIncludeLatency() throws Exception {
+        subject.addTransfer(125000, 1000);
+
+        assertThat(subject.estimateDownloadMillis(250000)).isEqualTo(2000);
+
+        subject.addTransfer(500, 300);
+
+        assertThat(subject.estimateDownloadMillis(250000)).isEqualTo(2300);
+    }
+
+    @Test
+    public void clearForTesting_shouldClearDefaultInstance() throws Exception {
+        BandwidthEstimator.getInstance().addTransfer(125000, 1000);
+
+        BandwidthEstimator.clearForTesting();
+
+        assertThat(BandwidthEstimator.getInstance().getBitsPerSecond())
+                .isEqualTo(BandwidthEstimator.UNKNOWN);
+    }
+}
@@ -0,0 +1,105 @@
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class BitmapPoolTest {
+    private BitmapPool subject;
+
+    @Before
+    public void setUp() throws Exception {
+        // Room for two 10x10 ARGB_8888 bitmaps
+        subject = new BitmapPool(800);
+    }
+
+    @Test
+    public void put_shouldAddBitmap() throws Exception {
+        subject.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.getBitmapCount()).isEqualTo(1);
+        assertThat(subject.getSizeBytes()).isEqualTo(400);
+    }
+
+    @Test
+    public void put_withNullOrRecycledBitmap_shouldIgnoreBitmap() throws Exception {
+        final Bitmap recycledBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        recycledBitmap.recycle();
+
+        subject.put(null);
+        subject.put(recycledBitmap);
+
+        assertThat(subject.getBitmapCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void put_whenFull_shouldDropOldestBitmap() throws Exception {
+        final Bitmap first = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        final Bitmap second = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        final Bitmap third = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+
+        subject.put(first);
+        subject.put(second);
+        subject.put(third);
+
+        assertThat(subject.getBitmapCount()).isEqualTo(2);
+        assertThat(subject.getSizeBytes()).isEqualTo(800);
+        assertThat(subject.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(second);
+        assertThat(subject.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(third);
+    }
+
+    @Test
+    public void put_withBitmapLargerThanPool_shouldIgnoreBitmap() throws Exception {
+        subject.put(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.getBitmapCount()).isEqualTo(0);
+        assertThat(subject.getSizeBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_withMatchingBitmap_shouldRemoveAndReturnBitmap() throws Exception {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        subject.put(bitmap);
+
+        assertThat(subject.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+        assertThat(subject.getBitmapCount()).isEqualTo(0);
+        assertThat(subject.getSizeBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_withDifferentConfig_shouldReturnNull() throws Exception {
+        subject.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.get(10, 10, Bitmap.Config.RGB_565)).isNull();
+        assertThat(subject.getBitmapCount()).isEqualTo(1);
+    }
+
+    @Config(sdk = Build.VERSION_CODES.JELLY_BEAN_MR2)
+    @Test
+    public void get_beforeKitKat_withSmallerImage_shouldReturnNull() throws Exception {
+        subject.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.get(5, 5, Bitmap.Config.ARGB_8888)).isNull();
+    }
+
+    @Test
+    public void clear_shouldRemoveAllBitmaps() throws Exception {
+        subject.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+
+        subject.clear();
+
+        assertThat(subject.getBitmapCount()).isEqualTo(0);
+        assertThat(subject.getSizeBytes()).isEqualTo(0);
+    }
+}
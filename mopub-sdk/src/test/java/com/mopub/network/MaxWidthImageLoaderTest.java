@@ -0,0 +1,131 @@
+package com.mopub.network;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.view.Display;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+import com.mopub.volley.Request;
+import com.mopub.volley.toolbox.ImageLoader.ImageContainer;
+import com.mopub.volley.toolbox.ImageLoader.ImageListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class MaxWidthImageLoaderTest {
+    private static final String URL = "http://www.mopub.com/image.png";
+
+    @Mock private MoPubRequestQueue mockRequestQueue;
+    @Mock private ImageListener mockImageListener;
+
+    private int maxImageWidth;
+    private TieredImageCache tieredImageCache;
+    private MaxWidthImageLoader subject;
+
+    @Before
+    public void setUp() throws Exception {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        final Display display = activity.getWindowManager().getDefaultDisplay();
+        maxImageWidth = Math.min(display.getWidth(), display.getHeight());
+
+        CacheService.initialize(activity);
+        tieredImageCache = new TieredImageCache(1024 * 1024);
+        subject = new MaxWidthImageLoader(mockRequestQueue, activity, tieredImageCache);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CacheService.clearAndNullCaches();
+    }
+
+    @Test
+    public void getSizeBucket_shouldRoundUpToPowerOfTwo() throws Exception {
+        assertThat(MaxWidthImageLoader.getSizeBucket(1, 1000)).isEqualTo(
+                MaxWidthImageLoader.MIN_SIZE_BUCKET);
+        assertThat(MaxWidthImageLoader.getSizeBucket(48, 1000)).isEqualTo(64);
+        assertThat(MaxWidthImageLoader.getSizeBucket(64, 1000)).isEqualTo(64);
+        assertThat(MaxWidthImageLoader.getSizeBucket(65, 1000)).isEqualTo(128);
+    }
+
+    @Test
+    public void getSizeBucket_shouldNotExceedMaxSize() throws Exception {
+        assertThat(MaxWidthImageLoader.getSizeBucket(600, 1000)).isEqualTo(1000);
+        assertThat(MaxWidthImageLoader.getSizeBucket(2000, 1000)).isEqualTo(1000);
+    }
+
+    @Test
+    public void getSizeBucket_withUnknownSize_shouldReturnMaxSize() throws Exception {
+        assertThat(MaxWidthImageLoader.getSizeBucket(0, 1000)).isEqualTo(1000);
+        assertThat(MaxWidthImageLoader.getSizeBucket(-1, 1000)).isEqualTo(1000);
+    }
+
+    @Test
+    public void get_withImageCachedForSameSizeBucket_shouldRespondImmediately() throws Exception {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        tieredImageCache.put(MaxWidthImageLoader.getTieredCacheKey(URL, 64, 0), bitmap);
+
+        subject.get(URL, mockImageListener, 50, 0);
+
+        assertThat(getImmediateResponse().getBitmap()).isSameAs(bitmap);
+    }
+
+    @Test
+    public void get_withImageCachedForLargerSizeBucket_shouldRespondImmediatelyWithLargerImage() throws Exception {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        tieredImageCache.put(MaxWidthImageLoader.getTieredCacheKey(URL, maxImageWidth, 0), bitmap);
+
+        subject.get(URL, mockImageListener, 50, 0);
+
+        assertThat(getImmediateResponse().getBitmap()).isSameAs(bitmap);
+    }
+
+    @Test
+    public void get_withImageCachedForSmallerSizeBucket_shouldNotUseSmallerImage() throws Exception {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        tieredImageCache.put(MaxWidthImageLoader.getTieredCacheKey(URL, 64, 0), bitmap);
+
+        subject.get(URL, mockImageListener);
+
+        assertThat(getImmediateResponse().getBitmap()).isNull();
+    }
+
+    @Test
+    public void get_withImageOnlyInDiskTier_shouldNotFetchFromNetwork() throws Exception {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        tieredImageCache.put(MaxWidthImageLoader.getTieredCacheKey(URL, 64, 0), bitmap);
+        tieredImageCache.evictAllFromMemory();
+
+        subject.get(URL, mockImageListener, 50, 0);
+
+        final ArgumentCaptor<ImageContainer> containerCaptor =
+                ArgumentCaptor.forClass(ImageContainer.class);
+        verify(mockImageListener).onResponse(containerCaptor.capture(), eq(false));
+        assertThat(containerCaptor.getValue().getBitmap()).isNotNull();
+        assertThat(tieredImageCache.getDiskHitCount()).isEqualTo(1);
+        assertThat(tieredImageCache.getMissCount()).isEqualTo(0);
+        verify(mockRequestQueue, never()).add(any(Request.class));
+    }
+
+    private ImageContainer getImmediateResponse() {
+        final ArgumentCaptor<ImageContainer> containerCaptor =
+                ArgumentCaptor.forClass(ImageContainer.class);
+        verify(mockImageListener).onResponse(containerCaptor.capture(), eq(true));
+        return containerCaptor.getValue();
+    }
+}
@@ -0,0 +1,213 @@
+package com.mopub.network;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.MemoryGovernor.TrimLevel;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.BuildConfig;
+import com.mopub.volley.Cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class TieredImageCacheTest {
+    private static final String URL = "http://www.mopub.com/image.png";
+    private static final String KEY = "#W100#H0" + URL;
+
+    @Mock private TieredImageCache.DiskCacheListener mockDiskCacheListener;
+    @Mock private Cache mockNetworkCache;
+
+    private Bitmap bitmap;
+    private TieredImageCache subject;
+
+    @Before
+    public void setUp() throws Exception {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        CacheService.initialize(activity);
+
+        bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        subject = new TieredImageCache(4000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CacheService.clearAndNullCaches();
+    }
+
+    @Test
+    public void getFromMemory_withCachedBitmap_shouldReturnBitmap_shouldCountMemoryHit() throws Exception {
+        subject.put(KEY, bitmap);
+
+        assertThat(subject.getFromMemory(KEY)).isSameAs(bitmap);
+        assertThat(subject.getMemoryHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getFromMemory_withoutCachedBitmap_shouldReturnNull() throws Exception {
+        assertThat(subject.getFromMemory(KEY)).isNull();
+        assertThat(subject.getMemoryHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getFromDiskAsync_withoutCachedImage_shouldCallListenerWithNull() throws Exception {
+        subject.getFromDiskAsync(KEY, mockDiskCacheListener);
+
+        verify(mockDiskCacheListener).onComplete(KEY, (Bitmap) isNull());
+        assertThat(subject.getDiskHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void evict_withBitmapThatWasNeverDisplayed_shouldNotPoolBitmap() throws Exception {
+        subject.put(KEY, bitmap);
+
+        subject.evictAllFromMemory();
+
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void evict_withBitmapThatWasDisplayedAndReleased_shouldPoolBitmap() throws Exception {
+        subject.put(KEY, bitmap);
+        subject.onBitmapDisplayed(bitmap);
+        subject.onBitmapReleased(bitmap);
+
+        subject.evictAllFromMemory();
+
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void evict_withBitmapThatIsDisplayed_shouldPoolBitmapOnceReleasedByAllViews() throws Exception {
+        subject.put(KEY, bitmap);
+        subject.onBitmapDisplayed(bitmap);
+        subject.onBitmapDisplayed(bitmap);
+
+        subject.evictAllFromMemory();
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(0);
+
+        subject.onBitmapReleased(bitmap);
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(0);
+
+        subject.onBitmapReleased(bitmap);
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onBitmapReleased_withBitmapThatWasNeverDisplayed_shouldNotPoolBitmap() throws Exception {
+        subject.put(KEY, bitmap);
+        subject.evictAllFromMemory();
+
+        subject.onBitmapReleased(bitmap);
+
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getHitRate_shouldIncludeMemoryHitsAndMisses() throws Exception {
+        assertThat(subject.getHitRate()).isEqualTo(0f);
+
+        subject.put(KEY, bitmap);
+        subject.getFromMemory(KEY);
+        subject.recordMiss();
+
+        assertThat(subject.getMissCount()).isEqualTo(1);
+        assertThat(subject.getHitRate()).isEqualTo(0.5f);
+    }
+
+    @Test
+    public void getFootprintBytes_shouldIncludeMemoryTierAndBitmapPool() throws Exception {
+        subject.put(KEY, bitmap);
+        subject.onBitmapDisplayed(bitmap);
+        subject.onBitmapReleased(bitmap);
+        assertThat(subject.getFootprintBytes()).isEqualTo(400);
+
+        subject.evictAllFromMemory();
+
+        assertThat(subject.getFootprintBytes()).isEqualTo(400);
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getDiskCacheFormat_withJpeg_shouldKeepJpeg_otherwiseShouldUsePng() throws Exception {
+        assertThat(TieredImageCache.getDiskCacheFormat(
+                new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 }))
+                .isEqualTo(Bitmap.CompressFormat.JPEG);
+        assertThat(TieredImageCache.getDiskCacheFormat(
+                new byte[] { (byte) 0x89, 'P', 'N', 'G' }))
+                .isEqualTo(Bitmap.CompressFormat.PNG);
+        assertThat(TieredImageCache.getDiskCacheFormat(new byte[] { (byte) 0xFF }))
+                .isEqualTo(Bitmap.CompressFormat.PNG);
+        assertThat(TieredImageCache.getDiskCacheFormat(null))
+                .isEqualTo(Bitmap.CompressFormat.PNG);
+    }
+
+    @Test
+    public void put_withImageInNetworkCache_shouldOnlyWriteDiskTierIfMuchSmaller() throws Exception {
+        // Robolectric decodes the bounds of any image as 100x100.
+        final Cache.Entry originalEntry = new Cache.Entry();
+        originalEntry.data = new byte[] { (byte) 0xFF, (byte) 0xD8 };
+        when(mockNetworkCache.get(URL)).thenReturn(originalEntry);
+        subject = new TieredImageCache(100000, mockNetworkCache);
+
+        subject.put("#W128#H0" + URL, Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888), URL);
+        subject.put("#W64#H0" + URL, Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888), URL);
+
+        assertThat(subject.shouldLookUpDiskCache("#W128#H0" + URL)).isFalse();
+        assertThat(subject.shouldLookUpDiskCache("#W64#H0" + URL)).isTrue();
+        subject.getFromDiskAsync("#W64#H0" + URL, mockDiskCacheListener);
+        verify(mockDiskCacheListener).onComplete(eq("#W64#H0" + URL), notNull(Bitmap.class));
+    }
+
+    @Test
+    public void isWorthDiskCaching_shouldRequireDownsampling() throws Exception {
+        final byte[] originalBytes = new byte[] { (byte) 0x89, 'P', 'N', 'G' };
+
+        assertThat(TieredImageCache.isWorthDiskCaching(
+                Bitmap.createBitmap(50, 50, Bitmap.Config.ARGB_8888), originalBytes)).isTrue();
+        assertThat(TieredImageCache.isWorthDiskCaching(
+                Bitmap.createBitmap(51, 51, Bitmap.Config.ARGB_8888), originalBytes)).isFalse();
+        assertThat(TieredImageCache.isWorthDiskCaching(
+                Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888), null)).isTrue();
+    }
+
+    @Test
+    public void trimMemory_withModerateLevel_shouldKeepMostRecentlyUsedBitmaps() throws Exception {
+        final Bitmap otherBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        subject.put(KEY, bitmap);
+        subject.put("other", otherBitmap);
+
+        subject.trimMemory(TrimLevel.MODERATE);
+
+        assertThat(subject.getFromMemory(KEY)).isNull();
+        assertThat(subject.getFromMemory("other")).isSameAs(otherBitmap);
+    }
+
+    @Test
+    public void trimMemory_withCompleteLevel_shouldClearMemoryTierAndBitmapPool() throws Exception {
+        subject.put(KEY, bitmap);
+        subject.onBitmapDisplayed(bitmap);
+        subject.onBitmapReleased(bitmap);
+
+        subject.trimMemory(TrimLevel.COMPLETE);
+
+        assertThat(subject.getFromMemory(KEY)).isNull();
+        assertThat(subject.getBitmapPool().getBitmapCount()).isEqualTo(0);
+        assertThat(subject.getFootprintBytes()).isEqualTo(0);
+    }
+}